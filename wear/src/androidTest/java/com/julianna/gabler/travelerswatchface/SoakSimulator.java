@@ -0,0 +1,494 @@
+package com.julianna.gabler.travelerswatchface;
+
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Rect;
+import android.os.Debug;
+import android.os.SystemClock;
+import android.support.wearable.complications.ComplicationData;
+import android.support.wearable.complications.ComplicationText;
+import android.support.wearable.watchface.CanvasWatchFaceService;
+import android.support.wearable.watchface.WatchFaceService;
+import android.view.SurfaceHolder;
+
+import java.io.PrintWriter;
+import java.util.Random;
+import java.util.TimeZone;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @Class SoakSimulator
+ * drives an engine through days of virtual time to catch slow leaks and timer drift. The
+ * simulator is the engine's host, set when the engine is constructed: the engine reads time from
+ * it, hands it its timer ticks and frames instead of the handler and the surface, and every frame
+ * is drawn into an offscreen bitmap. Each virtual minute replays the minute tick plus a random mix
+ * of wake ups, visibility flips, time zone and surface changes, complication update bursts and
+ * touches. Runs the whole way through on the engine's thread, so what the engine hands to its
+ * loader thread only comes back once the run is over
+ */
+class SoakSimulator implements FaceHost {
+
+    static final int DEFAULT_DAYS = 7;
+
+    private static final long MILLIS_PER_MINUTE = TimeUnit.MINUTES.toMillis(1);
+    private static final int MINUTES_PER_DAY = (int) TimeUnit.DAYS.toMinutes(1);
+
+    // per minute odds of each event
+    private static final float WAKE_ODDS = 0.05f;
+    private static final float HIDE_ODDS = 0.01f;
+    private static final float BURST_ODDS = 0.02f;
+    private static final float TIME_ZONE_ODDS = 2f / MINUTES_PER_DAY;
+    private static final float SURFACE_ODDS = 1f / MINUTES_PER_DAY;
+
+    private static final int MAX_INTERACTIVE_SECONDS = 60;
+    private static final int MAX_HIDDEN_MINUTES = 10;
+    private static final int MAX_BURST_UPDATES = 20;
+
+    // a handler delivers a message up to a frame late
+    private static final int MAX_HANDLER_LATENCY_MS = 16;
+
+    // how late a tick can run, after the handler's latency and a slow frame, before it's flagged
+    private static final long DRIFT_LIMIT_MS = 50;
+
+    private static final int[] SURFACE_SIZES = {320, 360, 400};
+    private static final String[] TIME_ZONES = {
+            "America/New_York",
+            "Europe/London",
+            "Asia/Tokyo",
+            "Australia/Adelaide"
+    };
+
+    // heap growth over the run (after the first day, which warms the caches) that gets flagged
+    private static final long HEAP_GROWTH_LIMIT_BYTES = 1024 * 1024;
+
+    private final Random mRandom;
+    private CanvasWatchFaceService.Engine mEngine;
+
+    // virtual clock
+    private long mNowMillis;
+    private long mUptimeOffsetMillis;
+    private TimeZone mTimeZone = TimeZone.getDefault();
+
+    // state the simulator has put the engine in
+    private boolean mVisible = true;
+    private boolean mAmbient = true;
+    private int mSurfaceSize = SURFACE_SIZES[0];
+    private long mWakeUntilMillis;
+    private long mShowAtMillis;
+
+    // timer tick the engine has asked for and when it's due, or -1
+    private Runnable mTick;
+    private long mTickAtMillis = -1;
+    private boolean mFramePending;
+    private long mLockNanos;
+
+    private Bitmap mFrameBitmap;
+    private final Canvas mFrameCanvas = new Canvas();
+    private final Rect mFrameBounds = new Rect();
+
+    private int mFullFrames;
+    private int mRegionFrames;
+    private int mTimerTicks;
+    private int mStalls;
+    private int mWakes;
+    private int mHides;
+    private int mBursts;
+    private int mComplicationUpdates;
+    private int mTimeZoneChanges;
+    private int mSurfaceChanges;
+    private int mTouches;
+    private final LatencyStats mDriftStats = new LatencyStats("Soak timer drift", 1024);
+
+    // per day memory, sampled at the end of each virtual day
+    private long[] mHeapBytes;
+    private long[] mNativeHeapBytes;
+
+    /**
+     * constructor
+     * @param seed long so a run that found a problem can be replayed
+     */
+    SoakSimulator(long seed) {
+        mRandom = new Random(seed);
+
+        long startMillis = System.currentTimeMillis();
+        mNowMillis = startMillis;
+        mUptimeOffsetMillis = startMillis - SystemClock.uptimeMillis();
+    }
+
+    /**
+     * @return long virtual wall clock time
+     */
+    @Override
+    public long currentTimeMillis() {
+        return mNowMillis;
+    }
+
+    /**
+     * @return long virtual uptime
+     */
+    @Override
+    public long uptimeMillis() {
+        return mNowMillis - mUptimeOffsetMillis;
+    }
+
+    /**
+     * @return long virtual time since boot, which is uptime as the simulated watch never sleeps
+     */
+    @Override
+    public long elapsedRealtime() {
+        return uptimeMillis();
+    }
+
+    /**
+     * @return TimeZone
+     */
+    @Override
+    public TimeZone getTimeZone() {
+        return mTimeZone;
+    }
+
+    /**
+     * @return boolean whether the simulated face is visible
+     */
+    @Override
+    public boolean isVisible() {
+        return mVisible;
+    }
+
+    /**
+     * the engine's timer, replacing a delayed handler message
+     * @param tick Runnable
+     * @param delayMillis long
+     */
+    @Override
+    public void scheduleTimer(Runnable tick, long delayMillis) {
+        mTick = tick;
+        mTickAtMillis = mNowMillis + delayMillis;
+    }
+
+    /**
+     * @param tick Runnable
+     */
+    @Override
+    public void cancelTimer(Runnable tick) {
+        mTick = null;
+        mTickAtMillis = -1;
+    }
+
+    /**
+     * the engine's invalidate(), the frame is drawn once the current event is handled
+     */
+    @Override
+    public void requestFrame() {
+        mFramePending = true;
+    }
+
+    /**
+     * the engine's partial redraw, drawn straight away into the offscreen frame
+     * @param dirty Rect
+     * @return Canvas
+     */
+    @Override
+    public Canvas lockCanvas(Rect dirty) {
+        if (mFrameBitmap == null) {
+            return null;
+        }
+        mLockNanos = System.nanoTime();
+        return mFrameCanvas;
+    }
+
+    /**
+     * the virtual clock runs on for as long as the region took
+     * @param canvas Canvas
+     */
+    @Override
+    public void unlockCanvasAndPost(Canvas canvas) {
+        mNowMillis += TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - mLockNanos);
+        mRegionFrames++;
+    }
+
+    /**
+     * @return Rect
+     */
+    @Override
+    public Rect getSurfaceFrame() {
+        return mFrameBounds;
+    }
+
+    /**
+     * runs the simulation on an engine created with this simulator as its host, then destroys
+     * the engine and writes the report
+     * @param engine CanvasWatchFaceService.Engine
+     * @param days int virtual days to run
+     * @param writer PrintWriter
+     * @return boolean whether the run looked healthy: no leak, no stalled or drifting timer
+     */
+    boolean run(CanvasWatchFaceService.Engine engine, int days, PrintWriter writer) {
+        long wallStartMillis = SystemClock.elapsedRealtime();
+        long startMillis = mNowMillis;
+        mEngine = engine;
+
+        mHeapBytes = new long[days];
+        mNativeHeapBytes = new long[days];
+
+        mEngine.onCreate(mEngine.getSurfaceHolder());
+        changeSurface(mSurfaceSize);
+        mEngine.onVisibilityChanged(true);
+        mEngine.onAmbientModeChanged(true);
+        flushFrame();
+
+        for (int day = 0; day < days; day++) {
+            runDay(day, startMillis);
+            sampleMemory(day);
+        }
+
+        mEngine.onDestroy();
+        releaseFrameBitmap();
+        return report(days, SystemClock.elapsedRealtime() - wallStartMillis, writer);
+    }
+
+    /**
+     * @param day int
+     * @param startMillis long virtual time the run started at
+     */
+    private void runDay(int day, long startMillis) {
+        for (int minute = 0; minute < MINUTES_PER_DAY; minute++) {
+            runMinute(startMillis + (day * MINUTES_PER_DAY + minute) * MILLIS_PER_MINUTE);
+        }
+    }
+
+    /**
+     * @param minuteStart long
+     */
+    private void runMinute(long minuteStart) {
+        advanceTo(minuteStart);
+
+        // the system ticks every minute, in ambient that's the only update
+        mEngine.onTimeTick();
+        flushFrame();
+
+        if (!mVisible && minuteStart >= mShowAtMillis) {
+            setVisible(true);
+        }
+        if (mAmbient && mVisible && mRandom.nextFloat() < WAKE_ODDS) {
+            wake(minuteStart + mRandom.nextInt((int) MILLIS_PER_MINUTE / 2));
+        }
+        if (mVisible && mRandom.nextFloat() < HIDE_ODDS) {
+            advanceTo(minuteStart + mRandom.nextInt((int) MILLIS_PER_MINUTE));
+            mShowAtMillis = mNowMillis + (1 + mRandom.nextInt(MAX_HIDDEN_MINUTES)) * MILLIS_PER_MINUTE;
+            setVisible(false);
+            mHides++;
+        }
+        if (mRandom.nextFloat() < BURST_ODDS) {
+            advanceTo(minuteStart + mRandom.nextInt((int) MILLIS_PER_MINUTE));
+            burstComplicationUpdates();
+        }
+        if (mVisible && mRandom.nextFloat() < TIME_ZONE_ODDS) {
+            // the engine picks up the new zone as it's shown again, as after a flight
+            setVisible(false);
+            mTimeZone = TimeZone.getTimeZone(TIME_ZONES[mRandom.nextInt(TIME_ZONES.length)]);
+            setVisible(true);
+            mTimeZoneChanges++;
+        }
+        if (mRandom.nextFloat() < SURFACE_ODDS) {
+            changeSurface(SURFACE_SIZES[mRandom.nextInt(SURFACE_SIZES.length)]);
+            mSurfaceChanges++;
+        }
+
+        // an interactive session can run past the end of the minute, the next one picks it up
+        long minuteEnd = minuteStart + MILLIS_PER_MINUTE - 1;
+        if (!mAmbient && mWakeUntilMillis <= minuteEnd) {
+            advanceTo(mWakeUntilMillis);
+            mEngine.onAmbientModeChanged(true);
+            mAmbient = true;
+            flushFrame();
+        }
+        advanceTo(minuteEnd);
+    }
+
+    /**
+     * moves the clock forward, delivering every timer tick that falls due on the way
+     * @param millis long
+     */
+    private void advanceTo(long millis) {
+        while (mTickAtMillis != -1 && mTickAtMillis <= millis) {
+            long tickAt = mTickAtMillis;
+            Runnable tick = mTick;
+            mTickAtMillis = -1;
+            mTick = null;
+            mNowMillis = Math.max(mNowMillis, tickAt + mRandom.nextInt(MAX_HANDLER_LATENCY_MS));
+
+            // how late the handler runs the tick, frames drawn before it holding it up included
+            mDriftStats.add(TimeUnit.MILLISECONDS.toNanos(mNowMillis - tickAt));
+            tick.run();
+            mTimerTicks++;
+            flushFrame();
+        }
+        mNowMillis = Math.max(mNowMillis, millis);
+
+        // an interactive visible face always has its next tick coming
+        if (mVisible && !mAmbient && mTickAtMillis == -1) {
+            mStalls++;
+        }
+    }
+
+    /**
+     * wakes the face for a short interactive session with a touch or two in it
+     * @param wakeAt long
+     */
+    private void wake(long wakeAt) {
+        advanceTo(wakeAt);
+        mWakeUntilMillis = wakeAt + TimeUnit.SECONDS.toMillis(
+                5 + mRandom.nextInt(MAX_INTERACTIVE_SECONDS));
+        mEngine.onAmbientModeChanged(false);
+        mAmbient = false;
+        mWakes++;
+        flushFrame();
+
+        int touches = mRandom.nextInt(3);
+        for (int i = 0; i < touches; i++) {
+            int remaining = (int) (mWakeUntilMillis - mNowMillis);
+            if (remaining <= 0) {
+                break;
+            }
+            advanceTo(mNowMillis + mRandom.nextInt(remaining));
+            touch();
+        }
+    }
+
+    /**
+     * touches and lets go without tapping, which highlights a complication but doesn't launch
+     * its action on the watch the simulator is running on
+     */
+    private void touch() {
+        int x = mRandom.nextInt(mSurfaceSize);
+        int y = mRandom.nextInt(mSurfaceSize);
+        long uptime = uptimeMillis();
+
+        mEngine.onTapCommand(WatchFaceService.TAP_TYPE_TOUCH, x, y, uptime);
+        flushFrame();
+        advanceTo(mNowMillis + 100 + mRandom.nextInt(200));
+        mEngine.onTapCommand(WatchFaceService.TAP_TYPE_TOUCH_CANCEL, x, y, uptime);
+        flushFrame();
+        mTouches++;
+    }
+
+    /**
+     * a provider refreshing several times in a row
+     */
+    private void burstComplicationUpdates() {
+        int[] complicationIDs = TravelersWatchFace.COMPLICATION_SLOTS.getIDs();
+        int updates = 1 + mRandom.nextInt(MAX_BURST_UPDATES);
+
+        for (int i = 0; i < updates; i++) {
+            ComplicationData data = new ComplicationData.Builder(ComplicationData.TYPE_SHORT_TEXT)
+                    .setShortText(ComplicationText.plainText(String.valueOf(mRandom.nextInt(1000))))
+                    .build();
+            mEngine.onComplicationDataUpdate(
+                    complicationIDs[mRandom.nextInt(complicationIDs.length)], data);
+            mComplicationUpdates++;
+        }
+        mBursts++;
+        flushFrame();
+    }
+
+    /**
+     * @param visible boolean
+     */
+    private void setVisible(boolean visible) {
+        mVisible = visible;
+        mEngine.onVisibilityChanged(visible);
+        flushFrame();
+    }
+
+    /**
+     * @param size int
+     */
+    private void changeSurface(int size) {
+        mSurfaceSize = size;
+        releaseFrameBitmap();
+        mFrameBitmap = Bitmap.createBitmap(size, size, Bitmap.Config.ARGB_8888);
+        mFrameCanvas.setBitmap(mFrameBitmap);
+        mFrameBounds.set(0, 0, size, size);
+
+        SurfaceHolder holder = mEngine.getSurfaceHolder();
+        mEngine.onSurfaceChanged(holder, 0, size, size);
+        flushFrame();
+    }
+
+    /**
+     * draws the frame the engine asked for, like the next vsync would
+     */
+    private void flushFrame() {
+        if (!mFramePending || !mVisible) {
+            return;
+        }
+        mFramePending = false;
+
+        // into the offscreen bitmap, the virtual clock running on for as long as it takes
+        long startNanos = System.nanoTime();
+        mEngine.onDraw(mFrameCanvas, mFrameBounds);
+        mNowMillis += TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+        mFullFrames++;
+    }
+
+    private void releaseFrameBitmap() {
+        mFrameCanvas.setBitmap(null);
+        if (mFrameBitmap != null) {
+            mFrameBitmap.recycle();
+            mFrameBitmap = null;
+        }
+    }
+
+    /**
+     * @param day int
+     */
+    private void sampleMemory(int day) {
+        Runtime runtime = Runtime.getRuntime();
+        runtime.gc();
+        runtime.runFinalization();
+        runtime.gc();
+
+        mHeapBytes[day] = runtime.totalMemory() - runtime.freeMemory();
+        mNativeHeapBytes[day] = Debug.getNativeHeapAllocatedSize();
+    }
+
+    /**
+     * @param days int
+     * @param wallMillis long
+     * @param writer PrintWriter
+     * @return boolean whether the run looked healthy
+     */
+    private boolean report(int days, long wallMillis, PrintWriter writer) {
+        writer.println("Soak: " + days + " virtual days in " + wallMillis + "ms");
+        writer.println("  events: " + mWakes + " wakes, " + mTouches + " touches, "
+                + mHides + " hides, " + mBursts + " bursts (" + mComplicationUpdates
+                + " updates), " + mTimeZoneChanges + " time zone changes, " + mSurfaceChanges
+                + " surface changes");
+        writer.println("  redraws: " + mFullFrames + " full, " + mRegionFrames
+                + " partial, " + mTimerTicks + " timer ticks, " + mStalls + " stalls");
+        mDriftStats.dump("  ", writer);
+
+        for (int day = 0; day < days; day++) {
+            writer.println("  day " + (day + 1) + ": heap " + (mHeapBytes[day] / 1024)
+                    + "KB, native " + (mNativeHeapBytes[day] / 1024) + "KB");
+        }
+
+        boolean leaking = false;
+        if (days > 1) {
+            long heapGrowth = (mHeapBytes[days - 1] + mNativeHeapBytes[days - 1])
+                    - (mHeapBytes[0] + mNativeHeapBytes[0]);
+            leaking = heapGrowth > HEAP_GROWTH_LIMIT_BYTES;
+
+            writer.println("  growth after day 1: " + (heapGrowth / 1024) + "KB"
+                    + (leaking ? " LEAKING" : ""));
+        }
+
+        boolean drifting = mStalls > 0
+                || mDriftStats.getMaxNanos() > TimeUnit.MILLISECONDS.toNanos(DRIFT_LIMIT_MS);
+        if (drifting) {
+            writer.println("  TIMER DRIFTING");
+        }
+        return !leaking && !drifting;
+    }
+}
@@ -0,0 +1,90 @@
+package com.julianna.gabler.travelerswatchface;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.support.test.InstrumentationRegistry;
+import android.support.test.runner.AndroidJUnit4;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.io.File;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+
+import static org.junit.Assert.*;
+
+/**
+ * runs a separate engine through days of virtual time on the device, see SoakSimulator. The face
+ * on screen is never touched. The number of days can be passed to the runner,
+ * e.g. adb shell am instrument -w -e soakDays 30 com.julianna.gabler.travelerswatchface.test/
+ * android.support.test.runner.AndroidJUnitRunner
+ */
+@RunWith(AndroidJUnit4.class)
+public class SoakTest {
+
+    private static final String ARGUMENT_DAYS = "soakDays";
+
+    /**
+     * the face as a plain object rather than a service the system bound, with its files and
+     * preferences kept apart from the installed face's
+     */
+    private static class SoakWatchFace extends TravelersWatchFace {
+
+        /**
+         * constructor
+         * @param base Context
+         */
+        SoakWatchFace(Context base) {
+            attachBaseContext(base);
+        }
+
+        @Override
+        public File getCacheDir() {
+            return soakDir(super.getCacheDir());
+        }
+
+        @Override
+        public File getFilesDir() {
+            return soakDir(super.getFilesDir());
+        }
+
+        @Override
+        public SharedPreferences getSharedPreferences(String name, int mode) {
+            return super.getSharedPreferences("soak_" + name, mode);
+        }
+
+        /**
+         * @param parent File
+         * @return File
+         */
+        private static File soakDir(File parent) {
+            File dir = new File(parent, "soak");
+            dir.mkdirs();
+            return dir;
+        }
+    }
+
+    @Test
+    public void engine_runsDaysWithoutLeakingOrDrifting() throws Exception {
+        final Context context = InstrumentationRegistry.getTargetContext();
+        final int days = Integer.parseInt(InstrumentationRegistry.getArguments().getString(
+                ARGUMENT_DAYS, String.valueOf(SoakSimulator.DEFAULT_DAYS)));
+        final long seed = System.currentTimeMillis();
+        final StringWriter report = new StringWriter();
+        final boolean[] healthy = new boolean[1];
+
+        // the engine's handler needs a looper, and the engine expects to run on the main thread
+        InstrumentationRegistry.getInstrumentation().runOnMainSync(new Runnable() {
+            @Override
+            public void run() {
+                SoakSimulator simulator = new SoakSimulator(seed);
+                TravelersWatchFace face = new SoakWatchFace(context);
+                healthy[0] = simulator.run(
+                        face.createEngine(simulator), days, new PrintWriter(report, true));
+            }
+        });
+
+        assertTrue("seed " + seed + "\n" + report, healthy[0]);
+    }
+}
@@ -0,0 +1,191 @@
+package com.julianna.gabler.travelerswatchface;
+
+import android.content.res.Resources;
+import android.graphics.Bitmap;
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.os.Process;
+
+import java.io.File;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * @Class BackgroundLoader
+ * decodes and scales background images on its own thread so they're ready before they're needed.
+ * Each finished bitmap is sent back to the result handler as a message with the resource id in
+ * arg1 and the bitmap in obj, or null if the image couldn't be decoded; the receiver owns the
+ * bitmap from then on. Text contrast analyses run on the same thread and come back with the
+ * TextContrast mask in arg1 (UNKNOWN if the image couldn't be decoded), the time it took in
+ * microseconds in arg2 and the cache key in obj. Face snapshots are written here too, and come
+ * back with the microseconds taken in arg1 and the bytes written in arg2 (-1 if it failed)
+ */
+class BackgroundLoader {
+
+    /**
+     * arg2 of a result from warmUp(), load() results have 0
+     */
+    static final int WARM_UP = 1;
+
+    private final Resources mResources;
+    private final BitmapPool mBitmapPool;
+    private final Handler mResultHandler;
+    private final int mResultWhat;
+    private final int mContrastWhat;
+    private final int mSnapshotWhat;
+
+    private final HandlerThread mThread;
+    private final Handler mWorkerHandler;
+
+    // the decode queued but not started yet, replaced by the next one
+    private Runnable mPendingLoad;
+
+    // the latest snapshot write, older ones still queued are skipped
+    private final AtomicReference<Runnable> mPendingSnapshot = new AtomicReference<>();
+
+    /**
+     * constructor, starts the worker thread
+     * @param resources Resources
+     * @param bitmapPool BitmapPool decodes and scaled copies are borrowed from
+     * @param resultHandler Handler
+     * @param resultWhat int message id used for results
+     * @param contrastWhat int message id used for text contrast results
+     * @param snapshotWhat int message id used for snapshot writes
+     */
+    BackgroundLoader(
+            Resources resources,
+            BitmapPool bitmapPool,
+            Handler resultHandler,
+            int resultWhat,
+            int contrastWhat,
+            int snapshotWhat
+    ) {
+        mResources = resources;
+        mBitmapPool = bitmapPool;
+        mResultHandler = resultHandler;
+        mResultWhat = resultWhat;
+        mContrastWhat = contrastWhat;
+        mSnapshotWhat = snapshotWhat;
+
+        mThread = new HandlerThread("BackgroundLoader", Process.THREAD_PRIORITY_BACKGROUND);
+        mThread.start();
+        mWorkerHandler = new Handler(mThread.getLooper());
+    }
+
+    /**
+     * queues a decode, replacing any that hasn't started yet
+     * @param resID int drawable to decode
+     * @param width int
+     * @param height int
+     */
+    void load(final int resID, final int width, final int height) {
+        if (mPendingLoad != null) {
+            mWorkerHandler.removeCallbacks(mPendingLoad);
+        }
+        mPendingLoad = createLoad(resID, width, height, 0);
+        mWorkerHandler.post(mPendingLoad);
+    }
+
+    /**
+     * queues a decode of the background a snapshot stands in for. It goes ahead of anything
+     * queued, isn't replaced by later loads, and comes back with arg2 set to WARM_UP
+     * @param resID int
+     * @param width int
+     * @param height int
+     */
+    void warmUp(int resID, int width, int height) {
+        mWorkerHandler.postAtFrontOfQueue(createLoad(resID, width, height, WARM_UP));
+    }
+
+    /**
+     * @param resID int
+     * @param width int
+     * @param height int
+     * @param kind int sent back in arg2
+     * @return Runnable decoding the background and sending it back
+     */
+    private Runnable createLoad(final int resID, final int width, final int height,
+                                final int kind) {
+        return new Runnable() {
+            @Override
+            public void run() {
+                Bitmap bitmap = mBitmapPool.decodeScaled(mResources, resID, width, height);
+                mResultHandler.sendMessage(
+                        mResultHandler.obtainMessage(mResultWhat, resID, kind, bitmap));
+            }
+        };
+    }
+
+    /**
+     * queues a text contrast analysis of a background. It's decoded small, at the largest
+     * power of two subsample that keeps TextContrast.ANALYSIS_SIZE px a side, and the pixels go
+     * back to the pool right after
+     * @param resID int drawable to analyze
+     * @param key String TextContrast cache key, passed back with the result
+     * @param regions float[] from TextContrast.textRegions(), not changed after this call
+     */
+    void analyzeContrast(final int resID, final String key, final float[] regions) {
+        mWorkerHandler.post(new Runnable() {
+            @Override
+            public void run() {
+                long startNanos = System.nanoTime();
+
+                Bitmap sample = mBitmapPool.decode(mResources, resID,
+                        TextContrast.ANALYSIS_SIZE, TextContrast.ANALYSIS_SIZE);
+                if (sample == null) {
+                    mResultHandler.sendMessage(mResultHandler.obtainMessage(
+                            mContrastWhat, TextContrast.UNKNOWN, 0, key));
+                    return;
+                }
+                int width = sample.getWidth();
+                int height = sample.getHeight();
+                int[] pixels = new int[width * height];
+                sample.getPixels(pixels, 0, width, 0, 0, width, height);
+                mBitmapPool.release(sample);
+
+                // the background is stretched over the surface, so fractions of either match
+                int mask = TextContrast.analyze(pixels, width, height, regions);
+                int micros = (int) ((System.nanoTime() - startNanos) / 1000);
+                mResultHandler.sendMessage(
+                        mResultHandler.obtainMessage(mContrastWhat, mask, micros, key));
+            }
+        });
+    }
+
+    /**
+     * queues writing a snapshot
+     * @param snapshot FaceSnapshot not changed after this call
+     * @param file File
+     * @param captureNanos long time already spent capturing it, counted in the result
+     */
+    void writeSnapshot(final FaceSnapshot snapshot, final File file, final long captureNanos) {
+        Runnable write = new Runnable() {
+            @Override
+            public void run() {
+                if (!mPendingSnapshot.compareAndSet(this, null)) {
+                    return;
+                }
+
+                long startNanos = System.nanoTime();
+                int bytes = snapshot.writeFile(file);
+                int micros = (int) ((System.nanoTime() - startNanos + captureNanos) / 1000);
+                mResultHandler.sendMessage(
+                        mResultHandler.obtainMessage(mSnapshotWhat, micros, bytes));
+            }
+        };
+        mPendingSnapshot.set(write);
+        mWorkerHandler.post(write);
+    }
+
+    /**
+     * stops the worker thread, dropping anything still queued except a snapshot write, which
+     * is finished first so the next engine can resume from it
+     */
+    void quit() {
+        mWorkerHandler.removeCallbacksAndMessages(null);
+        Runnable snapshot = mPendingSnapshot.get();
+        if (snapshot != null) {
+            mWorkerHandler.post(snapshot);
+        }
+        mThread.quitSafely();
+    }
+}
@@ -0,0 +1,256 @@
+package com.julianna.gabler.travelerswatchface;
+
+import android.content.res.Resources;
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.Paint;
+import android.graphics.Rect;
+
+import java.io.PrintWriter;
+
+/**
+ * @Class BitmapPool
+ * free bitmaps kept for reuse, bucketed by size and config, so scaled backgrounds, gray copies
+ * and layers are borrowed from earlier ones instead of allocating several hundred KB each time.
+ * Decodes reuse any free bitmap big enough through BitmapFactory.Options.inBitmap. Shared by the
+ * engines and the loader thread, so every method touching the free bitmaps is synchronized; the
+ * bookkeeping itself is FreeBitmaps. Decoding and scaling happen outside the lock, a decode on the
+ * loader thread never holds up an acquire on the main thread
+ */
+class BitmapPool implements ManagedBitmaps.Recycler<Bitmap>, FreeBitmaps.Adapter<Bitmap> {
+
+    private final FreeBitmaps<Bitmap> mFree;
+
+    // only read while drawing, so threads scaling at the same time can share it
+    private final Paint mScalePaint = new Paint(Paint.FILTER_BITMAP_FLAG);
+
+    /**
+     * constructor
+     * @param maxBytes long free bytes kept before the oldest free bitmaps are recycled
+     */
+    BitmapPool(long maxBytes) {
+        mFree = new FreeBitmaps<>(this, maxBytes);
+    }
+
+    /**
+     * borrows a mutable bitmap, its pixels are whatever the last user left in them
+     * @param width int
+     * @param height int
+     * @param config Bitmap.Config
+     * @return Bitmap
+     */
+    synchronized Bitmap acquire(int width, int height, Bitmap.Config config) {
+        Bitmap bitmap = mFree.take(FreeBitmaps.bucketFor(width, height, config.ordinal()));
+        return bitmap != null ? bitmap : Bitmap.createBitmap(width, height, config);
+    }
+
+    /**
+     * borrows a bitmap and clears it to transparent
+     * @param width int
+     * @param height int
+     * @param config Bitmap.Config
+     * @return Bitmap
+     */
+    Bitmap acquireCleared(int width, int height, Bitmap.Config config) {
+        Bitmap bitmap = acquire(width, height, config);
+        bitmap.eraseColor(Color.TRANSPARENT);
+        return bitmap;
+    }
+
+    /**
+     * hands a bitmap back for reuse. Immutable bitmaps can't be reused and are recycled
+     * @param bitmap Bitmap
+     */
+    @Override
+    public synchronized void release(Bitmap bitmap) {
+        if (bitmap == null || bitmap.isRecycled()) {
+            return;
+        }
+        if (!bitmap.isMutable() || bitmap.getConfig() == null) {
+            bitmap.recycle();
+            return;
+        }
+
+        mFree.put(bitmap);
+    }
+
+    /**
+     * @param bitmap Bitmap
+     * @return long
+     */
+    @Override
+    public long sizeOf(Bitmap bitmap) {
+        return bitmap.getAllocationByteCount();
+    }
+
+    /**
+     * @param bitmap Bitmap
+     * @return long
+     */
+    @Override
+    public long bucketOf(Bitmap bitmap) {
+        return FreeBitmaps.bucketFor(
+                bitmap.getWidth(), bitmap.getHeight(), bitmap.getConfig().ordinal());
+    }
+
+    /**
+     * @param bitmap Bitmap
+     */
+    @Override
+    public void recycle(Bitmap bitmap) {
+        bitmap.recycle();
+    }
+
+    /**
+     * @param bitmap Bitmap
+     * @return String
+     */
+    @Override
+    public String describe(Bitmap bitmap) {
+        return bitmap.getWidth() + "x" + bitmap.getHeight() + " " + bitmap.getConfig();
+    }
+
+    /**
+     * decodes a drawable at roughly the given size, reusing a free bitmap for the pixels if
+     * one is big enough. The result is pooled like any other bitmap
+     * @param resources Resources
+     * @param resID int
+     * @param width int
+     * @param height int
+     * @return Bitmap at least width x height unless the image is smaller, or null if the
+     * drawable couldn't be decoded
+     */
+    Bitmap decode(Resources resources, int resID, int width, int height) {
+        BitmapFactory.Options options = new BitmapFactory.Options();
+        options.inJustDecodeBounds = true;
+        options.inScaled = false;
+        BitmapFactory.decodeResource(resources, resID, options);
+        if (options.outWidth <= 0 || options.outHeight <= 0) {
+            // not an image BitmapFactory can read, nothing's borrowed yet
+            return null;
+        }
+
+        // the largest power of two subsample that's still at least the size wanted
+        int sampleSize = 1;
+        while (options.outWidth / (sampleSize * 2) >= width
+                && options.outHeight / (sampleSize * 2) >= height) {
+            sampleSize *= 2;
+        }
+
+        int decodedWidth = (options.outWidth + sampleSize - 1) / sampleSize;
+        int decodedHeight = (options.outHeight + sampleSize - 1) / sampleSize;
+
+        options.inJustDecodeBounds = false;
+        options.inSampleSize = sampleSize;
+        options.inMutable = true;
+        options.inPreferredConfig = Bitmap.Config.ARGB_8888;
+        options.inBitmap = acquireForDecode(
+                (long) decodedWidth * decodedHeight * 4, decodedWidth, decodedHeight);
+
+        Bitmap bitmap;
+        try {
+            bitmap = BitmapFactory.decodeResource(resources, resID, options);
+        } catch (IllegalArgumentException e) {
+            // the free bitmap couldn't take this image after all
+            release(options.inBitmap);
+            options.inBitmap = null;
+            bitmap = BitmapFactory.decodeResource(resources, resID, options);
+        }
+
+        if (bitmap == null) {
+            // the borrowed pixels weren't used, they go back
+            release(options.inBitmap);
+        }
+        return bitmap;
+    }
+
+    /**
+     * decodes a drawable and scales it to exactly the given size, with the decode and the
+     * scaled copy both going through the pool
+     * @param resources Resources
+     * @param resID int
+     * @param width int
+     * @param height int
+     * @return Bitmap or null if the drawable couldn't be decoded
+     */
+    Bitmap decodeScaled(Resources resources, int resID, int width, int height) {
+        Bitmap source = decode(resources, resID, width, height);
+        if (source == null
+                || (source.getWidth() == width && source.getHeight() == height)) {
+            return source;
+        }
+
+        Bitmap scaled = acquire(width, height, Bitmap.Config.ARGB_8888);
+        scale(source, scaled);
+        release(source);
+        return scaled;
+    }
+
+    /**
+     * draws source stretched over all of target
+     * @param source Bitmap
+     * @param target Bitmap
+     */
+    void scale(Bitmap source, Bitmap target) {
+        Canvas canvas = new Canvas(target);
+        canvas.drawBitmap(source, null,
+                new Rect(0, 0, target.getWidth(), target.getHeight()), mScalePaint);
+    }
+
+    /**
+     * @param bytes long pixel bytes the decode needs
+     * @param width int
+     * @param height int
+     * @return Bitmap a free bitmap inBitmap can decode into, or null to allocate a new one
+     */
+    private synchronized Bitmap acquireForDecode(long bytes, int width, int height) {
+        return mFree.takeForDecode(
+                FreeBitmaps.bucketFor(width, height, Bitmap.Config.ARGB_8888.ordinal()), bytes);
+    }
+
+    /**
+     * recycles the oldest free bitmaps until no more than maxBytes are free
+     * @param maxBytes long
+     */
+    synchronized void trimToSize(long maxBytes) {
+        mFree.trimToSize(maxBytes);
+    }
+
+    /**
+     * recycles every free bitmap
+     */
+    void clear() {
+        trimToSize(0);
+    }
+
+    /**
+     * @return long pixel bytes of the free bitmaps held
+     */
+    synchronized long getFreeBytes() {
+        return mFree.getFreeBytes();
+    }
+
+    /**
+     * @return int acquires and decodes served from the pool
+     */
+    synchronized int getHitCount() {
+        return mFree.getHitCount();
+    }
+
+    /**
+     * @return int acquires and decodes that had to allocate
+     */
+    synchronized int getMissCount() {
+        return mFree.getMissCount();
+    }
+
+    /**
+     * @param prefix String
+     * @param writer PrintWriter
+     */
+    synchronized void dump(String prefix, PrintWriter writer) {
+        mFree.dump(prefix, writer);
+    }
+}
@@ -0,0 +1,178 @@
+package com.julianna.gabler.travelerswatchface;
+
+import java.util.Arrays;
+
+/**
+ * @Class ComplicationSlots
+ * the registry of complication slots the face offers. Each slot is declared once with a stable
+ * id, what kind of slot it is, where it sits as fractions of the surface and the data types it
+ * takes; drawing, tap handling and the config activity all read from here. Slots are stored in
+ * dense arrays indexed by slot, with a lookup from id to index, so per slot work is an array read
+ */
+class ComplicationSlots {
+
+    static final int MAX_SLOTS = 8;
+
+    /**
+     * ids are stable (the system keeps the chosen providers by id) and below this
+     */
+    static final int MAX_ID = 32;
+
+    // short text drawn centered in the slot, tappable
+    static final int KIND_TEXT = 0;
+    // a large image drawn behind the face in interactive mode, not tappable
+    static final int KIND_BACKGROUND = 1;
+
+    private int mCount;
+    private final int[] mIDs = new int[MAX_SLOTS];
+    private final int[] mKinds = new int[MAX_SLOTS];
+    private final int[] mNameResIDs = new int[MAX_SLOTS];
+    private final int[] mIconResIDs = new int[MAX_SLOTS];
+    private final int[][] mSupportedTypes = new int[MAX_SLOTS][];
+
+    // left, top, right, bottom of each slot as fractions of the surface, 4 per slot
+    private final float[] mBounds = new float[MAX_SLOTS * 4];
+
+    private final int[] mIndexByID = new int[MAX_ID];
+
+    /**
+     * constructor
+     */
+    ComplicationSlots() {
+        Arrays.fill(mIndexByID, -1);
+    }
+
+    /**
+     * declares a slot
+     * @param id int stable complication id
+     * @param kind int KIND_TEXT or KIND_BACKGROUND
+     * @param left float fraction of the width
+     * @param top float fraction of the height
+     * @param right float fraction of the width
+     * @param bottom float fraction of the height
+     * @param supportedTypes int[] ComplicationData types the slot takes
+     * @param nameResID int string shown in the config activity
+     * @param iconResID int drawable shown in the config activity, 0 for none
+     * @return ComplicationSlots this, so slots can be declared in a chain
+     */
+    ComplicationSlots add(
+            int id,
+            int kind,
+            float left,
+            float top,
+            float right,
+            float bottom,
+            int[] supportedTypes,
+            int nameResID,
+            int iconResID
+    ) {
+        if (mCount == MAX_SLOTS) {
+            throw new IllegalStateException("no more than " + MAX_SLOTS + " slots");
+        }
+        if (id < 0 || id >= MAX_ID || mIndexByID[id] != -1) {
+            throw new IllegalArgumentException("bad or duplicate slot id " + id);
+        }
+
+        int index = mCount++;
+        mIDs[index] = id;
+        mKinds[index] = kind;
+        mNameResIDs[index] = nameResID;
+        mIconResIDs[index] = iconResID;
+        mSupportedTypes[index] = supportedTypes;
+        mBounds[index * 4] = left;
+        mBounds[index * 4 + 1] = top;
+        mBounds[index * 4 + 2] = right;
+        mBounds[index * 4 + 3] = bottom;
+        mIndexByID[id] = index;
+        return this;
+    }
+
+    /**
+     * @return int
+     */
+    int getCount() {
+        return mCount;
+    }
+
+    /**
+     * @param id int
+     * @return int the slot index, or -1 if no slot has the id
+     */
+    int indexOf(int id) {
+        return id >= 0 && id < MAX_ID ? mIndexByID[id] : -1;
+    }
+
+    /**
+     * @param index int
+     * @return int
+     */
+    int getID(int index) {
+        return mIDs[index];
+    }
+
+    /**
+     * @param index int
+     * @return int
+     */
+    int getKind(int index) {
+        return mKinds[index];
+    }
+
+    /**
+     * @param index int
+     * @return int[]
+     */
+    int[] getSupportedTypes(int index) {
+        return mSupportedTypes[index];
+    }
+
+    /**
+     * @param index int
+     * @return int
+     */
+    int getNameResID(int index) {
+        return mNameResIDs[index];
+    }
+
+    /**
+     * @param index int
+     * @return int 0 if the slot has no icon
+     */
+    int getIconResID(int index) {
+        return mIconResIDs[index];
+    }
+
+    /**
+     * @return int[] every slot's id, in slot order
+     */
+    int[] getIDs() {
+        return Arrays.copyOf(mIDs, mCount);
+    }
+
+    /**
+     * works out each slot's pixel bounds for a surface
+     * @param width int
+     * @param height int
+     * @param rects int[] at least 4 per slot, filled with left, top, right, bottom
+     */
+    void computeRects(int width, int height, int[] rects) {
+        for (int i = 0; i < mCount * 4; i += 4) {
+            rects[i] = Math.round(mBounds[i] * width);
+            rects[i + 1] = Math.round(mBounds[i + 1] * height);
+            rects[i + 2] = Math.round(mBounds[i + 2] * width);
+            rects[i + 3] = Math.round(mBounds[i + 3] * height);
+        }
+    }
+
+    /**
+     * @param rects int[] from computeRects()
+     * @param index int
+     * @param x int
+     * @param y int
+     * @return boolean whether the point is inside the slot
+     */
+    static boolean contains(int[] rects, int index, int x, int y) {
+        int i = index * 4;
+        return x >= rects[i] && x < rects[i + 2] && y >= rects[i + 1] && y < rects[i + 3];
+    }
+}
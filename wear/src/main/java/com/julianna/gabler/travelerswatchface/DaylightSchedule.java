@@ -0,0 +1,192 @@
+package com.julianna.gabler.travelerswatchface;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @Class DaylightSchedule
+ * splits the local day into phases of daylight for a location. The solar calculation runs once
+ * per local day and is cached, so asking for the phase every minute is a few comparisons
+ */
+class DaylightSchedule {
+
+    static final int PHASE_NIGHT = 0;
+    static final int PHASE_DAWN = 1;
+    static final int PHASE_DAY = 2;
+    static final int PHASE_DUSK = 3;
+    static final int PHASE_TWILIGHT = 4;
+
+    static final int PHASE_COUNT = 5;
+
+    /**
+     * dawn runs from civil dawn until the sun is an hour up, dusk is the last hour before sunset
+     */
+    static final long GOLDEN_HOUR_MILLIS = TimeUnit.HOURS.toMillis(1);
+
+    private static final long MILLIS_PER_DAY = TimeUnit.DAYS.toMillis(1);
+    private static final long MILLIS_PER_HALF_DAY = MILLIS_PER_DAY / 2;
+
+    private static final int BOUNDARY_COUNT = 5;
+
+    private final double mLatitude;
+    private final double mLongitude;
+
+    // the cached day: its local day number and offset, the phase at local midnight, and each
+    // boundary with the phase it starts. Unused boundaries are left at Long.MAX_VALUE
+    private long mLocalDay = Long.MIN_VALUE;
+    private int mOffsetMillis;
+    private int mMidnightPhase;
+    private final long[] mBoundaries = new long[BOUNDARY_COUNT];
+    private final int[] mBoundaryPhases = new int[BOUNDARY_COUNT];
+    private SolarCalculator.Day mSolarDay;
+    private int mComputeCount;
+
+    /**
+     * constructor
+     * @param latitude double degrees, north positive
+     * @param longitude double degrees, east positive
+     */
+    DaylightSchedule(double latitude, double longitude) {
+        mLatitude = latitude;
+        mLongitude = longitude;
+    }
+
+    /**
+     * @param utcMillis long
+     * @param offsetMillis int the local UTC offset at that time
+     * @return int one of the PHASE_ constants
+     */
+    int phaseAt(long utcMillis, int offsetMillis) {
+        ensureDay(utcMillis, offsetMillis);
+
+        // boundaries are in time order, the last one passed wins
+        int phase = mMidnightPhase;
+        for (int i = 0; i < BOUNDARY_COUNT; i++) {
+            if (utcMillis >= mBoundaries[i]) {
+                phase = mBoundaryPhases[i];
+            }
+        }
+        return phase;
+    }
+
+    /**
+     * @param utcMillis long
+     * @param offsetMillis int
+     * @return long the next time the phase may change, at the latest the next local midnight
+     */
+    long nextBoundary(long utcMillis, int offsetMillis) {
+        ensureDay(utcMillis, offsetMillis);
+
+        for (int i = 0; i < BOUNDARY_COUNT; i++) {
+            if (mBoundaries[i] > utcMillis && mBoundaries[i] != Long.MAX_VALUE) {
+                return mBoundaries[i];
+            }
+        }
+        return (mLocalDay + 1) * MILLIS_PER_DAY - offsetMillis;
+    }
+
+    /**
+     * @param utcMillis long
+     * @param offsetMillis int
+     * @return int the phase that starts at nextBoundary(), or the current one if the day has no
+     * boundaries left (the phase carries on past midnight)
+     */
+    int nextPhase(long utcMillis, int offsetMillis) {
+        ensureDay(utcMillis, offsetMillis);
+
+        for (int i = 0; i < BOUNDARY_COUNT; i++) {
+            if (mBoundaries[i] > utcMillis && mBoundaries[i] != Long.MAX_VALUE) {
+                return mBoundaryPhases[i];
+            }
+        }
+        return phaseAt(utcMillis, offsetMillis);
+    }
+
+    /**
+     * @param utcMillis long
+     * @param offsetMillis int
+     * @return SolarCalculator.Day the solar events of the local day containing utcMillis
+     */
+    SolarCalculator.Day getSolarDay(long utcMillis, int offsetMillis) {
+        ensureDay(utcMillis, offsetMillis);
+        return mSolarDay;
+    }
+
+    /**
+     * @return int how many times the solar calculation has run
+     */
+    int getComputeCount() {
+        return mComputeCount;
+    }
+
+    /**
+     * recomputes the boundaries if utcMillis falls on a different local day than the cached one
+     * @param utcMillis long
+     * @param offsetMillis int
+     */
+    private void ensureDay(long utcMillis, int offsetMillis) {
+        long localDay = floorDiv(utcMillis + offsetMillis, MILLIS_PER_DAY);
+        if (localDay == mLocalDay && offsetMillis == mOffsetMillis) {
+            return;
+        }
+        mLocalDay = localDay;
+        mOffsetMillis = offsetMillis;
+        mComputeCount++;
+
+        long localNoon = localDay * MILLIS_PER_DAY + MILLIS_PER_HALF_DAY - offsetMillis;
+        SolarCalculator.Day day = SolarCalculator.compute(localNoon, mLatitude, mLongitude);
+        mSolarDay = day;
+
+        for (int i = 0; i < BOUNDARY_COUNT; i++) {
+            mBoundaries[i] = Long.MAX_VALUE;
+        }
+
+        if (day.sunrise != SolarCalculator.NO_EVENT && day.sunset != SolarCalculator.NO_EVENT) {
+            // on short days dawn and dusk meet at solar noon instead of overlapping
+            long dawnEnd = Math.min(day.sunrise + GOLDEN_HOUR_MILLIS, day.solarNoon);
+            long duskStart = Math.max(day.sunset - GOLDEN_HOUR_MILLIS, day.solarNoon);
+
+            // during white nights it never gets darker than civil twilight
+            mMidnightPhase = day.civilDawn == SolarCalculator.NO_EVENT
+                    ? PHASE_TWILIGHT : PHASE_NIGHT;
+            setBoundary(0, day.civilDawn, PHASE_DAWN);
+            setBoundary(1, dawnEnd, PHASE_DAY);
+            setBoundary(2, duskStart, PHASE_DUSK);
+            setBoundary(3, day.sunset, PHASE_TWILIGHT);
+            setBoundary(4, day.civilDusk, PHASE_NIGHT);
+        } else if (day.alwaysUp) {
+            mMidnightPhase = PHASE_DAY;
+        } else if (day.alwaysBelowCivil || day.civilDawn == SolarCalculator.NO_EVENT) {
+            mMidnightPhase = PHASE_NIGHT;
+        } else {
+            // polar twilight, the sun gets close to the horizon around noon but doesn't rise
+            mMidnightPhase = PHASE_NIGHT;
+            setBoundary(0, day.civilDawn, PHASE_TWILIGHT);
+            setBoundary(1, day.civilDusk, PHASE_NIGHT);
+        }
+    }
+
+    /**
+     * @param index int
+     * @param time long or SolarCalculator.NO_EVENT to leave the boundary out
+     * @param phase int
+     */
+    private void setBoundary(int index, long time, int phase) {
+        if (time != SolarCalculator.NO_EVENT) {
+            mBoundaries[index] = time;
+            mBoundaryPhases[index] = phase;
+        }
+    }
+
+    /**
+     * @param value long
+     * @param divisor long
+     * @return long value / divisor rounded towards negative infinity
+     */
+    private static long floorDiv(long value, long divisor) {
+        long quotient = value / divisor;
+        if ((value % divisor != 0) && ((value ^ divisor) < 0)) {
+            quotient--;
+        }
+        return quotient;
+    }
+}
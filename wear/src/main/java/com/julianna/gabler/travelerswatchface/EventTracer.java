@@ -0,0 +1,137 @@
+package com.julianna.gabler.travelerswatchface;
+
+import java.io.PrintWriter;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @Class EventTracer
+ * fixed width event log for the interaction, quality and memory paths that used to build strings
+ * for android.util.Log.
+ * Each event is a type, a complication slot, a timestamp and one argument written into
+ * preallocated arrays that wrap around, so recording never allocates.
+ *
+ * Tracing is switched on by the EVENT_TRACING build config field. In release builds it's a
+ * compile time false, the buffers are never allocated and record() compiles to an empty method.
+ * Events are recorded on the main thread; dump() may read a buffer that is still being written.
+ */
+final class EventTracer {
+
+    static final boolean ENABLED = BuildConfig.EVENT_TRACING;
+
+    static final int EVENT_COMPLICATIONS_INIT = 0;
+    static final int EVENT_COMPLICATION_UPDATE = 1;
+    static final int EVENT_TAP_HIT = 2;
+    static final int EVENT_TAP_MISS = 3;
+    static final int EVENT_COMPLICATION_TAP = 4;
+    static final int EVENT_TAP_ACTION_SENT = 5;
+    static final int EVENT_TAP_ACTION_CANCELED = 6;
+    static final int EVENT_NO_TAP_ACTION = 7;
+    static final int EVENT_PERMISSION_REQUEST = 8;
+    static final int EVENT_QUALITY_TIER = 9;
+    static final int EVENT_TRIM_MEMORY = 10;
+    static final int EVENT_SNAPSHOT_NOT_WRITTEN = 11;
+    static final int EVENT_DECODE_FAILED = 12;
+
+    private static final String[] EVENT_NAMES = {
+            "complicationsInit",
+            "complicationUpdate",
+            "tapHit",
+            "tapMiss",
+            "complicationTap",
+            "tapActionSent",
+            "tapActionCanceled",
+            "noTapAction",
+            "permissionRequest",
+            "qualityTier",
+            "trimMemory",
+            "snapshotNotWritten",
+            "decodeFailed"
+    };
+
+    /**
+     * slot id for events that aren't about one complication
+     */
+    static final int NO_SLOT = -1;
+
+    // must be a power of two so the write index can be masked
+    private static final int CAPACITY = 256;
+    private static final int MASK = CAPACITY - 1;
+
+    private static final int[] sTypes = new int[ENABLED ? CAPACITY : 0];
+    private static final int[] sSlots = new int[ENABLED ? CAPACITY : 0];
+    private static final long[] sTimes = new long[ENABLED ? CAPACITY : 0];
+    private static final long[] sArgs = new long[ENABLED ? CAPACITY : 0];
+
+    private static long sWritten;
+
+    private EventTracer() {}
+
+    /**
+     * @param type int one of the EVENT_ constants
+     * @param slot int complication id, or NO_SLOT
+     * @param arg long event specific value
+     */
+    static void record(int type, int slot, long arg) {
+        if (!ENABLED) {
+            return;
+        }
+
+        int index = (int) (sWritten & MASK);
+        sTypes[index] = type;
+        sSlots[index] = slot;
+        sTimes[index] = System.nanoTime();
+        sArgs[index] = arg;
+        sWritten++;
+    }
+
+    /**
+     * packs tap coordinates into one event argument
+     * @param x int
+     * @param y int
+     * @return long
+     */
+    static long packPoint(int x, int y) {
+        return packPair(x, y);
+    }
+
+    /**
+     * packs two values, e.g. an old and a new state, into one event argument
+     * @param high int
+     * @param low int
+     * @return long
+     */
+    static long packPair(int high, int low) {
+        return ((long) high << 32) | (low & 0xffffffffL);
+    }
+
+    /**
+     * prints the buffered events, oldest first
+     * @param prefix String
+     * @param writer PrintWriter
+     */
+    static void dump(String prefix, PrintWriter writer) {
+        if (!ENABLED) {
+            writer.println(prefix + "Event tracing disabled in this build");
+            return;
+        }
+
+        long written = sWritten;
+        long first = Math.max(0, written - CAPACITY);
+        writer.println(prefix + "Events: " + written + " recorded, showing last " + (written - first));
+
+        long newest = written > 0 ? sTimes[(int) ((written - 1) & MASK)] : 0;
+        for (long i = first; i < written; i++) {
+            int index = (int) (i & MASK);
+            int type = sTypes[index];
+
+            writer.print(prefix + "  -");
+            writer.print(TimeUnit.NANOSECONDS.toMillis(newest - sTimes[index]));
+            writer.print("ms ");
+            writer.print(type >= 0 && type < EVENT_NAMES.length ? EVENT_NAMES[type] : type);
+            if (sSlots[index] != NO_SLOT) {
+                writer.print(" slot=" + sSlots[index]);
+            }
+            writer.println(" arg=" + sArgs[index]);
+        }
+    }
+}
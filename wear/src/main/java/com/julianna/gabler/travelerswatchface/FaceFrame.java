@@ -0,0 +1,125 @@
+package com.julianna.gabler.travelerswatchface;
+
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Paint;
+import android.graphics.Path;
+import android.graphics.Rect;
+import android.graphics.RectF;
+import android.graphics.drawable.Drawable;
+
+/**
+ * @Class FaceFrame
+ * everything the face draws over its background for one minute, captured on the main thread.
+ * Text is already formatted and measured and the frame has its own paints and copies of the
+ * shared arrays, so drawing it is only rasterizing and can run on the render thread while the
+ * engine carries on changing its own state
+ */
+class FaceFrame {
+
+    // when the frame is for, and the FrameExchange generation it was captured in
+    long minute;
+    int generation;
+
+    // how long the render thread took to draw it, set before it's published
+    long renderNanos;
+
+    int width;
+    int height;
+    LayoutSpec layout;
+
+    // interactive background drawn under everything, or null if the caller draws its own
+    Bitmap background;
+    final Paint backgroundPaint = new Paint();
+
+    String timeText;
+    String dateText;
+    char[] zonesLine = new char[0];
+    int zonesLength;
+
+    // per slot, indexed like the registry. Text is null for slots that draw nothing
+    int slotCount;
+    final int[] slotRects = new int[ComplicationSlots.MAX_SLOTS * 4];
+    final CharSequence[] slotText = new CharSequence[ComplicationSlots.MAX_SLOTS];
+    final float[] slotTextX = new float[ComplicationSlots.MAX_SLOTS];
+    final Drawable[] slotImages = new Drawable[ComplicationSlots.MAX_SLOTS];
+
+    // ranged value arcs, null ovals for slots without one. The oval and track are the engine's
+    // own, which it never changes once made. The track is left out in ambient mode
+    final RectF[] slotArcOvals = new RectF[ComplicationSlots.MAX_SLOTS];
+    final Path[] slotArcTracks = new Path[ComplicationSlots.MAX_SLOTS];
+    final float[] slotArcSweeps = new float[ComplicationSlots.MAX_SLOTS];
+
+    final Paint timePaint = new Paint();
+    final Paint datePaint = new Paint();
+    final Paint zonesPaint = new Paint();
+    final Paint complicationPaint = new Paint();
+    final Paint arcPaint = new Paint();
+    final Paint arcTrackPaint = new Paint();
+
+    // where the seconds go after this frame's time, adopted by the engine when it's shown
+    float secondsX;
+    final Rect secondsRect = new Rect();
+
+    /**
+     * @param line char[]
+     * @param length int
+     */
+    void setZonesLine(char[] line, int length) {
+        if (zonesLine.length < length) {
+            zonesLine = new char[line.length];
+        }
+        System.arraycopy(line, 0, zonesLine, 0, length);
+        zonesLength = length;
+    }
+
+    /**
+     * @param canvas Canvas
+     */
+    void draw(Canvas canvas) {
+        if (background != null) {
+            canvas.drawRect(0, 0, width, height, backgroundPaint);
+            canvas.drawBitmap(background, 0, 0, null);
+        }
+
+        for (int i = 0; i < slotCount; i++) {
+            Drawable image = slotImages[i];
+            if (image != null) {
+                int slot = i * 4;
+                image.setBounds(slotRects[slot], slotRects[slot + 1],
+                        slotRects[slot + 2], slotRects[slot + 3]);
+                image.draw(canvas);
+            }
+        }
+
+        for (int i = 0; i < slotCount; i++) {
+            RectF oval = slotArcOvals[i];
+            if (oval != null) {
+                if (slotArcTracks[i] != null) {
+                    canvas.drawPath(slotArcTracks[i], arcTrackPaint);
+                }
+                if (slotArcSweeps[i] > 0) {
+                    canvas.drawArc(oval, RangedArc.START_ANGLE, slotArcSweeps[i], false, arcPaint);
+                }
+            }
+        }
+
+        canvas.drawText(timeText, layout.xOffset, layout.timeY, timePaint);
+        canvas.drawText(dateText, layout.xOffset, layout.dateY, datePaint);
+        if (zonesLength > 0) {
+            canvas.drawText(zonesLine, 0, zonesLength, layout.xOffset, layout.zonesY, zonesPaint);
+        }
+
+        // complication text sits centered in its slot
+        float baselineOffset = complicationPaint.getTextSize() / 3;
+        for (int i = 0; i < slotCount; i++) {
+            CharSequence text = slotText[i];
+            if (text != null) {
+                int slot = i * 4;
+                canvas.drawText(text, 0, text.length(), slotTextX[i],
+                        (slotRects[slot + 1] + slotRects[slot + 3]) / 2f + baselineOffset,
+                        complicationPaint);
+            }
+        }
+    }
+}
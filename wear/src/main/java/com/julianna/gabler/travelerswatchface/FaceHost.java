@@ -0,0 +1,78 @@
+package com.julianna.gabler.travelerswatchface;
+
+import android.graphics.Canvas;
+import android.graphics.Rect;
+
+import java.util.TimeZone;
+
+/**
+ * @Class FaceHost
+ * what an engine runs against: the clocks, the time zone, the timer and where its frames go. Set
+ * when the engine is constructed. On a watch it's the system clocks, the engine's handler and its
+ * surface; the soak instrumentation test hands a separate engine its own, so that engine runs on
+ * virtual time and draws offscreen
+ */
+interface FaceHost {
+
+    /**
+     * @return long wall clock time
+     */
+    long currentTimeMillis();
+
+    /**
+     * @return long uptime, the clock touch events are stamped with
+     */
+    long uptimeMillis();
+
+    /**
+     * @return long time since boot, unaffected by clock changes
+     */
+    long elapsedRealtime();
+
+    /**
+     * @return TimeZone the zone the face shows the time in
+     */
+    TimeZone getTimeZone();
+
+    /**
+     * @return boolean whether the face is visible
+     */
+    boolean isVisible();
+
+    /**
+     * runs tick on the engine's thread once delayMillis have passed, replacing any tick already
+     * scheduled
+     * @param tick Runnable
+     * @param delayMillis long
+     */
+    void scheduleTimer(Runnable tick, long delayMillis);
+
+    /**
+     * drops the scheduled tick, if there is one
+     * @param tick Runnable
+     */
+    void cancelTimer(Runnable tick);
+
+    /**
+     * asks for a full frame, drawn through onDraw() once the current event is handled
+     */
+    void requestFrame();
+
+    /**
+     * @param dirty Rect the region about to be drawn, which may be grown to what the surface
+     * can't preserve
+     * @return Canvas to draw the region into, or null if there's no surface to lock
+     */
+    Canvas lockCanvas(Rect dirty);
+
+    /**
+     * shows a region drawn into the canvas from lockCanvas()
+     * @param canvas Canvas
+     */
+    void unlockCanvasAndPost(Canvas canvas);
+
+    /**
+     * @return Rect the surface's bounds
+     */
+    Rect getSurfaceFrame();
+}
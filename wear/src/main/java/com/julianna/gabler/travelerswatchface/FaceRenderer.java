@@ -0,0 +1,132 @@
+package com.julianna.gabler.travelerswatchface;
+
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.os.Process;
+
+import java.io.PrintWriter;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * @Class FaceRenderer
+ * draws face frames ahead of time on its own thread, into the back buffer of a FrameExchange,
+ * so when the minute turns the main thread only swaps and blits. One frame is rendered at a
+ * time; while one is in flight the engine keeps the bitmaps it draws from alive (see
+ * ManagedBitmaps.hold())
+ */
+class FaceRenderer {
+
+    /**
+     * number of recent renders kept for the render time stats
+     */
+    private static final int RENDER_SAMPLES = 32;
+
+    private final FrameExchange mExchange;
+    private final FaceFrame[] mFrames = {new FaceFrame(), new FaceFrame()};
+    private final AtomicBoolean mBusy = new AtomicBoolean();
+
+    private final HandlerThread mThread;
+    private final Handler mWorkerHandler;
+    private final Canvas mCanvas = new Canvas();
+
+    // only touched on the worker thread, and read under the stats lock
+    private final LatencyStats mRenderStats = new LatencyStats("Face frame render", RENDER_SAMPLES);
+    private int mRenderCount;
+    private int mAbandonCount;
+
+    /**
+     * constructor, starts the worker thread
+     * @param exchange FrameExchange the frames are handed over through
+     */
+    FaceRenderer(FrameExchange exchange) {
+        mExchange = exchange;
+
+        mThread = new HandlerThread("FaceRenderer", Process.THREAD_PRIORITY_DEFAULT);
+        mThread.start();
+        mWorkerHandler = new Handler(mThread.getLooper());
+    }
+
+    /**
+     * @param buffer int
+     * @return FaceFrame the frame that renders into the buffer, only to be filled in while the
+     * buffer is the back and the renderer isn't busy
+     */
+    FaceFrame fetchFrame(int buffer) {
+        return mFrames[buffer];
+    }
+
+    /**
+     * @return boolean whether a frame is queued or being drawn
+     */
+    boolean isBusy() {
+        return mBusy.get();
+    }
+
+    /**
+     * queues the back buffer's frame to be drawn into target and published
+     * @param buffer int the back buffer, whose frame has been filled in
+     * @param target Bitmap
+     * @return boolean false if a frame is already in flight
+     */
+    boolean render(final int buffer, final Bitmap target) {
+        if (!mBusy.compareAndSet(false, true)) {
+            return false;
+        }
+
+        mWorkerHandler.post(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    FaceFrame frame = mFrames[buffer];
+                    long startNanos = System.nanoTime();
+
+                    // the content may have changed since the frame was queued
+                    if (mExchange.beginWrite(frame.generation) != buffer) {
+                        mExchange.abandon();
+                        synchronized (mRenderStats) {
+                            mAbandonCount++;
+                        }
+                        return;
+                    }
+
+                    mCanvas.setBitmap(target);
+                    frame.draw(mCanvas);
+                    mCanvas.setBitmap(null);
+                    // the main thread reads it once the frame is swapped to the front
+                    long renderNanos = System.nanoTime() - startNanos;
+                    frame.renderNanos = renderNanos;
+                    mExchange.publish(frame.minute, frame.generation);
+
+                    synchronized (mRenderStats) {
+                        mRenderStats.add(renderNanos);
+                        mRenderCount++;
+                    }
+                } finally {
+                    mBusy.set(false);
+                }
+            }
+        });
+        return true;
+    }
+
+    /**
+     * stops the worker thread, a frame already being drawn is finished
+     */
+    void quit() {
+        mThread.quitSafely();
+    }
+
+    /**
+     * @param prefix String
+     * @param writer PrintWriter
+     */
+    void dump(String prefix, PrintWriter writer) {
+        synchronized (mRenderStats) {
+            writer.println(prefix + "Face frames rendered ahead: " + mRenderCount + ", abandoned "
+                    + mAbandonCount);
+            mRenderStats.dump(prefix, writer);
+        }
+    }
+}
@@ -0,0 +1,323 @@
+package com.julianna.gabler.travelerswatchface;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+
+/**
+ * @Class FaceSnapshot
+ * what a recreated engine needs to show a face straight away: the background layers as last
+ * drawn for interactive and ambient mode, and the last complication values. The layers are kept
+ * as RGB_565 pixels, half the size of the bitmaps they come from and copied back without any
+ * decoding. The time isn't part of it, it's drawn live over the layers like on any other frame
+ */
+final class FaceSnapshot {
+
+    static final int LAYER_INTERACTIVE = 0;
+    static final int LAYER_AMBIENT = 1;
+    static final int LAYER_COUNT = 2;
+
+    /**
+     * bytes per pixel of a layer, RGB_565
+     */
+    static final int BYTES_PER_PIXEL = 2;
+
+    /**
+     * a slot the snapshot has no value for
+     */
+    static final int NO_SLOT_DATA = 0;
+
+    private static final int MAGIC = 0x54575346;
+    private static final int VERSION = 1;
+
+    // per slot: value, min and max
+    private static final int SLOT_VALUE_FIELDS = 3;
+
+    final long savedAt;
+    final int width;
+    final int height;
+    final String backgroundName;
+
+    private final byte[][] mLayers = new byte[LAYER_COUNT][];
+    private final int[] mSlotTypes;
+    private final String[] mSlotTexts;
+    private final float[] mSlotValues;
+
+    /**
+     * constructor
+     * @param savedAt long
+     * @param width int surface width the layers were drawn at
+     * @param height int
+     * @param backgroundName String resource name of the background in the layers
+     * @param slotCount int
+     */
+    FaceSnapshot(long savedAt, int width, int height, String backgroundName, int slotCount) {
+        this.savedAt = savedAt;
+        this.width = width;
+        this.height = height;
+        this.backgroundName = backgroundName;
+        mSlotTypes = new int[slotCount];
+        mSlotTexts = new String[slotCount];
+        mSlotValues = new float[slotCount * SLOT_VALUE_FIELDS];
+    }
+
+    /**
+     * @param width int
+     * @param height int
+     * @param backgroundName String
+     * @return boolean whether the layers were drawn for that surface and background
+     */
+    boolean matches(int width, int height, String backgroundName) {
+        return this.width == width && this.height == height
+                && this.backgroundName.equals(backgroundName);
+    }
+
+    /**
+     * @return int the size of a layer's pixels
+     */
+    int getLayerByteCount() {
+        return width * height * BYTES_PER_PIXEL;
+    }
+
+    /**
+     * @param layer int
+     * @param pixels byte[] RGB_565, row by row, not changed after this call
+     */
+    void setLayer(int layer, byte[] pixels) {
+        if (pixels != null && pixels.length != getLayerByteCount()) {
+            throw new IllegalArgumentException("layer of " + pixels.length + " bytes for "
+                    + width + "x" + height);
+        }
+        mLayers[layer] = pixels;
+    }
+
+    /**
+     * @param layer int
+     * @return byte[] or null if the snapshot doesn't have the layer
+     */
+    byte[] getLayer(int layer) {
+        return mLayers[layer];
+    }
+
+    /**
+     * @param layer int
+     * @return boolean
+     */
+    boolean hasLayer(int layer) {
+        return mLayers[layer] != null;
+    }
+
+    /**
+     * takes the layers this snapshot is missing from an older one of the same background and
+     * size, e.g. the ambient layer when the face was last hidden from interactive mode
+     * @param older FaceSnapshot or null
+     */
+    void mergeLayers(FaceSnapshot older) {
+        if (older == null || !older.matches(width, height, backgroundName)) {
+            return;
+        }
+        for (int layer = 0; layer < LAYER_COUNT; layer++) {
+            if (mLayers[layer] == null) {
+                mLayers[layer] = older.mLayers[layer];
+            }
+        }
+    }
+
+    /**
+     * @param index int
+     * @param type int the ComplicationData type
+     * @param text String or null
+     * @param value float only used by ranged values, like min and max
+     * @param min float
+     * @param max float
+     */
+    void setSlot(int index, int type, String text, float value, float min, float max) {
+        mSlotTypes[index] = type;
+        mSlotTexts[index] = text;
+        mSlotValues[index * SLOT_VALUE_FIELDS] = value;
+        mSlotValues[index * SLOT_VALUE_FIELDS + 1] = min;
+        mSlotValues[index * SLOT_VALUE_FIELDS + 2] = max;
+    }
+
+    /**
+     * @return int
+     */
+    int getSlotCount() {
+        return mSlotTypes.length;
+    }
+
+    /**
+     * @param index int
+     * @return int the ComplicationData type, or NO_SLOT_DATA
+     */
+    int getSlotType(int index) {
+        return mSlotTypes[index];
+    }
+
+    /**
+     * @param index int
+     * @return String or null
+     */
+    String getSlotText(int index) {
+        return mSlotTexts[index];
+    }
+
+    /**
+     * @param index int
+     * @return float
+     */
+    float getSlotValue(int index) {
+        return mSlotValues[index * SLOT_VALUE_FIELDS];
+    }
+
+    /**
+     * @param index int
+     * @return float
+     */
+    float getSlotMin(int index) {
+        return mSlotValues[index * SLOT_VALUE_FIELDS + 1];
+    }
+
+    /**
+     * @param index int
+     * @return float
+     */
+    float getSlotMax(int index) {
+        return mSlotValues[index * SLOT_VALUE_FIELDS + 2];
+    }
+
+    /**
+     * @param out DataOutputStream
+     * @throws IOException
+     */
+    void writeTo(DataOutputStream out) throws IOException {
+        out.writeInt(MAGIC);
+        out.writeInt(VERSION);
+        out.writeLong(savedAt);
+        out.writeInt(width);
+        out.writeInt(height);
+        out.writeUTF(backgroundName);
+
+        out.writeInt(mSlotTypes.length);
+        for (int i = 0; i < mSlotTypes.length; i++) {
+            out.writeInt(mSlotTypes[i]);
+            out.writeBoolean(mSlotTexts[i] != null);
+            if (mSlotTexts[i] != null) {
+                out.writeUTF(mSlotTexts[i]);
+            }
+            for (int field = 0; field < SLOT_VALUE_FIELDS; field++) {
+                out.writeFloat(mSlotValues[i * SLOT_VALUE_FIELDS + field]);
+            }
+        }
+
+        for (int layer = 0; layer < LAYER_COUNT; layer++) {
+            out.writeBoolean(mLayers[layer] != null);
+            if (mLayers[layer] != null) {
+                out.write(mLayers[layer]);
+            }
+        }
+    }
+
+    /**
+     * @param in DataInputStream
+     * @return FaceSnapshot
+     * @throws IOException if it isn't a snapshot this version can read
+     */
+    static FaceSnapshot readFrom(DataInputStream in) throws IOException {
+        if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+            throw new IOException("not a face snapshot");
+        }
+
+        long savedAt = in.readLong();
+        int width = in.readInt();
+        int height = in.readInt();
+        String backgroundName = in.readUTF();
+        int slotCount = in.readInt();
+        if (width <= 0 || height <= 0
+                || slotCount < 0 || slotCount > ComplicationSlots.MAX_SLOTS) {
+            throw new IOException("bad face snapshot header");
+        }
+
+        FaceSnapshot snapshot =
+                new FaceSnapshot(savedAt, width, height, backgroundName, slotCount);
+        for (int i = 0; i < slotCount; i++) {
+            int type = in.readInt();
+            String text = in.readBoolean() ? in.readUTF() : null;
+            snapshot.setSlot(i, type, text, in.readFloat(), in.readFloat(), in.readFloat());
+        }
+
+        for (int layer = 0; layer < LAYER_COUNT; layer++) {
+            if (in.readBoolean()) {
+                byte[] pixels = new byte[snapshot.getLayerByteCount()];
+                in.readFully(pixels);
+                snapshot.mLayers[layer] = pixels;
+            }
+        }
+        return snapshot;
+    }
+
+    /**
+     * writes the snapshot to a temporary file first, so a reader never sees half of one
+     * @param file File
+     * @return int bytes written, -1 if it failed
+     */
+    int writeFile(File file) {
+        File temp = new File(file.getPath() + ".tmp");
+        DataOutputStream out = null;
+        try {
+            out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temp)));
+            writeTo(out);
+            out.close();
+            out = null;
+            if (!temp.renameTo(file)) {
+                throw new IOException("rename failed");
+            }
+            return (int) file.length();
+        } catch (IOException e) {
+            // the next engine only starts without a snapshot
+            temp.delete();
+            return -1;
+        } finally {
+            closeQuietly(out);
+        }
+    }
+
+    /**
+     * @param file File
+     * @return FaceSnapshot or null if there's no readable snapshot
+     */
+    static FaceSnapshot readFile(File file) {
+        if (!file.exists()) {
+            return null;
+        }
+
+        DataInputStream in = null;
+        try {
+            in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+            return readFrom(in);
+        } catch (IOException e) {
+            return null;
+        } finally {
+            closeQuietly(in);
+        }
+    }
+
+    /**
+     * @param stream Closeable or null
+     */
+    private static void closeQuietly(Closeable stream) {
+        if (stream != null) {
+            try {
+                stream.close();
+            } catch (IOException e) {
+                // nothing left to do with it
+            }
+        }
+    }
+}
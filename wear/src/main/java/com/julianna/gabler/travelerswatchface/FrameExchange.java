@@ -0,0 +1,178 @@
+package com.julianna.gabler.travelerswatchface;
+
+import java.io.PrintWriter;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * @Class FrameExchange
+ * hands frames rendered ahead on a worker thread to the main thread through two buffers, without
+ * locks. One buffer is the front, which only the main thread reads or draws into. The other is
+ * the back, which the worker writes while it holds it and then publishes with the frame's key
+ * (e.g. the minute it shows) and generation. The main thread swaps a published back buffer to
+ * the front once its key is due, or discards it if the content it was made from has changed
+ * since (a new generation) or its key has passed.
+ *
+ * The front index and the back buffer's state share one atomic int. The worker only moves the
+ * back from FREE to WRITING to READY (or back to FREE), the main thread only moves it from READY
+ * to FREE, and the front only flips on that READY to FREE step, so a buffer is never written
+ * while it's the front and a published frame's key and generation are visible before its state
+ */
+class FrameExchange {
+
+    static final int NONE = -1;
+
+    private static final int FRONT_MASK = 1;
+    private static final int BACK_FREE = 0;
+    private static final int BACK_WRITING = 2;
+    private static final int BACK_READY = 4;
+    private static final int BACK_MASK = BACK_WRITING | BACK_READY;
+
+    private final AtomicInteger mState = new AtomicInteger(BACK_FREE);
+    private final AtomicInteger mGeneration = new AtomicInteger();
+
+    // the key and generation each buffer was last published with, written by the worker before
+    // the READY state that makes them visible
+    private final long[] mKeys = new long[2];
+    private final int[] mGenerations = new int[2];
+
+    private int mSwaps;
+    private int mDiscards;
+
+    /**
+     * @return int the buffer the main thread reads and draws into
+     */
+    int getFront() {
+        return mState.get() & FRONT_MASK;
+    }
+
+    /**
+     * @return int the generation frames are currently made for
+     */
+    int getGeneration() {
+        return mGeneration.get();
+    }
+
+    /**
+     * main thread: marks every frame made before now as stale, e.g. when what's drawn changes
+     * @return int the new generation
+     */
+    int invalidate() {
+        return mGeneration.incrementAndGet();
+    }
+
+    /**
+     * worker: takes the back buffer to draw a frame into
+     * @param generation int the generation the frame is made for
+     * @return int the back buffer, or NONE if the frame is already stale or the back is taken
+     */
+    int beginWrite(int generation) {
+        if (generation != mGeneration.get()) {
+            return NONE;
+        }
+
+        int state = mState.get();
+        if ((state & BACK_MASK) != BACK_FREE
+                || !mState.compareAndSet(state, (state & FRONT_MASK) | BACK_WRITING)) {
+            return NONE;
+        }
+        return 1 - (state & FRONT_MASK);
+    }
+
+    /**
+     * worker: hands the frame drawn into the back buffer over to the main thread
+     * @param key long when the frame is due
+     * @param generation int the generation it was made for
+     */
+    void publish(long key, int generation) {
+        int state = mState.get();
+        if ((state & BACK_MASK) != BACK_WRITING) {
+            throw new IllegalStateException("publish() without beginWrite()");
+        }
+
+        int back = 1 - (state & FRONT_MASK);
+        mKeys[back] = key;
+        mGenerations[back] = generation;
+
+        // only the worker changes the state while it's WRITING
+        mState.set((state & FRONT_MASK) | BACK_READY);
+    }
+
+    /**
+     * worker: gives the back buffer up without publishing anything
+     */
+    void abandon() {
+        int state = mState.get();
+        if ((state & BACK_MASK) == BACK_WRITING) {
+            mState.set(state & FRONT_MASK);
+        }
+    }
+
+    /**
+     * main thread: makes the published frame the front if it's the one due. A frame that's
+     * stale or past due is discarded, one that isn't due yet is kept
+     * @param key long the key due now
+     * @return boolean whether the front changed
+     */
+    boolean swapIfReady(long key) {
+        int state = mState.get();
+        if ((state & BACK_MASK) != BACK_READY) {
+            return false;
+        }
+
+        int back = 1 - (state & FRONT_MASK);
+        if (mGenerations[back] == mGeneration.get() && mKeys[back] > key) {
+            return false;
+        }
+
+        boolean due = mGenerations[back] == mGeneration.get() && mKeys[back] == key;
+        // only the main thread changes the state while it's READY
+        mState.set(due ? back : state & FRONT_MASK);
+        if (due) {
+            mSwaps++;
+        } else {
+            mDiscards++;
+        }
+        return due;
+    }
+
+    /**
+     * main thread: drops a published frame without looking at it
+     */
+    void discardReady() {
+        int state = mState.get();
+        if ((state & BACK_MASK) == BACK_READY) {
+            mState.set(state & FRONT_MASK);
+            mDiscards++;
+        }
+    }
+
+    /**
+     * @return boolean whether a frame is waiting to be swapped in
+     */
+    boolean isReady() {
+        return (mState.get() & BACK_MASK) == BACK_READY;
+    }
+
+    /**
+     * @return int frames swapped to the front
+     */
+    int getSwapCount() {
+        return mSwaps;
+    }
+
+    /**
+     * @return int published frames thrown away as stale or late
+     */
+    int getDiscardCount() {
+        return mDiscards;
+    }
+
+    /**
+     * @param prefix String
+     * @param writer PrintWriter
+     */
+    void dump(String prefix, PrintWriter writer) {
+        writer.println(prefix + "Frame exchange: front " + getFront() + ", generation "
+                + getGeneration() + ", " + mSwaps + " swapped, " + mDiscards + " discarded");
+    }
+}
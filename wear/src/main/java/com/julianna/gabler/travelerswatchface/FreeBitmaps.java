@@ -0,0 +1,227 @@
+package com.julianna.gabler.travelerswatchface;
+
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * @Class FreeBitmaps
+ * the bookkeeping behind BitmapPool: free bitmaps bucketed by size and config, oldest first for
+ * eviction, and the hit, miss and eviction counts. Generic over the bitmap so it can be checked
+ * without Android, the pool hands it an Adapter for Bitmap. Not synchronized, the pool holds its
+ * lock around every call
+ * @param <B> the bitmap type
+ */
+class FreeBitmaps<B> {
+
+    /**
+     * what the bookkeeping needs from a bitmap
+     * @param <B> the bitmap type
+     */
+    interface Adapter<B> {
+
+        /**
+         * @param bitmap B
+         * @return long the bucket from bucketFor()
+         */
+        long bucketOf(B bitmap);
+
+        /**
+         * @param bitmap B
+         * @return long pixel bytes it holds
+         */
+        long sizeOf(B bitmap);
+
+        /**
+         * frees the pixels for good
+         * @param bitmap B
+         */
+        void recycle(B bitmap);
+    }
+
+    private final Adapter<B> mAdapter;
+    private final long mMaxBytes;
+
+    // free bitmaps by bucket, plus every free bitmap oldest first for eviction
+    private final Map<Long, List<B>> mBuckets = new HashMap<>();
+    private final List<B> mFreeOrder = new ArrayList<>();
+
+    private long mFreeBytes;
+    private int mHits;
+    private int mMisses;
+    private int mDecodeHits;
+    private int mDecodeMisses;
+    private int mEvictions;
+
+    /**
+     * constructor
+     * @param adapter Adapter
+     * @param maxBytes long free bytes kept before the oldest free bitmaps are recycled
+     */
+    FreeBitmaps(Adapter<B> adapter, long maxBytes) {
+        mAdapter = adapter;
+        mMaxBytes = maxBytes;
+    }
+
+    /**
+     * @param width int
+     * @param height int
+     * @param config int the config's ordinal
+     * @return long the bucket a bitmap of this size and config belongs to
+     */
+    static long bucketFor(int width, int height, int config) {
+        return ((long) width << 32) | ((long) height << 8) | config;
+    }
+
+    /**
+     * @param bucket long from bucketFor()
+     * @return B the most recently freed bitmap in the bucket, or null if the caller has to
+     * allocate one
+     */
+    B take(long bucket) {
+        List<B> free = mBuckets.get(bucket);
+        if (free != null && !free.isEmpty()) {
+            B bitmap = free.remove(free.size() - 1);
+            removeFree(bitmap);
+            mHits++;
+            return bitmap;
+        }
+
+        mMisses++;
+        return null;
+    }
+
+    /**
+     * @param bucket long from bucketFor() for the decoded size
+     * @param bytes long pixel bytes the decode needs
+     * @return B a bitmap from the bucket, otherwise the smallest free one that's big enough, or
+     * null if the decode has to allocate
+     */
+    B takeForDecode(long bucket, long bytes) {
+        // an exact match first, then the smallest free bitmap that's big enough
+        List<B> free = mBuckets.get(bucket);
+        B best = free != null && !free.isEmpty() ? free.get(free.size() - 1) : null;
+
+        if (best == null) {
+            for (B bitmap : mFreeOrder) {
+                if (mAdapter.sizeOf(bitmap) >= bytes
+                        && (best == null || mAdapter.sizeOf(bitmap) < mAdapter.sizeOf(best))) {
+                    best = bitmap;
+                }
+            }
+        }
+
+        if (best == null) {
+            mDecodeMisses++;
+            return null;
+        }
+
+        removeFromBucket(best);
+        removeFree(best);
+        mDecodeHits++;
+        return best;
+    }
+
+    /**
+     * keeps a bitmap for reuse, or recycles it if it's bigger than everything kept
+     * @param bitmap B
+     */
+    void put(B bitmap) {
+        if (mAdapter.sizeOf(bitmap) > mMaxBytes) {
+            mAdapter.recycle(bitmap);
+            return;
+        }
+
+        long key = mAdapter.bucketOf(bitmap);
+        List<B> free = mBuckets.get(key);
+        if (free == null) {
+            free = new ArrayList<>();
+            mBuckets.put(key, free);
+        }
+        free.add(bitmap);
+        mFreeOrder.add(bitmap);
+        mFreeBytes += mAdapter.sizeOf(bitmap);
+
+        trimToSize(mMaxBytes);
+    }
+
+    /**
+     * recycles the oldest free bitmaps until no more than maxBytes are free
+     * @param maxBytes long
+     */
+    void trimToSize(long maxBytes) {
+        while (mFreeBytes > maxBytes && !mFreeOrder.isEmpty()) {
+            B oldest = mFreeOrder.get(0);
+            removeFromBucket(oldest);
+            removeFree(oldest);
+            mAdapter.recycle(oldest);
+            mEvictions++;
+        }
+    }
+
+    /**
+     * @return long pixel bytes of the free bitmaps held
+     */
+    long getFreeBytes() {
+        return mFreeBytes;
+    }
+
+    /**
+     * @return int free bitmaps held
+     */
+    int getFreeCount() {
+        return mFreeOrder.size();
+    }
+
+    /**
+     * @return int takes and decodes served from the free bitmaps
+     */
+    int getHitCount() {
+        return mHits + mDecodeHits;
+    }
+
+    /**
+     * @return int takes and decodes that had to allocate
+     */
+    int getMissCount() {
+        return mMisses + mDecodeMisses;
+    }
+
+    /**
+     * @return int free bitmaps recycled to stay under the limit
+     */
+    int getEvictionCount() {
+        return mEvictions;
+    }
+
+    /**
+     * @param bitmap B
+     */
+    private void removeFromBucket(B bitmap) {
+        List<B> free = mBuckets.get(mAdapter.bucketOf(bitmap));
+        if (free != null) {
+            free.remove(bitmap);
+        }
+    }
+
+    /**
+     * @param bitmap B
+     */
+    private void removeFree(B bitmap) {
+        mFreeOrder.remove(bitmap);
+        mFreeBytes -= mAdapter.sizeOf(bitmap);
+    }
+
+    /**
+     * @param prefix String
+     * @param writer PrintWriter
+     */
+    void dump(String prefix, PrintWriter writer) {
+        writer.println(prefix + "Bitmap pool: " + mFreeOrder.size() + " free ("
+                + (mFreeBytes / 1024) + "KB of " + (mMaxBytes / 1024) + "KB), acquire "
+                + mHits + " hits " + mMisses + " misses, decode " + mDecodeHits + " hits "
+                + mDecodeMisses + " misses, " + mEvictions + " evicted");
+    }
+}
@@ -0,0 +1,135 @@
+package com.julianna.gabler.travelerswatchface;
+
+import java.io.PrintWriter;
+import java.util.Arrays;
+import java.util.Locale;
+
+/**
+ * @Class LatencyStats
+ * keeps the most recent duration samples (in nanoseconds) for one measurement in a preallocated
+ * window so they can be recorded from the main thread without allocating and summarised on demand
+ */
+class LatencyStats {
+
+    private static final double NANOS_PER_MILLI = 1000000.0;
+
+    private final String mName;
+    private final long[] mSamples;
+    private final long[] mSorted;
+
+    private long mCount;
+    private long mLastNanos;
+    private long mMaxNanos;
+
+    /**
+     * constructor
+     * @param name String shown in dumps
+     * @param capacity int number of recent samples kept
+     */
+    LatencyStats(String name, int capacity) {
+        mName = name;
+        mSamples = new long[capacity];
+        mSorted = new long[capacity];
+    }
+
+    /**
+     * @param nanos long
+     */
+    void add(long nanos) {
+        mSamples[(int) (mCount % mSamples.length)] = nanos;
+        mCount++;
+        mLastNanos = nanos;
+        mMaxNanos = Math.max(mMaxNanos, nanos);
+    }
+
+    /**
+     * forgets every sample
+     */
+    void reset() {
+        mCount = 0;
+        mLastNanos = 0;
+        mMaxNanos = 0;
+    }
+
+    /**
+     * @return long samples recorded since the last reset, including ones no longer in the window
+     */
+    long getCount() {
+        return mCount;
+    }
+
+    /**
+     * @return long
+     */
+    long getLastNanos() {
+        return mLastNanos;
+    }
+
+    /**
+     * @return long the largest sample since the last reset
+     */
+    long getMaxNanos() {
+        return mMaxNanos;
+    }
+
+    /**
+     * @return long mean of the samples in the window
+     */
+    long getMeanNanos() {
+        int size = getWindowSize();
+        if (size == 0) {
+            return 0;
+        }
+
+        long total = 0;
+        for (int i = 0; i < size; i++) {
+            total += mSamples[i];
+        }
+        return total / size;
+    }
+
+    /**
+     * @param percentile int 0 to 100
+     * @return long the sample at that percentile of the window
+     */
+    long getPercentileNanos(int percentile) {
+        int size = getWindowSize();
+        if (size == 0) {
+            return 0;
+        }
+
+        System.arraycopy(mSamples, 0, mSorted, 0, size);
+        Arrays.sort(mSorted, 0, size);
+        int index = (int) Math.ceil(percentile / 100.0 * size) - 1;
+        return mSorted[Math.max(0, Math.min(size - 1, index))];
+    }
+
+    /**
+     * @return int
+     */
+    private int getWindowSize() {
+        return (int) Math.min(mCount, mSamples.length);
+    }
+
+    /**
+     * @param prefix String
+     * @param writer PrintWriter
+     */
+    void dump(String prefix, PrintWriter writer) {
+        if (mCount == 0) {
+            writer.println(prefix + mName + ": no samples");
+            return;
+        }
+
+        writer.println(String.format(Locale.US,
+                "%s%s: n=%d last=%.2fms mean=%.2fms p50=%.2fms p90=%.2fms max=%.2fms",
+                prefix,
+                mName,
+                mCount,
+                mLastNanos / NANOS_PER_MILLI,
+                getMeanNanos() / NANOS_PER_MILLI,
+                getPercentileNanos(50) / NANOS_PER_MILLI,
+                getPercentileNanos(90) / NANOS_PER_MILLI,
+                mMaxNanos / NANOS_PER_MILLI));
+    }
+}
@@ -0,0 +1,336 @@
+package com.julianna.gabler.travelerswatchface;
+
+import java.io.PrintWriter;
+import java.text.DateFormatSymbols;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * @Class LayoutEngine
+ * computes one LayoutSpec per surface size, shape and locale. Positions are proportions of the
+ * surface and text sizes are auto-fit: the largest size (up to a proportion of the height) whose
+ * widest sample text fits the line, found by binary search over measured widths. Fitting takes a
+ * few dozen measurements, so specs are cached in memory and in a Store, and rotating between known
+ * configurations or restarting the engine reuses them. The Store keeps a handful of specs at most
+ */
+class LayoutEngine {
+
+    /**
+     * measures text for the engine, swapped out by tests
+     */
+    interface TextMeasurer {
+        /**
+         * @param role int one of the TEXT_ constants, picks the paint
+         * @param text String
+         * @param textSize float px
+         * @return float width in px
+         */
+        float measureText(int role, String text, float textSize);
+    }
+
+    static final int TEXT_TIME = 0;
+    static final int TEXT_DATE = 1;
+    static final int TEXT_ZONES = 2;
+    static final int TEXT_COMPLICATION = 3;
+
+    /**
+     * bump when the proportions below change so stored specs are recomputed
+     */
+    static final int LAYOUT_VERSION = 2;
+
+    /**
+     * specs kept in the Store before those this engine hasn't used are dropped
+     */
+    static final int MAX_STORED_SPECS = 8;
+
+    private static final String KEY_PREFIX = "layout" + LAYOUT_VERSION + "_";
+
+    // side margins, round screens lose their corners
+    static final float MARGIN_ROUND = 0.12f;
+    static final float MARGIN_SQUARE = 0.06f;
+
+    // baselines, as proportions of the height
+    static final float TIME_Y = 0.42f;
+    static final float DATE_Y = 0.54f;
+    static final float ZONES_Y = 0.64f;
+
+    // largest text sizes, as proportions of the height
+    static final float TIME_MAX_SIZE = 0.17f;
+    static final float DATE_MAX_SIZE = 0.075f;
+    static final float ZONES_MAX_SIZE = 0.06f;
+    static final float COMPLICATION_MAX_SIZE = 0.05f;
+
+    /**
+     * a short text complication is at most 7 chars, fit to the width of the side dials
+     */
+    static final String COMPLICATION_SAMPLE = "0000000";
+    static final float COMPLICATION_WIDTH = 0.4f;
+
+    /**
+     * the binary search stops once the size is known to within this many px
+     */
+    static final float FIT_PRECISION = 0.25f;
+
+    private final Store mStore;
+    private final Map<String, LayoutSpec> mSpecs = new HashMap<>();
+
+    private int mMemoryHits;
+    private int mStoreHits;
+    private int mComputeCount;
+    private int mMeasureCount;
+    private int mPrunedCount;
+    private long mLastComputeNanos;
+
+    /**
+     * constructor
+     * @param store Store or null to only cache in memory
+     */
+    LayoutEngine(Store store) {
+        mStore = store;
+    }
+
+    /**
+     * @param width int
+     * @param height int
+     * @param round boolean
+     * @param locale Locale
+     * @param zonesSample String the zones line is fit to it, so it's hashed in too
+     * @return String the cache key for a configuration
+     */
+    static String keyFor(int width, int height, boolean round, Locale locale, String zonesSample) {
+        return KEY_PREFIX + width + "x" + height
+                + (round ? "_round_" : "_square_") + locale + "_"
+                + Integer.toHexString(zonesSample.hashCode());
+    }
+
+    /**
+     * returns the cached spec for the configuration, computing and storing it on a miss
+     * @param width int
+     * @param height int
+     * @param round boolean
+     * @param locale Locale
+     * @param zonesSample String widest traveler zones line
+     * @param minTextSize float px, no text is fit smaller than this
+     * @param measurer TextMeasurer
+     * @return LayoutSpec
+     */
+    LayoutSpec fetch(
+            int width,
+            int height,
+            boolean round,
+            Locale locale,
+            String zonesSample,
+            float minTextSize,
+            TextMeasurer measurer
+    ) {
+        String key = keyFor(width, height, round, locale, zonesSample);
+
+        LayoutSpec spec = mSpecs.get(key);
+        if (spec != null) {
+            mMemoryHits++;
+            return spec;
+        }
+
+        if (mStore != null) {
+            spec = LayoutSpec.decode(mStore.load(key));
+            if (spec != null && spec.width == width && spec.height == height && spec.round == round) {
+                mStoreHits++;
+                mSpecs.put(key, spec);
+                return spec;
+            }
+        }
+
+        long startNanos = System.nanoTime();
+        spec = compute(width, height, round, locale, zonesSample, minTextSize, measurer);
+        mLastComputeNanos = System.nanoTime() - startNanos;
+        mComputeCount++;
+
+        mSpecs.put(key, spec);
+        if (mStore != null) {
+            mStore.save(key, spec.encode());
+            pruneStore();
+        }
+        return spec;
+    }
+
+    /**
+     * drops stored specs from older versions of the layout, then, past MAX_STORED_SPECS, those
+     * this engine hasn't fetched. A configuration the watch has moved on from (another locale,
+     * other traveler zones) would otherwise be kept forever
+     */
+    private void pruneStore() {
+        List<String> current = new ArrayList<>();
+        List<String> stale = new ArrayList<>();
+        for (String stored : mStore.keys()) {
+            if (stored.startsWith(KEY_PREFIX)) {
+                current.add(stored);
+            } else {
+                stale.add(stored);
+            }
+        }
+        if (current.size() > MAX_STORED_SPECS) {
+            for (String stored : current) {
+                if (!mSpecs.containsKey(stored)) {
+                    stale.add(stored);
+                }
+            }
+        }
+
+        if (!stale.isEmpty()) {
+            mStore.removeAll(stale);
+            mPrunedCount += stale.size();
+        }
+    }
+
+    /**
+     * @param width int
+     * @param height int
+     * @param round boolean
+     * @param locale Locale
+     * @param zonesSample String
+     * @param minTextSize float
+     * @param measurer TextMeasurer
+     * @return LayoutSpec
+     */
+    LayoutSpec compute(
+            int width,
+            int height,
+            boolean round,
+            Locale locale,
+            String zonesSample,
+            float minTextSize,
+            TextMeasurer measurer
+    ) {
+        float xOffset = width * (round ? MARGIN_ROUND : MARGIN_SQUARE);
+        float lineWidth = width - 2 * xOffset;
+
+        float dateTextSize = fitTextSize(measurer, TEXT_DATE, widestDate(),
+                lineWidth, minTextSize, height * DATE_MAX_SIZE);
+
+        // the time shares its line with the seconds, drawn at the date's size
+        float secondsWidth = measurer.measureText(TEXT_DATE, " 00", dateTextSize);
+        mMeasureCount++;
+        float timeTextSize = fitTextSize(measurer, TEXT_TIME, widestTime(locale),
+                lineWidth - secondsWidth, minTextSize, height * TIME_MAX_SIZE);
+
+        float zonesTextSize = fitTextSize(measurer, TEXT_ZONES, zonesSample,
+                lineWidth, minTextSize, height * ZONES_MAX_SIZE);
+
+        float complicationTextSize = fitTextSize(measurer, TEXT_COMPLICATION, COMPLICATION_SAMPLE,
+                width * COMPLICATION_WIDTH, minTextSize, height * COMPLICATION_MAX_SIZE);
+
+        return new LayoutSpec(
+            width,
+            height,
+            round,
+            xOffset,
+            height * TIME_Y,
+            height * DATE_Y,
+            height * ZONES_Y,
+            timeTextSize,
+            dateTextSize,
+            zonesTextSize,
+            complicationTextSize
+        );
+    }
+
+    /**
+     * @param measurer TextMeasurer
+     * @param role int
+     * @param text String
+     * @param maxWidth float
+     * @param minSize float
+     * @param maxSize float
+     * @return float the largest size in [minSize, maxSize] at which text fits maxWidth, or
+     * minSize if it never does
+     */
+    float fitTextSize(
+            TextMeasurer measurer,
+            int role,
+            String text,
+            float maxWidth,
+            float minSize,
+            float maxSize
+    ) {
+        if (text.isEmpty() || maxSize <= minSize) {
+            return Math.max(minSize, maxSize);
+        }
+
+        mMeasureCount++;
+        if (measurer.measureText(role, text, maxSize) <= maxWidth) {
+            return maxSize;
+        }
+
+        // width grows with the size, so the largest size that fits lies between lo and hi
+        float lo = minSize;
+        float hi = maxSize;
+        while (hi - lo > FIT_PRECISION) {
+            float mid = (lo + hi) / 2;
+            mMeasureCount++;
+            if (measurer.measureText(role, text, mid) <= maxWidth) {
+                lo = mid;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo;
+    }
+
+    /**
+     * @param locale Locale
+     * @return String the widest the "hh:mm a" time gets in the locale
+     */
+    static String widestTime(Locale locale) {
+        return "00:00 " + longest(new DateFormatSymbols(locale).getAmPmStrings());
+    }
+
+    /**
+     * @return String the widest the date line gets, it's always formatted in Locale.US
+     */
+    static String widestDate() {
+        DateFormatSymbols symbols = new DateFormatSymbols(Locale.US);
+        return " " + longest(symbols.getWeekdays()) + ", " + longest(symbols.getMonths()) + " 00";
+    }
+
+    /**
+     * @param names String[]
+     * @return String the longest name
+     */
+    private static String longest(String[] names) {
+        String longest = "";
+        for (String name : names) {
+            if (name != null && name.length() > longest.length()) {
+                longest = name;
+            }
+        }
+        return longest;
+    }
+
+    /**
+     * @return int how many times a spec has been computed rather than found in a cache
+     */
+    int getComputeCount() {
+        return mComputeCount;
+    }
+
+    /**
+     * @return int
+     */
+    int getMeasureCount() {
+        return mMeasureCount;
+    }
+
+    /**
+     * @param prefix String
+     * @param writer PrintWriter
+     */
+    void dump(String prefix, PrintWriter writer) {
+        writer.println(prefix + "Layout cache: " + mSpecs.size() + " specs, " + mMemoryHits
+                + " memory hits, " + mStoreHits + " store hits, " + mComputeCount + " computed ("
+                + mMeasureCount + " measurements, last " + (mLastComputeNanos / 1000) + "us), "
+                + mPrunedCount + " pruned from the store");
+    }
+}
@@ -0,0 +1,143 @@
+package com.julianna.gabler.travelerswatchface;
+
+import java.io.PrintWriter;
+
+/**
+ * @Class LayoutSpec
+ * where everything on the face goes for one surface size, shape and locale, in pixels. Specs are
+ * immutable and made by LayoutEngine, so an engine can swap its whole layout with one assignment
+ * and a cached spec can be shared between engines
+ */
+final class LayoutSpec {
+
+    // separates the fields in encode()
+    private static final char FIELD_SEPARATOR = ',';
+    private static final int FIELD_COUNT = 11;
+
+    final int width;
+    final int height;
+    final boolean round;
+
+    final float centerX;
+    final float centerY;
+
+    // left edge of the time, date and zones lines
+    final float xOffset;
+
+    // baselines
+    final float timeY;
+    final float dateY;
+    final float zonesY;
+
+    // auto-fit text sizes
+    final float timeTextSize;
+    final float dateTextSize;
+    final float zonesTextSize;
+    final float complicationTextSize;
+
+    /**
+     * constructor
+     * @param width int
+     * @param height int
+     * @param round boolean
+     * @param xOffset float
+     * @param timeY float
+     * @param dateY float
+     * @param zonesY float
+     * @param timeTextSize float
+     * @param dateTextSize float
+     * @param zonesTextSize float
+     * @param complicationTextSize float
+     */
+    LayoutSpec(
+            int width,
+            int height,
+            boolean round,
+            float xOffset,
+            float timeY,
+            float dateY,
+            float zonesY,
+            float timeTextSize,
+            float dateTextSize,
+            float zonesTextSize,
+            float complicationTextSize
+    ) {
+        this.width = width;
+        this.height = height;
+        this.round = round;
+        this.centerX = width / 2f;
+        this.centerY = height / 2f;
+        this.xOffset = xOffset;
+        this.timeY = timeY;
+        this.dateY = dateY;
+        this.zonesY = zonesY;
+        this.timeTextSize = timeTextSize;
+        this.dateTextSize = dateTextSize;
+        this.zonesTextSize = zonesTextSize;
+        this.complicationTextSize = complicationTextSize;
+    }
+
+    /**
+     * @return String the spec as one line, read back by decode()
+     */
+    String encode() {
+        StringBuilder builder = new StringBuilder();
+        builder.append(width).append(FIELD_SEPARATOR)
+                .append(height).append(FIELD_SEPARATOR)
+                .append(round).append(FIELD_SEPARATOR)
+                .append(xOffset).append(FIELD_SEPARATOR)
+                .append(timeY).append(FIELD_SEPARATOR)
+                .append(dateY).append(FIELD_SEPARATOR)
+                .append(zonesY).append(FIELD_SEPARATOR)
+                .append(timeTextSize).append(FIELD_SEPARATOR)
+                .append(dateTextSize).append(FIELD_SEPARATOR)
+                .append(zonesTextSize).append(FIELD_SEPARATOR)
+                .append(complicationTextSize);
+        return builder.toString();
+    }
+
+    /**
+     * @param encoded String from encode()
+     * @return LayoutSpec or null if encoded is missing or malformed
+     */
+    static LayoutSpec decode(String encoded) {
+        if (encoded == null) {
+            return null;
+        }
+
+        String[] fields = encoded.split(String.valueOf(FIELD_SEPARATOR));
+        if (fields.length != FIELD_COUNT) {
+            return null;
+        }
+
+        try {
+            return new LayoutSpec(
+                Integer.parseInt(fields[0]),
+                Integer.parseInt(fields[1]),
+                Boolean.parseBoolean(fields[2]),
+                Float.parseFloat(fields[3]),
+                Float.parseFloat(fields[4]),
+                Float.parseFloat(fields[5]),
+                Float.parseFloat(fields[6]),
+                Float.parseFloat(fields[7]),
+                Float.parseFloat(fields[8]),
+                Float.parseFloat(fields[9]),
+                Float.parseFloat(fields[10])
+            );
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    /**
+     * @param prefix String
+     * @param writer PrintWriter
+     */
+    void dump(String prefix, PrintWriter writer) {
+        writer.println(prefix + "Layout: " + width + "x" + height + (round ? " round" : " square")
+                + ", x " + xOffset + ", time " + timeTextSize + "px at " + timeY
+                + ", date " + dateTextSize + "px at " + dateY
+                + ", zones " + zonesTextSize + "px at " + zonesY
+                + ", complications " + complicationTextSize + "px");
+    }
+}
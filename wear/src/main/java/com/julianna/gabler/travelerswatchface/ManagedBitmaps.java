@@ -0,0 +1,317 @@
+package com.julianna.gabler.travelerswatchface;
+
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * @Class ManagedBitmaps
+ * owns every bitmap the engine keeps between frames. Each bitmap belongs to one owner slot,
+ * replacing or releasing a slot hands the old bitmap back to the pool, and the pixel bytes held by
+ * each owner are tracked so the engine's footprint can be reported and trimmed under memory
+ * pressure. While the render thread may be drawing from them, releases are held back and handed to
+ * the pool once it's done. Sizing and releasing go through a Recycler, the BitmapPool on a watch,
+ * so the bookkeeping runs on the JVM too
+ * @param <B> the bitmap type, android.graphics.Bitmap on a watch
+ */
+class ManagedBitmaps<B> {
+
+    // interactive background, decoded and scaled to the surface
+    static final int OWNER_BACKGROUND = 0;
+    // grayscale copy of the background shown in ambient mode
+    static final int OWNER_GRAY_BACKGROUND = 1;
+    // the next time of day background, decoded ahead of its phase
+    static final int OWNER_NEXT_BACKGROUND = 2;
+    // the outgoing background while a crossfade runs
+    static final int OWNER_FADE_FROM = 3;
+    // everything on the interactive face except the seconds and tap highlight, so the seconds
+    // can be redrawn over it each second. Double buffered, the layer for the next minute is
+    // rendered ahead into whichever of the two isn't on screen
+    static final int OWNER_FACE_LAYER = 4;
+    static final int OWNER_FACE_LAYER_ALT = 5;
+
+    static final int OWNER_COUNT = 6;
+
+    private static final String[] OWNER_NAMES = {
+            "background",
+            "grayBackground",
+            "nextBackground",
+            "fadeFrom",
+            "faceLayer",
+            "faceLayerAlt"
+    };
+
+    /**
+     * the order owners are dropped in when trimming, cheapest to rebuild first
+     */
+    private static final int[] DROP_ORDER = {
+            OWNER_FACE_LAYER_ALT,
+            OWNER_FACE_LAYER,
+            OWNER_FADE_FROM,
+            OWNER_NEXT_BACKGROUND,
+            OWNER_GRAY_BACKGROUND,
+            OWNER_BACKGROUND
+    };
+
+    /**
+     * @Class Recycler
+     * where released bitmaps go, and how big a bitmap is
+     * @param <B> the bitmap type
+     */
+    interface Recycler<B> {
+
+        /**
+         * @param bitmap B
+         * @return long pixel bytes the bitmap holds
+         */
+        long sizeOf(B bitmap);
+
+        /**
+         * takes a bitmap no owner holds anymore
+         * @param bitmap B
+         */
+        void release(B bitmap);
+
+        /**
+         * @param bitmap B
+         * @return String size and config for dumps
+         */
+        String describe(B bitmap);
+    }
+
+    private final Recycler<B> mRecycler;
+    private final Object[] mBitmaps = new Object[OWNER_COUNT];
+    private final long[] mBytes = new long[OWNER_COUNT];
+
+    private long mFootprintBytes;
+    private long mPeakFootprintBytes;
+    private int mReleaseCount;
+
+    // released while held, not yet given back to the pool
+    private int mHoldCount;
+    private final List<B> mHeldReleases = new ArrayList<>();
+
+    /**
+     * constructor
+     * @param recycler Recycler released bitmaps go back to
+     */
+    ManagedBitmaps(Recycler<B> recycler) {
+        mRecycler = recycler;
+    }
+
+    /**
+     * @param buffer int FrameExchange buffer, 0 or 1
+     * @return int the owner of that face layer buffer
+     */
+    static int faceLayerOwner(int buffer) {
+        return buffer == 0 ? OWNER_FACE_LAYER : OWNER_FACE_LAYER_ALT;
+    }
+
+    /**
+     * @param visible boolean
+     * @param ambient boolean
+     * @param grayInAmbient boolean whether ambient mode draws the grayscale background
+     * @return int the owner whose bitmap is on screen, or -1 if none is
+     */
+    static int onscreenOwner(boolean visible, boolean ambient, boolean grayInAmbient) {
+        if (!visible) {
+            return -1;
+        } else if (ambient) {
+            return grayInAmbient ? OWNER_GRAY_BACKGROUND : -1;
+        }
+        return OWNER_BACKGROUND;
+    }
+
+    /**
+     * @param owner int
+     * @return B or null if the owner holds nothing
+     */
+    @SuppressWarnings("unchecked")
+    B get(int owner) {
+        return (B) mBitmaps[owner];
+    }
+
+    /**
+     * @param owner int
+     * @return boolean
+     */
+    boolean has(int owner) {
+        return mBitmaps[owner] != null;
+    }
+
+    /**
+     * hands a bitmap to an owner, releasing whatever it held before
+     * @param owner int
+     * @param bitmap B
+     */
+    void put(int owner, B bitmap) {
+        if (mBitmaps[owner] == bitmap) {
+            return;
+        }
+        release(owner);
+
+        mBitmaps[owner] = bitmap;
+        mBytes[owner] = bitmap == null ? 0 : mRecycler.sizeOf(bitmap);
+        mFootprintBytes += mBytes[owner];
+        mPeakFootprintBytes = Math.max(mPeakFootprintBytes, mFootprintBytes);
+    }
+
+    /**
+     * hands one owner's bitmap to another without releasing it, e.g. to promote a preloaded
+     * bitmap. Whatever the receiving owner held before is released
+     * @param from int
+     * @param to int
+     */
+    void move(int from, int to) {
+        B bitmap = get(from);
+        mBitmaps[from] = null;
+        mFootprintBytes -= mBytes[from];
+        mBytes[from] = 0;
+
+        put(to, bitmap);
+    }
+
+    /**
+     * returns the owner's bitmap to the pool, if it has one
+     * @param owner int
+     */
+    void release(int owner) {
+        B bitmap = get(owner);
+        if (bitmap == null) {
+            return;
+        }
+
+        mBitmaps[owner] = null;
+        mFootprintBytes -= mBytes[owner];
+        mBytes[owner] = 0;
+        mReleaseCount++;
+
+        if (mHoldCount > 0) {
+            mHeldReleases.add(bitmap);
+        } else {
+            mRecycler.release(bitmap);
+        }
+    }
+
+    /**
+     * keeps released bitmaps out of the pool, where they could be reused or recycled, until
+     * the matching unhold(). For while another thread may still be drawing from them
+     */
+    void hold() {
+        mHoldCount++;
+    }
+
+    /**
+     * gives the bitmaps released since hold() to the pool once nothing holds them anymore
+     */
+    void unhold() {
+        if (mHoldCount == 0 || --mHoldCount > 0) {
+            return;
+        }
+        for (int i = 0; i < mHeldReleases.size(); i++) {
+            mRecycler.release(mHeldReleases.get(i));
+        }
+        mHeldReleases.clear();
+    }
+
+    /**
+     * releases every bitmap held
+     */
+    void releaseAll() {
+        for (int owner = 0; owner < OWNER_COUNT; owner++) {
+            release(owner);
+        }
+    }
+
+    /**
+     * frees what the current mode doesn't draw; it's rebuilt on demand. Nothing is drawn while
+     * invisible, ambient mode draws the grayscale background or none, interactive the colour one
+     * @param visible boolean
+     * @param ambient boolean
+     * @param grayInAmbient boolean whether ambient mode draws the grayscale background
+     */
+    void releaseOffscreen(boolean visible, boolean ambient, boolean grayInAmbient) {
+        if (!visible) {
+            releaseAll();
+        } else if (ambient) {
+            release(OWNER_BACKGROUND);
+            if (!grayInAmbient) {
+                release(OWNER_GRAY_BACKGROUND);
+            }
+        } else {
+            release(OWNER_GRAY_BACKGROUND);
+        }
+    }
+
+    /**
+     * releases owners in drop order until no more than targetBytes are held
+     * @param targetBytes long
+     * @param keepOwner int owner currently on screen, never released (-1 for none)
+     * @return long bytes freed
+     */
+    long trimToSize(long targetBytes, int keepOwner) {
+        long before = mFootprintBytes;
+
+        for (int owner : DROP_ORDER) {
+            if (mFootprintBytes <= targetBytes) {
+                break;
+            }
+            if (owner != keepOwner) {
+                release(owner);
+            }
+        }
+
+        return before - mFootprintBytes;
+    }
+
+    /**
+     * releases everything but the owner on screen, for when memory is getting tight
+     * @param onscreenOwner int (-1 for none)
+     * @return long bytes freed
+     */
+    long trimToOnscreen(int onscreenOwner) {
+        return trimToSize(onscreenOwner == -1 ? 0 : mBytes[onscreenOwner], onscreenOwner);
+    }
+
+    /**
+     * @param owner int
+     * @return long pixel bytes held by the owner
+     */
+    long getBytes(int owner) {
+        return mBytes[owner];
+    }
+
+    /**
+     * @return long pixel bytes held across all owners
+     */
+    long getFootprintBytes() {
+        return mFootprintBytes;
+    }
+
+    /**
+     * @return long the largest footprint seen since the engine was created
+     */
+    long getPeakFootprintBytes() {
+        return mPeakFootprintBytes;
+    }
+
+    /**
+     * @param prefix String
+     * @param writer PrintWriter
+     */
+    void dump(String prefix, PrintWriter writer) {
+        writer.println(prefix + "Bitmaps: " + (mFootprintBytes / 1024) + "KB held, "
+                + (mPeakFootprintBytes / 1024) + "KB peak, " + mReleaseCount + " released, "
+                + mHeldReleases.size() + " held back");
+
+        for (int owner = 0; owner < OWNER_COUNT; owner++) {
+            B bitmap = get(owner);
+            writer.print(prefix + "  " + OWNER_NAMES[owner] + ": ");
+            if (bitmap == null) {
+                writer.println("released");
+            } else {
+                writer.println(mRecycler.describe(bitmap) + " " + (mBytes[owner] / 1024) + "KB");
+            }
+        }
+    }
+}
@@ -0,0 +1,465 @@
+package com.julianna.gabler.travelerswatchface;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.TimeZone;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @Class NatureAlmanac
+ * a year of sunrises, sunsets, new and full moons for one location and time zone, precomputed
+ * so the nature complications can answer with a binary search. The table is written to and read
+ * back from disk as is, so it's only computed again when it runs out or the location or zone
+ * changes
+ */
+final class NatureAlmanac {
+
+    /**
+     * how far ahead a table is computed
+     */
+    static final int TABLE_DAYS = 366;
+
+    // moon phases are named by octant, PHASE_NEW is 0 and the rest follow in order
+    static final int PHASE_NEW = 0;
+    static final int PHASE_WAXING_CRESCENT = 1;
+    static final int PHASE_FIRST_QUARTER = 2;
+    static final int PHASE_WAXING_GIBBOUS = 3;
+    static final int PHASE_FULL = 4;
+    static final int PHASE_WANING_GIBBOUS = 5;
+    static final int PHASE_LAST_QUARTER = 6;
+    static final int PHASE_WANING_CRESCENT = 7;
+
+    static final int PHASE_COUNT = 8;
+
+    // bumped whenever the file layout or the calculation changes
+    private static final int FILE_MAGIC = 0x4e415455;
+    private static final int FILE_VERSION = 1;
+
+    private static final long MILLIS_PER_DAY = TimeUnit.DAYS.toMillis(1);
+    private static final long MILLIS_PER_HALF_DAY = MILLIS_PER_DAY / 2;
+
+    private static final double UNIX_EPOCH_JULIAN_DAY = 2440587.5;
+    private static final double SYNODIC_MONTH_DAYS = 29.530588861;
+    // the first new moon of 2000, lunation 0
+    private static final double NEW_MOON_EPOCH_JULIAN_DAY = 2451550.09766;
+
+    // per day flags
+    private static final byte FLAG_ALWAYS_UP = 1;
+
+    private final double mLatitude;
+    private final double mLongitude;
+    private final String mZoneID;
+
+    // mDayStarts[i] is the UTC time of local midnight on day i, with one extra entry for the end
+    // of the last day. Sunrise and sunset are SolarCalculator.NO_EVENT on polar days
+    private final long[] mDayStarts;
+    private final long[] mSunrises;
+    private final long[] mSunsets;
+    private final byte[] mFlags;
+
+    // new and full moons in turn, from the new moon before the first day to the first event
+    // after the last. Even indices are new moons
+    private final long[] mMoons;
+
+    /**
+     * constructor
+     * @param latitude double
+     * @param longitude double
+     * @param zoneID String
+     * @param dayStarts long[]
+     * @param sunrises long[]
+     * @param sunsets long[]
+     * @param flags byte[]
+     * @param moons long[]
+     */
+    private NatureAlmanac(
+            double latitude,
+            double longitude,
+            String zoneID,
+            long[] dayStarts,
+            long[] sunrises,
+            long[] sunsets,
+            byte[] flags,
+            long[] moons
+    ) {
+        mLatitude = latitude;
+        mLongitude = longitude;
+        mZoneID = zoneID;
+        mDayStarts = dayStarts;
+        mSunrises = sunrises;
+        mSunsets = sunsets;
+        mFlags = flags;
+        mMoons = moons;
+    }
+
+    /**
+     * computes the year starting on the local day that contains fromMillis
+     * @param latitude double degrees, north positive
+     * @param longitude double degrees, east positive
+     * @param zone TimeZone
+     * @param fromMillis long
+     * @return NatureAlmanac
+     */
+    static NatureAlmanac build(double latitude, double longitude, TimeZone zone, long fromMillis) {
+        long[] dayStarts = new long[TABLE_DAYS + 1];
+        long[] sunrises = new long[TABLE_DAYS];
+        long[] sunsets = new long[TABLE_DAYS];
+        byte[] flags = new byte[TABLE_DAYS];
+
+        long localDay = floorDiv(fromMillis + zone.getOffset(fromMillis), MILLIS_PER_DAY);
+        for (int i = 0; i <= TABLE_DAYS; i++) {
+            dayStarts[i] = localMidnight(zone, localDay + i);
+        }
+
+        for (int i = 0; i < TABLE_DAYS; i++) {
+            long noon = (localDay + i) * MILLIS_PER_DAY + MILLIS_PER_HALF_DAY;
+            SolarCalculator.Day day = SolarCalculator.compute(
+                    noon - zone.getOffset(noon - zone.getRawOffset()), latitude, longitude);
+            sunrises[i] = day.sunrise;
+            sunsets[i] = day.sunset;
+            flags[i] = day.alwaysUp ? FLAG_ALWAYS_UP : 0;
+        }
+
+        // walk the lunations from the one before the first day past the end of the last
+        long from = dayStarts[0];
+        long until = dayStarts[TABLE_DAYS];
+        long lunation = (long) Math.floor(
+                (toJulianDay(from) - NEW_MOON_EPOCH_JULIAN_DAY) / SYNODIC_MONTH_DAYS) - 1;
+        while (moonMillis(lunation + 1, false) <= from) {
+            lunation++;
+        }
+
+        long[] moons = new long[32];
+        int count = 0;
+        do {
+            if (count == moons.length) {
+                moons = Arrays.copyOf(moons, count * 2);
+            }
+            boolean full = (count & 1) != 0;
+            moons[count] = moonMillis(full ? lunation++ : lunation, full);
+        } while (moons[count++] <= until);
+
+        return new NatureAlmanac(latitude, longitude, zone.getID(), dayStarts, sunrises, sunsets,
+                flags, Arrays.copyOf(moons, count));
+    }
+
+    /**
+     * reads a table written by writeTo()
+     * @param in DataInputStream
+     * @return NatureAlmanac
+     * @throws IOException if the data isn't a table of this version
+     */
+    static NatureAlmanac readFrom(DataInputStream in) throws IOException {
+        if (in.readInt() != FILE_MAGIC || in.readInt() != FILE_VERSION) {
+            throw new IOException("not a nature almanac of version " + FILE_VERSION);
+        }
+        double latitude = in.readDouble();
+        double longitude = in.readDouble();
+        String zoneID = in.readUTF();
+
+        int days = in.readInt();
+        if (days <= 0 || days > TABLE_DAYS) {
+            throw new IOException("bad day count " + days);
+        }
+        long[] dayStarts = new long[days + 1];
+        long[] sunrises = new long[days];
+        long[] sunsets = new long[days];
+        byte[] flags = new byte[days];
+        for (int i = 0; i <= days; i++) {
+            dayStarts[i] = in.readLong();
+        }
+        for (int i = 0; i < days; i++) {
+            sunrises[i] = in.readLong();
+            sunsets[i] = in.readLong();
+            flags[i] = in.readByte();
+        }
+
+        int count = in.readInt();
+        if (count < 2 || count > days) {
+            throw new IOException("bad moon count " + count);
+        }
+        long[] moons = new long[count];
+        for (int i = 0; i < count; i++) {
+            moons[i] = in.readLong();
+        }
+
+        return new NatureAlmanac(latitude, longitude, zoneID, dayStarts, sunrises, sunsets, flags,
+                moons);
+    }
+
+    /**
+     * @param out DataOutputStream
+     * @throws IOException
+     */
+    void writeTo(DataOutputStream out) throws IOException {
+        out.writeInt(FILE_MAGIC);
+        out.writeInt(FILE_VERSION);
+        out.writeDouble(mLatitude);
+        out.writeDouble(mLongitude);
+        out.writeUTF(mZoneID);
+
+        out.writeInt(mSunrises.length);
+        for (long dayStart : mDayStarts) {
+            out.writeLong(dayStart);
+        }
+        for (int i = 0; i < mSunrises.length; i++) {
+            out.writeLong(mSunrises[i]);
+            out.writeLong(mSunsets[i]);
+            out.writeByte(mFlags[i]);
+        }
+
+        out.writeInt(mMoons.length);
+        for (long moon : mMoons) {
+            out.writeLong(moon);
+        }
+        out.flush();
+    }
+
+    /**
+     * @param latitude double
+     * @param longitude double
+     * @param zone TimeZone
+     * @return boolean whether the table was computed for this location and zone
+     */
+    boolean matches(double latitude, double longitude, TimeZone zone) {
+        return mLatitude == latitude && mLongitude == longitude && mZoneID.equals(zone.getID());
+    }
+
+    /**
+     * @param utcMillis long
+     * @return boolean whether the table can answer for this time
+     */
+    boolean covers(long utcMillis) {
+        return utcMillis >= mDayStarts[0] && utcMillis < mDayStarts[mSunrises.length];
+    }
+
+    /**
+     * @return long the end of the precomputed year
+     */
+    long getValidUntil() {
+        return mDayStarts[mSunrises.length];
+    }
+
+    /**
+     * @param utcMillis long a time the table covers
+     * @return int index of the local day containing it
+     */
+    int dayIndex(long utcMillis) {
+        int index = Arrays.binarySearch(mDayStarts, utcMillis);
+        return index >= 0 ? index : -index - 2;
+    }
+
+    /**
+     * @param day int
+     * @return long UTC time of local midnight at the start of the day
+     */
+    long getDayStart(int day) {
+        return mDayStarts[day];
+    }
+
+    /**
+     * @param day int
+     * @return long or SolarCalculator.NO_EVENT
+     */
+    long getSunrise(int day) {
+        return mSunrises[day];
+    }
+
+    /**
+     * @param day int
+     * @return long or SolarCalculator.NO_EVENT
+     */
+    long getSunset(int day) {
+        return mSunsets[day];
+    }
+
+    /**
+     * @param day int
+     * @return boolean whether the sun stays up all day
+     */
+    boolean isAlwaysUp(int day) {
+        return (mFlags[day] & FLAG_ALWAYS_UP) != 0;
+    }
+
+    /**
+     * @param utcMillis long a time the table covers
+     * @return long the first sunrise after utcMillis, or SolarCalculator.NO_EVENT if there isn't
+     * one before the table runs out
+     */
+    long nextSunrise(long utcMillis) {
+        return nextEvent(mSunrises, utcMillis);
+    }
+
+    /**
+     * @param utcMillis long a time the table covers
+     * @return long the first sunset after utcMillis, or SolarCalculator.NO_EVENT
+     */
+    long nextSunset(long utcMillis) {
+        return nextEvent(mSunsets, utcMillis);
+    }
+
+    /**
+     * @param events long[]
+     * @param utcMillis long
+     * @return long
+     */
+    private long nextEvent(long[] events, long utcMillis) {
+        for (int day = Math.max(dayIndex(utcMillis), 0); day < events.length; day++) {
+            if (events[day] != SolarCalculator.NO_EVENT && events[day] > utcMillis) {
+                return events[day];
+            }
+        }
+        return SolarCalculator.NO_EVENT;
+    }
+
+    /**
+     * @param utcMillis long a time the table covers
+     * @return double age of the moon as a fraction of its cycle, 0 new and 0.5 full
+     */
+    double moonPhase(long utcMillis) {
+        int index = moonIndex(utcMillis);
+        long start = mMoons[index];
+
+        // the moon moves unevenly along its orbit, so each half of the cycle is interpolated
+        // between its own new and full moon
+        double fraction = (double) (utcMillis - start) / (mMoons[index + 1] - start);
+        return ((index & 1) + fraction) / 2;
+    }
+
+    /**
+     * @param phase double from moonPhase()
+     * @return int percent of the disc that's lit
+     */
+    static int illumination(double phase) {
+        return (int) Math.round(50 * (1 - Math.cos(2 * Math.PI * phase)));
+    }
+
+    /**
+     * @param phase double from moonPhase()
+     * @return int one of the PHASE_ constants, each centered on its eighth of the cycle
+     */
+    static int phaseOctant(double phase) {
+        return (int) Math.floor(phase * PHASE_COUNT + 0.5) % PHASE_COUNT;
+    }
+
+    /**
+     * @param utcMillis long a time the table covers
+     * @return long when phaseOctant() next changes
+     */
+    long nextOctantChange(long utcMillis) {
+        int index = moonIndex(utcMillis);
+        long start = mMoons[index];
+        long length = mMoons[index + 1] - start;
+
+        // each half cycle spans four octants, with boundaries half an octant either side of the
+        // named phases. Past the last one the next boundary is early in the following half
+        int octants = PHASE_COUNT / 2;
+        double position = (double) (utcMillis - start) / length * octants;
+        double boundary = Math.floor(position + 0.5) + 0.5;
+        if (boundary < octants || index + 2 >= mMoons.length) {
+            return start + (long) Math.ceil(length * boundary / octants);
+        }
+        long next = mMoons[index + 1];
+        return next + (long) Math.ceil((mMoons[index + 2] - next) * 0.5 / octants);
+    }
+
+    /**
+     * @return int number of new and full moons in the table
+     */
+    int getMoonCount() {
+        return mMoons.length;
+    }
+
+    /**
+     * @param index int
+     * @return long a new moon for even indices, a full moon for odd ones
+     */
+    long getMoon(int index) {
+        return mMoons[index];
+    }
+
+    /**
+     * @param utcMillis long
+     * @return int index of the last new or full moon at or before utcMillis
+     */
+    private int moonIndex(long utcMillis) {
+        int index = Arrays.binarySearch(mMoons, utcMillis);
+        index = index >= 0 ? index : -index - 2;
+        return Math.max(0, Math.min(index, mMoons.length - 2));
+    }
+
+    /**
+     * @param zone TimeZone
+     * @param localDay long days since the epoch, local time
+     * @return long UTC time of that local midnight
+     */
+    private static long localMidnight(TimeZone zone, long localDay) {
+        long local = localDay * MILLIS_PER_DAY;
+        // the offset a few hours either side can differ on transition days, the one in effect at
+        // the result is the one that counts
+        long utc = local - zone.getOffset(local - zone.getRawOffset());
+        return local - zone.getOffset(utc);
+    }
+
+    /**
+     * the mean new or full moon of lunation k (0 is January 2000) with the larger periodic
+     * corrections, Meeus, Astronomical Algorithms ch. 49. Good to a few minutes, the difference
+     * between dynamical and universal time is left out
+     * @param lunation long
+     * @param full boolean the full moon half way through the lunation instead of its new moon
+     * @return long UTC millis
+     */
+    private static long moonMillis(long lunation, boolean full) {
+        double k = full ? lunation + 0.5 : lunation;
+        double t = k / 1236.85;
+        double e = 1 - 0.002516 * t - 0.0000074 * t * t;
+
+        double m = Math.toRadians(2.5534 + 29.10535670 * k - 0.0000014 * t * t);
+        double mPrime = Math.toRadians(201.5643 + 385.81693528 * k + 0.0107582 * t * t);
+        double f = Math.toRadians(160.7108 + 390.67050284 * k - 0.0016118 * t * t);
+        double omega = Math.toRadians(124.7746 - 1.56375588 * k + 0.0020672 * t * t);
+
+        // the new and full moon series differ only in the first few coefficients
+        double julianDay = NEW_MOON_EPOCH_JULIAN_DAY + SYNODIC_MONTH_DAYS * k + 0.00015437 * t * t
+                - (full ? 0.40614 : 0.40720) * Math.sin(mPrime)
+                + (full ? 0.17302 : 0.17241) * e * Math.sin(m)
+                + (full ? 0.01614 : 0.01608) * Math.sin(2 * mPrime)
+                + (full ? 0.01043 : 0.01039) * Math.sin(2 * f)
+                + (full ? 0.00734 : 0.00739) * e * Math.sin(mPrime - m)
+                - (full ? 0.00515 : 0.00514) * e * Math.sin(mPrime + m)
+                + (full ? 0.00209 : 0.00208) * e * e * Math.sin(2 * m)
+                - 0.00111 * Math.sin(mPrime - 2 * f)
+                - 0.00057 * Math.sin(mPrime + 2 * f)
+                + 0.00056 * e * Math.sin(2 * mPrime + m)
+                - 0.00042 * Math.sin(3 * mPrime)
+                + 0.00042 * e * Math.sin(m + 2 * f)
+                + 0.00038 * e * Math.sin(m - 2 * f)
+                - 0.00024 * e * Math.sin(2 * mPrime - m)
+                - 0.00017 * Math.sin(omega);
+
+        return Math.round((julianDay - UNIX_EPOCH_JULIAN_DAY) * MILLIS_PER_DAY);
+    }
+
+    /**
+     * @param utcMillis long
+     * @return double
+     */
+    private static double toJulianDay(long utcMillis) {
+        return utcMillis / (double) MILLIS_PER_DAY + UNIX_EPOCH_JULIAN_DAY;
+    }
+
+    /**
+     * @param value long
+     * @param divisor long
+     * @return long value / divisor rounded towards negative infinity
+     */
+    private static long floorDiv(long value, long divisor) {
+        long quotient = value / divisor;
+        if ((value % divisor != 0) && ((value ^ divisor) < 0)) {
+            quotient--;
+        }
+        return quotient;
+    }
+}
@@ -0,0 +1,336 @@
+package com.julianna.gabler.travelerswatchface;
+
+import android.content.res.Resources;
+import android.support.wearable.complications.ComplicationData;
+import android.support.wearable.complications.ComplicationManager;
+import android.support.wearable.complications.ComplicationProviderService;
+import android.support.wearable.complications.ComplicationText;
+import android.text.format.DateFormat;
+import android.util.Log;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Date;
+import java.util.TimeZone;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @Class NatureProviderService
+ * complication providers for moon phase, daylight and sunrise/sunset, answered from a
+ * NatureAlmanac. The almanac is shared by the providers, kept in memory and cached on disk, so an
+ * update is a table lookup. Text that counts towards an event is sent as a time dependent
+ * ComplicationText, which the system keeps current by itself between updates
+ * @see ComplicationProviderService
+ */
+public abstract class NatureProviderService extends ComplicationProviderService {
+
+    private static final String TAG = "NatureProvider";
+
+    private static final String ALMANAC_FILE = "nature_almanac.bin";
+
+    /**
+     * the almanac is computed again this long before it runs out, so a count towards tomorrow's
+     * sunrise never falls off the end
+     */
+    private static final long ALMANAC_LOOKAHEAD_MILLIS = TimeUnit.DAYS.toMillis(2);
+
+    /**
+     * the daylight and sun event providers' UPDATE_PERIOD_SECONDS in the manifest, the longest
+     * their data can go on showing an event that's just passed
+     */
+    static final long EVENT_UPDATE_PERIOD_MILLIS = TimeUnit.SECONDS.toMillis(600);
+
+    private static final Object sAlmanacLock = new Object();
+    private static NatureAlmanac sAlmanac;
+
+    /**
+     * @param complicationID int
+     * @param type int
+     * @param manager ComplicationManager
+     */
+    @Override
+    public void onComplicationUpdate(int complicationID, int type, ComplicationManager manager) {
+        long now = System.currentTimeMillis();
+        long startNanos = System.nanoTime();
+
+        ComplicationData data = buildData(type, fetchAlmanac(now), now);
+        if (data == null) {
+            //for debugging
+            Log.w(TAG, "onComplicationUpdate() unsupported type " + type);
+            manager.noUpdateRequired(complicationID);
+            return;
+        }
+        manager.updateComplicationData(complicationID, data);
+
+        //for debugging
+        if (Log.isLoggable(TAG, Log.DEBUG)) {
+            Log.d(TAG, getClass().getSimpleName() + " update took "
+                    + TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - startNanos) + "us");
+        }
+    }
+
+    /**
+     * @param type int the complication type asked for
+     * @param almanac NatureAlmanac covering now
+     * @param now long
+     * @return ComplicationData or null if the type isn't one the provider serves
+     */
+    abstract ComplicationData buildData(int type, NatureAlmanac almanac, long now);
+
+    /**
+     * @param now long
+     * @return NatureAlmanac for the configured location and current zone, from memory, the disk
+     * cache, or computed and cached if neither will do
+     */
+    private NatureAlmanac fetchAlmanac(long now) {
+        Resources resources = getResources();
+        double latitude = Double.parseDouble(resources.getString(R.string.daylight_latitude));
+        double longitude = Double.parseDouble(resources.getString(R.string.daylight_longitude));
+        TimeZone zone = TimeZone.getDefault();
+
+        synchronized (sAlmanacLock) {
+            if (isUsable(sAlmanac, latitude, longitude, zone, now)) {
+                return sAlmanac;
+            }
+
+            File file = new File(getCacheDir(), ALMANAC_FILE);
+            NatureAlmanac almanac = readAlmanac(file);
+            if (!isUsable(almanac, latitude, longitude, zone, now)) {
+                almanac = NatureAlmanac.build(latitude, longitude, zone, now);
+                writeAlmanac(file, almanac);
+            }
+            sAlmanac = almanac;
+            return almanac;
+        }
+    }
+
+    /**
+     * @param almanac NatureAlmanac or null
+     * @param latitude double
+     * @param longitude double
+     * @param zone TimeZone
+     * @param now long
+     * @return boolean
+     */
+    private static boolean isUsable(
+            NatureAlmanac almanac,
+            double latitude,
+            double longitude,
+            TimeZone zone,
+            long now
+    ) {
+        return almanac != null
+                && almanac.matches(latitude, longitude, zone)
+                && almanac.covers(now)
+                && almanac.covers(now + ALMANAC_LOOKAHEAD_MILLIS);
+    }
+
+    /**
+     * @param file File
+     * @return NatureAlmanac or null if there's no readable cache
+     */
+    private static NatureAlmanac readAlmanac(File file) {
+        if (!file.exists()) {
+            return null;
+        }
+
+        DataInputStream in = null;
+        try {
+            in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+            return NatureAlmanac.readFrom(in);
+        } catch (IOException e) {
+            Log.w(TAG, "readAlmanac() discarding cache: " + e);
+            return null;
+        } finally {
+            if (in != null) {
+                try {
+                    in.close();
+                } catch (IOException e) {
+                    Log.e(TAG, "readAlmanac() close error: " + e);
+                }
+            }
+        }
+    }
+
+    /**
+     * @param file File
+     * @param almanac NatureAlmanac
+     */
+    private static void writeAlmanac(File file, NatureAlmanac almanac) {
+        DataOutputStream out = null;
+        try {
+            out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file)));
+            almanac.writeTo(out);
+        } catch (IOException e) {
+            // the almanac is only computed again next time
+            Log.w(TAG, "writeAlmanac() failed: " + e);
+        } finally {
+            if (out != null) {
+                try {
+                    out.close();
+                } catch (IOException e) {
+                    Log.e(TAG, "writeAlmanac() close error: " + e);
+                }
+            }
+        }
+    }
+
+    /**
+     * @Class MoonPhase
+     * the moon's phase by name and how much of it is lit
+     */
+    public static class MoonPhase extends NatureProviderService {
+
+        /**
+         * @param type int
+         * @param almanac NatureAlmanac
+         * @param now long
+         * @return ComplicationData
+         */
+        @Override
+        ComplicationData buildData(int type, NatureAlmanac almanac, long now) {
+            double phase = almanac.moonPhase(now);
+            int octant = NatureAlmanac.phaseOctant(phase);
+            Resources resources = getResources();
+            int illumination = NatureAlmanac.illumination(phase);
+            ComplicationText lit = ComplicationText.plainText(
+                    resources.getString(R.string.nature_moon_lit, illumination));
+
+            switch (type) {
+                case ComplicationData.TYPE_SHORT_TEXT:
+                    return new ComplicationData.Builder(type)
+                            .setShortText(lit)
+                            .setShortTitle(ComplicationText.plainText(
+                                    resources.getStringArray(R.array.moon_phase_short)[octant]))
+                            .build();
+                case ComplicationData.TYPE_LONG_TEXT:
+                    return new ComplicationData.Builder(type)
+                            .setLongText(ComplicationText.plainText(
+                                    resources.getStringArray(R.array.moon_phase_names)[octant]))
+                            .setLongTitle(lit)
+                            .build();
+                case ComplicationData.TYPE_RANGED_VALUE:
+                    return new ComplicationData.Builder(type)
+                            .setValue(illumination)
+                            .setMinValue(0)
+                            .setMaxValue(100)
+                            .setShortText(lit)
+                            .build();
+                default:
+                    return null;
+            }
+        }
+    }
+
+    /**
+     * @Class Daylight
+     * counts down the daylight left until sunset, or the night left until sunrise
+     */
+    public static class Daylight extends NatureProviderService {
+
+        /**
+         * @param type int
+         * @param almanac NatureAlmanac
+         * @param now long
+         * @return ComplicationData
+         */
+        @Override
+        ComplicationData buildData(int type, NatureAlmanac almanac, long now) {
+            long sunrise = almanac.nextSunrise(now);
+            long sunset = almanac.nextSunset(now);
+
+            // the sun is up if it sets before it next rises
+            boolean up = sunset != SolarCalculator.NO_EVENT
+                    && (sunrise == SolarCalculator.NO_EVENT || sunset < sunrise);
+            long event = up ? sunset : sunrise;
+            if (event == SolarCalculator.NO_EVENT) {
+                return new ComplicationData.Builder(ComplicationData.TYPE_NO_DATA).build();
+            }
+
+            // past the event the count holds at now rather than running up again, until the next
+            // scheduled update brings the other count. Ending the data at the event instead
+            // would leave the complication blank until then
+            Resources resources = getResources();
+            ComplicationText.TimeDifferenceBuilder countdown =
+                    new ComplicationText.TimeDifferenceBuilder(
+                            event, event + EVENT_UPDATE_PERIOD_MILLIS)
+                            .setStyle(ComplicationText.DIFFERENCE_STYLE_SHORT_DUAL_UNIT)
+                            .setMinimumUnit(TimeUnit.MINUTES);
+
+            switch (type) {
+                case ComplicationData.TYPE_SHORT_TEXT:
+                    return new ComplicationData.Builder(type)
+                            .setShortText(countdown.build())
+                            .setShortTitle(ComplicationText.plainText(resources.getString(
+                                    up ? R.string.nature_daylight_left_short
+                                            : R.string.nature_sunrise_in_short)))
+                            .build();
+                case ComplicationData.TYPE_LONG_TEXT:
+                    return new ComplicationData.Builder(type)
+                            .setLongText(countdown
+                                    .setSurroundingText(resources.getString(up
+                                            ? R.string.nature_daylight_left
+                                            : R.string.nature_sunrise_in))
+                                    .build())
+                            .build();
+                default:
+                    return null;
+            }
+        }
+    }
+
+    /**
+     * @Class SunEvents
+     * the time of the next sunrise or sunset
+     */
+    public static class SunEvents extends NatureProviderService {
+
+        /**
+         * @param type int
+         * @param almanac NatureAlmanac
+         * @param now long
+         * @return ComplicationData
+         */
+        @Override
+        ComplicationData buildData(int type, NatureAlmanac almanac, long now) {
+            long sunrise = almanac.nextSunrise(now);
+            long sunset = almanac.nextSunset(now);
+
+            boolean rise = sunrise != SolarCalculator.NO_EVENT
+                    && (sunset == SolarCalculator.NO_EVENT || sunrise < sunset);
+            long event = rise ? sunrise : sunset;
+            if (event == SolarCalculator.NO_EVENT) {
+                return new ComplicationData.Builder(ComplicationData.TYPE_NO_DATA).build();
+            }
+
+            // in the user's locale and 12 or 24 hour setting. The event just past stays up until
+            // the next scheduled update rather than the complication going blank
+            Resources resources = getResources();
+            String time = DateFormat.getTimeFormat(this).format(new Date(event));
+
+            switch (type) {
+                case ComplicationData.TYPE_SHORT_TEXT:
+                    return new ComplicationData.Builder(type)
+                            .setShortText(ComplicationText.plainText(time))
+                            .setShortTitle(ComplicationText.plainText(resources.getString(
+                                    rise ? R.string.nature_sunrise_short
+                                            : R.string.nature_sunset_short)))
+                            .build();
+                case ComplicationData.TYPE_LONG_TEXT:
+                    return new ComplicationData.Builder(type)
+                            .setLongText(ComplicationText.plainText(resources.getString(
+                                    rise ? R.string.nature_sunrise_at : R.string.nature_sunset_at,
+                                    time)))
+                            .build();
+                default:
+                    return null;
+            }
+        }
+    }
+}
@@ -0,0 +1,251 @@
+package com.julianna.gabler.travelerswatchface;
+
+import java.io.PrintWriter;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @Class QualityGovernor
+ * picks how much the face does from the battery and from what its frames cost to draw. A low
+ * battery or frames over budget step it down through the tiers, each giving up a little more:
+ * seconds, crossfades and prompt complication redraws first, then the background image, then
+ * anti-aliasing. It steps back up once things improve, but only past a margin and after a while,
+ * so it doesn't flap around a threshold. A face layer rendered ahead on another thread counts
+ * toward the frame that shows it, so blitting a costly layer doesn't pass for a cheap frame.
+ * Times are passed in, so any clock can drive it
+ */
+final class QualityGovernor {
+
+    static final int TIER_FULL = 0;
+    // no seconds or crossfades, complication updates wait for the next minute's frame
+    static final int TIER_REDUCED = 1;
+    // a plain background instead of the image
+    static final int TIER_SAVER = 2;
+    // no anti-aliasing either
+    static final int TIER_MINIMAL = 3;
+    static final int TIER_COUNT = 4;
+
+    private static final String[] TIER_NAMES = {"full", "reduced", "saver", "minimal"};
+
+    /**
+     * battery percentage at or below which each tier from TIER_REDUCED on applies, unplugged
+     */
+    static final int[] BATTERY_THRESHOLDS = {30, 15, 5};
+
+    /**
+     * how far past a threshold the battery has to get back to before stepping up again
+     */
+    static final int BATTERY_HYSTERESIS = 5;
+
+    /**
+     * a full frame's draw time, averaged over the window, should stay under this
+     */
+    static final long FRAME_BUDGET_NANOS = TimeUnit.MILLISECONDS.toNanos(12);
+
+    /**
+     * frames cheaper than this fraction of the budget leave room to step back up
+     */
+    static final float RECOVER_FRACTION = 0.5f;
+
+    /**
+     * frames averaged before the cost is judged, counted again after each step
+     */
+    static final int FRAME_WINDOW = 16;
+
+    /**
+     * least time between steps for frame cost. Stepping up waits longer, and twice as long
+     * each time the higher tier turns out to be too expensive again
+     */
+    static final long COST_STEP_DOWN_INTERVAL_MS = TimeUnit.SECONDS.toMillis(30);
+    static final long COST_STEP_UP_DELAY_MS = TimeUnit.MINUTES.toMillis(2);
+    static final long MAX_COST_STEP_UP_DELAY_MS = TimeUnit.MINUTES.toMillis(30);
+
+    private int mBatteryLevel = 100;
+    private boolean mCharging;
+    private int mBatteryTier = TIER_FULL;
+
+    private final long[] mFrameNanos = new long[FRAME_WINDOW];
+    private int mFrameCount;
+    private long mPendingLayerNanos;
+    private int mCostTier = TIER_FULL;
+    private long mLastCostStepMillis;
+    private boolean mLastCostStepUp;
+    private long mCostStepUpDelayMs = COST_STEP_UP_DELAY_MS;
+
+    private int mTier = TIER_FULL;
+    private int mTierChanges;
+
+    /**
+     * @param tier int
+     * @return boolean whether the tier redraws every second and crossfades backgrounds
+     */
+    static boolean allowsFrequentRedraws(int tier) {
+        return tier < TIER_REDUCED;
+    }
+
+    /**
+     * @param tier int
+     * @return boolean whether a complication update is drawn straight away rather than with the
+     * next minute's frame
+     */
+    static boolean allowsImmediateComplicationRedraws(int tier) {
+        return tier < TIER_REDUCED;
+    }
+
+    /**
+     * @param tier int
+     * @return boolean whether the background image is drawn
+     */
+    static boolean allowsBackgroundBitmap(int tier) {
+        return tier < TIER_SAVER;
+    }
+
+    /**
+     * @param tier int
+     * @return boolean whether text and arcs are anti-aliased
+     */
+    static boolean allowsAntiAlias(int tier) {
+        return tier < TIER_MINIMAL;
+    }
+
+    /**
+     * @param level int 0-100
+     * @return int the tier the battery level calls for, without hysteresis
+     */
+    static int batteryTierFor(int level) {
+        int tier = TIER_FULL;
+        for (int i = 0; i < BATTERY_THRESHOLDS.length; i++) {
+            if (level <= BATTERY_THRESHOLDS[i]) {
+                tier = i + 1;
+            }
+        }
+        return tier;
+    }
+
+    /**
+     * @param level int battery percentage, 0-100
+     * @param charging boolean whether the watch is plugged in
+     * @param nowMillis long
+     * @return boolean whether the tier changed
+     */
+    boolean onBatteryChanged(int level, boolean charging, long nowMillis) {
+        mBatteryLevel = level;
+        mCharging = charging;
+
+        if (charging) {
+            mBatteryTier = TIER_FULL;
+        } else {
+            int tier = batteryTierFor(level);
+            if (tier > mBatteryTier) {
+                mBatteryTier = tier;
+            } else if (tier < mBatteryTier) {
+                // only as far up as the level clears by the margin
+                mBatteryTier = Math.min(mBatteryTier, batteryTierFor(level - BATTERY_HYSTERESIS));
+            }
+        }
+        return updateTier();
+    }
+
+    /**
+     * counts a face layer rendered off the main thread toward the next full frame
+     * @param renderNanos long how long the render thread took to draw it
+     */
+    void onLayerRendered(long renderNanos) {
+        mPendingLayerNanos += renderNanos;
+    }
+
+    /**
+     * @param drawNanos long how long the frame took to draw on the main thread
+     * @param fullFrame boolean false for a redraw of part of the face, which isn't counted: the
+     * seconds alone would otherwise fill the window with cheap frames
+     * @param nowMillis long a monotonic clock, so a time or zone change can't skip the intervals
+     * @return boolean whether the tier changed
+     */
+    boolean onFrameDrawn(long drawNanos, boolean fullFrame, long nowMillis) {
+        if (!fullFrame) {
+            return false;
+        }
+        mFrameNanos[mFrameCount % FRAME_WINDOW] = drawNanos + mPendingLayerNanos;
+        mPendingLayerNanos = 0;
+        mFrameCount++;
+        if (mFrameCount < FRAME_WINDOW) {
+            return false;
+        }
+
+        long meanNanos = getMeanFrameNanos();
+        long sinceStepMillis = nowMillis - mLastCostStepMillis;
+        if (meanNanos > FRAME_BUDGET_NANOS && mCostTier < TIER_MINIMAL
+                && sinceStepMillis >= COST_STEP_DOWN_INTERVAL_MS) {
+            // a step up that didn't hold waits longer before the next try
+            if (mLastCostStepUp && sinceStepMillis < mCostStepUpDelayMs) {
+                mCostStepUpDelayMs = Math.min(MAX_COST_STEP_UP_DELAY_MS, mCostStepUpDelayMs * 2);
+            } else {
+                mCostStepUpDelayMs = COST_STEP_UP_DELAY_MS;
+            }
+            stepCostTier(mCostTier + 1, false, nowMillis);
+        } else if (meanNanos < FRAME_BUDGET_NANOS * RECOVER_FRACTION && mCostTier > TIER_FULL
+                && sinceStepMillis >= mCostStepUpDelayMs) {
+            stepCostTier(mCostTier - 1, true, nowMillis);
+        }
+        return updateTier();
+    }
+
+    /**
+     * @param tier int
+     * @param up boolean
+     * @param nowMillis long
+     */
+    private void stepCostTier(int tier, boolean up, long nowMillis) {
+        mCostTier = tier;
+        mLastCostStepUp = up;
+        mLastCostStepMillis = nowMillis;
+        // the new tier's frames are judged on their own
+        mFrameCount = 0;
+    }
+
+    /**
+     * @return boolean whether the tier changed
+     */
+    private boolean updateTier() {
+        int tier = Math.max(mBatteryTier, mCostTier);
+        if (tier == mTier) {
+            return false;
+        }
+        mTier = tier;
+        mTierChanges++;
+        return true;
+    }
+
+    /**
+     * @return int one of the TIER_ constants
+     */
+    int getTier() {
+        return mTier;
+    }
+
+    /**
+     * @return long mean draw time of the frames in the window, 0 before there are any
+     */
+    long getMeanFrameNanos() {
+        int count = Math.min(mFrameCount, FRAME_WINDOW);
+        if (count == 0) {
+            return 0;
+        }
+        long total = 0;
+        for (int i = 0; i < count; i++) {
+            total += mFrameNanos[i];
+        }
+        return total / count;
+    }
+
+    /**
+     * @param prefix String
+     * @param writer PrintWriter
+     */
+    void dump(String prefix, PrintWriter writer) {
+        writer.println(prefix + "Quality: " + TIER_NAMES[mTier] + " (battery "
+                + TIER_NAMES[mBatteryTier] + " at " + mBatteryLevel + "%"
+                + (mCharging ? " charging" : "") + ", frame cost " + TIER_NAMES[mCostTier]
+                + " at " + TimeUnit.NANOSECONDS.toMicros(getMeanFrameNanos()) + "us), "
+                + mTierChanges + " changes");
+    }
+}
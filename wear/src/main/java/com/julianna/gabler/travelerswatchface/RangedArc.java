@@ -0,0 +1,85 @@
+package com.julianna.gabler.travelerswatchface;
+
+/**
+ * @Class RangedArc
+ * the geometry of the arc a ranged value complication is drawn as: a track open at the bottom of
+ * the slot's circle, and the value swept along it from the bottom left. The sweep is quantized to
+ * whole pixels along the arc, so a value that changes by less than a pixel's worth doesn't need a
+ * redraw
+ */
+final class RangedArc {
+
+    /**
+     * degrees clockwise from 3 o'clock, the track runs from 7:30 round to 4:30
+     */
+    static final float START_ANGLE = 135f;
+    static final float TRACK_SWEEP = 270f;
+
+    /**
+     * no arc, e.g. the slot doesn't show a ranged value
+     */
+    static final int NO_STEP = -1;
+
+    private RangedArc() {
+    }
+
+    /**
+     * fits the arc's circle inside a slot, centered, with room for the stroke
+     * @param rects int[] slot bounds, 4 per slot
+     * @param index int slot index
+     * @param strokeWidth float
+     * @param oval float[] filled with left, top, right, bottom
+     * @return float the radius, 0 if the slot is too small for an arc
+     */
+    static float computeOval(int[] rects, int index, float strokeWidth, float[] oval) {
+        int slot = index * 4;
+        float centerX = (rects[slot] + rects[slot + 2]) / 2f;
+        float centerY = (rects[slot + 1] + rects[slot + 3]) / 2f;
+        float size = Math.min(rects[slot + 2] - rects[slot], rects[slot + 3] - rects[slot + 1]);
+        float radius = Math.max(0, (size - strokeWidth) / 2);
+
+        oval[0] = centerX - radius;
+        oval[1] = centerY - radius;
+        oval[2] = centerX + radius;
+        oval[3] = centerY + radius;
+        return radius;
+    }
+
+    /**
+     * @param value float
+     * @param min float
+     * @param max float
+     * @return float degrees of the track the value covers, clamped to the track
+     */
+    static float sweepFor(float value, float min, float max) {
+        if (!(max > min)) {
+            return 0;
+        }
+        float fraction = (value - min) / (max - min);
+        return TRACK_SWEEP * Math.max(0, Math.min(1, fraction));
+    }
+
+    /**
+     * @param sweep float degrees
+     * @param radius float px
+     * @return int how many whole pixels along the arc the sweep reaches, NO_STEP without a radius
+     */
+    static int stepFor(float sweep, float radius) {
+        if (radius <= 0) {
+            return NO_STEP;
+        }
+        return Math.round((float) Math.toRadians(sweep) * radius);
+    }
+
+    /**
+     * @param step int from stepFor()
+     * @param radius float px
+     * @return float degrees, the sweep drawn for the step
+     */
+    static float sweepForStep(int step, float radius) {
+        if (step <= 0 || radius <= 0) {
+            return 0;
+        }
+        return Math.min(TRACK_SWEEP, (float) Math.toDegrees(step / radius));
+    }
+}
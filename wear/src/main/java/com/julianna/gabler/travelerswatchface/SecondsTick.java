@@ -0,0 +1,78 @@
+package com.julianna.gabler.travelerswatchface;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @Class SecondsTick
+ * the arithmetic behind the once a second redraw: when the next tick is due, whether a tick only
+ * has to redraw the seconds, and the region of the surface the seconds cover. Kept apart from the
+ * engine so it runs on the JVM
+ */
+final class SecondsTick {
+
+    private SecondsTick() {}
+
+    /**
+     * @param nowMillis long
+     * @param periodMillis long the timer period, a second or a minute
+     * @return long delay to the next whole period, so ticks land on the boundary and not wherever
+     * the last one happened to finish
+     */
+    static long delayToNext(long nowMillis, long periodMillis) {
+        return periodMillis - (nowMillis % periodMillis);
+    }
+
+    /**
+     * @param usesFaceLayer boolean whether frames are composed from the face layer
+     * @param faceLayerValid boolean whether the layer on screen is still good
+     * @param nowMillis long
+     * @param faceLayerMinute long minute the layer on screen was rendered for
+     * @return boolean whether a tick only needs the seconds redrawn over the layer, rather than
+     * a full frame
+     */
+    static boolean redrawsSecondsOnly(
+            boolean usesFaceLayer,
+            boolean faceLayerValid,
+            long nowMillis,
+            long faceLayerMinute
+    ) {
+        return usesFaceLayer && faceLayerValid
+                && TimeUnit.MILLISECONDS.toMinutes(nowMillis) == faceLayerMinute;
+    }
+
+    /**
+     * works out the region redrawn each second, the seconds' text box grown by padding on every
+     * side so anti-aliased edges are redrawn too
+     * @param x float where the seconds start
+     * @param baseline float
+     * @param ascent float the text paint's ascent, negative
+     * @param descent float the text paint's descent
+     * @param width float the width of the widest two digits
+     * @param padding int
+     * @param rect int[] filled with left, top, right, bottom
+     */
+    static void computeRegion(
+            float x,
+            float baseline,
+            float ascent,
+            float descent,
+            float width,
+            int padding,
+            int[] rect
+    ) {
+        rect[0] = (int) x - padding;
+        rect[1] = (int) (baseline + ascent) - padding;
+        rect[2] = (int) (x + width) + padding;
+        rect[3] = (int) (baseline + descent) + padding;
+    }
+
+    /**
+     * writes two digit seconds without allocating
+     * @param seconds int 0 to 59
+     * @param text char[] at least two long
+     */
+    static void format(int seconds, char[] text) {
+        text[0] = (char) ('0' + seconds / 10);
+        text[1] = (char) ('0' + seconds % 10);
+    }
+}
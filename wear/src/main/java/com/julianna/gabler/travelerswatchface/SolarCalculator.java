@@ -0,0 +1,163 @@
+package com.julianna.gabler.travelerswatchface;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @Class SolarCalculator
+ * sunrise, sunset and civil twilight for a day and location, using the sunrise equation
+ * (good to about a minute away from the poles). Pure math so it runs on the JVM
+ */
+final class SolarCalculator {
+
+    /**
+     * marks an event that doesn't happen that day, e.g. sunset during the midnight sun
+     */
+    static final long NO_EVENT = Long.MIN_VALUE;
+
+    // sun's altitude at sunrise/sunset (refraction and the sun's radius) and at civil twilight
+    static final double SUNRISE_ALTITUDE = -0.833;
+    static final double CIVIL_TWILIGHT_ALTITUDE = -6.0;
+
+    private static final double MILLIS_PER_DAY = TimeUnit.DAYS.toMillis(1);
+    private static final double UNIX_EPOCH_JULIAN_DAY = 2440587.5;
+    private static final double J2000 = 2451545.0;
+    private static final double EARTH_TILT = 23.4397;
+
+    private SolarCalculator() {}
+
+    /**
+     * @Class Day
+     * the solar events for one day, as UTC millis or NO_EVENT
+     */
+    static final class Day {
+        final long civilDawn;
+        final long sunrise;
+        final long solarNoon;
+        final long sunset;
+        final long civilDusk;
+
+        // which way the sun stayed on days it doesn't cross the horizon
+        final boolean alwaysUp;
+        final boolean alwaysBelowCivil;
+
+        /**
+         * constructor
+         * @param civilDawn long
+         * @param sunrise long
+         * @param solarNoon long
+         * @param sunset long
+         * @param civilDusk long
+         * @param alwaysUp boolean
+         * @param alwaysBelowCivil boolean
+         */
+        Day(
+                long civilDawn,
+                long sunrise,
+                long solarNoon,
+                long sunset,
+                long civilDusk,
+                boolean alwaysUp,
+                boolean alwaysBelowCivil
+        ) {
+            this.civilDawn = civilDawn;
+            this.sunrise = sunrise;
+            this.solarNoon = solarNoon;
+            this.sunset = sunset;
+            this.civilDusk = civilDusk;
+            this.alwaysUp = alwaysUp;
+            this.alwaysBelowCivil = alwaysBelowCivil;
+        }
+
+        /**
+         * @return long millis between sunrise and sunset, 0 or a full day when there aren't any
+         */
+        long getDaylightMillis() {
+            if (sunrise == NO_EVENT || sunset == NO_EVENT) {
+                return alwaysUp ? (long) MILLIS_PER_DAY : 0;
+            }
+            return sunset - sunrise;
+        }
+    }
+
+    /**
+     * @param localNoonMillis long UTC millis of (roughly) noon on the wanted day, local time
+     * @param latitude double degrees, north positive
+     * @param longitude double degrees, east positive
+     * @return Day
+     */
+    static Day compute(long localNoonMillis, double latitude, double longitude) {
+        double julianDay = localNoonMillis / MILLIS_PER_DAY + UNIX_EPOCH_JULIAN_DAY;
+
+        // days since J2000 of the transit nearest local noon, then the mean solar noon
+        double n = Math.round(julianDay - J2000 - 0.0008 + longitude / 360.0);
+        double meanSolarNoon = n + 0.0008 - longitude / 360.0;
+
+        double meanAnomaly = normalizeDegrees(357.5291 + 0.98560028 * meanSolarNoon);
+        double m = Math.toRadians(meanAnomaly);
+        double center = 1.9148 * Math.sin(m) + 0.0200 * Math.sin(2 * m) + 0.0003 * Math.sin(3 * m);
+        double eclipticLongitude = Math.toRadians(
+                normalizeDegrees(meanAnomaly + center + 180.0 + 102.9372));
+
+        double transit = J2000 + meanSolarNoon
+                + 0.0053 * Math.sin(m) - 0.0069 * Math.sin(2 * eclipticLongitude);
+        double declination = Math.asin(
+                Math.sin(eclipticLongitude) * Math.sin(Math.toRadians(EARTH_TILT)));
+
+        double sunriseCos = hourAngleCosine(SUNRISE_ALTITUDE, latitude, declination);
+        double civilCos = hourAngleCosine(CIVIL_TWILIGHT_ALTITUDE, latitude, declination);
+
+        return new Day(
+                eventMillis(transit, civilCos, -1),
+                eventMillis(transit, sunriseCos, -1),
+                toMillis(transit),
+                eventMillis(transit, sunriseCos, 1),
+                eventMillis(transit, civilCos, 1),
+                sunriseCos < -1,
+                civilCos > 1
+        );
+    }
+
+    /**
+     * @param altitude double degrees
+     * @param latitude double degrees
+     * @param declination double radians
+     * @return double cosine of the hour angle at which the sun is at altitude, outside [-1, 1]
+     * if it never gets there
+     */
+    private static double hourAngleCosine(double altitude, double latitude, double declination) {
+        double phi = Math.toRadians(latitude);
+        return (Math.sin(Math.toRadians(altitude)) - Math.sin(phi) * Math.sin(declination))
+                / (Math.cos(phi) * Math.cos(declination));
+    }
+
+    /**
+     * @param transit double julian day of solar noon
+     * @param hourAngleCosine double
+     * @param direction int -1 for the morning event, 1 for the evening one
+     * @return long
+     */
+    private static long eventMillis(double transit, double hourAngleCosine, int direction) {
+        if (hourAngleCosine < -1 || hourAngleCosine > 1) {
+            return NO_EVENT;
+        }
+        double hourAngle = Math.toDegrees(Math.acos(hourAngleCosine));
+        return toMillis(transit + direction * hourAngle / 360.0);
+    }
+
+    /**
+     * @param julianDay double
+     * @return long
+     */
+    private static long toMillis(double julianDay) {
+        return Math.round((julianDay - UNIX_EPOCH_JULIAN_DAY) * MILLIS_PER_DAY);
+    }
+
+    /**
+     * @param degrees double
+     * @return double in [0, 360)
+     */
+    private static double normalizeDegrees(double degrees) {
+        double normalized = degrees % 360.0;
+        return normalized < 0 ? normalized + 360.0 : normalized;
+    }
+}
@@ -0,0 +1,313 @@
+package com.julianna.gabler.travelerswatchface;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.Writer;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @Class StartupTimeline
+ * records how long each phase of the engine's startup takes, from onCreateEngine() to the first
+ * visible onDraw(). Sections nest like android.os.Trace sections and everything is preallocated,
+ * so recording costs a couple of array writes. Once the first frame is marked the timeline is
+ * frozen and later calls are ignored.
+ */
+class StartupTimeline {
+
+    /**
+     * source of monotonic time, swapped out by tests
+     */
+    interface Clock {
+        long nanoTime();
+    }
+
+    static final String PHASE_CREATE_ENGINE = "onCreateEngine";
+    static final String PHASE_ENGINE_CREATE = "Engine.onCreate";
+    static final String PHASE_READ_SNAPSHOT = "readSnapshot";
+    static final String PHASE_INIT_BACKGROUND = "initializeBackground";
+    static final String PHASE_INIT_DATE_TIME = "initializeDateTime";
+    static final String PHASE_INIT_COMPLICATIONS = "initializeComplications";
+    static final String PHASE_APPLY_INSETS = "onApplyWindowInsets";
+    static final String PHASE_SURFACE_CHANGED = "onSurfaceChanged";
+    static final String PHASE_GRAY_BACKGROUND = "initGrayBackgroundBitmap";
+    static final String PHASE_REGISTER_RECEIVER = "registerReceiver";
+    static final String PHASE_FIRST_DRAW = "firstDraw";
+
+    /**
+     * the order the top level phases are expected to start in on a cold start
+     */
+    static final String[] STARTUP_ORDER = {
+            PHASE_CREATE_ENGINE,
+            PHASE_ENGINE_CREATE,
+            PHASE_APPLY_INSETS,
+            PHASE_SURFACE_CHANGED,
+            PHASE_FIRST_DRAW
+    };
+
+    /**
+     * budget for the whole cold start, onCreateEngine() to the first frame
+     */
+    static final long FIRST_FRAME_BUDGET_MS = 400;
+
+    // per phase budgets, in the same order as their names
+    private static final String[] BUDGET_PHASES = {
+            PHASE_INIT_BACKGROUND,
+            PHASE_INIT_COMPLICATIONS,
+            PHASE_APPLY_INSETS,
+            PHASE_GRAY_BACKGROUND,
+            PHASE_REGISTER_RECEIVER,
+            PHASE_FIRST_DRAW
+    };
+    private static final long[] BUDGETS_MS = {150, 20, 20, 60, 10, 50};
+
+    private static final int MAX_SECTIONS = 32;
+    private static final int MAX_DEPTH = 8;
+
+    private final Clock mClock;
+
+    private final String[] mNames = new String[MAX_SECTIONS];
+    private final long[] mStartNanos = new long[MAX_SECTIONS];
+    private final long[] mEndNanos = new long[MAX_SECTIONS];
+    private final int[] mDepths = new int[MAX_SECTIONS];
+    private final int[] mOpenSections = new int[MAX_DEPTH];
+
+    private int mCount;
+    private int mDepth;
+    private long mOriginNanos;
+    private long mFirstFrameNanos = -1;
+
+    /**
+     * constructor, uses System.nanoTime()
+     */
+    StartupTimeline() {
+        this(new Clock() {
+            @Override
+            public long nanoTime() {
+                return System.nanoTime();
+            }
+        });
+    }
+
+    /**
+     * constructor
+     * @param clock Clock
+     */
+    StartupTimeline(Clock clock) {
+        mClock = clock;
+        mOriginNanos = clock.nanoTime();
+    }
+
+    /**
+     * opens a section, which must be closed with end()
+     * @param name String
+     */
+    void begin(String name) {
+        long now = mClock.nanoTime();
+        if (mCount == 0) {
+            mOriginNanos = now;
+        }
+
+        // sections that don't fit are dropped, but the depth is still tracked so end() matches
+        if (isFrozen() || mCount >= MAX_SECTIONS || mDepth >= MAX_DEPTH) {
+            mDepth++;
+            return;
+        }
+
+        mNames[mCount] = name;
+        mStartNanos[mCount] = now;
+        mEndNanos[mCount] = -1;
+        mDepths[mCount] = mDepth;
+        mOpenSections[mDepth++] = mCount++;
+    }
+
+    /**
+     * closes the most recently opened section
+     */
+    void end() {
+        if (mDepth == 0) {
+            return;
+        }
+        mDepth--;
+
+        if (mDepth < MAX_DEPTH) {
+            int index = mOpenSections[mDepth];
+            if (index < mCount && mEndNanos[index] == -1 && mDepths[index] == mDepth) {
+                mEndNanos[index] = mClock.nanoTime();
+            }
+        }
+    }
+
+    /**
+     * marks the first visible frame and freezes the timeline
+     */
+    void markFirstFrame() {
+        if (!isFrozen()) {
+            mFirstFrameNanos = mClock.nanoTime();
+        }
+    }
+
+    /**
+     * @return boolean
+     */
+    boolean isFrozen() {
+        return mFirstFrameNanos != -1;
+    }
+
+    /**
+     * @return long time from the first section to the first frame, or -1 if not drawn yet
+     */
+    long getFirstFrameMillis() {
+        if (!isFrozen()) {
+            return -1;
+        }
+        return TimeUnit.NANOSECONDS.toMillis(mFirstFrameNanos - mOriginNanos);
+    }
+
+    /**
+     * @param name String
+     * @return long duration of the first section with this name, or -1 if missing or still open
+     */
+    long getDurationMillis(String name) {
+        int index = indexOf(name);
+        if (index == -1 || mEndNanos[index] == -1) {
+            return -1;
+        }
+        return TimeUnit.NANOSECONDS.toMillis(mEndNanos[index] - mStartNanos[index]);
+    }
+
+    /**
+     * @param name String
+     * @return long start of the first section with this name relative to the origin, or -1
+     */
+    long getStartMillis(String name) {
+        int index = indexOf(name);
+        if (index == -1) {
+            return -1;
+        }
+        return TimeUnit.NANOSECONDS.toMillis(mStartNanos[index] - mOriginNanos);
+    }
+
+    /**
+     * whether every phase was recorded and each one started after the one before it
+     * @param phases String...
+     * @return boolean
+     */
+    boolean isInOrder(String... phases) {
+        int previous = -1;
+        for (String phase : phases) {
+            int index = indexOf(phase);
+            if (index <= previous) {
+                return false;
+            }
+            previous = index;
+        }
+        return true;
+    }
+
+    /**
+     * @return boolean whether the first frame and every budgeted phase came in on budget
+     */
+    boolean isWithinBudget() {
+        if (!isFrozen() || getFirstFrameMillis() > FIRST_FRAME_BUDGET_MS) {
+            return false;
+        }
+        for (int i = 0; i < BUDGET_PHASES.length; i++) {
+            if (getDurationMillis(BUDGET_PHASES[i]) > BUDGETS_MS[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @param name String
+     * @return int
+     */
+    private int indexOf(String name) {
+        for (int i = 0; i < mCount; i++) {
+            if (mNames[i].equals(name)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * @param name String
+     * @return long the budget for the phase, or -1 if it has none
+     */
+    private long budgetFor(String name) {
+        for (int i = 0; i < BUDGET_PHASES.length; i++) {
+            if (BUDGET_PHASES[i].equals(name)) {
+                return BUDGETS_MS[i];
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * prints the timeline as an indented list, flagging phases that went over budget
+     * @param prefix String
+     * @param writer PrintWriter
+     */
+    void dump(String prefix, PrintWriter writer) {
+        writer.print(prefix);
+        writer.print("Startup timeline, first frame: ");
+        writer.println(isFrozen() ? getFirstFrameMillis() + "ms" : "not drawn yet");
+
+        for (int i = 0; i < mCount; i++) {
+            writer.print(prefix);
+            for (int d = 0; d <= mDepths[i]; d++) {
+                writer.print("  ");
+            }
+            writer.print(mNames[i]);
+            writer.print(" @");
+            writer.print(TimeUnit.NANOSECONDS.toMillis(mStartNanos[i] - mOriginNanos));
+            writer.print("ms ");
+
+            if (mEndNanos[i] == -1) {
+                writer.println("(open)");
+                continue;
+            }
+
+            long duration = TimeUnit.NANOSECONDS.toMillis(mEndNanos[i] - mStartNanos[i]);
+            long budget = budgetFor(mNames[i]);
+            writer.print(duration);
+            writer.print("ms");
+            if (budget != -1 && duration > budget) {
+                writer.print(" OVER BUDGET (" + budget + "ms)");
+            }
+            writer.println();
+        }
+    }
+
+    /**
+     * writes the timeline in the Chrome trace event format, which chrome://tracing and Perfetto
+     * can open alongside a systrace capture
+     * @param writer Writer
+     * @throws IOException
+     */
+    void writeTraceEvents(Writer writer) throws IOException {
+        writer.write("{\"traceEvents\":[");
+        for (int i = 0; i < mCount; i++) {
+            if (i > 0) {
+                writer.write(',');
+            }
+            long end = mEndNanos[i] == -1 ? mStartNanos[i] : mEndNanos[i];
+            writer.write(String.format(Locale.US,
+                    "{\"name\":\"%s\",\"ph\":\"X\",\"pid\":0,\"tid\":0,\"ts\":%d,\"dur\":%d}",
+                    mNames[i],
+                    TimeUnit.NANOSECONDS.toMicros(mStartNanos[i] - mOriginNanos),
+                    TimeUnit.NANOSECONDS.toMicros(end - mStartNanos[i])));
+        }
+        if (isFrozen()) {
+            writer.write(String.format(Locale.US,
+                    "%s{\"name\":\"firstFrame\",\"ph\":\"i\",\"s\":\"g\",\"pid\":0,\"tid\":0,\"ts\":%d}",
+                    mCount > 0 ? "," : "",
+                    TimeUnit.NANOSECONDS.toMicros(mFirstFrameNanos - mOriginNanos)));
+        }
+        writer.write("]}");
+        writer.flush();
+    }
+}
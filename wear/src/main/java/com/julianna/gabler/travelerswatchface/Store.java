@@ -0,0 +1,34 @@
+package com.julianna.gabler.travelerswatchface;
+
+import java.util.Collection;
+
+/**
+ * @Class Store
+ * persists string values by key between process restarts, e.g. in SharedPreferences. Caches
+ * like LayoutEngine and TextContrast each keep what they've worked out in their own, and prune the
+ * entries their current keys no longer match
+ */
+interface Store {
+
+    /**
+     * @param key String
+     * @return String or null if nothing was saved for the key
+     */
+    String load(String key);
+
+    /**
+     * @param key String
+     * @param value String
+     */
+    void save(String key, String value);
+
+    /**
+     * @return Collection<String> every key saved, safe to keep while removing
+     */
+    Collection<String> keys();
+
+    /**
+     * @param keys Collection<String> keys to drop along with their values
+     */
+    void removeAll(Collection<String> keys);
+}
@@ -0,0 +1,127 @@
+package com.julianna.gabler.travelerswatchface;
+
+/**
+ * @Class TapTracker
+ * the tap state machine behind onTapCommand(). Works out which slot a point falls in and which
+ * slot is highlighted as touches start, cancel and complete. A completed tap hands back the
+ * complication to dispatch, which the engine sends from its handler after the highlight has been
+ * drawn, and the highlight stays up until that dispatch is done. Nothing is highlighted or
+ * dispatched in ambient mode, where the highlight isn't drawn
+ */
+class TapTracker {
+
+    static final int NONE = -1;
+
+    private final ComplicationSlots mSlots;
+
+    private int mPressedIndex = NONE;
+    private int mDispatchCount;
+
+    /**
+     * constructor
+     * @param slots ComplicationSlots
+     */
+    TapTracker(ComplicationSlots slots) {
+        mSlots = slots;
+    }
+
+    /**
+     * @param rects int[] from ComplicationSlots.computeRects()
+     * @param tappable boolean[] per slot, whether its data currently takes taps
+     * @param x int
+     * @param y int
+     * @return int index of the tappable text slot under the point, or NONE
+     */
+    int findSlot(int[] rects, boolean[] tappable, int x, int y) {
+        for (int i = 0; i < mSlots.getCount(); i++) {
+            if (mSlots.getKind(i) == ComplicationSlots.KIND_TEXT && tappable[i]
+                    && ComplicationSlots.contains(rects, i, x, y)) {
+                return i;
+            }
+        }
+        return NONE;
+    }
+
+    /**
+     * a finger went down
+     * @param index int slot under it, or NONE
+     * @param ambient boolean
+     * @return boolean whether the highlighted slot changed
+     */
+    boolean onTouch(int index, boolean ambient) {
+        if (ambient || index == NONE) {
+            return false;
+        }
+        return press(index);
+    }
+
+    /**
+     * the touch turned into some other gesture
+     * @return boolean whether the highlighted slot changed
+     */
+    boolean onCancel() {
+        return press(NONE);
+    }
+
+    /**
+     * a tap completed. The tapped slot is highlighted, if the touch didn't already do it
+     * @param index int slot under it, or NONE
+     * @param ambient boolean
+     * @return int complication id to dispatch, or NONE
+     */
+    int onTap(int index, boolean ambient) {
+        if (ambient || index == NONE) {
+            press(NONE);
+            return NONE;
+        }
+
+        press(index);
+        return mSlots.getID(index);
+    }
+
+    /**
+     * the tap's action was sent, its highlight comes down unless another touch has since moved it
+     * @param complicationID int
+     * @return boolean whether the highlighted slot changed
+     */
+    boolean onDispatched(int complicationID) {
+        mDispatchCount++;
+        if (mPressedIndex == NONE || mSlots.getID(mPressedIndex) != complicationID) {
+            return false;
+        }
+        return press(NONE);
+    }
+
+    /**
+     * @param index int
+     * @return boolean whether it changed
+     */
+    private boolean press(int index) {
+        if (mPressedIndex == index) {
+            return false;
+        }
+        mPressedIndex = index;
+        return true;
+    }
+
+    /**
+     * @return int highlighted slot index, or NONE
+     */
+    int getPressedIndex() {
+        return mPressedIndex;
+    }
+
+    /**
+     * @return int highlighted complication id, or NONE
+     */
+    int getPressedID() {
+        return mPressedIndex == NONE ? NONE : mSlots.getID(mPressedIndex);
+    }
+
+    /**
+     * @return int taps dispatched
+     */
+    int getDispatchCount() {
+        return mDispatchCount;
+    }
+}
@@ -0,0 +1,360 @@
+package com.julianna.gabler.travelerswatchface;
+
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * @Class TextContrast
+ * picks light or dark text for each kind of text on the face from the background behind it. Each
+ * text region of a downsampled copy of the background gets a luminance histogram; light text is
+ * kept unless the brighter part of the region leaves it too little contrast and dark text would
+ * have enough. The analysis runs on the loader thread once per background and layout, and
+ * the results are cached in memory and in a Store so it's never repeated across restarts. The Store
+ * only keeps results for the layout last analyzed, so it doesn't grow with every layout the face
+ * has had
+ */
+class TextContrast {
+
+    /**
+     * no result for the background and size yet
+     */
+    static final int UNKNOWN = -1;
+
+    /**
+     * bump when the analysis changes so stored results are recomputed
+     */
+    static final int CONTRAST_VERSION = 1;
+
+    private static final String KEY_PREFIX = "contrast" + CONTRAST_VERSION + "_";
+
+    /**
+     * fields per region in textRegions(): role, then left, top, right, bottom as fractions
+     */
+    static final int REGION_FIELDS = 5;
+
+    /**
+     * the background is analyzed at no less than this many px a side
+     */
+    static final int ANALYSIS_SIZE = 64;
+
+    /**
+     * light text is kept while it reaches this contrast ratio against the bright end of its
+     * region (WCAG's minimum for large text), dark text has to reach it against the dark end
+     */
+    static final double MIN_LIGHT_CONTRAST = 3.0;
+
+    // the bright and dark ends of a region, so a few stray pixels don't decide it
+    static final float BRIGHT_PERCENTILE = 0.9f;
+    static final float DARK_PERCENTILE = 0.1f;
+
+    private static final int ROLE_COUNT = 4;
+    private static final int LEVELS = 256;
+
+    // relative luminance of each 8 bit luma level, sRGB decoded
+    private static final double[] LUMINANCE = new double[LEVELS];
+    static {
+        for (int i = 0; i < LEVELS; i++) {
+            double c = i / 255.0;
+            LUMINANCE[i] = c <= 0.03928 ? c / 12.92 : Math.pow((c + 0.055) / 1.055, 2.4);
+        }
+    }
+
+    private final Store mStore;
+    private final Map<String, Integer> mResults = new HashMap<>();
+
+    private int mMemoryHits;
+    private int mStoreHits;
+    private int mAnalyzedCount;
+    private int mPrunedCount;
+    private long mLastAnalyzeNanos;
+
+    /**
+     * constructor
+     * @param store Store or null to only cache in memory
+     */
+    TextContrast(Store store) {
+        mStore = store;
+    }
+
+    /**
+     * @param imageName String the background's resource name, stable across builds unlike its id
+     * @param layout LayoutSpec the text regions are placed by
+     * @return String the cache key for a background under a layout. The layout's whole spec is
+     * hashed in, the regions move with the shape, locale and fitted sizes, not just the size
+     */
+    static String keyFor(String imageName, LayoutSpec layout) {
+        return KEY_PREFIX + imageName + "_" + layout.width + "x"
+                + layout.height + "_" + Integer.toHexString(layout.encode().hashCode());
+    }
+
+    /**
+     * @param key String from keyFor()
+     * @return int the dark text mask for the key, or UNKNOWN if it hasn't been analyzed
+     */
+    int fetch(String key) {
+        Integer result = mResults.get(key);
+        if (result != null) {
+            mMemoryHits++;
+            return result;
+        }
+
+        if (mStore != null) {
+            String stored = mStore.load(key);
+            if (stored != null) {
+                try {
+                    int mask = Integer.parseInt(stored);
+                    mStoreHits++;
+                    mResults.put(key, mask);
+                    return mask;
+                } catch (NumberFormatException e) {
+                    // analyzed again below
+                }
+            }
+        }
+        return UNKNOWN;
+    }
+
+    /**
+     * records a result from analyze()
+     * @param key String
+     * @param mask int
+     * @param analyzeNanos long how long the analysis took
+     */
+    void put(String key, int mask, long analyzeNanos) {
+        mAnalyzedCount++;
+        mLastAnalyzeNanos = analyzeNanos;
+        mResults.put(key, mask);
+        if (mStore != null) {
+            pruneStore(key);
+            mStore.save(key, Integer.toString(mask));
+        }
+    }
+
+    /**
+     * drops stored results from an older analysis or for another layout than key's. After the
+     * layout changes each background is analyzed again, which is cheap next to keeping a result
+     * per background for every layout there's ever been
+     * @param key String from keyFor()
+     */
+    private void pruneStore(String key) {
+        String layout = layoutPart(key);
+        List<String> stale = new ArrayList<>();
+        for (String stored : mStore.keys()) {
+            if (!stored.startsWith(KEY_PREFIX) || !stored.endsWith(layout)) {
+                stale.add(stored);
+            }
+        }
+
+        if (!stale.isEmpty()) {
+            mStore.removeAll(stale);
+            mPrunedCount += stale.size();
+        }
+    }
+
+    /**
+     * @param key String from keyFor()
+     * @return String the size and layout hash ending the key, image names may have underscores
+     * but these don't
+     */
+    static String layoutPart(String key) {
+        int hash = key.lastIndexOf('_');
+        return key.substring(key.lastIndexOf('_', hash - 1));
+    }
+
+    /**
+     * @param mask int from fetch() or analyze()
+     * @param role int one of the LayoutEngine.TEXT_ constants
+     * @return boolean whether that text should be dark
+     */
+    static boolean isDark(int mask, int role) {
+        return mask != UNKNOWN && (mask & (1 << role)) != 0;
+    }
+
+    /**
+     * where each kind of text sits on the face, as fractions of the surface so they apply to a
+     * background at any size
+     * @param layout LayoutSpec
+     * @param slots ComplicationSlots
+     * @return float[] REGION_FIELDS per region
+     */
+    static float[] textRegions(LayoutSpec layout, ComplicationSlots slots) {
+        float width = layout.width;
+        float height = layout.height;
+        float left = layout.xOffset / width;
+        float right = 1 - left;
+
+        int[] slotRects = new int[ComplicationSlots.MAX_SLOTS * 4];
+        slots.computeRects(layout.width, layout.height, slotRects);
+
+        int textSlots = 0;
+        for (int i = 0; i < slots.getCount(); i++) {
+            if (slots.getKind(i) == ComplicationSlots.KIND_TEXT) {
+                textSlots++;
+            }
+        }
+
+        float[] regions = new float[(3 + textSlots) * REGION_FIELDS];
+        int index = 0;
+
+        // lines of text reach a text size above their baseline and a quarter of one below
+        index = putLine(regions, index, LayoutEngine.TEXT_TIME, left, right,
+                layout.timeY, layout.timeTextSize, height);
+        index = putLine(regions, index, LayoutEngine.TEXT_DATE, left, right,
+                layout.dateY, layout.dateTextSize, height);
+        index = putLine(regions, index, LayoutEngine.TEXT_ZONES, left, right,
+                layout.zonesY, layout.zonesTextSize, height);
+
+        // complication text is centered in its slot
+        for (int i = 0; i < slots.getCount(); i++) {
+            if (slots.getKind(i) != ComplicationSlots.KIND_TEXT) {
+                continue;
+            }
+            int slot = i * 4;
+            float centerY = (slotRects[slot + 1] + slotRects[slot + 3]) / 2f;
+            regions[index] = LayoutEngine.TEXT_COMPLICATION;
+            regions[index + 1] = slotRects[slot] / width;
+            regions[index + 2] = (centerY - layout.complicationTextSize) / height;
+            regions[index + 3] = slotRects[slot + 2] / width;
+            regions[index + 4] = (centerY + layout.complicationTextSize / 2) / height;
+            index += REGION_FIELDS;
+        }
+        return regions;
+    }
+
+    /**
+     * @param regions float[]
+     * @param index int
+     * @param role int
+     * @param left float
+     * @param right float
+     * @param baseline float px
+     * @param textSize float px
+     * @param height float px
+     * @return int the index after the region
+     */
+    private static int putLine(
+            float[] regions,
+            int index,
+            int role,
+            float left,
+            float right,
+            float baseline,
+            float textSize,
+            float height
+    ) {
+        regions[index] = role;
+        regions[index + 1] = left;
+        regions[index + 2] = (baseline - textSize) / height;
+        regions[index + 3] = right;
+        regions[index + 4] = (baseline + textSize / 4) / height;
+        return index + REGION_FIELDS;
+    }
+
+    /**
+     * @param pixels int[] ARGB, row by row
+     * @param width int
+     * @param height int
+     * @param regions float[] from textRegions()
+     * @return int a mask with bit (1 << role) set for each role that should use dark text
+     */
+    static int analyze(int[] pixels, int width, int height, float[] regions) {
+        int[][] histograms = new int[ROLE_COUNT][LEVELS];
+
+        for (int r = 0; r < regions.length; r += REGION_FIELDS) {
+            int[] histogram = histograms[(int) regions[r]];
+            int left = clamp(Math.round(regions[r + 1] * width), width);
+            int top = clamp(Math.round(regions[r + 2] * height), height);
+            int right = clamp(Math.round(regions[r + 3] * width), width);
+            int bottom = clamp(Math.round(regions[r + 4] * height), height);
+
+            for (int y = top; y < bottom; y++) {
+                for (int x = left, i = y * width + left; x < right; x++, i++) {
+                    histogram[luma(pixels[i])]++;
+                }
+            }
+        }
+
+        int mask = 0;
+        for (int role = 0; role < ROLE_COUNT; role++) {
+            if (prefersDark(histograms[role])) {
+                mask |= 1 << role;
+            }
+        }
+        return mask;
+    }
+
+    /**
+     * @param histogram int[]
+     * @return boolean whether dark text reads better than light text over the histogram
+     */
+    static boolean prefersDark(int[] histogram) {
+        int count = 0;
+        for (int level : histogram) {
+            count += level;
+        }
+        if (count == 0) {
+            return false;
+        }
+
+        double bright = LUMINANCE[percentile(histogram, count, BRIGHT_PERCENTILE)];
+        double dark = LUMINANCE[percentile(histogram, count, DARK_PERCENTILE)];
+
+        // contrast ratios of white text over the bright end and black text over the dark end
+        double lightContrast = 1.05 / (bright + 0.05);
+        double darkContrast = (dark + 0.05) / 0.05;
+        // over a mix of bright and dark neither reads well, light text stays as designed
+        return lightContrast < MIN_LIGHT_CONTRAST && darkContrast >= MIN_LIGHT_CONTRAST;
+    }
+
+    /**
+     * @param histogram int[]
+     * @param count int samples in the histogram
+     * @param fraction float
+     * @return int the level below which that fraction of the samples fall
+     */
+    private static int percentile(int[] histogram, int count, float fraction) {
+        int wanted = (int) Math.ceil(count * fraction);
+        int seen = 0;
+        for (int level = 0; level < LEVELS; level++) {
+            seen += histogram[level];
+            if (seen >= wanted) {
+                return level;
+            }
+        }
+        return LEVELS - 1;
+    }
+
+    /**
+     * @param argb int
+     * @return int 0-255, Rec. 709 weights
+     */
+    private static int luma(int argb) {
+        int r = (argb >> 16) & 0xff;
+        int g = (argb >> 8) & 0xff;
+        int b = argb & 0xff;
+        return (r * 54 + g * 183 + b * 19) >> 8;
+    }
+
+    /**
+     * @param value int
+     * @param size int
+     * @return int value within [0, size]
+     */
+    private static int clamp(int value, int size) {
+        return Math.max(0, Math.min(value, size));
+    }
+
+    /**
+     * @param prefix String
+     * @param writer PrintWriter
+     */
+    void dump(String prefix, PrintWriter writer) {
+        writer.println(prefix + "Text contrast cache: " + mResults.size() + " results, "
+                + mMemoryHits + " memory hits, " + mStoreHits + " store hits, " + mAnalyzedCount
+                + " analyzed (last " + (mLastAnalyzeNanos / 1000) + "us), " + mPrunedCount
+                + " pruned from the store");
+    }
+}
@@ -0,0 +1,158 @@
+package com.julianna.gabler.travelerswatchface;
+
+import java.util.Locale;
+import java.util.TimeZone;
+
+/**
+ * @Class TravelerZones
+ * the extra time zones shown under the date, e.g. "LON 14:05  TYO 22:05". Each zone has a
+ * ZoneOffsetTable for the coming year, and the line is written into a preallocated char array only
+ * when the minute changes, so drawing N zones costs table lookups and a few divisions
+ */
+class TravelerZones {
+
+    /**
+     * separates an optional label from the zone id in a zone entry, e.g. "NYC|America/New_York"
+     */
+    static final char LABEL_SEPARATOR = '|';
+
+    private static final int LABEL_LENGTH = 3;
+    // label, space, HH:MM and two spaces between zones
+    private static final int CHARS_PER_ZONE = LABEL_LENGTH + 1 + 5 + 2;
+    private static final long MILLIS_PER_MINUTE = 60 * 1000;
+
+    private final TimeZone[] mZones;
+    private final String[] mLabels;
+    private final ZoneOffsetTable[] mTables;
+
+    private final char[] mLine;
+    private int mLineLength;
+    private long mLineMinute = Long.MIN_VALUE;
+
+    /**
+     * constructor
+     * @param zoneEntries String[] zone ids, each optionally prefixed with "LABEL|"
+     * @param nowMillis long tables are built for the year starting here
+     */
+    TravelerZones(String[] zoneEntries, long nowMillis) {
+        int count = zoneEntries.length;
+        mZones = new TimeZone[count];
+        mLabels = new String[count];
+        mTables = new ZoneOffsetTable[count];
+        mLine = new char[count * CHARS_PER_ZONE];
+
+        for (int i = 0; i < count; i++) {
+            String entry = zoneEntries[i];
+            int separator = entry.indexOf(LABEL_SEPARATOR);
+            String zoneID = separator == -1 ? entry : entry.substring(separator + 1);
+
+            mZones[i] = TimeZone.getTimeZone(zoneID);
+            mLabels[i] = separator == -1 ? labelFor(zoneID) : entry.substring(0, separator);
+            mTables[i] = ZoneOffsetTable.build(mZones[i], mLabels[i], nowMillis);
+        }
+    }
+
+    /**
+     * "America/New_York" becomes "NEW"
+     * @param zoneID String
+     * @return String
+     */
+    static String labelFor(String zoneID) {
+        String city = zoneID.substring(zoneID.lastIndexOf('/') + 1).replace('_', ' ').trim();
+        if (city.length() > LABEL_LENGTH) {
+            city = city.substring(0, LABEL_LENGTH);
+        }
+        return city.toUpperCase(Locale.US);
+    }
+
+    /**
+     * @return int
+     */
+    int getZoneCount() {
+        return mTables.length;
+    }
+
+    /**
+     * @param index int
+     * @return ZoneOffsetTable
+     */
+    ZoneOffsetTable getTable(int index) {
+        return mTables[index];
+    }
+
+    /**
+     * @return String the line with every time as 00:00, for fitting its text size
+     */
+    String getSampleLine() {
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < mLabels.length; i++) {
+            if (i > 0) {
+                builder.append("  ");
+            }
+            String label = mLabels[i];
+            builder.append(label, 0, Math.min(label.length(), LABEL_LENGTH)).append(" 00:00");
+        }
+        return builder.toString();
+    }
+
+    /**
+     * rebuilds any table that no longer covers nowMillis, which happens once a year or when the
+     * clock is set outside the table
+     * @param nowMillis long
+     */
+    private void ensureTables(long nowMillis) {
+        for (int i = 0; i < mTables.length; i++) {
+            if (!mTables[i].covers(nowMillis)) {
+                mTables[i] = ZoneOffsetTable.build(mZones[i], mLabels[i], nowMillis);
+            }
+        }
+    }
+
+    /**
+     * brings the line up to date for nowMillis, reformatting only if the minute changed
+     * @param nowMillis long
+     * @return int number of chars of getLine() in use
+     */
+    int format(long nowMillis) {
+        long minute = nowMillis / MILLIS_PER_MINUTE;
+        if (minute == mLineMinute) {
+            return mLineLength;
+        }
+        mLineMinute = minute;
+
+        ensureTables(nowMillis);
+
+        int position = 0;
+        for (int i = 0; i < mTables.length; i++) {
+            if (i > 0) {
+                mLine[position++] = ' ';
+                mLine[position++] = ' ';
+            }
+
+            String label = mLabels[i];
+            for (int c = 0; c < label.length() && c < LABEL_LENGTH; c++) {
+                mLine[position++] = label.charAt(c);
+            }
+            mLine[position++] = ' ';
+
+            int minuteOfDay = mTables[i].minuteOfDay(nowMillis);
+            int hours = minuteOfDay / 60;
+            int minutes = minuteOfDay % 60;
+            mLine[position++] = (char) ('0' + hours / 10);
+            mLine[position++] = (char) ('0' + hours % 10);
+            mLine[position++] = ':';
+            mLine[position++] = (char) ('0' + minutes / 10);
+            mLine[position++] = (char) ('0' + minutes % 10);
+        }
+
+        mLineLength = position;
+        return mLineLength;
+    }
+
+    /**
+     * @return char[] the line written by the last format()
+     */
+    char[] getLine() {
+        return mLine;
+    }
+}
@@ -6,19 +6,27 @@ import android.content.ComponentName;
 import android.content.Context;
 import android.content.Intent;
 import android.content.IntentFilter;
+import android.content.SharedPreferences;
 import android.content.res.Resources;
 import android.graphics.Bitmap;
-import android.graphics.BitmapFactory;
 import android.graphics.Canvas;
 import android.graphics.Color;
 import android.graphics.ColorMatrix;
 import android.graphics.ColorMatrixColorFilter;
 import android.graphics.Paint;
+import android.graphics.Path;
 import android.graphics.Rect;
+import android.graphics.RectF;
 import android.graphics.Typeface;
+import android.graphics.drawable.Drawable;
+import android.graphics.drawable.Icon;
+import android.os.BatteryManager;
 import android.os.Bundle;
+import android.os.Debug;
 import android.os.Handler;
 import android.os.Message;
+import android.os.SystemClock;
+import android.os.Trace;
 import android.support.wearable.complications.ComplicationData;
 import android.support.wearable.complications.ComplicationHelperActivity;
 import android.support.wearable.complications.ComplicationText;
@@ -26,13 +34,24 @@ import android.support.wearable.watchface.CanvasWatchFaceService;
 import android.support.wearable.watchface.WatchFaceStyle;
 import android.text.TextUtils;
 import android.util.Log;
-import android.util.SparseArray;
 import android.view.SurfaceHolder;
 import android.view.WindowInsets;
 
+import java.io.File;
+import java.io.FileDescriptor;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.Writer;
 import java.lang.ref.WeakReference;
+import java.nio.ByteBuffer;
 import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Calendar;
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
 import java.util.Locale;
 import java.util.TimeZone;
 import java.util.concurrent.TimeUnit;
@@ -50,37 +69,331 @@ public class TravelersWatchFace extends CanvasWatchFaceService {
     //for logging
     private static final String TAG = "TravellersWatchFace";
 
+    // complication ids are stable, the system keeps each slot's chosen provider by id
     private static final int LEFT_DIAL_COMPLICATION = 0;
+    private static final int TOP_COMPLICATION = 1;
     private static final int RIGHT_DIAL_COMPLICATION = 2;
-    private static final int COMPLICATION_TAP_BUFFER = 40;
-
-    public static final int[] COMPLICATION_IDS = {
-            LEFT_DIAL_COMPLICATION,
-            RIGHT_DIAL_COMPLICATION
-    };
-    // Left, middle, and right dial supported types.
-    public static final int[][] COMPLICATION_SUPPORTED_TYPES = {
-            {ComplicationData.TYPE_SHORT_TEXT},
-            {ComplicationData.TYPE_SHORT_TEXT}
+    private static final int BOTTOM_COMPLICATION = 3;
+    private static final int TOP_LEFT_COMPLICATION = 4;
+    private static final int TOP_RIGHT_COMPLICATION = 5;
+    private static final int BACKGROUND_COMPLICATION = 6;
+
+    private static final int[] TEXT_COMPLICATION_TYPES = {
+            ComplicationData.TYPE_SHORT_TEXT,
+            ComplicationData.TYPE_RANGED_VALUE
     };
+    private static final int[] BACKGROUND_COMPLICATION_TYPES = {ComplicationData.TYPE_LARGE_IMAGE};
+
+    /**
+     * every complication slot on the face, with its bounds as fractions of the surface. The
+     * engine draws and hit-tests from this and the config activity lists it
+     */
+    static final ComplicationSlots COMPLICATION_SLOTS = new ComplicationSlots()
+            .add(LEFT_DIAL_COMPLICATION, ComplicationSlots.KIND_TEXT,
+                    0f, 0.70f, 0.5f, 0.86f, TEXT_COMPLICATION_TYPES,
+                    R.string.complication_left, R.drawable.complications_left_dial)
+            .add(RIGHT_DIAL_COMPLICATION, ComplicationSlots.KIND_TEXT,
+                    0.5f, 0.70f, 1f, 0.86f, TEXT_COMPLICATION_TYPES,
+                    R.string.complication_right, R.drawable.complications_right_dial)
+            .add(TOP_COMPLICATION, ComplicationSlots.KIND_TEXT,
+                    0.3f, 0.08f, 0.7f, 0.2f, TEXT_COMPLICATION_TYPES,
+                    R.string.complication_top, 0)
+            .add(BOTTOM_COMPLICATION, ComplicationSlots.KIND_TEXT,
+                    0.25f, 0.86f, 0.75f, 0.96f, TEXT_COMPLICATION_TYPES,
+                    R.string.complication_bottom, 0)
+            .add(TOP_LEFT_COMPLICATION, ComplicationSlots.KIND_TEXT,
+                    0.08f, 0.2f, 0.36f, 0.3f, TEXT_COMPLICATION_TYPES,
+                    R.string.complication_top_left, 0)
+            .add(TOP_RIGHT_COMPLICATION, ComplicationSlots.KIND_TEXT,
+                    0.64f, 0.2f, 0.92f, 0.3f, TEXT_COMPLICATION_TYPES,
+                    R.string.complication_top_right, 0)
+            .add(BACKGROUND_COMPLICATION, ComplicationSlots.KIND_BACKGROUND,
+                    0f, 0f, 1f, 1f, BACKGROUND_COMPLICATION_TYPES,
+                    R.string.complication_background, 0);
 
     /**
-     * Update rate in milliseconds for interactive mode. We update once a second since seconds are
-     * displayed in interactive mode.
+     * Update rate in milliseconds for interactive mode without seconds, once a minute.
      */
     private static final long INTERACTIVE_UPDATE_RATE_MS = TimeUnit.MINUTES.toMillis(1);
 
+    /**
+     * Update rate in milliseconds for interactive mode when seconds are displayed.
+     */
+    private static final long SECONDS_UPDATE_RATE_MS = TimeUnit.SECONDS.toMillis(1);
+
+    /**
+     * CPU time a seconds tick should stay under, ticks over it are counted in dump()
+     */
+    private static final long SECONDS_TICK_CPU_BUDGET_NS = TimeUnit.MILLISECONDS.toNanos(2);
+
+    /**
+     * number of recent seconds ticks kept for the tick cost stats
+     */
+    private static final int SECONDS_TICK_SAMPLES = 120;
+
+    /**
+     * padding around the seconds text in the region redrawn each tick
+     */
+    private static final int SECONDS_REGION_PADDING = 2;
+
+    /**
+     * how long before a minute starts its face layer is rendered on the render thread
+     */
+    private static final long FACE_FRAME_LEAD_MS = TimeUnit.SECONDS.toMillis(2);
+
     /**
      * Handler message id for updating the time periodically in interactive mode.
      */
     private static final int MSG_UPDATE_TIME = 0;
 
+    /**
+     * Handler message id for sending a tapped complication's PendingIntent, arg1 is its id.
+     */
+    private static final int MSG_DISPATCH_TAP = 1;
+
+    /**
+     * Handler message id for a preloaded background, arg1 is its resource id and obj the bitmap.
+     */
+    private static final int MSG_BACKGROUND_LOADED = 2;
+
+    /**
+     * Handler message id for a text contrast analysis, arg1 is the mask, arg2 the microseconds it
+     * took and obj the cache key.
+     */
+    private static final int MSG_CONTRAST_ANALYZED = 3;
+
+    /**
+     * Handler message id for a written face snapshot, arg1 is the microseconds it took and arg2
+     * the bytes written (-1 if it failed).
+     */
+    private static final int MSG_SNAPSHOT_WRITTEN = 4;
+
+    /**
+     * how long before a daylight phase starts its background is decoded
+     */
+    private static final long BACKGROUND_PRELOAD_LEAD_MS = TimeUnit.MINUTES.toMillis(5);
+
+    /**
+     * length of the crossfade between backgrounds, and the frame interval it's paced at (30fps)
+     */
+    private static final long CROSSFADE_DURATION_MS = 600;
+    private static final long CROSSFADE_FRAME_MS = 33;
+
+    /**
+     * number of recent crossfade frames kept for the frame timing stats
+     */
+    private static final int CROSSFADE_FRAME_SAMPLES = 64;
+
+    /**
+     * number of recent taps kept for the tap latency stats
+     */
+    private static final int TAP_LATENCY_SAMPLES = 32;
+
+    /**
+     * snapshot a recreated engine resumes from, in the cache dir
+     */
+    private static final String SNAPSHOT_FILE = "face_snapshot.bin";
+
+    /**
+     * complication values in a snapshot older than this aren't shown
+     */
+    private static final long SNAPSHOT_VALUES_MAX_AGE_MS = TimeUnit.MINUTES.toMillis(15);
+
+    /**
+     * how long a snapshot's complication values stay up if their providers don't send new ones
+     */
+    private static final long SNAPSHOT_VALUES_LIFETIME_MS = TimeUnit.MINUTES.toMillis(1);
+
+    /**
+     * number of recent engine starts and snapshot writes kept for the snapshot stats
+     */
+    private static final int SNAPSHOT_SAMPLES = 16;
+
+    /**
+     * dump() argument that exports the startup timeline as a trace file
+     */
+    private static final String DUMP_ARG_STARTUP_TRACE = "--startup-trace";
+    private static final String STARTUP_TRACE_FILE = "startup_trace.json";
+
+    /**
+     * size the background is decoded at before the surface size is known
+     */
+    private static final int DEFAULT_BACKGROUND_SIZE = 320;
+
+    /**
+     * name of the preferences file holding computed layout specs
+     */
+    private static final String LAYOUT_PREFERENCES = "layout_specs";
+
+    /**
+     * name of the preferences file holding analyzed text contrast per background and layout
+     */
+    private static final String TEXT_CONTRAST_PREFERENCES = "text_contrast";
+
+    /**
+     * name of the preferences file holding the options set in WatchFaceConfigActivity
+     */
+    private static final String FACE_PREFERENCES = "face_settings";
+    private static final String PREFERENCE_SHOW_SECONDS = "show_seconds";
+
+    /**
+     * free bytes the shared bitmap pool keeps for reuse, a few surface sized bitmaps
+     */
+    private static final long BITMAP_POOL_MAX_BYTES = 2 * 1024 * 1024;
+
+    /**
+     * engines currently alive, so memory pressure can be passed on to them
+     */
+    private final List<Engine> mEngines = new ArrayList<>();
+
+    /**
+     * shared by every engine the service creates, so a restarted engine reuses the layouts
+     */
+    private LayoutEngine mLayoutEngine;
+
+    /**
+     * shared like the layout engine, so each background is only ever analyzed once per size
+     */
+    private TextContrast mTextContrast;
+
+    /**
+     * scaled backgrounds, gray copies, layers and decodes are borrowed from and returned to this
+     */
+    private final BitmapPool mBitmapPool = new BitmapPool(BITMAP_POOL_MAX_BYTES);
+
+    /**
+     * snapshot and resume timings. Kept by the service rather than the engines, an engine only
+     * starts once
+     */
+    private final LatencyStats mSnapshotWriteStats =
+            new LatencyStats("Snapshot write", SNAPSHOT_SAMPLES);
+    private final LatencyStats mSnapshotReadStats =
+            new LatencyStats("Snapshot read", SNAPSHOT_SAMPLES);
+    private final LatencyStats mSnapshotFirstFrameStats =
+            new LatencyStats("Resume to first frame, from snapshot", SNAPSHOT_SAMPLES);
+    private final LatencyStats mColdFirstFrameStats =
+            new LatencyStats("Resume to first frame, cold", SNAPSHOT_SAMPLES);
+    private final LatencyStats mSnapshotFullFrameStats =
+            new LatencyStats("Resume to full frame, from snapshot", SNAPSHOT_SAMPLES);
+
+    /**
+     * @param context Context
+     * @return boolean whether the seconds are shown, off unless turned on in the config activity
+     * since ticking once a second keeps waking the watch
+     */
+    static boolean fetchShowSeconds(Context context) {
+        return context.getSharedPreferences(FACE_PREFERENCES, MODE_PRIVATE).getBoolean(
+                PREFERENCE_SHOW_SECONDS, context.getResources().getBoolean(R.bool.show_seconds));
+    }
+
+    /**
+     * @param context Context
+     * @param showSeconds boolean
+     */
+    static void saveShowSeconds(Context context, boolean showSeconds) {
+        context.getSharedPreferences(FACE_PREFERENCES, MODE_PRIVATE).edit()
+                .putBoolean(PREFERENCE_SHOW_SECONDS, showSeconds).apply();
+    }
+
+    /**
+     * @param name String the preferences file
+     * @return Store backed by the named SharedPreferences
+     */
+    private Store createPreferencesStore(String name) {
+        final SharedPreferences preferences = getSharedPreferences(name, MODE_PRIVATE);
+
+        return new Store() {
+            @Override
+            public String load(String key) {
+                return preferences.getString(key, null);
+            }
+
+            @Override
+            public void save(String key, String value) {
+                preferences.edit().putString(key, value).apply();
+            }
+
+            @Override
+            public Collection<String> keys() {
+                // getAll() is a copy
+                return preferences.getAll().keySet();
+            }
+
+            @Override
+            public void removeAll(Collection<String> keys) {
+                SharedPreferences.Editor editor = preferences.edit();
+                for (String key : keys) {
+                    editor.remove(key);
+                }
+                editor.apply();
+            }
+        };
+    }
+
+    /**
+     * @return LayoutEngine backed by the layout preferences, created on first use
+     */
+    private LayoutEngine fetchLayoutEngine() {
+        if (mLayoutEngine == null) {
+            mLayoutEngine = new LayoutEngine(createPreferencesStore(LAYOUT_PREFERENCES));
+        }
+        return mLayoutEngine;
+    }
+
+    /**
+     * @return TextContrast backed by the text contrast preferences, created on first use
+     */
+    private TextContrast fetchTextContrast() {
+        if (mTextContrast == null) {
+            mTextContrast = new TextContrast(createPreferencesStore(TEXT_CONTRAST_PREFERENCES));
+        }
+        return mTextContrast;
+    }
+
     /**
      * @return Engine
      */
     @Override
     public Engine onCreateEngine() {
-        return new Engine();
+        StartupTimeline startupTimeline = new StartupTimeline();
+
+        Trace.beginSection(StartupTimeline.PHASE_CREATE_ENGINE);
+        startupTimeline.begin(StartupTimeline.PHASE_CREATE_ENGINE);
+        try {
+            return new Engine(startupTimeline, null);
+        } finally {
+            startupTimeline.end();
+            Trace.endSection();
+        }
+    }
+
+    /**
+     * an engine that runs against the given host instead of the system's clocks, timer and
+     * surface, for the soak instrumentation test to drive. It's a separate instance the system
+     * never sees, so the face on screen is left alone
+     * @param host FaceHost
+     * @return CanvasWatchFaceService.Engine
+     */
+    CanvasWatchFaceService.Engine createEngine(FaceHost host) {
+        return new Engine(new StartupTimeline(), host);
+    }
+
+    /**
+     * passes memory pressure on to every live engine so they can drop their bitmap caches
+     * @param level int
+     */
+    @Override
+    public void onTrimMemory(int level) {
+        super.onTrimMemory(level);
+
+        for (Engine engine : mEngines) {
+            engine.onTrimMemory(level);
+        }
+
+        // whatever the engines let go of is only worth keeping while memory is fine
+        if (level >= TRIM_MEMORY_RUNNING_LOW) {
+            mBitmapPool.clear();
+        }
     }
 
     /**
@@ -109,6 +422,19 @@ public class TravelersWatchFace extends CanvasWatchFaceService {
                     case MSG_UPDATE_TIME:
                         engine.handleUpdateTimeMessage();
                         break;
+                    case MSG_DISPATCH_TAP:
+                        engine.handleDispatchTapMessage(msg.arg1);
+                        break;
+                    case MSG_BACKGROUND_LOADED:
+                        engine.handleBackgroundLoadedMessage(
+                                msg.arg1, msg.arg2 == BackgroundLoader.WARM_UP, (Bitmap) msg.obj);
+                        break;
+                    case MSG_CONTRAST_ANALYZED:
+                        engine.handleContrastAnalyzedMessage((String) msg.obj, msg.arg1, msg.arg2);
+                        break;
+                    case MSG_SNAPSHOT_WRITTEN:
+                        engine.handleSnapshotWrittenMessage(msg.arg1, msg.arg2);
+                        break;
                 }
             }
         }
@@ -120,18 +446,33 @@ public class TravelersWatchFace extends CanvasWatchFaceService {
      */
     private class Engine extends CanvasWatchFaceService.Engine {
         final Handler mUpdateTimeHandler = new EngineHandler(this);
+        final FaceHost mHost;
+        final StartupTimeline mStartupTimeline;
 
         /**
-         * backgrounds for watchface
+         * backgrounds for watchface, indexed by DaylightSchedule phase
          */
         final int [] mBackgroundIDs = {
-                R.drawable.bckgrd1,
-                R.drawable.bckgrd2,
-                R.drawable.bckgrd3,
-                R.drawable.bckgrd4,
-                R.drawable.bckgrd5
+                R.drawable.bckgrd5,     // night, aurora
+                R.drawable.bckgrd3,     // dawn, misty sunrise
+                R.drawable.bckgrd1,     // day, clear water
+                R.drawable.bckgrd4,     // dusk, sunset
+                R.drawable.bckgrd2      // twilight, afterglow
         };
-        int mComplicationsY;
+        int mBackgroundResID;
+        int mBackgroundPhase;
+
+        // background being decoded ahead of the next phase, or held ready for it
+        int mNextBackgroundResID;
+        boolean mNextBackgroundPending;
+
+        DaylightSchedule mDaylightSchedule;
+        BackgroundLoader mBackgroundLoader;
+
+        /**
+         * set by onDestroy(), the loader can still report work it finishes after it
+         */
+        boolean mDestroyed;
         int mWidth;
         int mHeight;
 
@@ -151,34 +492,213 @@ public class TravelersWatchFace extends CanvasWatchFaceService {
         Paint mBackgroundPaint;
         Paint mTimeTextPaint;
         Paint mDateTextPaint;
+        Paint mZonesTextPaint;
+        Paint mSecondsTextPaint;
         Paint mComplicationPaint;
+        Paint mPressedPaint;
+        final Paint mCrossfadePaint = new Paint();
+
+        /**
+         * light text colors, and the dark ones used over bright parts of a background. The mask
+         * says which text is dark at the moment, see TextContrast
+         */
+        int mPrimaryTextColor;
+        int mSecondaryTextColor;
+        int mPrimaryDarkTextColor;
+        int mSecondaryDarkTextColor;
+        int mTextContrastMask;
+        String mTextContrastPendingKey;
+
+        /**
+         * per slot state, indexed like COMPLICATION_SLOTS. A slot's text is built and measured
+         * once per minute or data update rather than every frame
+         */
+        final ComplicationData[] mSlotData = new ComplicationData[ComplicationSlots.MAX_SLOTS];
+        final int[] mSlotRects = new int[ComplicationSlots.MAX_SLOTS * 4];
+        final CharSequence[] mSlotText = new CharSequence[ComplicationSlots.MAX_SLOTS];
+        final float[] mSlotTextX = new float[ComplicationSlots.MAX_SLOTS];
+        final long[] mSlotTextMinute = new long[ComplicationSlots.MAX_SLOTS];
+        final Drawable[] mSlotImages = new Drawable[ComplicationSlots.MAX_SLOTS];
+        // copies of the slot images for the render thread, they can't share bounds
+        final Drawable[] mSlotRenderImages = new Drawable[ComplicationSlots.MAX_SLOTS];
 
-        SparseArray<ComplicationData> mActiveComplicationDataSparseArray;
+        /**
+         * ranged value arcs around the text slots. The oval and track are made once per surface
+         * size, a value only changes the step, the whole pixels along the arc its sweep reaches
+         */
+        final RectF[] mSlotArcOvals = new RectF[ComplicationSlots.MAX_SLOTS];
+        final Path[] mSlotArcTracks = new Path[ComplicationSlots.MAX_SLOTS];
+        final float[] mSlotArcRadii = new float[ComplicationSlots.MAX_SLOTS];
+        final int[] mSlotArcSteps = new int[ComplicationSlots.MAX_SLOTS];
+        Paint mArcPaint;
+        Paint mArcTrackPaint;
+        int mRangedUpdates;
+        int mRangedRedrawsSkipped;
         Calendar mCalendar;
-        Bitmap mBackgroundBitmap;
-        Bitmap mGrayBackgroundBitmap;
+        SimpleDateFormat mTimeFormat;
+        SimpleDateFormat mDateFormat;
+        final Date mFrameDate = new Date();
+        TravelerZones mTravelerZones;
+        final ManagedBitmaps<Bitmap> mManagedBitmaps = new ManagedBitmaps<>(mBitmapPool);
+
+        /**
+         * which complication is being touched, and the region its highlight covers
+         */
+        final TapTracker mTapTracker = new TapTracker(COMPLICATION_SLOTS);
+        final boolean[] mSlotTappable = new boolean[ComplicationSlots.MAX_SLOTS];
+        final Rect mPressedRect = new Rect();
+        final Rect mDirtyRect = new Rect();
+        long mTouchUptimeMillis;
+
+        final LatencyStats mTouchToHighlightStats =
+                new LatencyStats("Touch to highlight", TAP_LATENCY_SAMPLES);
+        final LatencyStats mTouchToDispatchStats =
+                new LatencyStats("Touch to dispatch", TAP_LATENCY_SAMPLES);
+
+        /**
+         * crossfade in progress, running while ManagedBitmaps holds the outgoing background
+         */
+        long mCrossfadeStartMillis;
+        long mLastCrossfadeFrameNanos;
+        int mCrossfadeMissedFrames;
+        final LatencyStats mCrossfadeDrawStats =
+                new LatencyStats("Crossfade draw", CROSSFADE_FRAME_SAMPLES);
+        final LatencyStats mCrossfadeIntervalStats =
+                new LatencyStats("Crossfade frame interval", CROSSFADE_FRAME_SAMPLES);
+
+        /**
+         * seconds display. Each tick only the seconds region is redrawn, over the face layer
+         * (kept by ManagedBitmaps) that full frames render everything else into
+         */
+        boolean mShowSeconds;
+        boolean mRedrawingRegion;
+        boolean mFaceLayerValid;
+        long mFaceLayerMinute;
+        final Canvas mFaceLayerCanvas = new Canvas();
+        final FaceFrame mFaceFrame = new FaceFrame();
+        int mFaceLayersDrawnInline;
+        // set when a frame draws or swaps in a new face layer, which is a full frame's work
+        boolean mFaceLayerReplaced;
+        final Rect mSecondsRect = new Rect();
+        final int[] mSecondsRegion = new int[4];
+        final char[] mSecondsText = new char[2];
+        float mSecondsX;
+        int mSecondsOverBudget;
+        final LatencyStats mSecondsTickCpuStats =
+                new LatencyStats("Seconds tick CPU", SECONDS_TICK_SAMPLES);
+
+        /**
+         * the face layer is double buffered. Shortly before each minute the render thread draws
+         * the next minute's layer into the buffer that isn't on screen, and the frame that shows
+         * the new minute swaps it in instead of drawing it. Anything that changes what's drawn
+         * invalidates frames rendered ahead, and those frames are drawn inline as before
+         */
+        final FrameExchange mFaceExchange = new FrameExchange();
+        FaceRenderer mFaceRenderer;
+        long mFaceFrameRequestedMinute = -1;
+        boolean mFaceFrameHeld;
+
+        /**
+         * the snapshot this engine resumed from or last saved, a new one takes the layers it's
+         * missing from it. While the background warms up the one held is the snapshot's layer,
+         * and the real one is being decoded on the loader
+         */
+        FaceSnapshot mSnapshot;
+        boolean mResumingFromSnapshot;
+        boolean mSnapshotAdopted;
+        boolean mBackgroundWarming;
+        boolean mFullFramePending;
+        int mSnapshotBytes;
+        final long mCreateNanos = System.nanoTime();
 
         final BroadcastReceiver mTimeZoneReceiver = new BroadcastReceiver() {
             @Override
             public void onReceive(Context context, Intent intent) {
-                mCalendar.setTimeZone(TimeZone.getDefault());
+                mCalendar.setTimeZone(mHost.getTimeZone());
                 invalidate();
             }
         };
 
-        float mCenterX;
-        float mCenterY;
-        float mScale = 1;
-        float mXOffset;
-        float mYOffset;
-        float mDateYOffset;
+        /**
+         * steps the face's quality down and up with the battery and what frames cost to draw,
+         * the tier in effect is mQualityTier
+         */
+        final QualityGovernor mQualityGovernor = new QualityGovernor();
+        int mQualityTier = QualityGovernor.TIER_FULL;
+        int mComplicationRedrawsDeferred;
+
+        final BroadcastReceiver mBatteryReceiver = new BroadcastReceiver() {
+            @Override
+            public void onReceive(Context context, Intent intent) {
+                handleBatteryChanged(intent);
+            }
+        };
+
+        /**
+         * the timer tick, run by the host
+         */
+        final Runnable mTimerTick = new Runnable() {
+            @Override
+            public void run() {
+                handleUpdateTimeMessage();
+            }
+        };
+
+        /**
+         * where everything goes on the current surface, replaced whole when it changes
+         */
+        LayoutSpec mLayout;
+        boolean mIsRound;
+        // the shape is only known once the insets arrive, which can be after the surface size
+        boolean mInsetsApplied;
+
+        /**
+         * measures layout sample text with a copy of the paint it will be drawn with
+         */
+        final Paint mMeasurePaint = new Paint();
+        final LayoutEngine.TextMeasurer mTextMeasurer = new LayoutEngine.TextMeasurer() {
+            @Override
+            public float measureText(int role, String text, float textSize) {
+                mMeasurePaint.set(fetchPaintForText(role));
+                mMeasurePaint.setTextSize(textSize);
+                return mMeasurePaint.measureText(text);
+            }
+        };
+
+        /**
+         * constructor
+         * @param startupTimeline StartupTimeline already tracking onCreateEngine()
+         */
+        Engine(StartupTimeline startupTimeline, FaceHost host) {
+            mStartupTimeline = startupTimeline;
+            mHost = host != null ? host : new SystemHost();
+        }
+
+        /**
+         * opens a systrace section and records it on the startup timeline
+         * @param name String
+         */
+        private void beginSection(String name) {
+            Trace.beginSection(name);
+            mStartupTimeline.begin(name);
+        }
+
+        /**
+         * closes the section opened by the matching beginSection()
+         */
+        private void endSection() {
+            mStartupTimeline.end();
+            Trace.endSection();
+        }
 
         /**
          * @param holder SurfaceHolder
          */
         @Override
         public void onCreate(SurfaceHolder holder) {
+            beginSection(StartupTimeline.PHASE_ENGINE_CREATE);
             super.onCreate(holder);
+            mEngines.add(this);
 
             setWatchFaceStyle(new WatchFaceStyle.Builder(TravelersWatchFace.this)
                     .setCardPeekMode(WatchFaceStyle.PEEK_MODE_VARIABLE)
@@ -190,15 +710,26 @@ public class TravelersWatchFace extends CanvasWatchFaceService {
             Resources resources = TravelersWatchFace.this.getResources();
 
 
-            mYOffset = resources.getDimension(R.dimen.digital_y_offset);
-            mDateYOffset = resources.getDimensionPixelOffset(R.dimen.digital_y_date_offset);
+            mCalendar = Calendar.getInstance();
+
+            beginSection(StartupTimeline.PHASE_READ_SNAPSHOT);
+            mSnapshot = readSnapshot();
+            endSection();
 
             //initialize and draw items on the watchface
+            beginSection(StartupTimeline.PHASE_INIT_BACKGROUND);
             initializeBackground(resources);
+            endSection();
+
+            beginSection(StartupTimeline.PHASE_INIT_DATE_TIME);
             initializeDateTime(resources);
+            endSection();
+
+            beginSection(StartupTimeline.PHASE_INIT_COMPLICATIONS);
             initializeComplications(resources);
+            endSection();
 
-            mCalendar = Calendar.getInstance();
+            endSection();
         }
 
         /**
@@ -206,86 +737,900 @@ public class TravelersWatchFace extends CanvasWatchFaceService {
          * @param resources Resources
          */
         private void initializeBackground(Resources resources) {
-            // draw the background image of the watch
-            mBackgroundBitmap = Bitmap.createScaledBitmap(
-                    BitmapFactory.decodeResource(getResources(),
-                            mBackgroundIDs[(int)(mBackgroundIDs.length *
-                                    Math.random())]), 320, 320, false);
-            //TODO see if we need to initialize different background
+            // the background follows the time of day at the configured location
+            mDaylightSchedule = new DaylightSchedule(
+                    Double.parseDouble(resources.getString(R.string.daylight_latitude)),
+                    Double.parseDouble(resources.getString(R.string.daylight_longitude))
+            );
+            mBackgroundLoader =
+                    new BackgroundLoader(
+                            resources, mBitmapPool, mUpdateTimeHandler,
+                            MSG_BACKGROUND_LOADED, MSG_CONTRAST_ANALYZED, MSG_SNAPSHOT_WRITTEN);
+            mFaceRenderer = new FaceRenderer(mFaceExchange);
+
+            // draw the background image of the watch, over the color if it can't be decoded
             mBackgroundPaint = new Paint();
             mBackgroundPaint.setColor(resources.getColor(R.color.background));
+            long now = fetchCurrentTimeMillis();
+            mBackgroundPhase = mDaylightSchedule.phaseAt(now, mCalendar.getTimeZone().getOffset(now));
+            mBackgroundResID = mBackgroundIDs[mBackgroundPhase];
+
+            // a snapshot of this background covers the first frames instead of a decode here
+            mResumingFromSnapshot = mSnapshot != null
+                    && mSnapshot.backgroundName.equals(fetchBackgroundName(mBackgroundResID));
+            if (!mResumingFromSnapshot) {
+                ensureBackgroundBitmap(DEFAULT_BACKGROUND_SIZE, DEFAULT_BACKGROUND_SIZE);
+            }
         }
 
         /**
          * @param resources Resources
          */
         private void initializeComplications(Resources resources) {
-            //logging for debugging
-            Log.d(TAG, "initializeComplications()");
-
-            mActiveComplicationDataSparseArray = new SparseArray<>(COMPLICATION_IDS.length);
+            //tracing for debugging
+            EventTracer.record(
+                    EventTracer.EVENT_COMPLICATIONS_INIT, EventTracer.NO_SLOT,
+                    COMPLICATION_SLOTS.getCount());
 
             mComplicationPaint =
                     createTextPaint(resources.getColor(R.color.secondary_text_color), BOLD_TYPEFACE);
-            mComplicationPaint.setTextSize(
-                    resources.getDimension(R.dimen.complication_text_size)
-            );
 
-            setActiveComplications(COMPLICATION_IDS);
+            mPressedPaint = new Paint();
+            mPressedPaint.setColor(resources.getColor(R.color.pressed_highlight_color));
+
+            float arcWidth = resources.getDimension(R.dimen.complication_arc_width);
+            mArcPaint = createArcPaint(resources.getColor(R.color.secondary_text_color), arcWidth);
+            mArcTrackPaint = createArcPaint(
+                    resources.getColor(R.color.complication_arc_track_color), arcWidth);
+
+            setActiveComplications(COMPLICATION_SLOTS.getIDs());
+            restoreSnapshotValues();
         }
 
         /**
-         * initialize and draw the time and the date strings
-         * @param resources Resources
+         * @return FaceSnapshot the previous engine left, or null
          */
-        private void initializeDateTime(Resources resources) {
-            //draw the time and the date resources
-            mTimeTextPaint = createTextPaint(
-                resources.getColor(R.color.primary_text_color),
-                NORMAL_TYPEFACE
-            );
-            mDateTextPaint = createTextPaint(
-                resources.getColor(R.color.primary_text_color),
-                NORMAL_TYPEFACE
-            );
+        private FaceSnapshot readSnapshot() {
+            long startNanos = System.nanoTime();
+            FaceSnapshot snapshot = FaceSnapshot.readFile(new File(getCacheDir(), SNAPSHOT_FILE));
+            if (snapshot != null) {
+                mSnapshotReadStats.add(System.nanoTime() - startNanos);
+            }
+            return snapshot;
         }
 
         /**
-         * @param textColor int
-         * @return Paint
+         * shows the snapshot's complication values until the providers send theirs. They expire
+         * on their own in case a provider doesn't, and ones too old aren't shown at all
          */
-        private Paint createTextPaint(int textColor, Typeface typeface) {
-            Paint paint = new Paint();
-            paint.setColor(textColor);
-            paint.setTypeface(typeface);
-            paint.setAntiAlias(true);
+        private void restoreSnapshotValues() {
+            long now = fetchCurrentTimeMillis();
+            if (mSnapshot == null || now < mSnapshot.savedAt
+                    || now - mSnapshot.savedAt > SNAPSHOT_VALUES_MAX_AGE_MS) {
+                return;
+            }
 
-            return paint;
-        }
+            int count = Math.min(mSnapshot.getSlotCount(), COMPLICATION_SLOTS.getCount());
+            for (int i = 0; i < count; i++) {
+                int type = mSnapshot.getSlotType(i);
+                if (type == FaceSnapshot.NO_SLOT_DATA || mSlotData[i] != null) {
+                    continue;
+                }
 
-        @Override
-        public void onDestroy() {
-            mUpdateTimeHandler.removeMessages(MSG_UPDATE_TIME);
-            super.onDestroy();
+                ComplicationData.Builder builder = new ComplicationData.Builder(type)
+                        .setEndTime(now + SNAPSHOT_VALUES_LIFETIME_MS);
+                String text = mSnapshot.getSlotText(i);
+                if (text != null) {
+                    builder.setShortText(ComplicationText.plainText(text));
+                }
+                if (type == ComplicationData.TYPE_RANGED_VALUE) {
+                    builder.setValue(mSnapshot.getSlotValue(i))
+                            .setMinValue(mSnapshot.getSlotMin(i))
+                            .setMaxValue(mSnapshot.getSlotMax(i));
+                }
+                mSlotData[i] = builder.build();
+            }
         }
 
         /**
-         * adds or updates "complication" data in the array
-         * @param complicationID int
-         * @param complicationData ComplicationData
+         * puts the snapshot's layer for the current mode in place of the background it was
+         * made from. In interactive mode the real background is decoded behind it
+         * @param width int
+         * @param height int
+         * @return boolean whether the layer is in place
          */
-        @Override
-        public void onComplicationDataUpdate(
+        private boolean adoptSnapshotLayer(int width, int height) {
+            int layer = mAmbient ? FaceSnapshot.LAYER_AMBIENT : FaceSnapshot.LAYER_INTERACTIVE;
+            if (!mSnapshot.matches(width, height, fetchBackgroundName(mBackgroundResID))
+                    || !mSnapshot.hasLayer(layer) || (mAmbient && !usesGrayBackground())) {
+                return false;
+            }
+
+            Bitmap bitmap = mBitmapPool.acquire(width, height, Bitmap.Config.RGB_565);
+            bitmap.copyPixelsFromBuffer(ByteBuffer.wrap(mSnapshot.getLayer(layer)));
+            if (mAmbient) {
+                mManagedBitmaps.put(ManagedBitmaps.OWNER_GRAY_BACKGROUND, bitmap);
+            } else {
+                mManagedBitmaps.put(ManagedBitmaps.OWNER_BACKGROUND, bitmap);
+                mBackgroundWarming = true;
+                mBackgroundLoader.warmUp(mBackgroundResID, width, height);
+            }
+            mSnapshotAdopted = true;
+            return true;
+        }
+
+        /**
+         * keeps what the face shows for the next engine: the background layers held at this
+         * size and the complication values. The layers are copied here and the file is written
+         * on the loader thread
+         */
+        private void saveSnapshot() {
+            if (mLayout == null) {
+                return;
+            }
+            long startNanos = System.nanoTime();
+            long now = fetchCurrentTimeMillis();
+
+            FaceSnapshot snapshot = new FaceSnapshot(now, mWidth, mHeight,
+                    fetchBackgroundName(mBackgroundResID), COMPLICATION_SLOTS.getCount());
+            // while warming up the background held is the snapshot's own layer
+            if (!mBackgroundWarming) {
+                captureSnapshotLayer(
+                        snapshot, FaceSnapshot.LAYER_INTERACTIVE, ManagedBitmaps.OWNER_BACKGROUND);
+            }
+            captureSnapshotLayer(
+                    snapshot, FaceSnapshot.LAYER_AMBIENT, ManagedBitmaps.OWNER_GRAY_BACKGROUND);
+            snapshot.mergeLayers(mSnapshot);
+
+            for (int i = 0; i < COMPLICATION_SLOTS.getCount(); i++) {
+                if (COMPLICATION_SLOTS.getKind(i) != ComplicationSlots.KIND_TEXT
+                        || !fetchSlotText(i, now)) {
+                    continue;
+                }
+                ComplicationData data = mSlotData[i];
+                String text = mSlotText[i] == null ? null : mSlotText[i].toString();
+                if (data.getType() == ComplicationData.TYPE_RANGED_VALUE) {
+                    snapshot.setSlot(i, data.getType(), text,
+                            data.getValue(), data.getMinValue(), data.getMaxValue());
+                } else {
+                    snapshot.setSlot(i, data.getType(), text, 0, 0, 0);
+                }
+            }
+
+            mSnapshot = snapshot;
+            mBackgroundLoader.writeSnapshot(snapshot, new File(getCacheDir(), SNAPSHOT_FILE),
+                    System.nanoTime() - startNanos);
+        }
+
+        /**
+         * @param snapshot FaceSnapshot
+         * @param layer int
+         * @param owner int the ManagedBitmaps owner holding the layer's background
+         */
+        private void captureSnapshotLayer(FaceSnapshot snapshot, int layer, int owner) {
+            Bitmap bitmap = mManagedBitmaps.get(owner);
+            if (bitmap == null
+                    || bitmap.getWidth() != snapshot.width
+                    || bitmap.getHeight() != snapshot.height) {
+                return;
+            }
+
+            Bitmap pixels = mBitmapPool.acquire(
+                    snapshot.width, snapshot.height, Bitmap.Config.RGB_565);
+            new Canvas(pixels).drawBitmap(bitmap, 0, 0, null);
+            byte[] bytes = new byte[snapshot.getLayerByteCount()];
+            pixels.copyPixelsToBuffer(ByteBuffer.wrap(bytes));
+            mBitmapPool.release(pixels);
+            snapshot.setLayer(layer, bytes);
+        }
+
+        /**
+         * @param micros int capturing and writing the snapshot
+         * @param bytes int the file's size, -1 if it couldn't be written
+         */
+        private void handleSnapshotWrittenMessage(int micros, int bytes) {
+            if (bytes < 0) {
+                EventTracer.record(EventTracer.EVENT_SNAPSHOT_NOT_WRITTEN, EventTracer.NO_SLOT, 0);
+                return;
+            }
+            // the stats are the service's, the snapshot written on destroy counts too
+            mSnapshotWriteStats.add(TimeUnit.MICROSECONDS.toNanos(micros));
+            if (!mDestroyed) {
+                mSnapshotBytes = bytes;
+            }
+        }
+
+        /**
+         * @param resID int
+         * @return String the background's resource name, stable across builds unlike its id
+         */
+        private String fetchBackgroundName(int resID) {
+            return TravelersWatchFace.this.getResources().getResourceEntryName(resID);
+        }
+
+        /**
+         * initialize and draw the time and the date strings
+         * @param resources Resources
+         */
+        private void initializeDateTime(Resources resources) {
+            mPrimaryTextColor = resources.getColor(R.color.primary_text_color);
+            mSecondaryTextColor = resources.getColor(R.color.secondary_text_color);
+            mPrimaryDarkTextColor = resources.getColor(R.color.primary_text_color_dark);
+            mSecondaryDarkTextColor = resources.getColor(R.color.secondary_text_color_dark);
+
+            //draw the time and the date resources
+            mTimeTextPaint = createTextPaint(
+                resources.getColor(R.color.primary_text_color),
+                NORMAL_TYPEFACE
+            );
+            mDateTextPaint = createTextPaint(
+                resources.getColor(R.color.primary_text_color),
+                NORMAL_TYPEFACE
+            );
+
+            //the traveler's other time zones, with their offsets worked out for the year ahead
+            mZonesTextPaint = createTextPaint(
+                resources.getColor(R.color.secondary_text_color),
+                NORMAL_TYPEFACE
+            );
+
+            mTimeFormat = new SimpleDateFormat("hh:mm a");
+            mDateFormat = new SimpleDateFormat(" EEEE, MMMM dd", Locale.US);
+
+            mShowSeconds = fetchShowSeconds(TravelersWatchFace.this);
+            mSecondsTextPaint = createTextPaint(
+                resources.getColor(R.color.secondary_text_color),
+                NORMAL_TYPEFACE
+            );
+            mTravelerZones = new TravelerZones(
+                resources.getStringArray(R.array.traveler_time_zones),
+                fetchCurrentTimeMillis()
+            );
+        }
+
+        /**
+         * @param textColor int
+         * @return Paint
+         */
+        private Paint createTextPaint(int textColor, Typeface typeface) {
+            Paint paint = new Paint();
+            paint.setColor(textColor);
+            paint.setTypeface(typeface);
+            paint.setAntiAlias(true);
+
+            return paint;
+        }
+
+        /**
+         * @param color int
+         * @param strokeWidth float
+         * @return Paint for a ranged value arc or its track
+         */
+        private Paint createArcPaint(int color, float strokeWidth) {
+            Paint paint = new Paint();
+            paint.setColor(color);
+            paint.setStyle(Paint.Style.STROKE);
+            paint.setStrokeWidth(strokeWidth);
+            paint.setStrokeCap(Paint.Cap.ROUND);
+            paint.setAntiAlias(true);
+
+            return paint;
+        }
+
+        /**
+         * returns the interactive background at the given size, decoding or rescaling it only if
+         * the one held doesn't match (e.g. it was released or the surface changed). Only a
+         * bigger one is scaled down, scaling a smaller one up would blur it. If the image can't
+         * be decoded the background color stands in for it until the next phase's background
+         * @param width int
+         * @param height int
+         * @return Bitmap
+         */
+        private Bitmap ensureBackgroundBitmap(int width, int height) {
+            Bitmap background = mManagedBitmaps.get(ManagedBitmaps.OWNER_BACKGROUND);
+            if (background != null
+                    && background.getWidth() == width && background.getHeight() == height) {
+                return background;
+            }
+
+            Bitmap scaled;
+            if (background != null && !mBackgroundWarming
+                    && background.getWidth() >= width && background.getHeight() >= height) {
+                scaled = mBitmapPool.acquire(width, height, Bitmap.Config.ARGB_8888);
+                mBitmapPool.scale(background, scaled);
+            } else {
+                // decoded at this size from the resource, also in place of a snapshot's layer
+                mBackgroundWarming = false;
+                scaled = mBitmapPool.decodeScaled(
+                        getResources(), mBackgroundResID, width, height);
+                if (scaled == null) {
+                    EventTracer.record(
+                            EventTracer.EVENT_DECODE_FAILED, EventTracer.NO_SLOT, mBackgroundResID);
+                    scaled = mBitmapPool.acquire(width, height, Bitmap.Config.ARGB_8888);
+                    scaled.eraseColor(mBackgroundPaint.getColor());
+                }
+            }
+
+            // the gray copy was made from the old background, so it goes too
+            mManagedBitmaps.release(ManagedBitmaps.OWNER_GRAY_BACKGROUND);
+            mManagedBitmaps.put(ManagedBitmaps.OWNER_BACKGROUND, scaled);
+            discardFaceFrames();
+            return scaled;
+        }
+
+        /**
+         * returns the ambient background, rebuilding it from the interactive one if needed
+         * @return Bitmap
+         */
+        private Bitmap ensureGrayBackgroundBitmap() {
+            Bitmap gray = mManagedBitmaps.get(ManagedBitmaps.OWNER_GRAY_BACKGROUND);
+            if (gray == null) {
+                initGrayBackgroundBitmap();
+                gray = mManagedBitmaps.get(ManagedBitmaps.OWNER_GRAY_BACKGROUND);
+            }
+            return gray;
+        }
+
+        /**
+         * moves the background on to the current daylight phase, and starts decoding the next
+         * phase's background when its boundary is close so the switch is just a swap
+         * @param now long
+         */
+        private void updateBackgroundPhase(long now) {
+            int offset = mCalendar.getTimeZone().getOffset(now);
+
+            int phase = mDaylightSchedule.phaseAt(now, offset);
+            if (phase != mBackgroundPhase) {
+                switchBackground(phase);
+            }
+
+            if (mDaylightSchedule.nextBoundary(now, offset) - now > BACKGROUND_PRELOAD_LEAD_MS
+                    || !QualityGovernor.allowsBackgroundBitmap(mQualityTier)) {
+                return;
+            }
+
+            int nextResID = mBackgroundIDs[mDaylightSchedule.nextPhase(now, offset)];
+            boolean nextReady = nextResID == mNextBackgroundResID && (mNextBackgroundPending
+                    || mManagedBitmaps.has(ManagedBitmaps.OWNER_NEXT_BACKGROUND));
+
+            if (nextResID != mBackgroundResID && !nextReady) {
+                mManagedBitmaps.release(ManagedBitmaps.OWNER_NEXT_BACKGROUND);
+                mNextBackgroundResID = nextResID;
+                mNextBackgroundPending = true;
+                loadNextBackground(nextResID);
+            }
+        }
+
+        /**
+         * decodes the next phase's background on the loader thread
+         * @param resID int
+         */
+        private void loadNextBackground(int resID) {
+            mBackgroundLoader.load(resID, fetchBackgroundWidth(), fetchBackgroundHeight());
+        }
+
+        /**
+         * shows the background for a daylight phase, promoting the preloaded bitmap if it's the
+         * right one, otherwise leaving the background to be rebuilt on demand. On an interactive
+         * face the old background fades out rather than cutting
+         * @param phase int
+         */
+        private void switchBackground(int phase) {
+            mBackgroundPhase = phase;
+
+            int resID = mBackgroundIDs[phase];
+            if (resID == mBackgroundResID) {
+                return;
+            }
+            mBackgroundResID = resID;
+            mBackgroundWarming = false;
+            discardFaceFrames();
+            applyTextContrast();
+
+            boolean crossfade = isFaceVisible() && !mAmbient
+                    && QualityGovernor.allowsFrequentRedraws(mQualityTier)
+                    && mManagedBitmaps.has(ManagedBitmaps.OWNER_BACKGROUND);
+            if (crossfade) {
+                mManagedBitmaps.move(
+                        ManagedBitmaps.OWNER_BACKGROUND, ManagedBitmaps.OWNER_FADE_FROM);
+            }
+
+            if (resID == mNextBackgroundResID
+                    && mManagedBitmaps.has(ManagedBitmaps.OWNER_NEXT_BACKGROUND)) {
+                mManagedBitmaps.move(
+                        ManagedBitmaps.OWNER_NEXT_BACKGROUND, ManagedBitmaps.OWNER_BACKGROUND);
+            } else {
+                mManagedBitmaps.release(ManagedBitmaps.OWNER_NEXT_BACKGROUND);
+                mManagedBitmaps.release(ManagedBitmaps.OWNER_BACKGROUND);
+            }
+            mNextBackgroundResID = 0;
+            mNextBackgroundPending = false;
+
+            // the gray copy belongs to the old background
+            mManagedBitmaps.release(ManagedBitmaps.OWNER_GRAY_BACKGROUND);
+
+            if (crossfade) {
+                startCrossfade();
+            } else {
+                invalidate();
+            }
+        }
+
+        /**
+         * starts pacing frames for the crossfade, the outgoing background is already held
+         */
+        private void startCrossfade() {
+            mCrossfadeStartMillis = fetchUptimeMillis();
+            mLastCrossfadeFrameNanos = 0;
+            updateTimer();
+        }
+
+        /**
+         * drops the outgoing background, which puts the timer back on minute updates
+         */
+        private void endCrossfade() {
+            mManagedBitmaps.release(ManagedBitmaps.OWNER_FADE_FROM);
+        }
+
+        /**
+         * @return boolean whether frames are composed from the cached face layer
+         */
+        private boolean usesFaceLayer() {
+            return showsSeconds() && !mAmbient && !isCrossfading();
+        }
+
+        /**
+         * returns the face layer for a frame: the one on screen for a partial redraw, the one
+         * rendered ahead if it's for this minute, otherwise a freshly drawn one
+         * @param bounds Rect
+         * @param now long
+         * @return Bitmap
+         */
+        private Bitmap fetchFaceLayer(Rect bounds, long now) {
+            if (mRedrawingRegion && mFaceLayerValid) {
+                return mManagedBitmaps.get(
+                        ManagedBitmaps.faceLayerOwner(mFaceExchange.getFront()));
+            }
+
+            long minute = TimeUnit.MILLISECONDS.toMinutes(now);
+            if (mFaceExchange.swapIfReady(minute)) {
+                int front = mFaceExchange.getFront();
+                Bitmap layer = mManagedBitmaps.get(ManagedBitmaps.faceLayerOwner(front));
+                if (layer != null && layer.getWidth() == bounds.width()
+                        && layer.getHeight() == bounds.height()) {
+                    FaceFrame frame = mFaceRenderer.fetchFrame(front);
+                    adoptFaceFrame(frame);
+                    // what the render thread spent on it counts toward this frame
+                    mQualityGovernor.onLayerRendered(frame.renderNanos);
+                    mFaceLayerReplaced = true;
+                    mFaceLayerValid = true;
+                    mFaceLayerMinute = minute;
+                    return layer;
+                }
+            }
+
+            return drawFaceLayer(bounds, now);
+        }
+
+        /**
+         * renders everything but the seconds and tap highlight into the face layer on screen
+         * @param bounds Rect
+         * @param now long
+         * @return Bitmap
+         */
+        private Bitmap drawFaceLayer(Rect bounds, long now) {
+            Bitmap layer = ensureFaceLayerBitmap(
+                    mFaceExchange.getFront(), bounds.width(), bounds.height());
+
+            captureFaceFrame(mFaceFrame, now,
+                    ensureBackgroundBitmap(bounds.width(), bounds.height()), false);
+            mFaceLayerCanvas.setBitmap(layer);
+            mFaceFrame.draw(mFaceLayerCanvas);
+            mFaceLayerCanvas.setBitmap(null);
+            adoptFaceFrame(mFaceFrame);
+
+            mFaceLayerReplaced = true;
+            mFaceLayerValid = true;
+            mFaceLayerMinute = TimeUnit.MILLISECONDS.toMinutes(now);
+            mFaceLayersDrawnInline++;
+            return layer;
+        }
+
+        /**
+         * @param buffer int FrameExchange buffer
+         * @param width int
+         * @param height int
+         * @return Bitmap the buffer's face layer at the given size
+         */
+        private Bitmap ensureFaceLayerBitmap(int buffer, int width, int height) {
+            int owner = ManagedBitmaps.faceLayerOwner(buffer);
+            Bitmap layer = mManagedBitmaps.get(owner);
+            if (layer == null || layer.getWidth() != width || layer.getHeight() != height) {
+                layer = mBitmapPool.acquireCleared(width, height, Bitmap.Config.ARGB_8888);
+                mManagedBitmaps.put(owner, layer);
+            }
+            return layer;
+        }
+
+        /**
+         * renders the next minute's face layer on the render thread, once the minute is close
+         * enough that nothing but the time is likely to change before it
+         * @param now long
+         */
+        private void prepareNextFaceFrame(long now) {
+            settleFaceRenderer();
+
+            long nextMinute = TimeUnit.MILLISECONDS.toMinutes(now) + 1;
+            long dueMillis = TimeUnit.MINUTES.toMillis(nextMinute);
+            if (mFaceFrameRequestedMinute == nextMinute
+                    || dueMillis - now > FACE_FRAME_LEAD_MS || mFaceRenderer.isBusy()) {
+                return;
+            }
+
+            // anything published earlier is for a minute that's already here
+            mFaceExchange.discardReady();
+
+            int back = 1 - mFaceExchange.getFront();
+            Bitmap target = ensureFaceLayerBitmap(back, mWidth, mHeight);
+            Bitmap background = ensureBackgroundBitmap(mWidth, mHeight);
+            FaceFrame frame = mFaceRenderer.fetchFrame(back);
+            if (!captureFaceFrame(frame, dueMillis, background, true)) {
+                return;
+            }
+            frame.minute = nextMinute;
+            frame.generation = mFaceExchange.getGeneration();
+
+            // the render thread draws from these bitmaps until it's done
+            mManagedBitmaps.hold();
+            mFaceFrameHeld = true;
+            mFaceRenderer.render(back, target);
+            mFaceFrameRequestedMinute = nextMinute;
+        }
+
+        /**
+         * lets released bitmaps go back to the pool once the render thread is done with them
+         */
+        private void settleFaceRenderer() {
+            if (mFaceFrameHeld && !mFaceRenderer.isBusy()) {
+                mFaceFrameHeld = false;
+                mManagedBitmaps.unhold();
+            }
+        }
+
+        /**
+         * makes frames already rendered ahead stale, they were made from what's changing
+         */
+        private void discardFaceFrames() {
+            mFaceExchange.invalidate();
+            mFaceFrameRequestedMinute = -1;
+        }
+
+        /**
+         * @param frame FaceFrame the frame now on screen
+         */
+        private void adoptFaceFrame(FaceFrame frame) {
+            mSecondsX = frame.secondsX;
+            mSecondsRect.set(frame.secondsRect);
+        }
+
+        /**
+         * drops the face layers, the next full frame renders a new one if it's needed
+         */
+        private void releaseFaceLayer() {
+            mFaceLayerValid = false;
+            discardFaceFrames();
+            mManagedBitmaps.release(ManagedBitmaps.OWNER_FACE_LAYER);
+            mManagedBitmaps.release(ManagedBitmaps.OWNER_FACE_LAYER_ALT);
+        }
+
+        /**
+         * redraws just the seconds over the face layer, measuring the CPU time it takes
+         */
+        private void handleSecondsTick() {
+            long cpuStartNanos = Debug.threadCpuTimeNanos();
+
+            redrawRegion(mSecondsRect);
+
+            long cpuNanos = Debug.threadCpuTimeNanos() - cpuStartNanos;
+            mSecondsTickCpuStats.add(cpuNanos);
+            if (cpuNanos > SECONDS_TICK_CPU_BUDGET_NS) {
+                mSecondsOverBudget++;
+            }
+        }
+
+        /**
+         * @return boolean
+         */
+        private boolean isCrossfading() {
+            return mManagedBitmaps.has(ManagedBitmaps.OWNER_FADE_FROM);
+        }
+
+        /**
+         * @return float how far through the crossfade we are, 0 to 1
+         */
+        private float fetchCrossfadeProgress() {
+            long elapsed = fetchUptimeMillis() - mCrossfadeStartMillis;
+            return Math.min(1f, elapsed / (float) CROSSFADE_DURATION_MS);
+        }
+
+        /**
+         * draws the next crossfade frame and paces the one after it, or finishes the crossfade
+         * and goes back to minute updates
+         */
+        private void handleCrossfadeFrame() {
+            long elapsed = fetchUptimeMillis() - mCrossfadeStartMillis;
+            if (elapsed >= CROSSFADE_DURATION_MS) {
+                endCrossfade();
+                handleUpdateTimeMessage();
+                return;
+            }
+
+            invalidate();
+            scheduleUpdateTime(CROSSFADE_FRAME_MS - (elapsed % CROSSFADE_FRAME_MS));
+        }
+
+        /**
+         * records how long a crossfade frame took to draw and how long since the previous one
+         * @param frameStartNanos long
+         */
+        private void recordCrossfadeFrame(long frameStartNanos) {
+            mCrossfadeDrawStats.add(System.nanoTime() - frameStartNanos);
+
+            if (mLastCrossfadeFrameNanos != 0) {
+                long interval = frameStartNanos - mLastCrossfadeFrameNanos;
+                mCrossfadeIntervalStats.add(interval);
+                if (interval > TimeUnit.MILLISECONDS.toNanos(CROSSFADE_FRAME_MS * 3 / 2)) {
+                    mCrossfadeMissedFrames++;
+                }
+            }
+            mLastCrossfadeFrameNanos = frameStartNanos;
+        }
+
+        /**
+         * keeps a preloaded background if it's still the one wanted next, or swaps a warmed up
+         * one in for the snapshot layer standing in for it
+         * @param resID int
+         * @param warmUp boolean whether it's from BackgroundLoader.warmUp()
+         * @param bitmap Bitmap or null if it couldn't be decoded
+         */
+        private void handleBackgroundLoadedMessage(int resID, boolean warmUp, Bitmap bitmap) {
+            if (bitmap == null) {
+                EventTracer.record(EventTracer.EVENT_DECODE_FAILED, EventTracer.NO_SLOT, resID);
+                // a snapshot layer keeps standing in, a missing next background is rebuilt
+                // on demand when its phase comes
+                if (!warmUp && resID == mNextBackgroundResID) {
+                    mNextBackgroundPending = false;
+                }
+                return;
+            }
+            if (mDestroyed) {
+                // the engine's bitmaps are already released, this one goes straight back
+                mBitmapPool.release(bitmap);
+                return;
+            }
+            if (warmUp) {
+                adoptWarmBackground(resID, bitmap);
+                return;
+            }
+            if (resID != mNextBackgroundResID || !mNextBackgroundPending) {
+                mBitmapPool.release(bitmap);
+                return;
+            }
+
+            mNextBackgroundPending = false;
+            mManagedBitmaps.put(ManagedBitmaps.OWNER_NEXT_BACKGROUND, bitmap);
+        }
+
+        /**
+         * @param resID int
+         * @param bitmap Bitmap the real background, decoded at the snapshot's size
+         */
+        private void adoptWarmBackground(int resID, Bitmap bitmap) {
+            Bitmap layer = mManagedBitmaps.get(ManagedBitmaps.OWNER_BACKGROUND);
+            if (!mBackgroundWarming || resID != mBackgroundResID || layer == null
+                    || layer.getWidth() != bitmap.getWidth()
+                    || layer.getHeight() != bitmap.getHeight()) {
+                // the background moved on or was rebuilt since
+                mBitmapPool.release(bitmap);
+                return;
+            }
+
+            mBackgroundWarming = false;
+            mManagedBitmaps.put(ManagedBitmaps.OWNER_BACKGROUND, bitmap);
+            // the face layer was drawn over the snapshot's
+            mFaceLayerValid = false;
+            mFullFramePending = true;
+            invalidate();
+        }
+
+        /**
+         * @return int surface width, or the default background size before the surface exists
+         */
+        private int fetchBackgroundWidth() {
+            return mWidth > 0 ? mWidth : DEFAULT_BACKGROUND_SIZE;
+        }
+
+        /**
+         * @return int surface height, or the default background size before the surface exists
+         */
+        private int fetchBackgroundHeight() {
+            return mHeight > 0 ? mHeight : DEFAULT_BACKGROUND_SIZE;
+        }
+
+        /**
+         * whether the grayscale background is what gets drawn in ambient mode
+         * @return boolean
+         */
+        private boolean usesGrayBackground() {
+            return !mLowBitAmbient && !mBurnInProtection;
+        }
+
+        /**
+         * frees the bitmaps the current mode doesn't draw; they're rebuilt on demand
+         */
+        private void releaseOffscreenBitmaps() {
+            // crossfades and seconds only run on a visible interactive face
+            endCrossfade();
+            releaseFaceLayer();
+
+            mManagedBitmaps.releaseOffscreen(isFaceVisible(), mAmbient, usesGrayBackground());
+            if (!isFaceVisible()) {
+                mNextBackgroundPending = false;
+            }
+        }
+
+        /**
+         * @return int the owner whose bitmap is on screen, or -1 if none is
+         */
+        private int fetchOnscreenOwner() {
+            return ManagedBitmaps.onscreenOwner(isFaceVisible(), mAmbient, usesGrayBackground());
+        }
+
+        /**
+         * drops bitmap caches in priority order, keeping only what's on screen when memory is
+         * getting tight and nothing at all once the process is likely to be killed
+         * @param level int
+         */
+        void onTrimMemory(int level) {
+            long before = mManagedBitmaps.getFootprintBytes();
+
+            if (level >= TRIM_MEMORY_RUNNING_LOW) {
+                // only kept so the next snapshot has both modes' layers
+                mSnapshot = null;
+            }
+            if (level >= TRIM_MEMORY_COMPLETE) {
+                mManagedBitmaps.releaseAll();
+            } else if (level >= TRIM_MEMORY_RUNNING_LOW) {
+                mManagedBitmaps.trimToOnscreen(fetchOnscreenOwner());
+            }
+
+            // the face layers may have gone, and frames rendered ahead with them
+            mFaceLayerValid = mFaceLayerValid && mManagedBitmaps.has(
+                    ManagedBitmaps.faceLayerOwner(mFaceExchange.getFront()));
+            discardFaceFrames();
+
+            // level and KB freed
+            EventTracer.record(EventTracer.EVENT_TRIM_MEMORY, EventTracer.NO_SLOT,
+                    EventTracer.packPair(level,
+                            (int) ((before - mManagedBitmaps.getFootprintBytes()) / 1024)));
+        }
+
+        @Override
+        public void onDestroy() {
+            mDestroyed = true;
+            mUpdateTimeHandler.removeCallbacksAndMessages(null);
+            mNextBackgroundPending = false;
+            mEngines.remove(this);
+            // the loader finishes writing it before quitting
+            saveSnapshot();
+            mBackgroundLoader.quit();
+            // bitmaps a frame in flight draws from stay held and are left to the GC
+            mFaceRenderer.quit();
+            mManagedBitmaps.releaseAll();
+            super.onDestroy();
+        }
+
+        /**
+         * adds or updates "complication" data in the array
+         * @param complicationID int
+         * @param complicationData ComplicationData
+         */
+        @Override
+        public void onComplicationDataUpdate(
                 int complicationID,
                 ComplicationData complicationData
         ) {
             //for debugging
-            Log.d(TAG, "onComplicationDataUpdate() id: " + complicationID);
+            EventTracer.record(EventTracer.EVENT_COMPLICATION_UPDATE, complicationID,
+                    complicationData == null ? -1 : complicationData.getType());
+
+            int index = COMPLICATION_SLOTS.indexOf(complicationID);
+            if (index == -1) {
+                return;
+            }
 
-            mActiveComplicationDataSparseArray.put(complicationID, complicationData);
+            ComplicationData previous = mSlotData[index];
+            mSlotData[index] = complicationData;
+            if (COMPLICATION_SLOTS.getKind(index) == ComplicationSlots.KIND_BACKGROUND) {
+                loadSlotImage(index, complicationData);
+            } else if (isRangedValueUnchanged(index, previous)) {
+                // providers like step counters update often, most updates don't move the arc
+                mRangedRedrawsSkipped++;
+                return;
+            }
+            mSlotTextMinute[index] = -1;
+            if (COMPLICATION_SLOTS.getKind(index) == ComplicationSlots.KIND_TEXT
+                    && !QualityGovernor.allowsImmediateComplicationRedraws(mQualityTier)) {
+                // the next minute's frame picks it up
+                mComplicationRedrawsDeferred++;
+                return;
+            }
             invalidate();
         }
 
+        /**
+         * @param index int
+         * @param previous ComplicationData the slot's data before the update
+         * @return boolean whether the slot's new ranged value would be drawn exactly like the
+         * previous one this minute, the same text and the arc reaching the same pixel
+         */
+        private boolean isRangedValueUnchanged(int index, ComplicationData previous) {
+            ComplicationData data = mSlotData[index];
+            if (data == null || data.getType() != ComplicationData.TYPE_RANGED_VALUE) {
+                return false;
+            }
+            mRangedUpdates++;
+
+            long now = fetchCurrentTimeMillis();
+            if (previous == null || previous.getType() != ComplicationData.TYPE_RANGED_VALUE
+                    || !previous.isActive(now) || !data.isActive(now)
+                    || mSlotTextMinute[index] != TimeUnit.MILLISECONDS.toMinutes(now)) {
+                return false;
+            }
+
+            // the cached step and text are the previous data's, see fetchSlotText()
+            int step = RangedArc.stepFor(
+                    RangedArc.sweepFor(data.getValue(), data.getMinValue(), data.getMaxValue()),
+                    mSlotArcRadii[index]);
+            CharSequence text =
+                    data.getShortText() == null ? null : buildComplicationMessage(data, now);
+            return step == mSlotArcSteps[index] && TextUtils.equals(text, mSlotText[index]);
+        }
+
+        /**
+         * loads a background slot's image off the main thread, the face redraws once it's in
+         * @param index int
+         * @param complicationData ComplicationData
+         */
+        private void loadSlotImage(final int index, final ComplicationData complicationData) {
+            mSlotImages[index] = null;
+            mSlotRenderImages[index] = null;
+            if (complicationData == null
+                    || complicationData.getType() != ComplicationData.TYPE_LARGE_IMAGE
+                    || complicationData.getLargeImage() == null) {
+                return;
+            }
+
+            complicationData.getLargeImage().loadDrawableAsync(
+                    TravelersWatchFace.this,
+                    new Icon.OnDrawableLoadedListener() {
+                        @Override
+                        public void onDrawableLoaded(Drawable drawable) {
+                            // the slot may have had newer data since, or the engine be gone
+                            if (!mDestroyed && mSlotData[index] == complicationData) {
+                                mSlotImages[index] = drawable;
+                                Drawable.ConstantState state =
+                                        drawable == null ? null : drawable.getConstantState();
+                                mSlotRenderImages[index] =
+                                        state == null ? null : state.newDrawable();
+                                invalidate();
+                            }
+                        }
+                    },
+                    mUpdateTimeHandler
+            );
+        }
+
         /**
          * @param visible boolean
          */
@@ -297,10 +1642,15 @@ public class TravelersWatchFace extends CanvasWatchFaceService {
                 registerReceiver();
 
                 // Update time zone in case it changed while we weren't visible.
-                mCalendar.setTimeZone(TimeZone.getDefault());
+                mCalendar.setTimeZone(mHost.getTimeZone());
+                // the config activity may have changed it while the face was hidden
+                applyShowSeconds(fetchShowSeconds(TravelersWatchFace.this));
+                updateBackgroundPhase(fetchCurrentTimeMillis());
                 invalidate();
             } else {
                 unregisterReceiver();
+                saveSnapshot();
+                releaseOffscreenBitmaps();
             }
 
             // Whether the timer should be running depends on whether we're visible (as well as
@@ -315,9 +1665,18 @@ public class TravelersWatchFace extends CanvasWatchFaceService {
             if (mRegisteredTimeZoneReceiver) {
                 return;
             }
+            beginSection(StartupTimeline.PHASE_REGISTER_RECEIVER);
             mRegisteredTimeZoneReceiver = true;
             IntentFilter filter = new IntentFilter(Intent.ACTION_TIMEZONE_CHANGED);
             TravelersWatchFace.this.registerReceiver(mTimeZoneReceiver, filter);
+
+            // the battery broadcast is sticky, registering returns the battery as it is now
+            Intent battery = TravelersWatchFace.this.registerReceiver(
+                    mBatteryReceiver, new IntentFilter(Intent.ACTION_BATTERY_CHANGED));
+            if (battery != null) {
+                handleBatteryChanged(battery);
+            }
+            endSection();
         }
 
         /**
@@ -327,68 +1686,311 @@ public class TravelersWatchFace extends CanvasWatchFaceService {
             if (!mRegisteredTimeZoneReceiver) {
                 return;
             }
-            mRegisteredTimeZoneReceiver = false;
-            TravelersWatchFace.this.unregisterReceiver(mTimeZoneReceiver);
+            mRegisteredTimeZoneReceiver = false;
+            TravelersWatchFace.this.unregisterReceiver(mTimeZoneReceiver);
+            TravelersWatchFace.this.unregisterReceiver(mBatteryReceiver);
+        }
+
+        /**
+         * @param intent Intent an ACTION_BATTERY_CHANGED broadcast
+         */
+        private void handleBatteryChanged(Intent intent) {
+            int level = intent.getIntExtra(BatteryManager.EXTRA_LEVEL, -1);
+            int scale = intent.getIntExtra(BatteryManager.EXTRA_SCALE, -1);
+            if (level < 0 || scale <= 0) {
+                return;
+            }
+
+            boolean charging = intent.getIntExtra(BatteryManager.EXTRA_PLUGGED, 0) != 0;
+            if (mQualityGovernor.onBatteryChanged(
+                    level * 100 / scale, charging, fetchCurrentTimeMillis())) {
+                applyQualityTier();
+            }
+        }
+
+        /**
+         * puts the governor's tier into effect: how often the face redraws, whether it draws the
+         * background image and whether it anti-aliases
+         */
+        private void applyQualityTier() {
+            int tier = mQualityGovernor.getTier();
+            if (tier == mQualityTier) {
+                return;
+            }
+
+            EventTracer.record(EventTracer.EVENT_QUALITY_TIER, EventTracer.NO_SLOT,
+                    EventTracer.packPair(mQualityTier, tier));
+            mQualityTier = tier;
+
+            applyAntiAlias();
+            if (!QualityGovernor.allowsFrequentRedraws(tier)) {
+                endCrossfade();
+            }
+            if (!QualityGovernor.allowsBackgroundBitmap(tier)) {
+                // decoded again on demand once the tier allows them
+                mManagedBitmaps.release(ManagedBitmaps.OWNER_BACKGROUND);
+                mManagedBitmaps.release(ManagedBitmaps.OWNER_GRAY_BACKGROUND);
+                mManagedBitmaps.release(ManagedBitmaps.OWNER_NEXT_BACKGROUND);
+                mNextBackgroundPending = false;
+            }
+
+            // the face layers were drawn for the old tier
+            releaseFaceLayer();
+            invalidate();
+            updateTimer();
+        }
+
+        /**
+         * anti-aliases the text and arcs unless the quality tier or a low bit ambient display
+         * rules it out
+         */
+        private void applyAntiAlias() {
+            boolean antiAlias = QualityGovernor.allowsAntiAlias(mQualityTier)
+                    && !(mLowBitAmbient && mAmbient);
+            mTimeTextPaint.setAntiAlias(antiAlias);
+            mDateTextPaint.setAntiAlias(antiAlias);
+            mZonesTextPaint.setAntiAlias(antiAlias);
+            mSecondsTextPaint.setAntiAlias(antiAlias);
+            mComplicationPaint.setAntiAlias(antiAlias);
+            mArcPaint.setAntiAlias(antiAlias);
+            mArcTrackPaint.setAntiAlias(antiAlias);
+        }
+
+        /**
+         * @return boolean whether the seconds are shown, as configured and the tier allows
+         */
+        private boolean showsSeconds() {
+            return mShowSeconds && QualityGovernor.allowsFrequentRedraws(mQualityTier);
+        }
+
+        /**
+         * @param showSeconds boolean
+         */
+        private void applyShowSeconds(boolean showSeconds) {
+            if (showSeconds == mShowSeconds) {
+                return;
+            }
+            mShowSeconds = showSeconds;
+
+            // the face layers were drawn with or without the seconds region laid out
+            releaseFaceLayer();
+            invalidate();
+        }
+
+        /**
+         * @param insets WindowsInsets
+         */
+        @Override
+        public void onApplyWindowInsets(WindowInsets insets) {
+            beginSection(StartupTimeline.PHASE_APPLY_INSETS);
+            super.onApplyWindowInsets(insets);
+
+            // the shape is part of the layout, it's applied once the surface size is known too
+            mIsRound = insets.isRound();
+            mInsetsApplied = true;
+            applyLayout();
+            endSection();
+        }
+
+        /**
+         * @param properties Bundle
+         */
+        @Override
+        public void onPropertiesChanged(Bundle properties) {
+            super.onPropertiesChanged(properties);
+            mLowBitAmbient = properties.getBoolean(PROPERTY_LOW_BIT_AMBIENT, false);
+            //including this since developing for lower apis for wear
+            mBurnInProtection = properties.getBoolean(PROPERTY_BURN_IN_PROTECTION, false);
+        }
+
+        @Override
+        public void onTimeTick() {
+            super.onTimeTick();
+            updateBackgroundPhase(fetchCurrentTimeMillis());
+            requestMinuteFrame();
+        }
+
+        /**
+         * @param inAmbientMode boolean
+         */
+        @Override
+        public void onAmbientModeChanged(boolean inAmbientMode) {
+            super.onAmbientModeChanged(inAmbientMode);
+            if (mAmbient != inAmbientMode) {
+                mAmbient = inAmbientMode;
+                applyAntiAlias();
+                // a touch in progress can't finish once the face leaves interactive mode
+                mTapTracker.onCancel();
+                mPressedRect.setEmpty();
+                applyTextContrast();
+                releaseOffscreenBitmaps();
+                invalidate();
+            }
+
+            // Whether the timer should be running depends on whether we're visible (as well as
+            // whether we're in ambient mode), so we may need to start or stop the timer.
+            updateTimer();
+        }
+
+        /**
+         * fetches the layout for the current surface and shape, from the cache when it's been
+         * seen before, and applies its text sizes
+         */
+        private void applyLayout() {
+            if (mWidth == 0 || !mInsetsApplied) {
+                // whichever of the surface size and the shape comes last applies it, so a square
+                // layout is never worked out and stored for a round screen
+                return;
+            }
+
+            Resources resources = TravelersWatchFace.this.getResources();
+            LayoutSpec layout = fetchLayoutEngine().fetch(
+                    mWidth,
+                    mHeight,
+                    mIsRound,
+                    Locale.getDefault(),
+                    mTravelerZones.getSampleLine(),
+                    resources.getDimension(R.dimen.min_text_size),
+                    mTextMeasurer
+            );
+            if (layout == mLayout) {
+                return;
+            }
+            mLayout = layout;
+
+            mTimeTextPaint.setTextSize(layout.timeTextSize);
+            mDateTextPaint.setTextSize(layout.dateTextSize);
+            mSecondsTextPaint.setTextSize(layout.dateTextSize);
+            mZonesTextPaint.setTextSize(layout.zonesTextSize);
+            mComplicationPaint.setTextSize(layout.complicationTextSize);
+            mFaceLayerValid = false;
+            discardFaceFrames();
+
+            COMPLICATION_SLOTS.computeRects(mWidth, mHeight, mSlotRects);
+            computeSlotArcs();
+            Arrays.fill(mSlotTextMinute, -1);
+            applyTextContrast();
+        }
+
+        /**
+         * makes each text slot's arc oval and track for the current slot bounds
+         */
+        private void computeSlotArcs() {
+            float[] oval = new float[4];
+            for (int i = 0; i < COMPLICATION_SLOTS.getCount(); i++) {
+                mSlotArcOvals[i] = null;
+                mSlotArcTracks[i] = null;
+                mSlotArcRadii[i] = 0;
+                if (COMPLICATION_SLOTS.getKind(i) != ComplicationSlots.KIND_TEXT) {
+                    continue;
+                }
+
+                float radius = RangedArc.computeOval(
+                        mSlotRects, i, mArcPaint.getStrokeWidth(), oval);
+                if (radius <= 0) {
+                    continue;
+                }
+
+                // new objects rather than reset ones, the render thread may still be drawing
+                // a frame with the old ones
+                RectF arcOval = new RectF(oval[0], oval[1], oval[2], oval[3]);
+                Path track = new Path();
+                track.addArc(arcOval, RangedArc.START_ANGLE, RangedArc.TRACK_SWEEP);
+                mSlotArcOvals[i] = arcOval;
+                mSlotArcTracks[i] = track;
+                mSlotArcRadii[i] = radius;
+            }
+        }
+
+        /**
+         * colors the text for the background behind it, from the analysis cached for the
+         * background and layout. Without one the text stays light and the analysis is
+         * queued on the loader thread; ambient text is always light
+         */
+        private void applyTextContrast() {
+            int mask = 0;
+            if (!mAmbient && mLayout != null) {
+                String key = TextContrast.keyFor(fetchBackgroundName(mBackgroundResID), mLayout);
+                mask = fetchTextContrast().fetch(key);
+                if (mask == TextContrast.UNKNOWN) {
+                    mask = 0;
+                    if (!key.equals(mTextContrastPendingKey)) {
+                        mTextContrastPendingKey = key;
+                        mBackgroundLoader.analyzeContrast(mBackgroundResID, key,
+                                TextContrast.textRegions(mLayout, COMPLICATION_SLOTS));
+                    }
+                }
+            }
+            if (mask == mTextContrastMask) {
+                return;
+            }
+            mTextContrastMask = mask;
+
+            mTimeTextPaint.setColor(fetchTextColor(mask, LayoutEngine.TEXT_TIME, true));
+            mDateTextPaint.setColor(fetchTextColor(mask, LayoutEngine.TEXT_DATE, true));
+            mZonesTextPaint.setColor(fetchTextColor(mask, LayoutEngine.TEXT_ZONES, false));
+            mComplicationPaint.setColor(
+                    fetchTextColor(mask, LayoutEngine.TEXT_COMPLICATION, false));
+            // the seconds share the time's line
+            mSecondsTextPaint.setColor(fetchTextColor(mask, LayoutEngine.TEXT_TIME, false));
+
+            mFaceLayerValid = false;
+            discardFaceFrames();
+            invalidate();
         }
 
         /**
-         * @param insets WindowsInsets
+         * @param mask int
+         * @param role int one of the LayoutEngine.TEXT_ constants
+         * @param primary boolean
+         * @return int the text color for the role
          */
-        @Override
-        public void onApplyWindowInsets(WindowInsets insets) {
-            super.onApplyWindowInsets(insets);
-
-            // Load resources that have alternate values for round watches.
-            Resources resources = TravelersWatchFace.this.getResources();
-            boolean isRound = insets.isRound();
-            mXOffset = resources.getDimension(isRound
-                    ? R.dimen.digital_x_offset_round : R.dimen.digital_x_offset);
-
-            float timeTextSize = resources.getDimension(isRound
-                    ? R.dimen.digital_text_size_round : R.dimen.digital_text_size);
-            float dateTextSize = resources.getDimension(isRound
-                ? R.dimen.digital_date_text_size_round : R.dimen.digital_date_text_size);
-
-            mTimeTextPaint.setTextSize(timeTextSize);
-            mDateTextPaint.setTextSize(dateTextSize);
+        private int fetchTextColor(int mask, int role, boolean primary) {
+            if (TextContrast.isDark(mask, role)) {
+                return primary ? mPrimaryDarkTextColor : mSecondaryDarkTextColor;
+            }
+            return primary ? mPrimaryTextColor : mSecondaryTextColor;
         }
 
         /**
-         * @param properties Bundle
+         * caches an analysis from the loader thread and applies it if it's for what's showing.
+         * A failed one isn't cached and stays pending, so the text stays light rather than
+         * the analysis being queued again every time the contrast is applied
+         * @param key String
+         * @param mask int TextContrast.UNKNOWN if the background couldn't be decoded
+         * @param micros int
          */
-        @Override
-        public void onPropertiesChanged(Bundle properties) {
-            super.onPropertiesChanged(properties);
-            mLowBitAmbient = properties.getBoolean(PROPERTY_LOW_BIT_AMBIENT, false);
-            //including this since developing for lower apis for wear
-            mBurnInProtection = properties.getBoolean(PROPERTY_BURN_IN_PROTECTION, false);
-        }
-
-        @Override
-        public void onTimeTick() {
-            super.onTimeTick();
-            invalidate();
+        private void handleContrastAnalyzedMessage(String key, int mask, int micros) {
+            if (mask == TextContrast.UNKNOWN) {
+                EventTracer.record(EventTracer.EVENT_DECODE_FAILED, EventTracer.NO_SLOT, 0);
+                return;
+            }
+            // the analysis is the service's, still good for the next engine
+            fetchTextContrast().put(key, mask, TimeUnit.MICROSECONDS.toNanos(micros));
+            if (mDestroyed) {
+                return;
+            }
+            if (key.equals(mTextContrastPendingKey)) {
+                mTextContrastPendingKey = null;
+            }
+            applyTextContrast();
         }
 
         /**
-         * @param inAmbientMode boolean
+         * @param role int one of the LayoutEngine.TEXT_ constants
+         * @return Paint
          */
-        @Override
-        public void onAmbientModeChanged(boolean inAmbientMode) {
-            super.onAmbientModeChanged(inAmbientMode);
-            if (mAmbient != inAmbientMode) {
-                mAmbient = inAmbientMode;
-                if (mLowBitAmbient) {
-                    mTimeTextPaint.setAntiAlias(!inAmbientMode);
-                    mDateTextPaint.setAntiAlias(!inAmbientMode);
-                    mComplicationPaint.setAntiAlias(!inAmbientMode);
-                }
-                invalidate();
+        private Paint fetchPaintForText(int role) {
+            switch (role) {
+                case LayoutEngine.TEXT_TIME:
+                    return mTimeTextPaint;
+                case LayoutEngine.TEXT_DATE:
+                    return mDateTextPaint;
+                case LayoutEngine.TEXT_ZONES:
+                    return mZonesTextPaint;
+                default:
+                    return mComplicationPaint;
             }
-
-            // Whether the timer should be running depends on whether we're visible (as well as
-            // whether we're in ambient mode), so we may need to start or stop the timer.
-            updateTimer();
         }
 
         /**
@@ -399,39 +2001,48 @@ public class TravelersWatchFace extends CanvasWatchFaceService {
          */
         @Override
         public void onSurfaceChanged(SurfaceHolder holder, int format, int width, int height) {
+            beginSection(StartupTimeline.PHASE_SURFACE_CHANGED);
             super.onSurfaceChanged(holder, format, width, height);
             mWidth = width;
             mHeight = height;
 
-            //the watch face is centered on the entire screen with these coords
-            mCenterX = mWidth / 2f;
-            mCenterY = mHeight / 2f;
+            applyLayout();
 
-            mScale = ((float) width) / (float) mBackgroundBitmap.getWidth();
+            // the first surface can start from a snapshot drawn at its size
+            boolean resumed = mResumingFromSnapshot && adoptSnapshotLayer(width, height);
+            mResumingFromSnapshot = false;
 
-            // the height of the complications text does not change, only need to
-            // recalculate when the surface changes.
-            int temp = (int) ((mHeight / 2) + (mComplicationPaint.getTextSize() / 2));
-            // we want the complications to render about 75% the way down
-            mComplicationsY = temp + (temp / 4);
+            // only keep the background for the mode we're in at the new size
+            if (mAmbient) {
+                mManagedBitmaps.release(ManagedBitmaps.OWNER_BACKGROUND);
+            } else {
+                ensureBackgroundBitmap(width, height);
+            }
 
             //let's make it gray if it is so
-            if (!mBurnInProtection || !mLowBitAmbient) {
+            if (mAmbient && usesGrayBackground() && !resumed) {
+                beginSection(StartupTimeline.PHASE_GRAY_BACKGROUND);
                 initGrayBackgroundBitmap();
+                endSection();
             }
+            endSection();
         }
 
         /**
          * draws a gray bitmap for the background
          */
         private void initGrayBackgroundBitmap() {
-            mGrayBackgroundBitmap = Bitmap.createBitmap(
-                mBackgroundBitmap.getWidth(),
-                mBackgroundBitmap.getHeight(),
+            // decoded just for this if we're already in ambient, then dropped again
+            Bitmap background =
+                    ensureBackgroundBitmap(fetchBackgroundWidth(), fetchBackgroundHeight());
+
+            Bitmap grayBackground = mBitmapPool.acquireCleared(
+                background.getWidth(),
+                background.getHeight(),
                 Bitmap.Config.ARGB_8888
             );
 
-            Canvas canvas = new Canvas(mGrayBackgroundBitmap);
+            Canvas canvas = new Canvas(grayBackground);
             Paint grayPaint = new Paint();
 
             ColorMatrix colorMatrix = new ColorMatrix();
@@ -440,105 +2051,162 @@ public class TravelersWatchFace extends CanvasWatchFaceService {
 
             grayPaint.setColorFilter(filter);
 
-            canvas.drawBitmap(mBackgroundBitmap, 0, 0, grayPaint);
+            canvas.drawBitmap(background, 0, 0, grayPaint);
+            mManagedBitmaps.put(ManagedBitmaps.OWNER_GRAY_BACKGROUND, grayBackground);
+
+            if (mAmbient) {
+                mManagedBitmaps.release(ManagedBitmaps.OWNER_BACKGROUND);
+            }
         }
 
         /**
-         * Captures tap event (and tap type) and toggles the background color if the user finishes
-         * a tap. Also allows the complications to be tapped and launch the application if there's one
+         * Captures tap event (and tap type) and highlights the complication under the finger as
+         * soon as it's touched. Once the tap completes the complication's application is launched
+         * from the handler, after the highlight has been posted, so the draw path never waits on it
          * @param tapType int
          * @param x int
          * @param y int
-         * @param eventTime long
+         * @param eventTime long uptime of the touch event
          */
         @Override
         public void onTapCommand(int tapType, int x, int y, long eventTime) {
+            boolean changed;
+
             switch (tapType) {
                 case TAP_TYPE_TOUCH:
                     // The user has started touching the screen.
+                    changed = mTapTracker.onTouch(fetchTappedSlot(x, y), mAmbient);
                     break;
                 case TAP_TYPE_TOUCH_CANCEL:
                     // The user has started a different gesture or otherwise cancelled the tap.
+                    changed = mTapTracker.onCancel();
                     break;
                 case TAP_TYPE_TAP:
-                    int tappedComplicationID = fetchTappedComplicationID(x, y);
-                    if (tappedComplicationID != -1) {
-                        onComplicationTap(tappedComplicationID);
+                    int before = mTapTracker.getPressedIndex();
+                    int tappedComplicationID = mTapTracker.onTap(fetchTappedSlot(x, y), mAmbient);
+                    changed = mTapTracker.getPressedIndex() != before;
+                    if (tappedComplicationID != TapTracker.NONE) {
+                        mUpdateTimeHandler.sendMessage(mUpdateTimeHandler.obtainMessage(
+                                MSG_DISPATCH_TAP, tappedComplicationID, 0));
                     }
                     break;
+                default:
+                    return;
+            }
+
+            if (changed) {
+                redrawPressedComplication(eventTime);
             }
-            invalidate();
         }
 
         /**
-         * determines whether the complication dial was tapped or outside of it (returns -1 if this)
-         * @param x int
-         * @param y int
-         * @return int
+         * moves the highlight to whatever the tap tracker has pressed now, redrawing only the
+         * region it left and the region it went to
+         * @param eventTime long uptime of the touch event
          */
-        private int fetchTappedComplicationID(int x, int y) {
-            ComplicationData complicationData;
-            long currentTimeMillis = System.currentTimeMillis();
+        private void redrawPressedComplication(long eventTime) {
+            if (!mPressedRect.isEmpty()) {
+                redrawRegion(mPressedRect);
+                mPressedRect.setEmpty();
+            }
+
+            int index = mTapTracker.getPressedIndex();
+            if (index == TapTracker.NONE) {
+                return;
+            }
+
+            int slot = index * 4;
+            mPressedRect.set(mSlotRects[slot], mSlotRects[slot + 1],
+                    mSlotRects[slot + 2], mSlotRects[slot + 3]);
+            mTouchUptimeMillis = eventTime;
+
+            redrawRegion(mPressedRect);
+            mTouchToHighlightStats.add(TimeUnit.MILLISECONDS.toNanos(
+                    fetchUptimeMillis() - mTouchUptimeMillis));
+        }
 
-            for (int i = 0; i < COMPLICATION_IDS.length; i++) {
+        /**
+         * sends the tapped complication's action and then lets go of its highlight
+         * @param complicationID int
+         */
+        private void handleDispatchTapMessage(int complicationID) {
+            onComplicationTap(complicationID);
+            mTouchToDispatchStats.add(TimeUnit.MILLISECONDS.toNanos(
+                    fetchUptimeMillis() - mTouchUptimeMillis));
 
-                complicationData = mActiveComplicationDataSparseArray.get(COMPLICATION_IDS[i]);
+            if (mTapTracker.onDispatched(complicationID)) {
+                redrawPressedComplication(mTouchUptimeMillis);
+            }
+        }
 
-                if (
-                    complicationData != null &&
-                    complicationData.isActive(currentTimeMillis) &&
-                    complicationData.getType() != ComplicationData.TYPE_NOT_CONFIGURED &&
-                    complicationData.getType() != ComplicationData.TYPE_EMPTY
-                ) {
+        /**
+         * draws the face straight onto the part of the surface inside region, leaving the rest of
+         * the last frame on screen. Falls back to a full invalidate() if the surface can't be locked
+         * @param region Rect
+         */
+        private void redrawRegion(Rect region) {
+            mDirtyRect.set(region);
 
-                    Rect complicationBoundingRect = fetchComplicationBoundingRectangle(i);
+            // the surface may grow the dirty rect to whatever it can't preserve
+            Canvas canvas = mHost.lockCanvas(mDirtyRect);
+            if (canvas == null) {
+                invalidate();
+                return;
+            }
 
-                    if (
-                        complicationBoundingRect.width() > 0 &&
-                        complicationBoundingRect.contains(x, y)
-                    ) {
-                        return COMPLICATION_IDS[i];
-                    } else {
-                        //for debugging
-                        Log.e(TAG, "Not a recognized complication id.");
-                    }
-                }
+            try {
+                drawRegion(canvas, mHost.getSurfaceFrame(), mDirtyRect);
+            } finally {
+                mHost.unlockCanvasAndPost(canvas);
             }
-            return -1;
         }
 
         /**
-         * gets the boundaries for the complication dial touched
-         * @param dialPosition int
-         * @return Rect
+         * @param canvas Canvas
+         * @param bounds Rect
+         * @param region Rect
          */
-        private Rect fetchComplicationBoundingRectangle(int dialPosition) {
-            Rect complicationBoundingRect = new Rect(0, 0, 0, 0);
+        private void drawRegion(Canvas canvas, Rect bounds, Rect region) {
+            // with a valid face layer only the clipped part of it is blitted
+            mRedrawingRegion = true;
+            try {
+                canvas.save();
+                canvas.clipRect(region);
+                onDraw(canvas, bounds);
+                canvas.restore();
+            } finally {
+                mRedrawingRegion = false;
+            }
+        }
 
-            Resources resources = TravelersWatchFace.this.getResources();
-            float complicationTextSize =
-                    resources.getDimension(R.dimen.complication_text_size);
-
-            switch (COMPLICATION_IDS[dialPosition]) {
-                case LEFT_DIAL_COMPLICATION:
-                    complicationBoundingRect.set(
-                        0,                                          // left
-                        mComplicationsY - COMPLICATION_TAP_BUFFER,  // top
-                        (mWidth / 2),                               // right
-                        ((int) complicationTextSize + mComplicationsY + COMPLICATION_TAP_BUFFER) //bottom
-                    );
-                    break;
-                case RIGHT_DIAL_COMPLICATION:
-                    complicationBoundingRect.set(
-                        (mWidth / 2),                               // left
-                        mComplicationsY - COMPLICATION_TAP_BUFFER,  // top
-                        mWidth,                                     // right
-                        ((int) complicationTextSize + mComplicationsY + COMPLICATION_TAP_BUFFER)
-                    );
-                    break;
+        /**
+         * determines which complication dial was tapped, if any
+         * @param x int
+         * @param y int
+         * @return int slot index, or TapTracker.NONE
+         */
+        private int fetchTappedSlot(int x, int y) {
+            ComplicationData complicationData;
+            long currentTimeMillis = fetchCurrentTimeMillis();
+
+            for (int i = 0; i < COMPLICATION_SLOTS.getCount(); i++) {
+                complicationData = mSlotData[i];
+                mSlotTappable[i] = complicationData != null
+                        && complicationData.isActive(currentTimeMillis)
+                        && complicationData.getType() != ComplicationData.TYPE_NOT_CONFIGURED
+                        && complicationData.getType() != ComplicationData.TYPE_EMPTY;
             }
 
-            return complicationBoundingRect;
+            int index = mTapTracker.findSlot(mSlotRects, mSlotTappable, x, y);
+            if (index != TapTracker.NONE) {
+                EventTracer.record(EventTracer.EVENT_TAP_HIT, COMPLICATION_SLOTS.getID(index),
+                        EventTracer.packPoint(x, y));
+            } else {
+                //for debugging
+                EventTracer.record(EventTracer.EVENT_TAP_MISS, EventTracer.NO_SLOT,
+                        EventTracer.packPoint(x, y));
+            }
+            return index;
         }
 
         /**
@@ -546,10 +2214,10 @@ public class TravelersWatchFace extends CanvasWatchFaceService {
          */
         private void onComplicationTap(int complicationID) {
             // for debugging
-            Log.d(TAG, "onComplicationTap()");
+            EventTracer.record(EventTracer.EVENT_COMPLICATION_TAP, complicationID, 0);
 
-            ComplicationData complicationData =
-                    mActiveComplicationDataSparseArray.get(complicationID);
+            int index = COMPLICATION_SLOTS.indexOf(complicationID);
+            ComplicationData complicationData = index == -1 ? null : mSlotData[index];
 
             if (
                 complicationData != null &&
@@ -557,19 +2225,22 @@ public class TravelersWatchFace extends CanvasWatchFaceService {
             ) {
                 try {
                     complicationData.getTapAction().send();
+                    EventTracer.record(EventTracer.EVENT_TAP_ACTION_SENT, complicationID, 0);
                 } catch (PendingIntent.CanceledException e) {
                     //debugging
-                    Log.e(TAG, "onComplicationTap() tap action error: " + e);
+                    EventTracer.record(EventTracer.EVENT_TAP_ACTION_CANCELED, complicationID, 0);
                 }
 
             } else if (
                 complicationData != null &&
                 complicationData.getType() == ComplicationData.TYPE_NO_PERMISSION
             ) {
+                EventTracer.record(EventTracer.EVENT_PERMISSION_REQUEST, complicationID, 0);
                 askForPermissions();
             } else {
                 //for debugging
-                Log.d(TAG, "No PendingIntent for complication " + complicationID + ".");
+                EventTracer.record(EventTracer.EVENT_NO_TAP_ACTION, complicationID,
+                        complicationData == null ? -1 : complicationData.getType());
             }
         }
 
@@ -597,14 +2268,85 @@ public class TravelersWatchFace extends CanvasWatchFaceService {
          */
         @Override
         public void onDraw(Canvas canvas, Rect bounds) {
+            if (mLayout == null) {
+                // nothing's placed until both the surface size and the shape are known
+                drawBackground(canvas, bounds);
+                return;
+            }
+            boolean firstFrame = !mStartupTimeline.isFrozen();
+            if (firstFrame) {
+                beginSection(StartupTimeline.PHASE_FIRST_DRAW);
+            }
+            boolean crossfading = isCrossfading();
+            long frameStartNanos = System.nanoTime();
+
             // set so we can draw H:MM in ambient mode or H:MM:SS in interactive mode.
-            long now = System.currentTimeMillis();
+            long now = fetchCurrentTimeMillis();
             mCalendar.setTimeInMillis(now);
+            settleFaceRenderer();
+
+            //draw the necessary items, full frames refresh or swap the face layer
+            if (usesFaceLayer()) {
+                canvas.drawBitmap(fetchFaceLayer(bounds, now), 0, 0, null);
+            } else {
+                drawFace(canvas, bounds, now);
+            }
+            drawSeconds(canvas);
+            drawPressedComplication(canvas);
+
+            if (crossfading) {
+                recordCrossfadeFrame(frameStartNanos);
+            }
+            if (firstFrame) {
+                endSection();
+                mStartupTimeline.markFirstFrame();
+                long resumeNanos = System.nanoTime() - mCreateNanos;
+                if (mSnapshotAdopted) {
+                    mSnapshotFirstFrameStats.add(resumeNanos);
+                } else {
+                    mColdFirstFrameStats.add(resumeNanos);
+                }
+            }
+            if (mFullFramePending) {
+                mFullFramePending = false;
+                mSnapshotFullFrameStats.add(System.nanoTime() - mCreateNanos);
+            }
+
+            // the first frame's cost is startup's, not the tier's. A new face layer drawn for a
+            // partial redraw is counted like a full frame
+            boolean fullFrame = !mRedrawingRegion || mFaceLayerReplaced;
+            mFaceLayerReplaced = false;
+            if (!firstFrame && mQualityGovernor.onFrameDrawn(System.nanoTime() - frameStartNanos,
+                    fullFrame, fetchElapsedRealtime())) {
+                applyQualityTier();
+            }
+        }
 
-            //draw the necessary items
+        /**
+         * draws everything that only changes once a minute or on events
+         * @param canvas Canvas
+         * @param bounds Rect
+         * @param now long
+         */
+        private void drawFace(Canvas canvas, Rect bounds, long now) {
             drawBackground(canvas, bounds);
-            drawDateTime(canvas);
-            drawComplications(canvas, now);
+            captureFaceFrame(mFaceFrame, now, null, false);
+            mFaceFrame.draw(canvas);
+            adoptFaceFrame(mFaceFrame);
+        }
+
+        /**
+         * draws the seconds after the time in interactive mode
+         * @param canvas Canvas
+         */
+        private void drawSeconds(Canvas canvas) {
+            if (!showsSeconds() || mAmbient) {
+                return;
+            }
+
+            SecondsTick.format(mCalendar.get(Calendar.SECOND), mSecondsText);
+            canvas.drawText(mSecondsText, 0, mSecondsText.length, mSecondsX, mLayout.timeY,
+                    mSecondsTextPaint);
         }
 
         /**
@@ -613,13 +2355,16 @@ public class TravelersWatchFace extends CanvasWatchFaceService {
          * @param bounds
          */
         private void drawBackground(Canvas canvas, Rect bounds) {
-            if (mAmbient && (mLowBitAmbient || mBurnInProtection)) {
+            boolean image = QualityGovernor.allowsBackgroundBitmap(mQualityTier);
+            if (mAmbient && (mLowBitAmbient || mBurnInProtection || !image)) {
                 canvas.drawColor(Color.BLACK);
             } else if (mAmbient) {
-                canvas.drawBitmap(mGrayBackgroundBitmap, 0, 0, mBackgroundPaint);
+                canvas.drawBitmap(ensureGrayBackgroundBitmap(), 0, 0, mBackgroundPaint);
             } else {
                 canvas.drawRect(0, 0, bounds.width(), bounds.height(), mBackgroundPaint);
-                drawBackgroundBitmap(canvas, bounds);
+                if (image) {
+                    drawBackgroundBitmap(canvas, bounds);
+                }
             }
         }
 
@@ -629,58 +2374,161 @@ public class TravelersWatchFace extends CanvasWatchFaceService {
          * @param bounds Rect
          */
         private void drawBackgroundBitmap(Canvas canvas, Rect bounds) {
-            if (mBackgroundBitmap == null || mBackgroundBitmap.getWidth() != bounds.width()
-                    || mBackgroundBitmap.getHeight() != bounds.height())
-                mBackgroundBitmap = Bitmap.createScaledBitmap(mBackgroundBitmap, bounds.width(),
-                        bounds.height(), false);
-            canvas.drawBitmap(mBackgroundBitmap, 0, 0, null);
+            Bitmap background = ensureBackgroundBitmap(bounds.width(), bounds.height());
+            Bitmap fadeFrom = mManagedBitmaps.get(ManagedBitmaps.OWNER_FADE_FROM);
+
+            if (fadeFrom == null) {
+                canvas.drawBitmap(background, 0, 0, null);
+                return;
+            }
+
+            // the new background is blended over the old one with the paint's alpha, nothing
+            // is allocated per frame
+            canvas.drawBitmap(fadeFrom, 0, 0, null);
+            mCrossfadePaint.setAlpha((int) (255 * fetchCrossfadeProgress()));
+            canvas.drawBitmap(background, 0, 0, mCrossfadePaint);
         }
 
         /**
-         * draws both the date and the time strings
-         * @param canvas
+         * fills in a frame with everything drawn over the background at a given time. Text is
+         * formatted and measured here so drawing the frame is only rasterizing
+         * @param frame FaceFrame
+         * @param timeMillis long
+         * @param background Bitmap drawn under the frame, or null if the caller draws its own
+         * @param offThread boolean whether the frame will be drawn on the render thread
+         * @return boolean false if the frame can't be drawn off the main thread
          */
-        private void drawDateTime(Canvas canvas) {
-            SimpleDateFormat sdfTime = new SimpleDateFormat("hh:mm a");
-            String timeText = sdfTime.format(mCalendar.getTime());
-            canvas.drawText(timeText, mXOffset, mYOffset, mTimeTextPaint);
-
-            SimpleDateFormat sdfDate = new SimpleDateFormat(" EEEE, MMMM dd", Locale.US);
-            String dateText = sdfDate.format(mCalendar.getTime());
+        private boolean captureFaceFrame(
+                FaceFrame frame,
+                long timeMillis,
+                Bitmap background,
+                boolean offThread
+        ) {
+            LayoutSpec layout = mLayout;
+            frame.width = mWidth;
+            frame.height = mHeight;
+            frame.layout = layout;
+            frame.background = background;
+            frame.backgroundPaint.set(mBackgroundPaint);
+            frame.timePaint.set(mTimeTextPaint);
+            frame.datePaint.set(mDateTextPaint);
+            frame.zonesPaint.set(mZonesTextPaint);
+            frame.complicationPaint.set(mComplicationPaint);
+            // the arc follows the complication text's color
+            frame.arcPaint.set(mArcPaint);
+            frame.arcPaint.setColor(mComplicationPaint.getColor());
+            frame.arcTrackPaint.set(mArcTrackPaint);
+
+            TimeZone zone = mCalendar.getTimeZone();
+            mTimeFormat.setTimeZone(zone);
+            mDateFormat.setTimeZone(zone);
+            mFrameDate.setTime(timeMillis);
+            frame.timeText = mTimeFormat.format(mFrameDate);
+            frame.dateText = mDateFormat.format(mFrameDate);
+
+            if (showsSeconds()) {
+                // the seconds sit after the time, this is the only region redrawn each second
+                frame.secondsX = layout.xOffset + mTimeTextPaint.measureText(frame.timeText)
+                        + mSecondsTextPaint.measureText(" ");
+                SecondsTick.computeRegion(frame.secondsX, layout.timeY,
+                        mSecondsTextPaint.ascent(), mSecondsTextPaint.descent(),
+                        mSecondsTextPaint.measureText("00"), SECONDS_REGION_PADDING,
+                        mSecondsRegion);
+                frame.secondsRect.set(mSecondsRegion[0], mSecondsRegion[1], mSecondsRegion[2],
+                        mSecondsRegion[3]);
+            }
 
-            canvas.drawText(dateText, mXOffset, mDateYOffset, mDateTextPaint);
+            frame.setZonesLine(mTravelerZones.getLine(), mTravelerZones.format(timeMillis));
+
+            int count = COMPLICATION_SLOTS.getCount();
+            frame.slotCount = count;
+            System.arraycopy(mSlotRects, 0, frame.slotRects, 0, count * 4);
+            for (int i = 0; i < count; i++) {
+                frame.slotText[i] = null;
+                frame.slotImages[i] = null;
+                frame.slotArcOvals[i] = null;
+
+                if (COMPLICATION_SLOTS.getKind(i) == ComplicationSlots.KIND_BACKGROUND) {
+                    // background images are only drawn on the interactive face
+                    if (!mAmbient) {
+                        Drawable image = offThread ? mSlotRenderImages[i] : mSlotImages[i];
+                        if (image == null && mSlotImages[i] != null) {
+                            return false;
+                        }
+                        frame.slotImages[i] = image;
+                    }
+                } else if (fetchSlotText(i, timeMillis)) {
+                    frame.slotText[i] = mSlotText[i];
+                    frame.slotTextX[i] = mSlotTextX[i];
+                    if (mSlotArcSteps[i] != RangedArc.NO_STEP) {
+                        frame.slotArcOvals[i] = mSlotArcOvals[i];
+                        frame.slotArcTracks[i] = mAmbient ? null : mSlotArcTracks[i];
+                        frame.slotArcSweeps[i] =
+                                RangedArc.sweepForStep(mSlotArcSteps[i], mSlotArcRadii[i]);
+                    }
+                }
+            }
+            return true;
         }
 
         /**
-         * @param canvas Canvas
+         * builds and measures a text slot's message and steps a ranged value's arc, once per
+         * minute or data update
+         * @param index int
          * @param currentTimeMillis long
+         * @return boolean whether the slot has something to show, text in mSlotText and mSlotTextX
+         * (null for a ranged value without text) and an arc in mSlotArcSteps
          */
-        private void drawComplications(Canvas canvas, long currentTimeMillis)
-        {
-            ComplicationData complicationData;
-
-            for (int i = 0; i < COMPLICATION_IDS.length; i++) {
+        private boolean fetchSlotText(int index, long currentTimeMillis) {
+            ComplicationData complicationData = mSlotData[index];
+            if (
+                complicationData == null ||
+                !complicationData.isActive(currentTimeMillis)
+            ) {
+                return false;
+            }
 
-                complicationData = mActiveComplicationDataSparseArray.get(COMPLICATION_IDS[i]);
+            int type = complicationData.getType();
+            if (type != ComplicationData.TYPE_SHORT_TEXT
+                    && type != ComplicationData.TYPE_RANGED_VALUE) {
+                return false;
+            }
 
-                if (
-                    complicationData != null &&
-                    complicationData.isActive(currentTimeMillis) &&
-                    complicationData.getType() == ComplicationData.TYPE_SHORT_TEXT
-                ) {
-                    CharSequence complicationMessage =
-                            buildComplicationMessage(complicationData, currentTimeMillis);
-                    int complicationsX = fetchComplicationsX(complicationMessage, i);
+            long minute = TimeUnit.MILLISECONDS.toMinutes(currentTimeMillis);
+            if (mSlotTextMinute[index] != minute) {
+                mSlotArcSteps[index] = RangedArc.NO_STEP;
+                if (type == ComplicationData.TYPE_RANGED_VALUE) {
+                    mSlotArcSteps[index] = RangedArc.stepFor(RangedArc.sweepFor(
+                            complicationData.getValue(),
+                            complicationData.getMinValue(),
+                            complicationData.getMaxValue()), mSlotArcRadii[index]);
+                }
 
-                    canvas.drawText(
-                        complicationMessage,
-                        0,
-                        complicationMessage.length(),
-                        complicationsX,
-                        mComplicationsY,
-                        mComplicationPaint
-                    );
+                // short text is optional for a ranged value
+                CharSequence complicationMessage = complicationData.getShortText() == null
+                        ? null : buildComplicationMessage(complicationData, currentTimeMillis);
+                mSlotText[index] = complicationMessage;
+                if (complicationMessage != null) {
+                    float textWidth = mComplicationPaint.measureText(
+                            complicationMessage, 0, complicationMessage.length());
+
+                    // centered in the slot
+                    int slot = index * 4;
+                    mSlotTextX[index] =
+                            (mSlotRects[slot] + mSlotRects[slot + 2] - textWidth) / 2;
                 }
+                mSlotTextMinute[index] = minute;
+            }
+            return true;
+        }
+
+        /**
+         * highlights the complication being touched
+         * @param canvas Canvas
+         */
+        private void drawPressedComplication(Canvas canvas) {
+            if (mTapTracker.getPressedIndex() != TapTracker.NONE && !mAmbient) {
+                canvas.drawRect(mPressedRect, mPressedPaint);
             }
         }
 
@@ -711,33 +2559,6 @@ public class TravelersWatchFace extends CanvasWatchFaceService {
             return complicationMessage;
         }
 
-        /**
-         * fetch the complication X measurement
-         * @param complicationMessage CharSequence
-         * @param dialPosition int
-         * @return int
-         */
-        private int fetchComplicationsX(CharSequence complicationMessage, int dialPosition) {
-
-            double textWidth = mComplicationPaint.measureText(
-                complicationMessage,
-                0,
-                complicationMessage.length()
-            );
-
-            int complicationsX;
-
-            if (COMPLICATION_IDS[dialPosition] == LEFT_DIAL_COMPLICATION) {
-                complicationsX = (int) ((mWidth / 2) - textWidth) / 2;
-            } else {
-                // RIGHT_DIAL_COMPLICATION calculations
-                int offset = (int) ((mWidth / 2) - textWidth) / 2;
-                complicationsX = (mWidth / 2) + offset;
-            }
-
-            return complicationsX;
-        }
-
         /**
          * fetches the day of the week based on the number returned
          * @return String
@@ -764,35 +2585,264 @@ public class TravelersWatchFace extends CanvasWatchFaceService {
             }
         }
 
+        /**
+         * summarises the startup timeline, and with --startup-trace also exports it to a trace
+         * file that can be pulled off the watch.
+         * e.g. adb shell dumpsys activity service TravelersWatchFace --startup-trace
+         * @param prefix String
+         * @param fd FileDescriptor
+         * @param writer PrintWriter
+         * @param args String[]
+         */
+        @Override
+        protected void dump(String prefix, FileDescriptor fd, PrintWriter writer, String[] args) {
+            super.dump(prefix, fd, writer, args);
+
+            mStartupTimeline.dump(prefix, writer);
+            mManagedBitmaps.dump(prefix, writer);
+            mBitmapPool.dump(prefix, writer);
+            if (mLayout != null) {
+                mLayout.dump(prefix, writer);
+            }
+            fetchLayoutEngine().dump(prefix, writer);
+            fetchTextContrast().dump(prefix, writer);
+            EventTracer.dump(prefix, writer);
+            mTouchToHighlightStats.dump(prefix, writer);
+            mTouchToDispatchStats.dump(prefix, writer);
+            mCrossfadeDrawStats.dump(prefix, writer);
+            mCrossfadeIntervalStats.dump(prefix, writer);
+            writer.println(prefix + "Crossfade missed frames: " + mCrossfadeMissedFrames);
+            mSecondsTickCpuStats.dump(prefix, writer);
+            writer.println(prefix + "Seconds ticks over budget: " + mSecondsOverBudget);
+            mFaceExchange.dump(prefix, writer);
+            mFaceRenderer.dump(prefix, writer);
+            writer.println(prefix + "Face layers drawn inline: " + mFaceLayersDrawnInline);
+            writer.println(prefix + "Face snapshot: "
+                    + (mSnapshot == null ? "none" : mSnapshot.backgroundName + " "
+                    + mSnapshot.width + "x" + mSnapshot.height) + ", last written "
+                    + mSnapshotBytes + " bytes, resumed from it: " + mSnapshotAdopted);
+            mSnapshotReadStats.dump(prefix, writer);
+            mSnapshotWriteStats.dump(prefix, writer);
+            mSnapshotFirstFrameStats.dump(prefix, writer);
+            mColdFirstFrameStats.dump(prefix, writer);
+            mSnapshotFullFrameStats.dump(prefix, writer);
+            mQualityGovernor.dump(prefix, writer);
+            writer.println(prefix + "Complication redraws deferred: "
+                    + mComplicationRedrawsDeferred);
+            writer.println(prefix + "Ranged value updates: " + mRangedUpdates
+                    + ", redraws skipped: " + mRangedRedrawsSkipped);
+
+            if (args == null) {
+                return;
+            }
+            for (int i = 0; i < args.length; i++) {
+                if (DUMP_ARG_STARTUP_TRACE.equals(args[i])) {
+                    exportStartupTrace(prefix, writer);
+                }
+            }
+        }
+
+        /**
+         * @return long the wall clock, the host's
+         */
+        private long fetchCurrentTimeMillis() {
+            return mHost.currentTimeMillis();
+        }
+
+        /**
+         * @return long uptime, the host's
+         */
+        private long fetchUptimeMillis() {
+            return mHost.uptimeMillis();
+        }
+
+        /**
+         * @return long time since boot, unaffected by clock changes, the host's
+         */
+        private long fetchElapsedRealtime() {
+            return mHost.elapsedRealtime();
+        }
+
+        /**
+         * @return boolean whether the face is visible, as the host sees it
+         */
+        private boolean isFaceVisible() {
+            return mHost.isVisible();
+        }
+
+        /**
+         * whatever asks for a redraw may have changed what's drawn, so frames rendered ahead
+         * are dropped
+         */
+        @Override
+        public void invalidate() {
+            discardFaceFrames();
+            requestFrame();
+        }
+
+        /**
+         * asks for the frame showing a new minute. Only the time has moved on, which frames
+         * rendered ahead already allow for, so unlike invalidate() they're kept
+         */
+        private void requestMinuteFrame() {
+            requestFrame();
+        }
+
+        /**
+         * frames are drawn wherever the host puts them, on a watch that's the surface
+         */
+        private void requestFrame() {
+            mHost.requestFrame();
+        }
+
+        /**
+         * writes the startup timeline to the app's files directory
+         * @param prefix String
+         * @param writer PrintWriter
+         */
+        private void exportStartupTrace(String prefix, PrintWriter writer) {
+            File traceFile = new File(getFilesDir(), STARTUP_TRACE_FILE);
+            Writer traceWriter = null;
+            try {
+                traceWriter = new FileWriter(traceFile);
+                mStartupTimeline.writeTraceEvents(traceWriter);
+                writer.println(prefix + "Startup trace written to " + traceFile);
+            } catch (IOException e) {
+                writer.println(prefix + "Startup trace export failed: " + e);
+            } finally {
+                if (traceWriter != null) {
+                    try {
+                        traceWriter.close();
+                    } catch (IOException e) {
+                        Log.e(TAG, "exportStartupTrace() close error: " + e);
+                    }
+                }
+            }
+        }
+
         /**
          * Starts the {@link #mUpdateTimeHandler} timer if it should be running and isn't currently
          * or stops it if it shouldn't be running but currently is.
          */
         private void updateTimer() {
-            mUpdateTimeHandler.removeMessages(MSG_UPDATE_TIME);
+            mHost.cancelTimer(mTimerTick);
             if (shouldTimerBeRunning()) {
-                mUpdateTimeHandler.sendEmptyMessage(MSG_UPDATE_TIME);
+                scheduleUpdateTime(0);
             }
         }
 
+        /**
+         * @param delayMs long
+         */
+        private void scheduleUpdateTime(long delayMs) {
+            mHost.scheduleTimer(mTimerTick, delayMs);
+        }
+
         /**
          * Returns whether the {@link #mUpdateTimeHandler} timer should be running. The timer should
          * only run when we're visible and in interactive mode.
          */
         private boolean shouldTimerBeRunning() {
-            return isVisible() && !isInAmbientMode();
+            return isFaceVisible() && !mAmbient;
         }
 
         /**
          * Handle updating the time periodically in interactive mode.
          */
         private void handleUpdateTimeMessage() {
-            invalidate();
+            if (isCrossfading()) {
+                handleCrossfadeFrame();
+                return;
+            }
+
+            long now = fetchCurrentTimeMillis();
+
+            if (SecondsTick.redrawsSecondsOnly(
+                    usesFaceLayer(), mFaceLayerValid, now, mFaceLayerMinute)) {
+                handleSecondsTick();
+                prepareNextFaceFrame(now);
+            } else {
+                updateBackgroundPhase(now);
+                if (isCrossfading()) {
+                    // the phase changed and the crossfade's frames have taken over the timer
+                    return;
+                }
+                requestMinuteFrame();
+            }
+
             if (shouldTimerBeRunning()) {
-                long timeMs = System.currentTimeMillis();
-                long delayMs = INTERACTIVE_UPDATE_RATE_MS
-                        - (timeMs % INTERACTIVE_UPDATE_RATE_MS);
-                mUpdateTimeHandler.sendEmptyMessageDelayed(MSG_UPDATE_TIME, delayMs);
+                // aligned to the next second or minute boundary
+                long rateMs = showsSeconds() ? SECONDS_UPDATE_RATE_MS : INTERACTIVE_UPDATE_RATE_MS;
+                scheduleUpdateTime(SecondsTick.delayToNext(fetchCurrentTimeMillis(), rateMs));
+            }
+        }
+
+        /**
+         * @Class SystemHost
+         * the host on a watch: the system clocks and default time zone, the engine's handler for
+         * the timer, and the surface the system shows
+         */
+        private final class SystemHost implements FaceHost {
+
+            @Override
+            public long currentTimeMillis() {
+                return System.currentTimeMillis();
+            }
+
+            @Override
+            public long uptimeMillis() {
+                return SystemClock.uptimeMillis();
+            }
+
+            @Override
+            public long elapsedRealtime() {
+                return SystemClock.elapsedRealtime();
+            }
+
+            @Override
+            public TimeZone getTimeZone() {
+                return TimeZone.getDefault();
+            }
+
+            @Override
+            public boolean isVisible() {
+                return Engine.this.isVisible();
+            }
+
+            /**
+             * sent as MSG_UPDATE_TIME, so the queue only holds the engine weakly
+             * @param tick Runnable
+             * @param delayMillis long
+             */
+            @Override
+            public void scheduleTimer(Runnable tick, long delayMillis) {
+                mUpdateTimeHandler.removeMessages(MSG_UPDATE_TIME);
+                mUpdateTimeHandler.sendEmptyMessageDelayed(MSG_UPDATE_TIME, delayMillis);
+            }
+
+            @Override
+            public void cancelTimer(Runnable tick) {
+                mUpdateTimeHandler.removeMessages(MSG_UPDATE_TIME);
+            }
+
+            @Override
+            public void requestFrame() {
+                Engine.super.invalidate();
+            }
+
+            @Override
+            public Canvas lockCanvas(Rect dirty) {
+                return getSurfaceHolder().lockCanvas(dirty);
+            }
+
+            @Override
+            public void unlockCanvasAndPost(Canvas canvas) {
+                getSurfaceHolder().unlockCanvasAndPost(canvas);
+            }
+
+            @Override
+            public Rect getSurfaceFrame() {
+                return getSurfaceHolder().getSurfaceFrame();
             }
         }
     }
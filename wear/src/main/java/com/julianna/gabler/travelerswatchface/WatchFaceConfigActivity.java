@@ -4,7 +4,6 @@ import android.app.Activity;
 import android.content.ComponentName;
 import android.content.Context;
 import android.content.Intent;
-import android.content.res.TypedArray;
 import android.graphics.drawable.Drawable;
 import android.os.Bundle;
 import android.support.wearable.complications.ComplicationHelperActivity;
@@ -31,6 +30,11 @@ public class WatchFaceConfigActivity extends Activity implements WearableListVie
 
     private static final int PROVIDER_CHOOSER_REQUEST_CODE = 1;
 
+    /**
+     * complication id of the list item that turns the seconds on and off
+     */
+    private static final int SHOW_SECONDS_ITEM = -1;
+
     private WearableListView mWearableConfigListView;
     private ConfigurationAdapter mAdapter;
 
@@ -81,6 +85,15 @@ public class WatchFaceConfigActivity extends Activity implements WearableListVie
         Integer tag = (Integer) viewHolder.itemView.getTag();
         ComplicationItem complicationItem = mAdapter.getItem(tag);
 
+        if (complicationItem.complicationID == SHOW_SECONDS_ITEM) {
+            // the face picks it up when it's visible again
+            boolean showSeconds = !TravelersWatchFace.fetchShowSeconds(this);
+            TravelersWatchFace.saveShowSeconds(this, showSeconds);
+            complicationItem.title = fetchShowSecondsTitle(showSeconds);
+            mAdapter.notifyDataSetChanged();
+            return;
+        }
+
         //allows the user to choose the provider for the complication
         startActivityForResult(
                 ProviderChooserIntent.createProviderChooserIntent(
@@ -101,25 +114,41 @@ public class WatchFaceConfigActivity extends Activity implements WearableListVie
                 getApplicationContext(), TravelersWatchFace.class
         );
 
-        int[] complicationIDs = TravelersWatchFace.COMPLICATION_IDS;
-
-        TypedArray icons = getResources().obtainTypedArray(R.array.complication_icons);
+        ComplicationSlots slots = TravelersWatchFace.COMPLICATION_SLOTS;
 
         List<ComplicationItem> items = new ArrayList<>();
-        for (int i = 0; i < complicationIDs.length; i++) {
+        for (int i = 0; i < slots.getCount(); i++) {
+            int iconResID = slots.getIconResID(i);
             items.add(new ComplicationItem(
                     watchFace,
-                    complicationIDs[i],
-                    TravelersWatchFace.COMPLICATION_SUPPORTED_TYPES[i],
-                    icons.getDrawable(i),
-                    ""
+                    slots.getID(i),
+                    slots.getSupportedTypes(i),
+                    iconResID != 0 ? getDrawable(iconResID) : null,
+                    getString(slots.getNameResID(i))
                 )
             );
         }
 
+        items.add(new ComplicationItem(
+                watchFace,
+                SHOW_SECONDS_ITEM,
+                null,
+                null,
+                fetchShowSecondsTitle(TravelersWatchFace.fetchShowSeconds(this))
+            )
+        );
+
         return items;
     }
 
+    /**
+     * @param showSeconds boolean
+     * @return String
+     */
+    private String fetchShowSecondsTitle(boolean showSeconds) {
+        return getString(showSeconds ? R.string.config_seconds_on : R.string.config_seconds_off);
+    }
+
     /**
      * honestly I don't really care about the function but I need to override it
      */
@@ -187,6 +216,7 @@ public class WatchFaceConfigActivity extends Activity implements WearableListVie
          */
         public static class ItemViewHolder extends WearableListView.ViewHolder {
             private ImageView iconImageView;
+            private TextView titleTextView;
 
             /**
              * constructor
@@ -195,6 +225,7 @@ public class WatchFaceConfigActivity extends Activity implements WearableListVie
             public ItemViewHolder(View itemView) {
                 super(itemView);
                 this.iconImageView = (ImageView) itemView.findViewById(R.id.icon);
+                this.titleTextView = (TextView) itemView.findViewById(R.id.title);
             }
         }
 
@@ -222,6 +253,7 @@ public class WatchFaceConfigActivity extends Activity implements WearableListVie
 
             ImageView imageView = itemHolder.iconImageView;
             imageView.setImageDrawable(mItems.get(position).icon);
+            itemHolder.titleTextView.setText(mItems.get(position).title);
 
             holder.itemView.setTag(position);
         }
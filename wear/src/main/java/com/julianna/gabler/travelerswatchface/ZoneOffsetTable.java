@@ -0,0 +1,191 @@
+package com.julianna.gabler.travelerswatchface;
+
+import java.util.Arrays;
+import java.util.TimeZone;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @Class ZoneOffsetTable
+ * the UTC offsets a time zone goes through over the coming year, precomputed so the local time in
+ * that zone can be worked out per frame with integer arithmetic and no Calendar or TimeZone calls
+ */
+final class ZoneOffsetTable {
+
+    /**
+     * how far ahead a table is computed
+     */
+    static final long TABLE_SPAN_MILLIS = TimeUnit.DAYS.toMillis(366);
+
+    // offsets are sampled at this step, then each change is narrowed down to the millisecond.
+    // no zone changes its offset twice within six hours
+    private static final long SCAN_STEP_MILLIS = TimeUnit.HOURS.toMillis(6);
+
+    private static final long MILLIS_PER_MINUTE = TimeUnit.MINUTES.toMillis(1);
+    private static final int MINUTES_PER_DAY = (int) TimeUnit.DAYS.toMinutes(1);
+
+    private final String mLabel;
+    private final long mValidFrom;
+    private final long mValidUntil;
+
+    // mOffsets[0] applies from mValidFrom, mOffsets[i + 1] from mTransitions[i]
+    private final long[] mTransitions;
+    private final int[] mOffsets;
+
+    // index into mOffsets of the last lookup, time mostly moves forward a minute at a time
+    private int mCursor;
+
+    /**
+     * constructor
+     * @param label String
+     * @param validFrom long
+     * @param validUntil long
+     * @param transitions long[]
+     * @param offsets int[]
+     */
+    private ZoneOffsetTable(
+            String label,
+            long validFrom,
+            long validUntil,
+            long[] transitions,
+            int[] offsets
+    ) {
+        mLabel = label;
+        mValidFrom = validFrom;
+        mValidUntil = validUntil;
+        mTransitions = transitions;
+        mOffsets = offsets;
+    }
+
+    /**
+     * walks the zone's offsets for the year starting at fromMillis and records every transition
+     * @param zone TimeZone
+     * @param label String short name shown on the face
+     * @param fromMillis long
+     * @return ZoneOffsetTable
+     */
+    static ZoneOffsetTable build(TimeZone zone, String label, long fromMillis) {
+        long untilMillis = fromMillis + TABLE_SPAN_MILLIS;
+
+        // a zone rarely has more than two transitions a year, grow if it does
+        long[] transitions = new long[4];
+        int[] offsets = new int[5];
+        int count = 0;
+
+        int previousOffset = zone.getOffset(fromMillis);
+        offsets[0] = previousOffset;
+
+        for (long t = fromMillis; t < untilMillis; ) {
+            long next = Math.min(t + SCAN_STEP_MILLIS, untilMillis);
+            int offset = zone.getOffset(next);
+
+            if (offset != previousOffset) {
+                if (count == transitions.length) {
+                    transitions = Arrays.copyOf(transitions, count * 2);
+                    offsets = Arrays.copyOf(offsets, count * 2 + 1);
+                }
+                transitions[count] = findTransition(zone, t, next, previousOffset);
+                offsets[++count] = offset;
+                previousOffset = offset;
+            }
+            t = next;
+        }
+
+        return new ZoneOffsetTable(
+                label,
+                fromMillis,
+                untilMillis,
+                Arrays.copyOf(transitions, count),
+                Arrays.copyOf(offsets, count + 1)
+        );
+    }
+
+    /**
+     * binary search for the first millisecond in (low, high] that no longer has lowOffset
+     * @param zone TimeZone
+     * @param low long
+     * @param high long
+     * @param lowOffset int
+     * @return long
+     */
+    private static long findTransition(TimeZone zone, long low, long high, int lowOffset) {
+        while (high - low > 1) {
+            long mid = low + (high - low) / 2;
+            if (zone.getOffset(mid) == lowOffset) {
+                low = mid;
+            } else {
+                high = mid;
+            }
+        }
+        return high;
+    }
+
+    /**
+     * @param utcMillis long
+     * @return boolean whether the table can answer for this time
+     */
+    boolean covers(long utcMillis) {
+        return utcMillis >= mValidFrom && utcMillis < mValidUntil;
+    }
+
+    /**
+     * @return long the end of the precomputed year
+     */
+    long getValidUntil() {
+        return mValidUntil;
+    }
+
+    /**
+     * @return String
+     */
+    String getLabel() {
+        return mLabel;
+    }
+
+    /**
+     * @return int number of offset changes in the table
+     */
+    int getTransitionCount() {
+        return mTransitions.length;
+    }
+
+    /**
+     * @param utcMillis long a time the table covers
+     * @return int offset from UTC in milliseconds
+     */
+    int offsetAt(long utcMillis) {
+        int cursor = mCursor;
+
+        // step back if time went backwards (e.g. the clock was set), then forward to the period
+        while (cursor > 0 && utcMillis < mTransitions[cursor - 1]) {
+            cursor--;
+        }
+        while (cursor < mTransitions.length && utcMillis >= mTransitions[cursor]) {
+            cursor++;
+        }
+
+        mCursor = cursor;
+        return mOffsets[cursor];
+    }
+
+    /**
+     * @param utcMillis long a time the table covers
+     * @return int minutes since local midnight in this zone
+     */
+    int minuteOfDay(long utcMillis) {
+        long localMinutes = floorDiv(utcMillis + offsetAt(utcMillis), MILLIS_PER_MINUTE);
+        return (int) (localMinutes - floorDiv(localMinutes, MINUTES_PER_DAY) * MINUTES_PER_DAY);
+    }
+
+    /**
+     * @param value long
+     * @param divisor long
+     * @return long value / divisor rounded towards negative infinity
+     */
+    private static long floorDiv(long value, long divisor) {
+        long quotient = value / divisor;
+        if ((value % divisor != 0) && ((value ^ divisor) < 0)) {
+            quotient--;
+        }
+        return quotient;
+    }
+}
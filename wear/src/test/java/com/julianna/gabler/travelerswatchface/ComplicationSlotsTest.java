@@ -0,0 +1,66 @@
+package com.julianna.gabler.travelerswatchface;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+
+import static org.junit.Assert.*;
+
+/**
+ * declares slots and checks the id lookup, the pixel bounds and the limits
+ */
+public class ComplicationSlotsTest {
+
+    private static final int[] TYPES = {3};
+
+    /**
+     * @return ComplicationSlots a left and a right half, ids out of order
+     */
+    private static ComplicationSlots halves() {
+        return new ComplicationSlots()
+                .add(7, ComplicationSlots.KIND_TEXT, 0f, 0f, 0.5f, 1f, TYPES, 1, 0)
+                .add(2, ComplicationSlots.KIND_BACKGROUND, 0.5f, 0f, 1f, 1f, TYPES, 2, 0);
+    }
+
+    @Test
+    public void indexOf_mapsIDsToSlotIndices() throws Exception {
+        ComplicationSlots slots = halves();
+
+        assertEquals(2, slots.getCount());
+        assertEquals(0, slots.indexOf(7));
+        assertEquals(1, slots.indexOf(2));
+        assertEquals(-1, slots.indexOf(3));
+        assertEquals(-1, slots.indexOf(-1));
+        assertEquals(-1, slots.indexOf(ComplicationSlots.MAX_ID));
+        assertArrayEquals(new int[] {7, 2}, slots.getIDs());
+        assertEquals(ComplicationSlots.KIND_BACKGROUND, slots.getKind(1));
+    }
+
+    @Test
+    public void computeRects_scaleWithTheSurface() throws Exception {
+        ComplicationSlots slots = halves();
+        int[] rects = new int[ComplicationSlots.MAX_SLOTS * 4];
+
+        slots.computeRects(320, 290, rects);
+
+        assertArrayEquals(new int[] {0, 0, 160, 290, 160, 0, 320, 290},
+                Arrays.copyOf(rects, 8));
+        assertTrue(ComplicationSlots.contains(rects, 0, 0, 0));
+        assertTrue(ComplicationSlots.contains(rects, 0, 159, 289));
+        assertFalse(ComplicationSlots.contains(rects, 0, 160, 100));
+        assertTrue(ComplicationSlots.contains(rects, 1, 160, 100));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void add_rejectsDuplicateIDs() throws Exception {
+        halves().add(7, ComplicationSlots.KIND_TEXT, 0f, 0f, 1f, 1f, TYPES, 1, 0);
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void add_isCappedAtMaxSlots() throws Exception {
+        ComplicationSlots slots = new ComplicationSlots();
+        for (int i = 0; i <= ComplicationSlots.MAX_SLOTS; i++) {
+            slots.add(i, ComplicationSlots.KIND_TEXT, 0f, 0f, 1f, 1f, TYPES, 1, 0);
+        }
+    }
+}
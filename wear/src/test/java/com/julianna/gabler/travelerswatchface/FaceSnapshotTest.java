@@ -0,0 +1,146 @@
+package com.julianna.gabler.travelerswatchface;
+
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Arrays;
+
+import static org.junit.Assert.*;
+
+/**
+ * writes snapshots to disk and reads them back, the way a recreated engine would
+ */
+public class FaceSnapshotTest {
+
+    private static final int WIDTH = 320;
+    private static final int HEIGHT = 290;
+
+    // ComplicationData.TYPE_SHORT_TEXT and TYPE_RANGED_VALUE
+    private static final int SHORT_TEXT = 3;
+    private static final int RANGED_VALUE = 5;
+
+    /**
+     * @param fill int
+     * @return byte[] a layer of one value at the test size
+     */
+    private static byte[] layer(int fill) {
+        byte[] pixels = new byte[WIDTH * HEIGHT * FaceSnapshot.BYTES_PER_PIXEL];
+        Arrays.fill(pixels, (byte) fill);
+        return pixels;
+    }
+
+    /**
+     * @return File an empty directory, deleted when the tests exit
+     * @throws IOException
+     */
+    private static File newFolder() throws IOException {
+        File folder = Files.createTempDirectory("snapshot").toFile();
+        folder.deleteOnExit();
+        return folder;
+    }
+
+    @Test
+    public void writeAndRead_roundTrips() throws Exception {
+        FaceSnapshot snapshot = new FaceSnapshot(1234L, WIDTH, HEIGHT, "bckgrd1", 3);
+        snapshot.setLayer(FaceSnapshot.LAYER_INTERACTIVE, layer(7));
+        snapshot.setSlot(0, SHORT_TEXT, "72% Lit", 0, 0, 0);
+        snapshot.setSlot(1, RANGED_VALUE, null, 4200, 0, 10000);
+
+        File folder = newFolder();
+        File file = new File(folder, "snapshot.bin");
+        file.deleteOnExit();
+        int bytes = snapshot.writeFile(file);
+        assertEquals(file.length(), bytes);
+        assertTrue(bytes > snapshot.getLayerByteCount());
+
+        FaceSnapshot read = FaceSnapshot.readFile(file);
+        assertNotNull(read);
+        assertEquals(1234L, read.savedAt);
+        assertTrue(read.matches(WIDTH, HEIGHT, "bckgrd1"));
+        assertFalse(read.matches(WIDTH, WIDTH, "bckgrd1"));
+        assertFalse(read.matches(WIDTH, HEIGHT, "bckgrd2"));
+        assertArrayEquals(layer(7), read.getLayer(FaceSnapshot.LAYER_INTERACTIVE));
+        assertFalse(read.hasLayer(FaceSnapshot.LAYER_AMBIENT));
+
+        assertEquals(3, read.getSlotCount());
+        assertEquals(SHORT_TEXT, read.getSlotType(0));
+        assertEquals("72% Lit", read.getSlotText(0));
+        assertEquals(RANGED_VALUE, read.getSlotType(1));
+        assertNull(read.getSlotText(1));
+        assertEquals(4200, read.getSlotValue(1), 0);
+        assertEquals(10000, read.getSlotMax(1), 0);
+        assertEquals(FaceSnapshot.NO_SLOT_DATA, read.getSlotType(2));
+
+        // nothing's left behind from writing it
+        assertEquals(1, folder.list().length);
+    }
+
+    @Test
+    public void mergeLayers_onlyFromTheSameBackgroundAndSize() throws Exception {
+        FaceSnapshot older = new FaceSnapshot(1L, WIDTH, HEIGHT, "bckgrd1", 0);
+        older.setLayer(FaceSnapshot.LAYER_INTERACTIVE, layer(1));
+        older.setLayer(FaceSnapshot.LAYER_AMBIENT, layer(2));
+
+        // hidden from ambient mode, the interactive layer comes from the older snapshot
+        FaceSnapshot newer = new FaceSnapshot(2L, WIDTH, HEIGHT, "bckgrd1", 0);
+        newer.setLayer(FaceSnapshot.LAYER_AMBIENT, layer(3));
+        newer.mergeLayers(older);
+        assertArrayEquals(layer(1), newer.getLayer(FaceSnapshot.LAYER_INTERACTIVE));
+        assertArrayEquals(layer(3), newer.getLayer(FaceSnapshot.LAYER_AMBIENT));
+
+        FaceSnapshot otherBackground = new FaceSnapshot(2L, WIDTH, HEIGHT, "bckgrd4", 0);
+        otherBackground.mergeLayers(older);
+        assertFalse(otherBackground.hasLayer(FaceSnapshot.LAYER_INTERACTIVE));
+
+        newer.mergeLayers(null);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void setLayer_rejectsTheWrongSize() throws Exception {
+        new FaceSnapshot(1L, WIDTH, HEIGHT, "bckgrd1", 0)
+                .setLayer(FaceSnapshot.LAYER_INTERACTIVE, new byte[16]);
+    }
+
+    @Test
+    public void readFile_missingOrDamaged() throws Exception {
+        File file = new File(newFolder(), "snapshot.bin");
+        file.deleteOnExit();
+        assertNull(FaceSnapshot.readFile(file));
+
+        FileOutputStream out = new FileOutputStream(file);
+        out.write(new byte[64]);
+        out.close();
+        assertNull(FaceSnapshot.readFile(file));
+
+        // cut short in the middle of a layer
+        FaceSnapshot snapshot = new FaceSnapshot(1L, WIDTH, HEIGHT, "bckgrd1", 0);
+        snapshot.setLayer(FaceSnapshot.LAYER_AMBIENT, layer(5));
+        snapshot.writeFile(file);
+        byte[] whole = Files.readAllBytes(file.toPath());
+        out = new FileOutputStream(file);
+        out.write(whole, 0, whole.length / 2);
+        out.close();
+        assertNull(FaceSnapshot.readFile(file));
+    }
+
+    @Test
+    public void writeAndRead_bothLayersEveryTime() throws Exception {
+        FaceSnapshot snapshot = new FaceSnapshot(1L, WIDTH, HEIGHT, "bckgrd1", 3);
+        snapshot.setLayer(FaceSnapshot.LAYER_INTERACTIVE, layer(1));
+        snapshot.setLayer(FaceSnapshot.LAYER_AMBIENT, layer(2));
+        File file = new File(newFolder(), "snapshot.bin");
+        file.deleteOnExit();
+        snapshot.writeFile(file);
+
+        // the engine reads it again each time it's created
+        for (int i = 0; i < 3; i++) {
+            FaceSnapshot read = FaceSnapshot.readFile(file);
+            assertNotNull(read);
+            assertArrayEquals(layer(1), read.getLayer(FaceSnapshot.LAYER_INTERACTIVE));
+            assertArrayEquals(layer(2), read.getLayer(FaceSnapshot.LAYER_AMBIENT));
+        }
+    }
+}
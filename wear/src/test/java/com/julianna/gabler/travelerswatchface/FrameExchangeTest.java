@@ -0,0 +1,173 @@
+package com.julianna.gabler.travelerswatchface;
+
+import org.junit.Test;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.*;
+
+/**
+ * checks the buffer handoff, then races a producer and consumer thread over real buffers and
+ * looks for torn or stale frames
+ */
+public class FrameExchangeTest {
+
+    private static final int BUFFER_SIZE = 4096;
+    private static final long RACE_NANOS = 1000L * 1000 * 1000;
+
+    @Test
+    public void swapIfReady_swapsThePublishedFrameWhenDue() throws Exception {
+        FrameExchange exchange = new FrameExchange();
+        int front = exchange.getFront();
+
+        int back = exchange.beginWrite(exchange.getGeneration());
+        assertEquals(1 - front, back);
+        exchange.publish(5, exchange.getGeneration());
+
+        // not due yet, so it waits
+        assertFalse(exchange.swapIfReady(4));
+        assertTrue(exchange.isReady());
+
+        assertTrue(exchange.swapIfReady(5));
+        assertEquals(back, exchange.getFront());
+        assertFalse(exchange.isReady());
+        assertEquals(1, exchange.getSwapCount());
+    }
+
+    @Test
+    public void beginWrite_doesntHandOutTheBackTwice() throws Exception {
+        FrameExchange exchange = new FrameExchange();
+        int generation = exchange.getGeneration();
+
+        assertNotEquals(FrameExchange.NONE, exchange.beginWrite(generation));
+        assertEquals(FrameExchange.NONE, exchange.beginWrite(generation));
+
+        exchange.publish(1, generation);
+        assertEquals(FrameExchange.NONE, exchange.beginWrite(generation));
+
+        exchange.discardReady();
+        assertNotEquals(FrameExchange.NONE, exchange.beginWrite(generation));
+        exchange.abandon();
+        assertNotEquals(FrameExchange.NONE, exchange.beginWrite(generation));
+    }
+
+    @Test
+    public void swapIfReady_discardsStaleAndLateFrames() throws Exception {
+        FrameExchange exchange = new FrameExchange();
+        int front = exchange.getFront();
+
+        // made before the content changed
+        int generation = exchange.getGeneration();
+        exchange.beginWrite(generation);
+        exchange.invalidate();
+        exchange.publish(3, generation);
+        assertFalse(exchange.swapIfReady(3));
+        assertFalse(exchange.isReady());
+
+        // a stale generation can't even start
+        assertEquals(FrameExchange.NONE, exchange.beginWrite(generation));
+
+        // due at a minute that's already gone
+        generation = exchange.getGeneration();
+        exchange.beginWrite(generation);
+        exchange.publish(3, generation);
+        assertFalse(exchange.swapIfReady(4));
+        assertFalse(exchange.isReady());
+
+        assertEquals(front, exchange.getFront());
+        assertEquals(2, exchange.getDiscardCount());
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void publish_needsTheBack() throws Exception {
+        new FrameExchange().publish(1, 0);
+    }
+
+    /**
+     * the producer fills whole buffers with the key of the frame it's making while the consumer
+     * keeps reading the front and asking for the next key, now and then invalidating. Any mix of
+     * values in the front is a torn frame, and the front must always hold the last key swapped
+     * in, which only ever goes up
+     */
+    @Test
+    public void handoff_concurrentNeverTearsOrGoesBack() throws Exception {
+        final FrameExchange exchange = new FrameExchange();
+        final long[][] buffers = new long[2][BUFFER_SIZE];
+        final AtomicReference<Throwable> failure = new AtomicReference<>();
+        final long[] wanted = {1};
+        final Object wantedLock = new Object();
+        final long deadline = System.nanoTime() + RACE_NANOS;
+
+        Thread producer = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    while (System.nanoTime() < deadline) {
+                        long key;
+                        synchronized (wantedLock) {
+                            key = wanted[0];
+                        }
+                        int generation = exchange.getGeneration();
+                        int back = exchange.beginWrite(generation);
+                        if (back == FrameExchange.NONE) {
+                            Thread.yield();
+                            continue;
+                        }
+                        long[] buffer = buffers[back];
+                        for (int i = 0; i < buffer.length; i++) {
+                            buffer[i] = key;
+                        }
+                        exchange.publish(key, generation);
+                    }
+                } catch (Throwable t) {
+                    failure.compareAndSet(null, t);
+                }
+            }
+        });
+        producer.start();
+
+        long shown = 0;
+        int swaps = 0;
+        int round = 0;
+        while (System.nanoTime() < deadline && failure.get() == null) {
+            long[] front = buffers[exchange.getFront()];
+            long first = front[0];
+            for (int i = 1; i < front.length; i++) {
+                assertEquals("torn frame", first, front[i]);
+            }
+            assertEquals("front isn't the last frame swapped in", shown, first);
+
+            long key;
+            synchronized (wantedLock) {
+                key = wanted[0];
+            }
+            if (exchange.swapIfReady(key)) {
+                long swapped = buffers[exchange.getFront()][0];
+                assertEquals("swapped in the wrong frame", key, swapped);
+                assertTrue(swapped > shown);
+                shown = swapped;
+                swaps++;
+                synchronized (wantedLock) {
+                    wanted[0]++;
+                }
+            }
+
+            round++;
+            if (round % 97 == 0) {
+                exchange.invalidate();
+            } else if (round % 61 == 0) {
+                // the deadline passed without a frame, move on
+                synchronized (wantedLock) {
+                    wanted[0]++;
+                }
+            }
+        }
+
+        producer.join();
+        if (failure.get() != null) {
+            throw new AssertionError(failure.get());
+        }
+        assertTrue("no frames were handed over", swaps > 0);
+        assertEquals(swaps, exchange.getSwapCount());
+    }
+}
@@ -0,0 +1,163 @@
+package com.julianna.gabler.travelerswatchface;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * checks the pool's counters and eviction against fake bitmaps that are only a size, a config
+ * and a byte count, and an adapter that records what it recycled
+ */
+public class FreeBitmapsTest {
+
+    private static final int ARGB = 1;
+    private static final int RGB = 2;
+
+    /**
+     * stands in for a Bitmap
+     */
+    private static class FakeBitmap {
+        final int mWidth;
+        final int mHeight;
+        final int mConfig;
+        final long mBytes;
+
+        FakeBitmap(int width, int height, int config) {
+            mWidth = width;
+            mHeight = height;
+            mConfig = config;
+            mBytes = (long) width * height * (config == ARGB ? 4 : 2);
+        }
+    }
+
+    /**
+     * stands in for the BitmapPool
+     */
+    private static class FakeAdapter implements FreeBitmaps.Adapter<FakeBitmap> {
+        final List<FakeBitmap> mRecycled = new ArrayList<>();
+
+        @Override
+        public long bucketOf(FakeBitmap bitmap) {
+            return FreeBitmaps.bucketFor(bitmap.mWidth, bitmap.mHeight, bitmap.mConfig);
+        }
+
+        @Override
+        public long sizeOf(FakeBitmap bitmap) {
+            return bitmap.mBytes;
+        }
+
+        @Override
+        public void recycle(FakeBitmap bitmap) {
+            mRecycled.add(bitmap);
+        }
+    }
+
+    @Test
+    public void take_missesUntilTheBucketHasOne() throws Exception {
+        FreeBitmaps<FakeBitmap> free = new FreeBitmaps<>(new FakeAdapter(), 1000);
+        long bucket = FreeBitmaps.bucketFor(10, 10, RGB);
+
+        assertNull(free.take(bucket));
+        FakeBitmap bitmap = new FakeBitmap(10, 10, RGB);
+        free.put(bitmap);
+
+        assertSame(bitmap, free.take(bucket));
+        assertEquals(1, free.getHitCount());
+        assertEquals(1, free.getMissCount());
+        assertEquals(0, free.getFreeBytes());
+    }
+
+    @Test
+    public void take_onlyMatchesSizeAndConfig() throws Exception {
+        FreeBitmaps<FakeBitmap> free = new FreeBitmaps<>(new FakeAdapter(), 10000);
+        free.put(new FakeBitmap(10, 10, RGB));
+
+        assertNull(free.take(FreeBitmaps.bucketFor(10, 10, ARGB)));
+        assertNull(free.take(FreeBitmaps.bucketFor(10, 20, RGB)));
+        assertNull(free.take(FreeBitmaps.bucketFor(20, 10, RGB)));
+        assertEquals(3, free.getMissCount());
+        assertEquals(1, free.getFreeCount());
+    }
+
+    @Test
+    public void put_countsTheBytesHeld() throws Exception {
+        FreeBitmaps<FakeBitmap> free = new FreeBitmaps<>(new FakeAdapter(), 10000);
+
+        free.put(new FakeBitmap(10, 10, ARGB));
+        free.put(new FakeBitmap(10, 10, RGB));
+
+        assertEquals(600, free.getFreeBytes());
+        assertEquals(2, free.getFreeCount());
+    }
+
+    @Test
+    public void put_evictsTheOldestPastTheLimit() throws Exception {
+        FakeAdapter adapter = new FakeAdapter();
+        FreeBitmaps<FakeBitmap> free = new FreeBitmaps<>(adapter, 900);
+        FakeBitmap oldest = new FakeBitmap(10, 10, ARGB);
+        FakeBitmap middle = new FakeBitmap(10, 10, ARGB);
+        FakeBitmap newest = new FakeBitmap(10, 10, RGB);
+
+        free.put(oldest);
+        free.put(middle);
+        free.put(newest);
+
+        assertEquals(1, free.getEvictionCount());
+        assertEquals(1, adapter.mRecycled.size());
+        assertSame(oldest, adapter.mRecycled.get(0));
+        assertEquals(600, free.getFreeBytes());
+        // the evicted one is gone from its bucket too
+        assertSame(middle, free.take(FreeBitmaps.bucketFor(10, 10, ARGB)));
+        assertNull(free.take(FreeBitmaps.bucketFor(10, 10, ARGB)));
+    }
+
+    @Test
+    public void put_recyclesOneBiggerThanTheLimit() throws Exception {
+        FakeAdapter adapter = new FakeAdapter();
+        FreeBitmaps<FakeBitmap> free = new FreeBitmaps<>(adapter, 1000);
+        FakeBitmap huge = new FakeBitmap(100, 100, ARGB);
+
+        free.put(huge);
+
+        assertSame(huge, adapter.mRecycled.get(0));
+        assertEquals(0, free.getFreeBytes());
+        assertEquals(0, free.getEvictionCount());
+    }
+
+    @Test
+    public void takeForDecode_prefersTheBucketThenTheSmallestBigEnough() throws Exception {
+        FreeBitmaps<FakeBitmap> free = new FreeBitmaps<>(new FakeAdapter(), 100000);
+        FakeBitmap small = new FakeBitmap(10, 10, ARGB);
+        FakeBitmap large = new FakeBitmap(40, 40, ARGB);
+        FakeBitmap medium = new FakeBitmap(20, 20, ARGB);
+        free.put(small);
+        free.put(large);
+        free.put(medium);
+
+        assertSame(small, free.takeForDecode(FreeBitmaps.bucketFor(10, 10, ARGB), 400));
+        assertSame(medium, free.takeForDecode(FreeBitmaps.bucketFor(15, 15, ARGB), 900));
+        assertNull(free.takeForDecode(FreeBitmaps.bucketFor(50, 50, ARGB), 10000));
+
+        assertEquals(2, free.getHitCount());
+        assertEquals(1, free.getMissCount());
+        assertEquals(6400, free.getFreeBytes());
+    }
+
+    @Test
+    public void trimToSize_zeroRecyclesEverything() throws Exception {
+        FakeAdapter adapter = new FakeAdapter();
+        FreeBitmaps<FakeBitmap> free = new FreeBitmaps<>(adapter, 10000);
+        free.put(new FakeBitmap(10, 10, ARGB));
+        free.put(new FakeBitmap(20, 10, RGB));
+
+        free.trimToSize(0);
+
+        assertEquals(0, free.getFreeBytes());
+        assertEquals(0, free.getFreeCount());
+        assertEquals(2, adapter.mRecycled.size());
+        assertEquals(2, free.getEvictionCount());
+    }
+}
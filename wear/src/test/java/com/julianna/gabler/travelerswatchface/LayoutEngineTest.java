@@ -0,0 +1,217 @@
+package com.julianna.gabler.travelerswatchface;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+/**
+ * fits the layout against a monospaced fake measurer and checks the specs are cached
+ */
+public class LayoutEngineTest {
+
+    private static final float MIN_TEXT_SIZE = 8;
+    private static final String ZONES_SAMPLE = "NYC 00:00  LON 00:00  TYO 00:00";
+
+    /**
+     * every char is 0.6 of the text size wide
+     */
+    private static class FakeMeasurer implements LayoutEngine.TextMeasurer {
+        int mCalls;
+
+        @Override
+        public float measureText(int role, String text, float textSize) {
+            mCalls++;
+            return text.length() * textSize * 0.6f;
+        }
+    }
+
+    /**
+     * store backed by a map
+     */
+    private static class MapStore implements Store {
+        final Map<String, String> mValues = new HashMap<>();
+
+        @Override
+        public String load(String key) {
+            return mValues.get(key);
+        }
+
+        @Override
+        public void save(String key, String value) {
+            mValues.put(key, value);
+        }
+
+        @Override
+        public Collection<String> keys() {
+            return new ArrayList<>(mValues.keySet());
+        }
+
+        @Override
+        public void removeAll(Collection<String> keys) {
+            mValues.keySet().removeAll(keys);
+        }
+    }
+
+    @Test
+    public void fitTextSize_findsTheLargestSizeThatFits() throws Exception {
+        LayoutEngine engine = new LayoutEngine(null);
+        FakeMeasurer measurer = new FakeMeasurer();
+
+        // 10 chars at 0.6 per px of size fit 120px up to a size of 20
+        float size = engine.fitTextSize(
+                measurer, LayoutEngine.TEXT_DATE, "0123456789", 120, MIN_TEXT_SIZE, 40);
+
+        assertTrue(size <= 20);
+        assertTrue(size >= 20 - LayoutEngine.FIT_PRECISION);
+        assertTrue(measurer.measureText(LayoutEngine.TEXT_DATE, "0123456789", size) <= 120);
+    }
+
+    @Test
+    public void fitTextSize_isCappedAndFloored() throws Exception {
+        LayoutEngine engine = new LayoutEngine(null);
+        FakeMeasurer measurer = new FakeMeasurer();
+
+        assertEquals(40, engine.fitTextSize(
+                measurer, LayoutEngine.TEXT_TIME, "0", 1000, MIN_TEXT_SIZE, 40), 0);
+        assertEquals(MIN_TEXT_SIZE, engine.fitTextSize(
+                measurer, LayoutEngine.TEXT_TIME, "0123456789", 10, MIN_TEXT_SIZE, 40), 0);
+    }
+
+    @Test
+    public void compute_linesFitTheSurface() throws Exception {
+        LayoutEngine engine = new LayoutEngine(null);
+        FakeMeasurer measurer = new FakeMeasurer();
+
+        for (int size : new int[] {240, 320, 400, 454}) {
+            for (boolean round : new boolean[] {false, true}) {
+                LayoutSpec spec = engine.compute(
+                        size, size, round, Locale.US, ZONES_SAMPLE, MIN_TEXT_SIZE, measurer);
+                float lineWidth = size - 2 * spec.xOffset;
+
+                assertTrue(measurer.measureText(LayoutEngine.TEXT_DATE,
+                        LayoutEngine.widestDate(), spec.dateTextSize) <= lineWidth);
+                assertTrue(measurer.measureText(LayoutEngine.TEXT_ZONES,
+                        ZONES_SAMPLE, spec.zonesTextSize) <= lineWidth);
+                assertTrue(measurer.measureText(LayoutEngine.TEXT_TIME,
+                        LayoutEngine.widestTime(Locale.US), spec.timeTextSize)
+                        + measurer.measureText(LayoutEngine.TEXT_DATE, " 00", spec.dateTextSize)
+                        <= lineWidth);
+                assertTrue(spec.timeY < spec.dateY && spec.dateY < spec.zonesY);
+            }
+        }
+    }
+
+    @Test
+    public void compute_textScalesWithTheSurface() throws Exception {
+        LayoutEngine engine = new LayoutEngine(null);
+        FakeMeasurer measurer = new FakeMeasurer();
+
+        LayoutSpec small = engine.compute(
+                240, 240, true, Locale.US, ZONES_SAMPLE, MIN_TEXT_SIZE, measurer);
+        LayoutSpec large = engine.compute(
+                454, 454, true, Locale.US, ZONES_SAMPLE, MIN_TEXT_SIZE, measurer);
+
+        assertTrue(large.timeTextSize > small.timeTextSize);
+        assertTrue(large.dateTextSize > small.dateTextSize);
+    }
+
+    @Test
+    public void fetch_knownConfigurationsAreNotRecomputed() throws Exception {
+        LayoutEngine engine = new LayoutEngine(null);
+        FakeMeasurer measurer = new FakeMeasurer();
+
+        LayoutSpec portrait = engine.fetch(
+                320, 360, false, Locale.US, ZONES_SAMPLE, MIN_TEXT_SIZE, measurer);
+        LayoutSpec landscape = engine.fetch(
+                360, 320, false, Locale.US, ZONES_SAMPLE, MIN_TEXT_SIZE, measurer);
+        int calls = measurer.mCalls;
+
+        assertSame(portrait, engine.fetch(
+                320, 360, false, Locale.US, ZONES_SAMPLE, MIN_TEXT_SIZE, measurer));
+        assertSame(landscape, engine.fetch(
+                360, 320, false, Locale.US, ZONES_SAMPLE, MIN_TEXT_SIZE, measurer));
+        assertEquals(2, engine.getComputeCount());
+        assertEquals(calls, measurer.mCalls);
+
+        // a new locale or shape is a new configuration
+        engine.fetch(320, 360, false, Locale.FRANCE, ZONES_SAMPLE, MIN_TEXT_SIZE, measurer);
+        engine.fetch(320, 360, true, Locale.US, ZONES_SAMPLE, MIN_TEXT_SIZE, measurer);
+        assertEquals(4, engine.getComputeCount());
+
+        // so are other traveler zones, the zones line is fit to them
+        engine.fetch(320, 360, false, Locale.US, "SYD 00:00", MIN_TEXT_SIZE, measurer);
+        assertEquals(5, engine.getComputeCount());
+    }
+
+    @Test
+    public void fetch_restartedEngineReadsSpecsFromTheStore() throws Exception {
+        MapStore store = new MapStore();
+        FakeMeasurer measurer = new FakeMeasurer();
+
+        LayoutSpec computed = new LayoutEngine(store).fetch(
+                320, 320, true, Locale.US, ZONES_SAMPLE, MIN_TEXT_SIZE, measurer);
+        int calls = measurer.mCalls;
+
+        LayoutEngine restarted = new LayoutEngine(store);
+        LayoutSpec loaded = restarted.fetch(
+                320, 320, true, Locale.US, ZONES_SAMPLE, MIN_TEXT_SIZE, measurer);
+
+        assertEquals(0, restarted.getComputeCount());
+        assertEquals(calls, measurer.mCalls);
+        assertEquals(computed.encode(), loaded.encode());
+    }
+
+    @Test
+    public void fetch_malformedStoredSpecIsRecomputed() throws Exception {
+        MapStore store = new MapStore();
+        store.save(LayoutEngine.keyFor(320, 320, true, Locale.US, ZONES_SAMPLE),
+                "320,320,true,oops");
+
+        LayoutEngine engine = new LayoutEngine(store);
+        engine.fetch(320, 320, true, Locale.US, ZONES_SAMPLE, MIN_TEXT_SIZE, new FakeMeasurer());
+
+        assertEquals(1, engine.getComputeCount());
+        assertNull(LayoutSpec.decode(null));
+    }
+
+    @Test
+    public void fetch_prunesOldVersionsFromTheStore() throws Exception {
+        MapStore store = new MapStore();
+        store.save("layout1_320x320_round_en_US_1234", "320,320,true");
+
+        new LayoutEngine(store).fetch(
+                320, 320, true, Locale.US, ZONES_SAMPLE, MIN_TEXT_SIZE, new FakeMeasurer());
+
+        assertEquals(1, store.mValues.size());
+        assertTrue(store.mValues.containsKey(
+                LayoutEngine.keyFor(320, 320, true, Locale.US, ZONES_SAMPLE)));
+    }
+
+    @Test
+    public void fetch_keepsOnlyTheSpecsInUsePastTheLimit() throws Exception {
+        MapStore store = new MapStore();
+        FakeMeasurer measurer = new FakeMeasurer();
+        LayoutEngine earlier = new LayoutEngine(store);
+        for (int i = 0; i < LayoutEngine.MAX_STORED_SPECS; i++) {
+            earlier.fetch(320, 320, true, Locale.US, "NYC " + i, MIN_TEXT_SIZE, measurer);
+        }
+        assertEquals(LayoutEngine.MAX_STORED_SPECS, store.mValues.size());
+
+        // a restarted engine uses one stored spec, then needs a new one
+        LayoutEngine engine = new LayoutEngine(store);
+        engine.fetch(320, 320, true, Locale.US, "NYC 0", MIN_TEXT_SIZE, measurer);
+        engine.fetch(320, 320, true, Locale.FRANCE, ZONES_SAMPLE, MIN_TEXT_SIZE, measurer);
+
+        assertEquals(2, store.mValues.size());
+        assertTrue(store.mValues.containsKey(
+                LayoutEngine.keyFor(320, 320, true, Locale.US, "NYC 0")));
+        assertTrue(store.mValues.containsKey(
+                LayoutEngine.keyFor(320, 320, true, Locale.FRANCE, ZONES_SAMPLE)));
+    }
+}
@@ -0,0 +1,220 @@
+package com.julianna.gabler.travelerswatchface;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * checks the owner bookkeeping against fake bitmaps that are only a byte count, and a recycler
+ * that records what it was handed back
+ */
+public class ManagedBitmapsTest {
+
+    /**
+     * stands in for a Bitmap
+     */
+    private static class FakeBitmap {
+        final long mBytes;
+
+        FakeBitmap(long bytes) {
+            mBytes = bytes;
+        }
+    }
+
+    /**
+     * stands in for the BitmapPool
+     */
+    private static class FakeRecycler implements ManagedBitmaps.Recycler<FakeBitmap> {
+        final List<FakeBitmap> mReleased = new ArrayList<>();
+
+        @Override
+        public long sizeOf(FakeBitmap bitmap) {
+            return bitmap.mBytes;
+        }
+
+        @Override
+        public void release(FakeBitmap bitmap) {
+            mReleased.add(bitmap);
+        }
+
+        @Override
+        public String describe(FakeBitmap bitmap) {
+            return bitmap.mBytes + " bytes";
+        }
+    }
+
+    /**
+     * @param recycler FakeRecycler
+     * @return ManagedBitmaps with every owner holding a bitmap of 100 bytes times its owner + 1
+     */
+    private static ManagedBitmaps<FakeBitmap> fill(FakeRecycler recycler) {
+        ManagedBitmaps<FakeBitmap> bitmaps = new ManagedBitmaps<>(recycler);
+        for (int owner = 0; owner < ManagedBitmaps.OWNER_COUNT; owner++) {
+            bitmaps.put(owner, new FakeBitmap(100 * (owner + 1)));
+        }
+        return bitmaps;
+    }
+
+    @Test
+    public void put_replacingReleasesThePrevious() throws Exception {
+        FakeRecycler recycler = new FakeRecycler();
+        ManagedBitmaps<FakeBitmap> bitmaps = new ManagedBitmaps<>(recycler);
+        FakeBitmap first = new FakeBitmap(400);
+        FakeBitmap second = new FakeBitmap(300);
+
+        bitmaps.put(ManagedBitmaps.OWNER_BACKGROUND, first);
+        bitmaps.put(ManagedBitmaps.OWNER_BACKGROUND, second);
+
+        assertEquals(1, recycler.mReleased.size());
+        assertSame(first, recycler.mReleased.get(0));
+        assertSame(second, bitmaps.get(ManagedBitmaps.OWNER_BACKGROUND));
+        assertEquals(300, bitmaps.getBytes(ManagedBitmaps.OWNER_BACKGROUND));
+        assertEquals(300, bitmaps.getFootprintBytes());
+    }
+
+    @Test
+    public void put_sameBitmapAgainIsKept() throws Exception {
+        FakeRecycler recycler = new FakeRecycler();
+        ManagedBitmaps<FakeBitmap> bitmaps = new ManagedBitmaps<>(recycler);
+        FakeBitmap bitmap = new FakeBitmap(400);
+
+        bitmaps.put(ManagedBitmaps.OWNER_BACKGROUND, bitmap);
+        bitmaps.put(ManagedBitmaps.OWNER_BACKGROUND, bitmap);
+
+        assertTrue(recycler.mReleased.isEmpty());
+        assertEquals(400, bitmaps.getFootprintBytes());
+    }
+
+    @Test
+    public void move_keepsTheBitmapAndReleasesTheTarget() throws Exception {
+        FakeRecycler recycler = new FakeRecycler();
+        ManagedBitmaps<FakeBitmap> bitmaps = new ManagedBitmaps<>(recycler);
+        FakeBitmap current = new FakeBitmap(400);
+        FakeBitmap next = new FakeBitmap(500);
+        bitmaps.put(ManagedBitmaps.OWNER_BACKGROUND, current);
+        bitmaps.put(ManagedBitmaps.OWNER_NEXT_BACKGROUND, next);
+
+        bitmaps.move(ManagedBitmaps.OWNER_NEXT_BACKGROUND, ManagedBitmaps.OWNER_BACKGROUND);
+
+        assertEquals(1, recycler.mReleased.size());
+        assertSame(current, recycler.mReleased.get(0));
+        assertSame(next, bitmaps.get(ManagedBitmaps.OWNER_BACKGROUND));
+        assertFalse(bitmaps.has(ManagedBitmaps.OWNER_NEXT_BACKGROUND));
+        assertEquals(500, bitmaps.getFootprintBytes());
+    }
+
+    @Test
+    public void footprint_tracksPeak() throws Exception {
+        FakeRecycler recycler = new FakeRecycler();
+        ManagedBitmaps<FakeBitmap> bitmaps = fill(recycler);
+
+        assertEquals(2100, bitmaps.getFootprintBytes());
+        assertEquals(2100, bitmaps.getPeakFootprintBytes());
+
+        bitmaps.releaseAll();
+
+        assertEquals(0, bitmaps.getFootprintBytes());
+        assertEquals(2100, bitmaps.getPeakFootprintBytes());
+        assertEquals(ManagedBitmaps.OWNER_COUNT, recycler.mReleased.size());
+    }
+
+    @Test
+    public void hold_keepsReleasesFromTheRecyclerUntilUnheld() throws Exception {
+        FakeRecycler recycler = new FakeRecycler();
+        ManagedBitmaps<FakeBitmap> bitmaps = fill(recycler);
+
+        bitmaps.hold();
+        bitmaps.hold();
+        bitmaps.release(ManagedBitmaps.OWNER_FACE_LAYER);
+        bitmaps.unhold();
+
+        assertTrue(recycler.mReleased.isEmpty());
+        assertEquals(1600, bitmaps.getFootprintBytes());
+
+        bitmaps.unhold();
+
+        assertEquals(1, recycler.mReleased.size());
+    }
+
+    @Test
+    public void releaseOffscreen_invisibleReleasesEverything() throws Exception {
+        FakeRecycler recycler = new FakeRecycler();
+        ManagedBitmaps<FakeBitmap> bitmaps = fill(recycler);
+
+        bitmaps.releaseOffscreen(false, false, true);
+
+        assertEquals(0, bitmaps.getFootprintBytes());
+        assertEquals(ManagedBitmaps.OWNER_COUNT, recycler.mReleased.size());
+    }
+
+    @Test
+    public void releaseOffscreen_ambientKeepsOnlyTheGrayBackground() throws Exception {
+        FakeRecycler recycler = new FakeRecycler();
+        ManagedBitmaps<FakeBitmap> bitmaps = fill(recycler);
+
+        bitmaps.releaseOffscreen(true, true, true);
+
+        assertFalse(bitmaps.has(ManagedBitmaps.OWNER_BACKGROUND));
+        assertTrue(bitmaps.has(ManagedBitmaps.OWNER_GRAY_BACKGROUND));
+
+        bitmaps.releaseOffscreen(true, true, false);
+
+        assertFalse(bitmaps.has(ManagedBitmaps.OWNER_GRAY_BACKGROUND));
+    }
+
+    @Test
+    public void releaseOffscreen_interactiveReleasesTheGrayBackground() throws Exception {
+        FakeRecycler recycler = new FakeRecycler();
+        ManagedBitmaps<FakeBitmap> bitmaps = fill(recycler);
+
+        bitmaps.releaseOffscreen(true, false, true);
+
+        assertTrue(bitmaps.has(ManagedBitmaps.OWNER_BACKGROUND));
+        assertFalse(bitmaps.has(ManagedBitmaps.OWNER_GRAY_BACKGROUND));
+        assertEquals(1900, bitmaps.getFootprintBytes());
+    }
+
+    @Test
+    public void onscreenOwner_followsTheMode() throws Exception {
+        assertEquals(-1, ManagedBitmaps.onscreenOwner(false, false, true));
+        assertEquals(ManagedBitmaps.OWNER_BACKGROUND,
+                ManagedBitmaps.onscreenOwner(true, false, true));
+        assertEquals(ManagedBitmaps.OWNER_GRAY_BACKGROUND,
+                ManagedBitmaps.onscreenOwner(true, true, true));
+        assertEquals(-1, ManagedBitmaps.onscreenOwner(true, true, false));
+    }
+
+    @Test
+    public void trimToSize_dropsCheapestToRebuildFirst() throws Exception {
+        FakeRecycler recycler = new FakeRecycler();
+        ManagedBitmaps<FakeBitmap> bitmaps = fill(recycler);
+
+        // the two face layers are 500 and 600 bytes
+        long freed = bitmaps.trimToSize(1000, -1);
+
+        assertEquals(1100, freed);
+        assertFalse(bitmaps.has(ManagedBitmaps.OWNER_FACE_LAYER_ALT));
+        assertFalse(bitmaps.has(ManagedBitmaps.OWNER_FACE_LAYER));
+        assertTrue(bitmaps.has(ManagedBitmaps.OWNER_FADE_FROM));
+        assertEquals(1000, bitmaps.getFootprintBytes());
+    }
+
+    @Test
+    public void trimToOnscreen_keepsOnlyTheOnscreenOwner() throws Exception {
+        FakeRecycler recycler = new FakeRecycler();
+        ManagedBitmaps<FakeBitmap> bitmaps = fill(recycler);
+
+        bitmaps.trimToOnscreen(ManagedBitmaps.OWNER_BACKGROUND);
+
+        assertTrue(bitmaps.has(ManagedBitmaps.OWNER_BACKGROUND));
+        assertEquals(100, bitmaps.getFootprintBytes());
+        assertEquals(ManagedBitmaps.OWNER_COUNT - 1, recycler.mReleased.size());
+
+        bitmaps.trimToOnscreen(-1);
+
+        assertEquals(0, bitmaps.getFootprintBytes());
+    }
+}
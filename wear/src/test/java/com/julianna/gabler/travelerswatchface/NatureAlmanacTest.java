@@ -0,0 +1,190 @@
+package com.julianna.gabler.travelerswatchface;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.TimeZone;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+/**
+ * checks the almanac tables against published moon phases and the solar calculator, and that they
+ * survive the trip to disk
+ */
+public class NatureAlmanacTest {
+
+    // 2024-01-01T00:00:00Z
+    private static final long START_MILLIS = 1704067200000L;
+
+    // Rochester, NY
+    private static final double LATITUDE = 43.1566;
+    private static final double LONGITUDE = -77.6088;
+
+    private static final TimeZone NEW_YORK = TimeZone.getTimeZone("America/New_York");
+
+    private static final long TOLERANCE_MILLIS = TimeUnit.MINUTES.toMillis(10);
+
+    @Test
+    public void moons_matchPublishedTimes() throws Exception {
+        NatureAlmanac almanac = NatureAlmanac.build(LATITUDE, LONGITUDE, NEW_YORK, START_MILLIS);
+
+        // 2024-01-11T11:57Z new, 2024-01-25T17:54Z full
+        assertTrue(hasMoon(almanac, 1704974220000L, false));
+        assertTrue(hasMoon(almanac, 1706205240000L, true));
+
+        // the table brackets the whole year
+        assertTrue(almanac.getMoon(0) <= almanac.getDayStart(0));
+        assertTrue(almanac.getMoon(almanac.getMoonCount() - 1) > almanac.getValidUntil());
+    }
+
+    @Test
+    public void moonPhase_fullAndNew() throws Exception {
+        NatureAlmanac almanac = NatureAlmanac.build(LATITUDE, LONGITUDE, NEW_YORK, START_MILLIS);
+
+        // 2024-01-25T17:54Z
+        long fullMoon = 1706205240000L;
+        double phase = almanac.moonPhase(fullMoon);
+        assertEquals(0.5, phase, 0.001);
+        assertEquals(NatureAlmanac.PHASE_FULL, NatureAlmanac.phaseOctant(phase));
+        assertEquals(100, NatureAlmanac.illumination(phase));
+
+        double newPhase = almanac.moonPhase(1704974220000L + TimeUnit.HOURS.toMillis(1));
+        assertEquals(NatureAlmanac.PHASE_NEW, NatureAlmanac.phaseOctant(newPhase));
+        assertEquals(0, NatureAlmanac.illumination(newPhase));
+    }
+
+    @Test
+    public void nextOctantChange_changesTheOctant() throws Exception {
+        NatureAlmanac almanac = NatureAlmanac.build(LATITUDE, LONGITUDE, NEW_YORK, START_MILLIS);
+
+        long t = START_MILLIS;
+        for (int i = 0; i < 40; i++) {
+            long change = almanac.nextOctantChange(t);
+            assertTrue(change > t);
+            int before = NatureAlmanac.phaseOctant(almanac.moonPhase(change - 1));
+            int after = NatureAlmanac.phaseOctant(almanac.moonPhase(change + 1));
+            assertEquals((before + 1) % NatureAlmanac.PHASE_COUNT, after);
+            assertEquals(before, NatureAlmanac.phaseOctant(almanac.moonPhase(t)));
+            t = change + 1;
+        }
+    }
+
+    @Test
+    public void sunEvents_matchDaylightSchedule() throws Exception {
+        NatureAlmanac almanac = NatureAlmanac.build(LATITUDE, LONGITUDE, NEW_YORK, START_MILLIS);
+        DaylightSchedule schedule = new DaylightSchedule(LATITUDE, LONGITUDE);
+
+        long step = TimeUnit.HOURS.toMillis(7);
+        for (long t = START_MILLIS; t < almanac.getValidUntil(); t += step) {
+            int day = almanac.dayIndex(t);
+            assertTrue(t >= almanac.getDayStart(day));
+            assertTrue(t < almanac.getDayStart(day + 1));
+
+            SolarCalculator.Day solarDay = schedule.getSolarDay(t, NEW_YORK.getOffset(t));
+            assertEquals(solarDay.sunrise, almanac.getSunrise(day), 1000);
+            assertEquals(solarDay.sunset, almanac.getSunset(day), 1000);
+        }
+    }
+
+    @Test
+    public void dayStarts_followDaylightSaving() throws Exception {
+        NatureAlmanac almanac = NatureAlmanac.build(LATITUDE, LONGITUDE, NEW_YORK, START_MILLIS);
+
+        for (int day = 0; day < NatureAlmanac.TABLE_DAYS; day++) {
+            long start = almanac.getDayStart(day);
+            long local = start + NEW_YORK.getOffset(start);
+            assertEquals(0, local % TimeUnit.DAYS.toMillis(1));
+        }
+    }
+
+    @Test
+    public void nextSunriseAndSunset() throws Exception {
+        NatureAlmanac almanac = NatureAlmanac.build(LATITUDE, LONGITUDE, NEW_YORK, START_MILLIS);
+
+        int day = almanac.dayIndex(START_MILLIS + TimeUnit.DAYS.toMillis(10));
+        long sunrise = almanac.getSunrise(day);
+        long sunset = almanac.getSunset(day);
+
+        assertEquals(sunrise, almanac.nextSunrise(sunrise - 1));
+        assertEquals(sunset, almanac.nextSunset(sunrise));
+        assertEquals(almanac.getSunrise(day + 1), almanac.nextSunrise(sunrise));
+    }
+
+    @Test
+    public void polarDay_hasNoEvents() throws Exception {
+        // Tromso in midsummer
+        NatureAlmanac almanac = NatureAlmanac.build(69.65, 18.96,
+                TimeZone.getTimeZone("Europe/Oslo"), 1718928000000L);
+
+        assertTrue(almanac.isAlwaysUp(0));
+        assertEquals(SolarCalculator.NO_EVENT, almanac.getSunset(0));
+        assertTrue(almanac.nextSunset(1718928000000L) > almanac.getDayStart(30));
+    }
+
+    @Test
+    public void writeAndRead_roundTrips() throws Exception {
+        NatureAlmanac almanac = NatureAlmanac.build(LATITUDE, LONGITUDE, NEW_YORK, START_MILLIS);
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        almanac.writeTo(new DataOutputStream(bytes));
+        NatureAlmanac read = NatureAlmanac.readFrom(
+                new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+
+        assertTrue(read.matches(LATITUDE, LONGITUDE, NEW_YORK));
+        assertFalse(read.matches(LATITUDE, LONGITUDE, TimeZone.getTimeZone("Europe/London")));
+        assertEquals(almanac.getValidUntil(), read.getValidUntil());
+        assertEquals(almanac.getMoonCount(), read.getMoonCount());
+        for (int day = 0; day < NatureAlmanac.TABLE_DAYS; day++) {
+            assertEquals(almanac.getDayStart(day), read.getDayStart(day));
+            assertEquals(almanac.getSunrise(day), read.getSunrise(day));
+            assertEquals(almanac.getSunset(day), read.getSunset(day));
+        }
+    }
+
+    @Test(expected = IOException.class)
+    public void read_rejectsOtherData() throws Exception {
+        NatureAlmanac.readFrom(new DataInputStream(new ByteArrayInputStream(new byte[64])));
+    }
+
+    @Test
+    public void lookups_answerAcrossTheWholeTable() throws Exception {
+        NatureAlmanac almanac = NatureAlmanac.build(LATITUDE, LONGITUDE, NEW_YORK, START_MILLIS);
+
+        // the last day's sunset may be past the table
+        long end = almanac.getValidUntil() - TimeUnit.DAYS.toMillis(1);
+        int lookups = 10000;
+        long step = (end - START_MILLIS) / lookups;
+        for (int i = 0; i < lookups; i++) {
+            long t = START_MILLIS + i * step;
+            long sunset = almanac.nextSunset(t);
+            assertTrue(sunset > t);
+            // a day, plus the minutes sunset moves from one day to the next
+            assertTrue(sunset - t <= TimeUnit.HOURS.toMillis(25));
+
+            double phase = almanac.moonPhase(t);
+            assertTrue(phase >= 0 && phase < 1);
+            int lit = NatureAlmanac.illumination(phase);
+            assertTrue(lit >= 0 && lit <= 100);
+        }
+    }
+
+    /**
+     * @param almanac NatureAlmanac
+     * @param time long
+     * @param full boolean
+     * @return boolean whether the table has that new or full moon, to within the tolerance
+     */
+    private static boolean hasMoon(NatureAlmanac almanac, long time, boolean full) {
+        for (int i = full ? 1 : 0; i < almanac.getMoonCount(); i += 2) {
+            if (Math.abs(almanac.getMoon(i) - time) < TOLERANCE_MILLIS) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,232 @@
+package com.julianna.gabler.travelerswatchface;
+
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+/**
+ * drives the governor with synthetic battery levels and frame times
+ */
+public class QualityGovernorTest {
+
+    private static final long CHEAP_NANOS = TimeUnit.MILLISECONDS.toNanos(2);
+    private static final long EXPENSIVE_NANOS = TimeUnit.MILLISECONDS.toNanos(30);
+    private static final long SECOND = TimeUnit.SECONDS.toMillis(1);
+
+    /**
+     * draws a window's worth of frames a second apart
+     * @param governor QualityGovernor
+     * @param drawNanos long
+     * @param startMillis long
+     * @return long the time after the last frame
+     */
+    private static long drawWindow(QualityGovernor governor, long drawNanos, long startMillis) {
+        long now = startMillis;
+        for (int i = 0; i < QualityGovernor.FRAME_WINDOW; i++) {
+            governor.onFrameDrawn(drawNanos, true, now);
+            now += SECOND;
+        }
+        return now;
+    }
+
+    @Test
+    public void batteryTierFor_thresholds() throws Exception {
+        assertEquals(QualityGovernor.TIER_FULL, QualityGovernor.batteryTierFor(100));
+        assertEquals(QualityGovernor.TIER_FULL, QualityGovernor.batteryTierFor(31));
+        assertEquals(QualityGovernor.TIER_REDUCED, QualityGovernor.batteryTierFor(30));
+        assertEquals(QualityGovernor.TIER_SAVER, QualityGovernor.batteryTierFor(15));
+        assertEquals(QualityGovernor.TIER_MINIMAL, QualityGovernor.batteryTierFor(5));
+        assertEquals(QualityGovernor.TIER_MINIMAL, QualityGovernor.batteryTierFor(0));
+    }
+
+    @Test
+    public void tiers_giveUpMoreAsTheyGoDown() throws Exception {
+        int full = QualityGovernor.TIER_FULL;
+        assertTrue(QualityGovernor.allowsFrequentRedraws(full));
+        assertTrue(QualityGovernor.allowsImmediateComplicationRedraws(full));
+        assertTrue(QualityGovernor.allowsBackgroundBitmap(full));
+        assertTrue(QualityGovernor.allowsAntiAlias(full));
+
+        int reduced = QualityGovernor.TIER_REDUCED;
+        assertFalse(QualityGovernor.allowsFrequentRedraws(reduced));
+        assertFalse(QualityGovernor.allowsImmediateComplicationRedraws(reduced));
+        assertTrue(QualityGovernor.allowsBackgroundBitmap(reduced));
+
+        assertFalse(QualityGovernor.allowsBackgroundBitmap(QualityGovernor.TIER_SAVER));
+        assertTrue(QualityGovernor.allowsAntiAlias(QualityGovernor.TIER_SAVER));
+        assertFalse(QualityGovernor.allowsAntiAlias(QualityGovernor.TIER_MINIMAL));
+    }
+
+    @Test
+    public void battery_stepsDownAndBackUpPastTheMargin() throws Exception {
+        QualityGovernor governor = new QualityGovernor();
+
+        assertFalse(governor.onBatteryChanged(80, false, 0));
+        assertTrue(governor.onBatteryChanged(30, false, 0));
+        assertEquals(QualityGovernor.TIER_REDUCED, governor.getTier());
+        assertTrue(governor.onBatteryChanged(14, false, 0));
+        assertEquals(QualityGovernor.TIER_SAVER, governor.getTier());
+
+        // a level wobbling around the threshold doesn't flip the tier
+        assertFalse(governor.onBatteryChanged(16, false, 0));
+        assertFalse(governor.onBatteryChanged(20, false, 0));
+        assertEquals(QualityGovernor.TIER_SAVER, governor.getTier());
+        assertTrue(governor.onBatteryChanged(21, false, 0));
+        assertEquals(QualityGovernor.TIER_REDUCED, governor.getTier());
+        assertFalse(governor.onBatteryChanged(35, false, 0));
+        assertTrue(governor.onBatteryChanged(36, false, 0));
+        assertEquals(QualityGovernor.TIER_FULL, governor.getTier());
+    }
+
+    @Test
+    public void charging_restoresFullQuality() throws Exception {
+        QualityGovernor governor = new QualityGovernor();
+        governor.onBatteryChanged(3, false, 0);
+        assertEquals(QualityGovernor.TIER_MINIMAL, governor.getTier());
+
+        assertTrue(governor.onBatteryChanged(3, true, 0));
+        assertEquals(QualityGovernor.TIER_FULL, governor.getTier());
+
+        // unplugged again
+        governor.onBatteryChanged(40, false, 0);
+        assertEquals(QualityGovernor.TIER_FULL, governor.getTier());
+    }
+
+    @Test
+    public void expensiveFrames_stepDownOneTierAtATime() throws Exception {
+        QualityGovernor governor = new QualityGovernor();
+        long now = TimeUnit.HOURS.toMillis(1);
+
+        // not judged until the window is full
+        for (int i = 0; i < QualityGovernor.FRAME_WINDOW - 1; i++) {
+            assertFalse(governor.onFrameDrawn(EXPENSIVE_NANOS, true, now));
+        }
+        assertTrue(governor.onFrameDrawn(EXPENSIVE_NANOS, true, now));
+        assertEquals(QualityGovernor.TIER_REDUCED, governor.getTier());
+
+        // the next step waits for the interval, with a fresh window of the new tier's frames
+        now = drawWindow(governor, EXPENSIVE_NANOS, now);
+        assertEquals(QualityGovernor.TIER_REDUCED, governor.getTier());
+        now += QualityGovernor.COST_STEP_DOWN_INTERVAL_MS;
+        drawWindow(governor, EXPENSIVE_NANOS, now);
+        assertEquals(QualityGovernor.TIER_SAVER, governor.getTier());
+    }
+
+    @Test
+    public void partialFrames_dontDiluteFullOnes() throws Exception {
+        QualityGovernor governor = new QualityGovernor();
+        long now = TimeUnit.HOURS.toMillis(1);
+
+        // the seconds redrawn between each expensive full frame
+        for (int i = 0; i < QualityGovernor.FRAME_WINDOW; i++) {
+            for (int second = 0; second < 59; second++) {
+                assertFalse(governor.onFrameDrawn(CHEAP_NANOS, false, now));
+                now += SECOND;
+            }
+            governor.onFrameDrawn(EXPENSIVE_NANOS, true, now);
+            now += SECOND;
+        }
+        assertEquals(QualityGovernor.TIER_REDUCED, governor.getTier());
+    }
+
+    @Test
+    public void renderCost_stepsDownDespiteCheapBlits() throws Exception {
+        QualityGovernor governor = new QualityGovernor();
+        long now = TimeUnit.HOURS.toMillis(1);
+
+        // each minute's layer is rendered ahead at great cost, then only blitted
+        for (int i = 0; i < QualityGovernor.FRAME_WINDOW; i++) {
+            governor.onLayerRendered(EXPENSIVE_NANOS);
+            governor.onFrameDrawn(CHEAP_NANOS, true, now);
+            now += SECOND;
+        }
+
+        assertEquals(QualityGovernor.TIER_REDUCED, governor.getTier());
+    }
+
+    @Test
+    public void renderCost_waitsForTheFullFrameThatShowsIt() throws Exception {
+        QualityGovernor governor = new QualityGovernor();
+        long now = TimeUnit.HOURS.toMillis(1);
+        governor.onLayerRendered(EXPENSIVE_NANOS);
+
+        // the seconds drawn before the minute turns don't take it
+        governor.onFrameDrawn(CHEAP_NANOS, false, now);
+        drawWindow(governor, CHEAP_NANOS, now);
+
+        assertEquals(QualityGovernor.TIER_FULL, governor.getTier());
+        assertEquals(CHEAP_NANOS + EXPENSIVE_NANOS / QualityGovernor.FRAME_WINDOW,
+                governor.getMeanFrameNanos());
+    }
+
+    @Test
+    public void cheapFrames_stepBackUpAfterTheDelay() throws Exception {
+        QualityGovernor governor = new QualityGovernor();
+        long now = drawWindow(governor, EXPENSIVE_NANOS, TimeUnit.HOURS.toMillis(1));
+        assertEquals(QualityGovernor.TIER_REDUCED, governor.getTier());
+
+        // frames within budget but not well under it keep the tier
+        long withinBudget = QualityGovernor.FRAME_BUDGET_NANOS * 3 / 4;
+        now = drawWindow(governor, withinBudget, now + QualityGovernor.COST_STEP_UP_DELAY_MS);
+        assertEquals(QualityGovernor.TIER_REDUCED, governor.getTier());
+
+        // cheap frames too soon after the step don't either
+        QualityGovernor soon = new QualityGovernor();
+        long soonNow = drawWindow(soon, EXPENSIVE_NANOS, TimeUnit.HOURS.toMillis(1));
+        drawWindow(soon, CHEAP_NANOS, soonNow);
+        assertEquals(QualityGovernor.TIER_REDUCED, soon.getTier());
+
+        drawWindow(governor, CHEAP_NANOS, now);
+        assertEquals(QualityGovernor.TIER_FULL, governor.getTier());
+    }
+
+    @Test
+    public void stepUpThatDoesntHold_waitsLongerNextTime() throws Exception {
+        QualityGovernor governor = new QualityGovernor();
+        long now = drawWindow(governor, EXPENSIVE_NANOS, TimeUnit.HOURS.toMillis(1));
+        now = drawWindow(governor, CHEAP_NANOS, now + QualityGovernor.COST_STEP_UP_DELAY_MS);
+        assertEquals(QualityGovernor.TIER_FULL, governor.getTier());
+
+        // full quality is too expensive again straight away
+        now = drawWindow(governor, EXPENSIVE_NANOS,
+                now + QualityGovernor.COST_STEP_DOWN_INTERVAL_MS);
+        assertEquals(QualityGovernor.TIER_REDUCED, governor.getTier());
+
+        // the usual delay isn't enough anymore, twice it is
+        long afterUsualDelay = now + QualityGovernor.COST_STEP_UP_DELAY_MS;
+        drawWindow(governor, CHEAP_NANOS, afterUsualDelay);
+        assertEquals(QualityGovernor.TIER_REDUCED, governor.getTier());
+        drawWindow(governor, CHEAP_NANOS, now + 2 * QualityGovernor.COST_STEP_UP_DELAY_MS);
+        assertEquals(QualityGovernor.TIER_FULL, governor.getTier());
+    }
+
+    @Test
+    public void batteryAndCost_theLowerTierWins() throws Exception {
+        QualityGovernor governor = new QualityGovernor();
+        long now = TimeUnit.HOURS.toMillis(1);
+        governor.onBatteryChanged(12, false, now);
+        assertEquals(QualityGovernor.TIER_SAVER, governor.getTier());
+
+        // a cost step to reduced doesn't lift the battery's saver
+        drawWindow(governor, EXPENSIVE_NANOS, now);
+        assertEquals(QualityGovernor.TIER_SAVER, governor.getTier());
+
+        // plugged in, the cost still holds it at reduced
+        governor.onBatteryChanged(12, true, now);
+        assertEquals(QualityGovernor.TIER_REDUCED, governor.getTier());
+    }
+
+    @Test
+    public void cost_neverStepsPastMinimal() throws Exception {
+        QualityGovernor governor = new QualityGovernor();
+        long now = TimeUnit.HOURS.toMillis(1);
+        for (int i = 0; i < 10; i++) {
+            now = drawWindow(governor, EXPENSIVE_NANOS, now)
+                    + QualityGovernor.COST_STEP_DOWN_INTERVAL_MS;
+        }
+        assertEquals(QualityGovernor.TIER_MINIMAL, governor.getTier());
+        assertTrue(governor.getMeanFrameNanos() > 0);
+    }
+}
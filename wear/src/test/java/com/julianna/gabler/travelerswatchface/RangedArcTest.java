@@ -0,0 +1,69 @@
+package com.julianna.gabler.travelerswatchface;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * checks the arc fits its slot and that values are stepped to whole pixels along it
+ */
+public class RangedArcTest {
+
+    private static final float DELTA = 0.001f;
+
+    @Test
+    public void computeOval_centeredInsideTheSlot() throws Exception {
+        // a 100 x 80 slot at 20, 40
+        int[] rects = {0, 0, 0, 0, 20, 40, 120, 120};
+        float[] oval = new float[4];
+
+        float radius = RangedArc.computeOval(rects, 1, 4, oval);
+        assertEquals(38, radius, DELTA);
+        assertEquals(70 - 38, oval[0], DELTA);
+        assertEquals(80 - 38, oval[1], DELTA);
+        assertEquals(70 + 38, oval[2], DELTA);
+        assertEquals(80 + 38, oval[3], DELTA);
+
+        // the stroke is wider than the slot
+        assertEquals(0, RangedArc.computeOval(new int[] {0, 0, 2, 2}, 0, 4, oval), DELTA);
+    }
+
+    @Test
+    public void sweepFor_clampsToTheTrack() throws Exception {
+        assertEquals(0, RangedArc.sweepFor(0, 0, 100), DELTA);
+        assertEquals(RangedArc.TRACK_SWEEP / 2, RangedArc.sweepFor(50, 0, 100), DELTA);
+        assertEquals(RangedArc.TRACK_SWEEP, RangedArc.sweepFor(100, 0, 100), DELTA);
+        assertEquals(0, RangedArc.sweepFor(-5, 0, 100), DELTA);
+        assertEquals(RangedArc.TRACK_SWEEP, RangedArc.sweepFor(150, 0, 100), DELTA);
+
+        // an empty or inverted range has nothing to show
+        assertEquals(0, RangedArc.sweepFor(5, 10, 10), DELTA);
+        assertEquals(0, RangedArc.sweepFor(5, 10, 0), DELTA);
+        assertEquals(0, RangedArc.sweepFor(Float.NaN, 0, 100), DELTA);
+    }
+
+    @Test
+    public void stepFor_onlyChangesAcrossAPixel() throws Exception {
+        float radius = 40;
+        // the whole track is about 188px long, so a step counter out of 10000 moves the arc a
+        // pixel about every 53 steps
+        int step = RangedArc.stepFor(RangedArc.sweepFor(5000, 0, 10000), radius);
+        assertEquals(step, RangedArc.stepFor(RangedArc.sweepFor(5010, 0, 10000), radius));
+        assertNotEquals(step, RangedArc.stepFor(RangedArc.sweepFor(5100, 0, 10000), radius));
+
+        assertEquals(RangedArc.NO_STEP, RangedArc.stepFor(90, 0));
+    }
+
+    @Test
+    public void sweepForStep_roundTrips() throws Exception {
+        float radius = 40;
+        for (int value = 0; value <= 100; value++) {
+            float sweep = RangedArc.sweepFor(value, 0, 100);
+            float drawn = RangedArc.sweepForStep(RangedArc.stepFor(sweep, radius), radius);
+            // within half a pixel along the arc
+            assertEquals(sweep, drawn, Math.toDegrees(0.5 / radius) + DELTA);
+            assertTrue(drawn <= RangedArc.TRACK_SWEEP);
+        }
+        assertEquals(0, RangedArc.sweepForStep(RangedArc.NO_STEP, radius), DELTA);
+    }
+}
@@ -0,0 +1,69 @@
+package com.julianna.gabler.travelerswatchface;
+
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+/**
+ * checks the seconds tick's alignment, when it redraws only the seconds, and the region it covers
+ */
+public class SecondsTickTest {
+
+    // 2017-01-01T00:00:00Z
+    private static final long START_MILLIS = 1483228800000L;
+
+    private static final long SECOND = TimeUnit.SECONDS.toMillis(1);
+    private static final long MINUTE = TimeUnit.MINUTES.toMillis(1);
+
+    @Test
+    public void delayToNext_landsOnTheNextBoundary() throws Exception {
+        assertEquals(SECOND, SecondsTick.delayToNext(START_MILLIS, SECOND));
+        assertEquals(1, SecondsTick.delayToNext(START_MILLIS + 999, SECOND));
+        assertEquals(750, SecondsTick.delayToNext(START_MILLIS + 5250, SECOND));
+        assertEquals(MINUTE - 5250, SecondsTick.delayToNext(START_MILLIS + 5250, MINUTE));
+    }
+
+    @Test
+    public void delayToNext_ticksStayAlignedWhenLate() throws Exception {
+        long now = START_MILLIS + 30;
+
+        for (int i = 0; i < 100; i++) {
+            now += SecondsTick.delayToNext(now, SECOND);
+            assertEquals(0, now % SECOND);
+            // each tick handled a little late
+            now += 17;
+        }
+    }
+
+    @Test
+    public void redrawsSecondsOnly_onlyWithinTheLayersMinute() throws Exception {
+        long minute = TimeUnit.MILLISECONDS.toMinutes(START_MILLIS);
+
+        assertTrue(SecondsTick.redrawsSecondsOnly(true, true, START_MILLIS + 59 * SECOND, minute));
+        assertFalse(SecondsTick.redrawsSecondsOnly(true, true, START_MILLIS + MINUTE, minute));
+        assertFalse(SecondsTick.redrawsSecondsOnly(true, false, START_MILLIS, minute));
+        assertFalse(SecondsTick.redrawsSecondsOnly(false, true, START_MILLIS, minute));
+    }
+
+    @Test
+    public void computeRegion_coversTheTextWithPadding() throws Exception {
+        int[] rect = new int[4];
+
+        SecondsTick.computeRegion(100.6f, 200f, -18.4f, 4.2f, 30.3f, 2, rect);
+
+        assertArrayEquals(new int[] {98, 179, 132, 206}, rect);
+    }
+
+    @Test
+    public void format_writesTwoDigits() throws Exception {
+        char[] text = new char[2];
+
+        SecondsTick.format(7, text);
+        assertEquals("07", new String(text));
+
+        SecondsTick.format(59, text);
+        assertEquals("59", new String(text));
+    }
+}
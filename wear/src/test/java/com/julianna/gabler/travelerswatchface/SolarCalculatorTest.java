@@ -0,0 +1,135 @@
+package com.julianna.gabler.travelerswatchface;
+
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+/**
+ * checks the solar math against published sunrise/sunset times and the daily caching of the
+ * daylight phases
+ */
+public class SolarCalculatorTest {
+
+    private static final long TOLERANCE_MILLIS = TimeUnit.MINUTES.toMillis(3);
+
+    private static final double NEW_YORK_LATITUDE = 40.7128;
+    private static final double NEW_YORK_LONGITUDE = -74.0060;
+    private static final int NEW_YORK_SUMMER_OFFSET = (int) TimeUnit.HOURS.toMillis(-4);
+
+    private static final double LONDON_LATITUDE = 51.5074;
+    private static final double LONDON_LONGITUDE = -0.1278;
+
+    private static final double TROMSO_LATITUDE = 69.6492;
+    private static final double TROMSO_LONGITUDE = 18.9553;
+
+    // 2017-06-21T16:00:00Z, noon in New York
+    private static final long NEW_YORK_SOLSTICE_NOON = 1498060800000L;
+    // 2017-12-21T12:00:00Z
+    private static final long WINTER_SOLSTICE_NOON = 1513857600000L;
+    // 2017-06-21T12:00:00Z
+    private static final long SUMMER_SOLSTICE_NOON = 1498046400000L;
+
+    @Test
+    public void newYork_summerSolstice() throws Exception {
+        SolarCalculator.Day day = SolarCalculator.compute(
+                NEW_YORK_SOLSTICE_NOON, NEW_YORK_LATITUDE, NEW_YORK_LONGITUDE);
+
+        // sunrise 05:25 EDT, sunset 20:31 EDT, civil dawn 04:53, civil dusk 21:03
+        assertEquals(1498037100000L, day.sunrise, TOLERANCE_MILLIS);
+        assertEquals(1498091460000L, day.sunset, TOLERANCE_MILLIS);
+        assertEquals(1498035180000L, day.civilDawn, TOLERANCE_MILLIS);
+        assertEquals(1498093380000L, day.civilDusk, TOLERANCE_MILLIS);
+        assertTrue(day.civilDawn < day.sunrise);
+        assertTrue(day.sunrise < day.solarNoon);
+        assertTrue(day.solarNoon < day.sunset);
+    }
+
+    @Test
+    public void london_winterSolstice() throws Exception {
+        SolarCalculator.Day day = SolarCalculator.compute(
+                WINTER_SOLSTICE_NOON, LONDON_LATITUDE, LONDON_LONGITUDE);
+
+        // sunrise 08:04 GMT, sunset 15:53 GMT
+        assertEquals(1513843440000L, day.sunrise, TOLERANCE_MILLIS);
+        assertEquals(1513871580000L, day.sunset, TOLERANCE_MILLIS);
+        assertEquals(TimeUnit.MINUTES.toMillis(7 * 60 + 49), day.getDaylightMillis(),
+                TOLERANCE_MILLIS);
+    }
+
+    @Test
+    public void tromso_midnightSun() throws Exception {
+        SolarCalculator.Day day = SolarCalculator.compute(
+                SUMMER_SOLSTICE_NOON, TROMSO_LATITUDE, TROMSO_LONGITUDE);
+
+        assertEquals(SolarCalculator.NO_EVENT, day.sunrise);
+        assertEquals(SolarCalculator.NO_EVENT, day.sunset);
+        assertTrue(day.alwaysUp);
+        assertEquals(TimeUnit.DAYS.toMillis(1), day.getDaylightMillis());
+
+        DaylightSchedule schedule = new DaylightSchedule(TROMSO_LATITUDE, TROMSO_LONGITUDE);
+        assertEquals(DaylightSchedule.PHASE_DAY, schedule.phaseAt(SUMMER_SOLSTICE_NOON, 0));
+    }
+
+    @Test
+    public void tromso_polarNight() throws Exception {
+        SolarCalculator.Day day = SolarCalculator.compute(
+                WINTER_SOLSTICE_NOON, TROMSO_LATITUDE, TROMSO_LONGITUDE);
+
+        assertEquals(SolarCalculator.NO_EVENT, day.sunrise);
+        assertFalse(day.alwaysUp);
+        assertTrue(day.civilDawn != SolarCalculator.NO_EVENT);
+
+        DaylightSchedule schedule = new DaylightSchedule(TROMSO_LATITUDE, TROMSO_LONGITUDE);
+        assertEquals(DaylightSchedule.PHASE_TWILIGHT, schedule.phaseAt(day.solarNoon, 0));
+        assertEquals(DaylightSchedule.PHASE_NIGHT, schedule.phaseAt(day.civilDusk + 1, 0));
+    }
+
+    @Test
+    public void schedule_phasesThroughTheDay() throws Exception {
+        DaylightSchedule schedule = new DaylightSchedule(NEW_YORK_LATITUDE, NEW_YORK_LONGITUDE);
+        int offset = NEW_YORK_SUMMER_OFFSET;
+        SolarCalculator.Day day = schedule.getSolarDay(NEW_YORK_SOLSTICE_NOON, offset);
+
+        assertEquals(DaylightSchedule.PHASE_NIGHT, schedule.phaseAt(day.civilDawn - 1, offset));
+        assertEquals(DaylightSchedule.PHASE_DAWN, schedule.phaseAt(day.civilDawn, offset));
+        assertEquals(DaylightSchedule.PHASE_DAWN, schedule.phaseAt(day.sunrise, offset));
+        assertEquals(DaylightSchedule.PHASE_DAY, schedule.phaseAt(day.solarNoon, offset));
+        assertEquals(DaylightSchedule.PHASE_DUSK, schedule.phaseAt(day.sunset - 1, offset));
+        assertEquals(DaylightSchedule.PHASE_TWILIGHT, schedule.phaseAt(day.sunset, offset));
+        assertEquals(DaylightSchedule.PHASE_NIGHT, schedule.phaseAt(day.civilDusk, offset));
+
+        assertEquals(day.sunrise + DaylightSchedule.GOLDEN_HOUR_MILLIS,
+                schedule.nextBoundary(day.sunrise, offset));
+        assertEquals(day.sunset, schedule.nextBoundary(day.sunset - 1, offset));
+        assertEquals(DaylightSchedule.PHASE_TWILIGHT, schedule.nextPhase(day.sunset - 1, offset));
+    }
+
+    @Test
+    public void schedule_computesOncePerDay() throws Exception {
+        DaylightSchedule schedule = new DaylightSchedule(NEW_YORK_LATITUDE, NEW_YORK_LONGITUDE);
+        int offset = NEW_YORK_SUMMER_OFFSET;
+        long minute = TimeUnit.MINUTES.toMillis(1);
+
+        // three days of minute ticks starting at local midnight
+        long midnight = NEW_YORK_SOLSTICE_NOON - TimeUnit.HOURS.toMillis(12);
+        for (int i = 0; i < 3 * 24 * 60; i++) {
+            schedule.phaseAt(midnight + i * minute, offset);
+        }
+
+        assertEquals(3, schedule.getComputeCount());
+    }
+
+    @Test
+    public void schedule_afterLastBoundary_nextIsMidnight() throws Exception {
+        DaylightSchedule schedule = new DaylightSchedule(NEW_YORK_LATITUDE, NEW_YORK_LONGITUDE);
+        int offset = NEW_YORK_SUMMER_OFFSET;
+        SolarCalculator.Day day = schedule.getSolarDay(NEW_YORK_SOLSTICE_NOON, offset);
+
+        long nextMidnight = NEW_YORK_SOLSTICE_NOON + TimeUnit.HOURS.toMillis(12);
+        assertEquals(nextMidnight, schedule.nextBoundary(day.civilDusk, offset));
+        assertEquals(DaylightSchedule.PHASE_NIGHT, schedule.nextPhase(day.civilDusk, offset));
+        assertEquals(1, schedule.getComputeCount());
+    }
+}
@@ -0,0 +1,156 @@
+package com.julianna.gabler.travelerswatchface;
+
+import org.junit.Test;
+
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+/**
+ * replays the engine's cold start against a fake clock and checks the phase ordering and budgets
+ */
+public class StartupTimelineTest {
+
+    /**
+     * clock that only moves when told to
+     */
+    private static class FakeClock implements StartupTimeline.Clock {
+        long mNanos;
+
+        void advance(long millis) {
+            mNanos += TimeUnit.MILLISECONDS.toNanos(millis);
+        }
+
+        @Override
+        public long nanoTime() {
+            return mNanos;
+        }
+    }
+
+    /**
+     * mirrors the callback order of TravelersWatchFace on a cold start
+     * @param timeline StartupTimeline
+     * @param clock FakeClock
+     * @param backgroundMillis long time spent decoding the background
+     */
+    private static void coldStart(StartupTimeline timeline, FakeClock clock, long backgroundMillis) {
+        timeline.begin(StartupTimeline.PHASE_CREATE_ENGINE);
+        clock.advance(1);
+        timeline.end();
+
+        timeline.begin(StartupTimeline.PHASE_ENGINE_CREATE);
+        timeline.begin(StartupTimeline.PHASE_INIT_BACKGROUND);
+        clock.advance(backgroundMillis);
+        timeline.end();
+        timeline.begin(StartupTimeline.PHASE_INIT_DATE_TIME);
+        clock.advance(1);
+        timeline.end();
+        timeline.begin(StartupTimeline.PHASE_INIT_COMPLICATIONS);
+        clock.advance(2);
+        timeline.end();
+        timeline.end();
+
+        timeline.begin(StartupTimeline.PHASE_APPLY_INSETS);
+        clock.advance(3);
+        timeline.end();
+
+        timeline.begin(StartupTimeline.PHASE_SURFACE_CHANGED);
+        timeline.begin(StartupTimeline.PHASE_GRAY_BACKGROUND);
+        clock.advance(25);
+        timeline.end();
+        timeline.end();
+
+        timeline.begin(StartupTimeline.PHASE_REGISTER_RECEIVER);
+        clock.advance(2);
+        timeline.end();
+
+        timeline.begin(StartupTimeline.PHASE_FIRST_DRAW);
+        clock.advance(12);
+        timeline.end();
+        timeline.markFirstFrame();
+    }
+
+    @Test
+    public void coldStart_phasesInOrder() throws Exception {
+        FakeClock clock = new FakeClock();
+        StartupTimeline timeline = new StartupTimeline(clock);
+
+        coldStart(timeline, clock, 40);
+
+        assertTrue(timeline.isInOrder(StartupTimeline.STARTUP_ORDER));
+        assertTrue(timeline.isInOrder(
+                StartupTimeline.PHASE_INIT_BACKGROUND,
+                StartupTimeline.PHASE_INIT_DATE_TIME,
+                StartupTimeline.PHASE_INIT_COMPLICATIONS));
+        assertFalse(timeline.isInOrder(
+                StartupTimeline.PHASE_FIRST_DRAW,
+                StartupTimeline.PHASE_SURFACE_CHANGED));
+        assertEquals(1 + 40 + 1 + 2 + 3 + 25 + 2 + 12, timeline.getFirstFrameMillis());
+        assertEquals(44, timeline.getStartMillis(StartupTimeline.PHASE_APPLY_INSETS));
+    }
+
+    @Test
+    public void coldStart_withinBudget() throws Exception {
+        FakeClock clock = new FakeClock();
+        StartupTimeline timeline = new StartupTimeline(clock);
+
+        coldStart(timeline, clock, 40);
+
+        assertEquals(43, timeline.getDurationMillis(StartupTimeline.PHASE_ENGINE_CREATE));
+        assertTrue(timeline.getFirstFrameMillis() <= StartupTimeline.FIRST_FRAME_BUDGET_MS);
+        assertTrue(timeline.isWithinBudget());
+    }
+
+    @Test
+    public void slowBackgroundDecode_overBudget() throws Exception {
+        FakeClock clock = new FakeClock();
+        StartupTimeline timeline = new StartupTimeline(clock);
+
+        coldStart(timeline, clock, 300);
+
+        assertFalse(timeline.isWithinBudget());
+
+        StringWriter dump = new StringWriter();
+        timeline.dump("", new PrintWriter(dump));
+        assertTrue(dump.toString().contains("initializeBackground @1ms 300ms OVER BUDGET"));
+    }
+
+    @Test
+    public void afterFirstFrame_timelineIsFrozen() throws Exception {
+        FakeClock clock = new FakeClock();
+        StartupTimeline timeline = new StartupTimeline(clock);
+
+        coldStart(timeline, clock, 40);
+        long firstFrame = timeline.getFirstFrameMillis();
+
+        // a later surface change must not be mistaken for part of the startup
+        clock.advance(1000);
+        timeline.begin(StartupTimeline.PHASE_SURFACE_CHANGED);
+        clock.advance(500);
+        timeline.end();
+        timeline.markFirstFrame();
+
+        assertEquals(25, timeline.getDurationMillis(StartupTimeline.PHASE_SURFACE_CHANGED));
+        assertEquals(firstFrame, timeline.getFirstFrameMillis());
+    }
+
+    @Test
+    public void writeTraceEvents_chromeFormat() throws Exception {
+        FakeClock clock = new FakeClock();
+        StartupTimeline timeline = new StartupTimeline(clock);
+
+        coldStart(timeline, clock, 40);
+
+        StringWriter trace = new StringWriter();
+        timeline.writeTraceEvents(trace);
+        String json = trace.toString();
+
+        assertTrue(json.startsWith("{\"traceEvents\":["));
+        assertTrue(json.endsWith("]}"));
+        assertTrue(json.contains(
+                "{\"name\":\"initializeBackground\",\"ph\":\"X\",\"pid\":0,\"tid\":0,\"ts\":1000,\"dur\":40000}"));
+        assertTrue(json.contains("\"name\":\"firstFrame\""));
+    }
+}
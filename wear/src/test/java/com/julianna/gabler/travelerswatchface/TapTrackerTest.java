@@ -0,0 +1,134 @@
+package com.julianna.gabler.travelerswatchface;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * drives the tap state machine through the sequences onTapCommand() sees on a watch
+ */
+public class TapTrackerTest {
+
+    private static final int[] TYPES = {3};
+
+    private static final int LEFT_ID = 7;
+    private static final int RIGHT_ID = 2;
+
+    /**
+     * @return ComplicationSlots two text dials side by side under a background slot
+     */
+    private static ComplicationSlots dials() {
+        return new ComplicationSlots()
+                .add(LEFT_ID, ComplicationSlots.KIND_TEXT, 0f, 0.5f, 0.5f, 1f, TYPES, 1, 0)
+                .add(RIGHT_ID, ComplicationSlots.KIND_TEXT, 0.5f, 0.5f, 1f, 1f, TYPES, 2, 0)
+                .add(9, ComplicationSlots.KIND_BACKGROUND, 0f, 0f, 1f, 1f, TYPES, 3, 0);
+    }
+
+    /**
+     * @param slots ComplicationSlots
+     * @return int[] rects for a 100 x 100 surface
+     */
+    private static int[] rects(ComplicationSlots slots) {
+        int[] rects = new int[ComplicationSlots.MAX_SLOTS * 4];
+        slots.computeRects(100, 100, rects);
+        return rects;
+    }
+
+    @Test
+    public void findSlot_hitsOnlyTappableTextSlots() throws Exception {
+        ComplicationSlots slots = dials();
+        TapTracker tracker = new TapTracker(slots);
+        int[] rects = rects(slots);
+        boolean[] tappable = {true, false, true};
+
+        assertEquals(0, tracker.findSlot(rects, tappable, 10, 60));
+        // the right dial has no data that takes taps
+        assertEquals(TapTracker.NONE, tracker.findSlot(rects, tappable, 60, 60));
+        // only the background slot covers the top half
+        assertEquals(TapTracker.NONE, tracker.findSlot(rects, tappable, 10, 10));
+    }
+
+    @Test
+    public void onTouch_highlightsTheSlot() throws Exception {
+        TapTracker tracker = new TapTracker(dials());
+
+        assertTrue(tracker.onTouch(0, false));
+
+        assertEquals(0, tracker.getPressedIndex());
+        assertEquals(LEFT_ID, tracker.getPressedID());
+        // touching the same slot again changes nothing to redraw
+        assertFalse(tracker.onTouch(0, false));
+    }
+
+    @Test
+    public void onTouch_outsideAnySlotKeepsTheHighlight() throws Exception {
+        TapTracker tracker = new TapTracker(dials());
+        tracker.onTouch(1, false);
+
+        assertFalse(tracker.onTouch(TapTracker.NONE, false));
+        assertEquals(RIGHT_ID, tracker.getPressedID());
+    }
+
+    @Test
+    public void onCancel_dropsTheHighlight() throws Exception {
+        TapTracker tracker = new TapTracker(dials());
+        tracker.onTouch(0, false);
+
+        assertTrue(tracker.onCancel());
+        assertEquals(TapTracker.NONE, tracker.getPressedIndex());
+        assertFalse(tracker.onCancel());
+    }
+
+    @Test
+    public void onTap_dispatchesLaterAndHighlightsUntilDispatched() throws Exception {
+        TapTracker tracker = new TapTracker(dials());
+        tracker.onTouch(0, false);
+
+        int dispatchID = tracker.onTap(0, false);
+
+        assertEquals(LEFT_ID, dispatchID);
+        // still highlighted while the dispatch waits in the handler
+        assertEquals(LEFT_ID, tracker.getPressedID());
+        assertEquals(0, tracker.getDispatchCount());
+
+        assertTrue(tracker.onDispatched(dispatchID));
+        assertEquals(TapTracker.NONE, tracker.getPressedIndex());
+        assertEquals(1, tracker.getDispatchCount());
+    }
+
+    @Test
+    public void onTap_withoutATouchStillHighlights() throws Exception {
+        TapTracker tracker = new TapTracker(dials());
+
+        assertEquals(RIGHT_ID, tracker.onTap(1, false));
+        assertEquals(RIGHT_ID, tracker.getPressedID());
+    }
+
+    @Test
+    public void onTap_onAnEmptySlotClearsAndDispatchesNothing() throws Exception {
+        TapTracker tracker = new TapTracker(dials());
+        tracker.onTouch(0, false);
+
+        assertEquals(TapTracker.NONE, tracker.onTap(TapTracker.NONE, false));
+        assertEquals(TapTracker.NONE, tracker.getPressedIndex());
+    }
+
+    @Test
+    public void onTap_inAmbientDispatchesNothing() throws Exception {
+        TapTracker tracker = new TapTracker(dials());
+
+        assertFalse(tracker.onTouch(0, true));
+        assertEquals(TapTracker.NONE, tracker.onTap(0, true));
+        assertEquals(TapTracker.NONE, tracker.getPressedIndex());
+    }
+
+    @Test
+    public void onDispatched_leavesANewerTouchHighlighted() throws Exception {
+        TapTracker tracker = new TapTracker(dials());
+        int dispatchID = tracker.onTap(0, false);
+        tracker.onTouch(1, false);
+
+        assertFalse(tracker.onDispatched(dispatchID));
+        assertEquals(RIGHT_ID, tracker.getPressedID());
+    }
+}
@@ -0,0 +1,209 @@
+package com.julianna.gabler.travelerswatchface;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+/**
+ * analyzes synthetic backgrounds and checks the results are cached
+ */
+public class TextContrastTest {
+
+    private static final int SIZE = 64;
+    private static final int BLACK = 0xff000000;
+    private static final int WHITE = 0xffffffff;
+
+    private static final int[] TYPES = {3};
+
+    /**
+     * store backed by a map
+     */
+    private static class MapStore implements Store {
+        final Map<String, String> mValues = new HashMap<>();
+
+        @Override
+        public String load(String key) {
+            return mValues.get(key);
+        }
+
+        @Override
+        public void save(String key, String value) {
+            mValues.put(key, value);
+        }
+
+        @Override
+        public Collection<String> keys() {
+            return new ArrayList<>(mValues.keySet());
+        }
+
+        @Override
+        public void removeAll(Collection<String> keys) {
+            mValues.keySet().removeAll(keys);
+        }
+    }
+
+    /**
+     * @param size int
+     * @param round boolean
+     * @return LayoutSpec for a face of that size and shape
+     */
+    private static LayoutSpec layout(int size, boolean round) {
+        return new LayoutEngine(null).compute(size, size, round, Locale.US,
+                "NYC 00:00", 8, new LayoutEngine.TextMeasurer() {
+                    @Override
+                    public float measureText(int role, String text, float textSize) {
+                        return text.length() * textSize * 0.6f;
+                    }
+                });
+    }
+
+    /**
+     * @return float[] the regions of a 320px square face with a text dial at the bottom
+     */
+    private static float[] regions() {
+        LayoutSpec layout = layout(320, false);
+        ComplicationSlots slots = new ComplicationSlots()
+                .add(0, ComplicationSlots.KIND_TEXT, 0.3f, 0.75f, 0.7f, 0.9f, TYPES, 1, 0)
+                .add(1, ComplicationSlots.KIND_BACKGROUND, 0f, 0f, 1f, 1f, TYPES, 2, 0);
+        return TextContrast.textRegions(layout, slots);
+    }
+
+    /**
+     * @param color int
+     * @return int[] a SIZE x SIZE image of one color
+     */
+    private static int[] fill(int color) {
+        int[] pixels = new int[SIZE * SIZE];
+        Arrays.fill(pixels, color);
+        return pixels;
+    }
+
+    @Test
+    public void textRegions_coverEachRoleWithinTheSurface() throws Exception {
+        float[] regions = regions();
+
+        // three lines and the one text dial, the background slot has no text
+        assertEquals(4 * TextContrast.REGION_FIELDS, regions.length);
+        for (int r = 0; r < regions.length; r += TextContrast.REGION_FIELDS) {
+            assertEquals(r / TextContrast.REGION_FIELDS, (int) regions[r]);
+            assertTrue(regions[r + 1] >= 0 && regions[r + 1] < regions[r + 3]);
+            assertTrue(regions[r + 2] >= 0 && regions[r + 2] < regions[r + 4]);
+            assertTrue(regions[r + 3] <= 1 && regions[r + 4] <= 1);
+        }
+    }
+
+    @Test
+    public void analyze_darkBackgroundKeepsLightText() throws Exception {
+        assertEquals(0, TextContrast.analyze(fill(BLACK), SIZE, SIZE, regions()));
+        assertEquals(0, TextContrast.analyze(fill(0xff203050), SIZE, SIZE, regions()));
+    }
+
+    @Test
+    public void analyze_brightBackgroundGetsDarkText() throws Exception {
+        int mask = TextContrast.analyze(fill(WHITE), SIZE, SIZE, regions());
+        for (int role = 0; role < 4; role++) {
+            assertTrue(TextContrast.isDark(mask, role));
+        }
+        assertEquals(0xf, TextContrast.analyze(fill(0xfff0e0a0), SIZE, SIZE, regions()));
+    }
+
+    @Test
+    public void analyze_onlyTheRegionUnderTheTextCounts() throws Exception {
+        float[] regions = regions();
+
+        // a bright band across the time line, dark everywhere else
+        int[] pixels = fill(BLACK);
+        int top = Math.round(regions[2] * SIZE);
+        int bottom = Math.round(regions[4] * SIZE);
+        Arrays.fill(pixels, top * SIZE, bottom * SIZE, WHITE);
+
+        int mask = TextContrast.analyze(pixels, SIZE, SIZE, regions);
+        assertTrue(TextContrast.isDark(mask, LayoutEngine.TEXT_TIME));
+        assertFalse(TextContrast.isDark(mask, LayoutEngine.TEXT_DATE));
+        assertFalse(TextContrast.isDark(mask, LayoutEngine.TEXT_ZONES));
+        assertFalse(TextContrast.isDark(mask, LayoutEngine.TEXT_COMPLICATION));
+    }
+
+    @Test
+    public void analyze_aFewBrightPixelsDontFlipTheText() throws Exception {
+        int[] histogram = new int[256];
+        histogram[10] = 95;
+        histogram[255] = 5;
+        assertFalse(TextContrast.prefersDark(histogram));
+
+        histogram[10] = 50;
+        histogram[255] = 50;
+        // half bright and half dark: light text fails on the bright half, dark on the dark half
+        assertFalse(TextContrast.prefersDark(histogram));
+
+        histogram[10] = 5;
+        histogram[200] = 95;
+        histogram[255] = 0;
+        assertTrue(TextContrast.prefersDark(histogram));
+        assertFalse(TextContrast.prefersDark(new int[256]));
+    }
+
+    @Test
+    public void fetch_resultsAreCachedInMemoryAndTheStore() throws Exception {
+        MapStore store = new MapStore();
+        TextContrast contrast = new TextContrast(store);
+        String key = TextContrast.keyFor("bckgrd1", layout(320, false));
+
+        assertEquals(TextContrast.UNKNOWN, contrast.fetch(key));
+        contrast.put(key, 5, 0);
+        assertEquals(5, contrast.fetch(key));
+        assertFalse(TextContrast.isDark(TextContrast.UNKNOWN, LayoutEngine.TEXT_TIME));
+
+        // a restarted engine reads it back from the store
+        TextContrast restarted = new TextContrast(store);
+        assertEquals(5, restarted.fetch(key));
+        assertEquals(TextContrast.UNKNOWN,
+                restarted.fetch(TextContrast.keyFor("bckgrd1", layout(400, false))));
+
+        store.mValues.put(key, "garbage");
+        assertEquals(TextContrast.UNKNOWN, new TextContrast(store).fetch(key));
+    }
+
+    @Test
+    public void keyFor_followsTheLayoutNotJustTheSize() throws Exception {
+        String square = TextContrast.keyFor("bckgrd1", layout(320, false));
+        assertEquals(square, TextContrast.keyFor("bckgrd1", layout(320, false)));
+
+        // the same size with its text placed for a round screen is analyzed on its own
+        assertNotEquals(square, TextContrast.keyFor("bckgrd1", layout(320, true)));
+        assertNotEquals(square, TextContrast.keyFor("bckgrd2", layout(320, false)));
+    }
+
+    @Test
+    public void put_prunesResultsForOtherLayoutsAndVersions() throws Exception {
+        MapStore store = new MapStore();
+        TextContrast contrast = new TextContrast(store);
+        String square = TextContrast.keyFor("bckgrd1", layout(320, false));
+        String round = TextContrast.keyFor("bckgrd1", layout(320, true));
+        String roundNight = TextContrast.keyFor("bckgrd_night", layout(320, true));
+        store.save("contrast0_bckgrd1_320x320_abcd", "1");
+
+        contrast.put(square, 1, 0);
+        assertEquals(1, store.mValues.size());
+
+        contrast.put(round, 2, 0);
+        contrast.put(roundNight, 3, 0);
+
+        assertEquals(2, store.mValues.size());
+        assertFalse(store.mValues.containsKey(square));
+        assertEquals("3", store.mValues.get(roundNight));
+    }
+
+    @Test
+    public void layoutPart_isTheSizeAndHash() throws Exception {
+        assertEquals("_320x320_1f2e",
+                TextContrast.layoutPart("contrast1_bckgrd_night_320x320_1f2e"));
+    }
+}
@@ -0,0 +1,126 @@
+package com.julianna.gabler.travelerswatchface;
+
+import org.junit.Test;
+
+import java.util.TimeZone;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+/**
+ * checks the precomputed offset tables and the formatted line against TimeZone
+ */
+public class ZoneOffsetTableTest {
+
+    // 2017-01-01T00:00:00Z
+    private static final long START_MILLIS = 1483228800000L;
+
+    private static final String[] ZONES = {
+            "America/New_York",
+            "Europe/London",
+            "Asia/Tokyo",
+            "Australia/Sydney",
+            "Australia/Lord_Howe",
+            "Asia/Kolkata",
+            "America/Sao_Paulo",
+            "Pacific/Auckland",
+            "America/Los_Angeles",
+            "Europe/Berlin"
+    };
+
+    @Test
+    public void offsetAt_matchesTimeZone() throws Exception {
+        long step = TimeUnit.MINUTES.toMillis(37);
+
+        for (String zoneID : ZONES) {
+            TimeZone zone = TimeZone.getTimeZone(zoneID);
+            ZoneOffsetTable table = ZoneOffsetTable.build(zone, "X", START_MILLIS);
+
+            for (long t = START_MILLIS; t < table.getValidUntil(); t += step) {
+                assertEquals(zoneID + " at " + t, zone.getOffset(t), table.offsetAt(t));
+            }
+        }
+    }
+
+    @Test
+    public void transitions_exactToTheMillisecond() throws Exception {
+        TimeZone zone = TimeZone.getTimeZone("America/New_York");
+        ZoneOffsetTable table = ZoneOffsetTable.build(zone, "NYC", START_MILLIS);
+
+        assertEquals(2, table.getTransitionCount());
+
+        // 2017-03-12T07:00:00Z, clocks go forward at 2am EST
+        long springForward = 1489302000000L;
+        assertEquals(zone.getOffset(springForward - 1), table.offsetAt(springForward - 1));
+        assertEquals(zone.getOffset(springForward), table.offsetAt(springForward));
+
+        // lookups going back in time must still be right
+        assertEquals(zone.getOffset(START_MILLIS), table.offsetAt(START_MILLIS));
+    }
+
+    @Test
+    public void noDaylightSaving_noTransitions() throws Exception {
+        ZoneOffsetTable table = ZoneOffsetTable.build(
+                TimeZone.getTimeZone("Asia/Kolkata"), "DEL", START_MILLIS);
+
+        assertEquals(0, table.getTransitionCount());
+        assertEquals(TimeUnit.MINUTES.toMillis(330), table.offsetAt(START_MILLIS));
+    }
+
+    @Test
+    public void format_writesEachZone() throws Exception {
+        TravelerZones zones = new TravelerZones(
+                new String[] {"NYC|America/New_York", "Asia/Tokyo"}, START_MILLIS);
+
+        // 2017-07-01T12:34:00Z
+        long now = 1498912440000L;
+        int length = zones.format(now);
+
+        assertEquals("NYC 08:34  TOK 21:34", new String(zones.getLine(), 0, length));
+    }
+
+    @Test
+    public void format_pastTheTable_rebuilds() throws Exception {
+        TravelerZones zones = new TravelerZones(new String[] {"Europe/London"}, START_MILLIS);
+        long later = START_MILLIS + ZoneOffsetTable.TABLE_SPAN_MILLIS + TimeUnit.DAYS.toMillis(200);
+
+        int length = zones.format(later);
+
+        assertTrue(zones.getTable(0).covers(later));
+        assertEquals(9, length);
+    }
+
+    @Test
+    public void build_tenZonesCoverTheYear() throws Exception {
+        long untilMillis = START_MILLIS + ZoneOffsetTable.TABLE_SPAN_MILLIS;
+
+        for (String zoneID : ZONES) {
+            ZoneOffsetTable table =
+                    ZoneOffsetTable.build(TimeZone.getTimeZone(zoneID), "X", START_MILLIS);
+
+            assertTrue(zoneID, table.covers(START_MILLIS));
+            assertTrue(zoneID, table.covers(untilMillis - 1));
+            assertFalse(zoneID, table.covers(untilMillis));
+        }
+    }
+
+    @Test
+    public void format_tenZonesEveryMinuteOfAMonth() throws Exception {
+        TravelerZones zones = new TravelerZones(ZONES, START_MILLIS);
+        long minute = TimeUnit.MINUTES.toMillis(1);
+        int minutes = 60 * 24 * 30;
+        int length = zones.format(START_MILLIS);
+
+        for (int i = 0; i < minutes; i++) {
+            long now = START_MILLIS + i * minute;
+
+            assertEquals(length, zones.format(now));
+            for (int z = 0; z < ZONES.length; z++) {
+                int offset = TimeZone.getTimeZone(ZONES[z]).getOffset(now);
+                assertEquals(ZONES[z] + " at " + now,
+                        (int) (((now + offset) / minute) % (60 * 24)),
+                        zones.getTable(z).minuteOfDay(now));
+            }
+        }
+    }
+}